@@ -61,6 +61,29 @@ public class Conventions {
 		 * modification done
 		 */
 		public static final String DB_OPERATION_NO_SUCCESS = "_dbOperationNoSuccess";
+
+		/**
+		 * a service could not be submitted as a job, because the job queue is full
+		 * or the user has too many jobs pending
+		 */
+		public static final String JOB_NOT_ACCEPTED = "_jobNotAccepted";
+
+		/**
+		 * jobId is required to get the response of a job
+		 */
+		public static final String JOB_ID_REQUIRED = "_jobIdRequired";
+
+		/**
+		 * no job found with the jobId. Either it is not a valid id, or the job was
+		 * cleaned-up after its response was delivered
+		 */
+		public static final String NO_SUCH_JOB = "_noSuchJob";
+
+		/**
+		 * filtered rows could not be exported, typically because there is no space
+		 * for the export file
+		 */
+		public static final String EXPORT_FAILED = "_exportFailed";
 	}
 
 	/**
@@ -109,6 +132,14 @@ public class Conventions {
 		 * name in the context for user-IP address
 		 */
 		public static final String CLIENT_IP_FIELD_NAME = "_clientIp";
+		/**
+		 * query parameter with which an exported file is requested for download
+		 */
+		public static final String PARAM_EXPORT_FILE = "file";
+		/**
+		 * content type of an exported file
+		 */
+		public static final String CSV_CONTENT_TYPE = "text/csv; charset=UTF-8";
 		/**
 		 * name in the context for sessionId
 		 */
@@ -198,10 +229,25 @@ public class Conventions {
 		 * District Name"
 		 */
 		public static final String TAG_LIST_ENTRY_LABEL = "label";
+		/**
+		 * version of the contents of a list. Sent in the response, and the client
+		 * may send it back in the request for the same list
+		 */
+		public static final String TAG_LIST_VERSION = "version";
+		/**
+		 * set to true in the response instead of the list, in case the client
+		 * already has the latest version of the list
+		 */
+		public static final String TAG_NOT_MODIFIED = "notModified";
 		/**
 		 * number of rows of data (expected or delivered)
 		 */
 		public static final String TAG_MAX_ROWS = "maxRows";
+		/**
+		 * total number of rows that satisfy the filter conditions. sent back along
+		 * with the filtered rows if the client asked for it
+		 */
+		public static final String TAG_TOTAL_COUNT = "totalCount";
 
 		/**
 		 * while requesting a filter, client may specify the name of the table to be
@@ -228,6 +274,16 @@ public class Conventions {
 		 * sort it ascending.
 		 */
 		public static final String TAG_SORT_BY_DESCENDING = "descending";
+		/**
+		 * fields on which the filtered rows are to be grouped. "groupBy":
+		 * ["field1",...]
+		 */
+		public static final String TAG_GROUP_BY = "groupBy";
+		/**
+		 * aggregates to be calculated for each group "aggregates" : [{"field":
+		 * "field1", "function": "sum", "name": "total"}...]
+		 */
+		public static final String TAG_AGGREGATES = "aggregates";
 		/**
 		 * fields to be included in the selected rows for a filter request
 		 */
@@ -273,6 +329,47 @@ public class Conventions {
 		 * any
 		 */
 		public static final String TAG_FORM_DATA = "formData";
+
+		/**
+		 * id of a job. returned when a service is submitted as a job, and is to be
+		 * sent back to get the status/response of the job
+		 */
+		public static final String TAG_JOB_ID = "jobId";
+		/**
+		 * status of a job
+		 */
+		public static final String TAG_JOB_STATUS = "jobStatus";
+		/**
+		 * percentage of work completed by a job. -1 if it can not be determined
+		 */
+		public static final String TAG_JOB_PERCENT = "percentCompleted";
+		/**
+		 * number of units of work completed by a job. -1 if it can not be
+		 * determined
+		 */
+		public static final String TAG_JOB_COUNT = "progressCount";
+		/**
+		 * progress message from a job
+		 */
+		public static final String TAG_JOB_MESSAGE = "progressMessage";
+		/**
+		 * set to true in the request to get the response of a job, to cancel the
+		 * job instead
+		 */
+		public static final String TAG_CANCEL_JOB = "cancelJob";
+		/**
+		 * response of a job that is completed
+		 */
+		public static final String TAG_JOB_RESPONSE = "response";
+		/**
+		 * name of the file to which the filtered rows are exported. To be used to
+		 * download the file
+		 */
+		public static final String TAG_EXPORT_FILE = "exportFile";
+		/**
+		 * number of rows exported
+		 */
+		public static final String TAG_NBR_ROWS = "nbrRows";
 	}
 
 	/**
@@ -314,6 +411,16 @@ public class Conventions {
 		 */
 		public static final String HAS_NO_VALUE = "!#";
 
+		/** aggregate: sum of the values */
+		public static final String SUM = "sum";
+		/** aggregate: average of the values */
+		public static final String AVG = "avg";
+		/** aggregate: smallest of the values */
+		public static final String MIN = "min";
+		/** aggregate: largest of the values */
+		public static final String MAX = "max";
+		/** aggregate: number of rows, or of non-null values if a field is specified */
+		public static final String COUNT = "count";
 	}
 
 	/**
@@ -440,10 +547,23 @@ public class Conventions {
 		 * was requested earlier
 		 */
 		public static final String SERVICE_GET_RESPONSE = "_getResponse";
+		/**
+		 * predefined name for the service to export filtered rows of a form as csv
+		 */
+		public static final String SERVICE_EXPORT = "_export";
+		/**
+		 * prefix for the names of exported files in the temp file manager
+		 */
+		public static final String EXPORT_FILE_PREFIX = "export-";
 		/**
 		 * name with which the user data is saved in the context
 		 */
 		public static final String USER_IN_CTX = "_user";
+		/**
+		 * name with which the progress-recorder of a job is saved in the context, if
+		 * the service is being run as a job
+		 */
+		public static final String JOB_PROGRESS_IN_CTX = "_jobProgress";
 
 	}
 
@@ -483,6 +603,21 @@ public class Conventions {
 		 * list of fields from this form.
 		 */
 		public static final String TAG_FIELDS = "fields";
+		/**
+		 * optional. number of rows after which the inserts are committed. Rows are
+		 * also inserted in batches of up to these many rows
+		 */
+		public static final String TAG_COMMIT_ROWS = "commitEveryRows";
+		/**
+		 * optional. number of milliseconds after which the inserts are committed,
+		 * even if commitEveryRows is not reached.
+		 */
+		public static final String TAG_COMMIT_MILLIS = "commitEveryMillis";
+		/**
+		 * optional. number of threads to resolve the values of rows in parallel. 0,
+		 * the default, means the values are resolved on the thread that inserts them
+		 */
+		public static final String TAG_WORKERS = "parallelWorkers";
 		/**
 		 * indicates that this is set to a constant value
 		 */
@@ -12,6 +12,13 @@ import java.util.Set;
 import org.simplity.server.core.data.OverrideUtil;
 import org.simplity.server.core.data.RecordOverride;
 import org.simplity.server.core.data.OverrideUtil.Overrides;
+import org.simplity.server.core.json.JsonException;
+import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.NullableValue;
+import org.simplity.server.core.service.OutputData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * data that is to be cached for a logged-in user that is used across service
@@ -22,6 +29,10 @@ import org.simplity.server.core.data.OverrideUtil.Overrides;
  *
  */
 public class DefaultUserContext implements UserContext {
+	protected static final Logger logger = LoggerFactory.getLogger(DefaultUserContext.class);
+	private static final String TAG_TENANT_ID = "tenantId";
+	private static final String TAG_OVERRIDE_ID = "overrideId";
+
 	protected final Map<String, Object> values = new HashMap<>();
 
 	/**
@@ -181,15 +192,44 @@ public class DefaultUserContext implements UserContext {
 
 	}
 
+	/**
+	 * tenant id and override id are written out as a json. An extended class
+	 * should override this, and load(), to include its own fields
+	 */
 	@Override
 	public void persist(Writer writer) {
-		// TODO Auto-generated method stub
-
+		final OutputData outData = JsonUtil.newOutputData(writer);
+		outData.beginObject();
+		if (this.tenantId != null) {
+			outData.addNameValuePair(TAG_TENANT_ID, this.tenantId);
+		}
+		if (this.overrideId != null) {
+			outData.addName(TAG_OVERRIDE_ID).addValue(this.overrideId);
+		}
+		outData.endObject();
 	}
 
 	@Override
 	public boolean load(Reader reader) {
-		// TODO Auto-generated method stub
-		return false;
+		final InputData data;
+		try {
+			data = JsonUtil.newInputData(reader);
+		} catch (final JsonException e) {
+			logger.error("User context could not be loaded: {}", e.getMessage());
+			return false;
+		}
+		if (data == null) {
+			return false;
+		}
+
+		final NullableValue tenant = data.getValue(TAG_TENANT_ID);
+		if (tenant != null && !tenant.isNull()) {
+			this.tenantId = tenant.getValue();
+		}
+		final String id = data.getString(TAG_OVERRIDE_ID);
+		if (id != null && !id.isEmpty()) {
+			this.setOverrides(id);
+		}
+		return true;
 	}
 }
@@ -4,9 +4,14 @@ package org.simplity.server.core.app;
 import java.io.IOException;
 import java.io.Writer;
 
+import org.simplity.server.core.DefaultUserContext;
 import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.infra.ClusterCoordinator;
 import org.simplity.server.core.infra.CompProvider;
 import org.simplity.server.core.infra.Emailer;
+import org.simplity.server.core.infra.JobManager;
+import org.simplity.server.core.infra.Scheduler;
+import org.simplity.server.core.infra.TempFileManager;
 import org.simplity.server.core.infra.Texter;
 import org.simplity.server.core.service.InputData;
 
@@ -49,6 +54,15 @@ public interface App {
 	 */
 	int getMaxRowsToExtractFromDb();
 
+	/**
+	 * rows in an array of child rows are parsed and validated in parallel if there
+	 * are at least these many rows
+	 *
+	 * @return min number of rows for parallel parsing. 0 if the rows are never to
+	 *         be parsed in parallel
+	 */
+	int getMinRowsForParallelParse();
+
 	/**
 	 * nullable db fields are generally bug-prone. We recommend that you avoid them
 	 * by using empty string. However, Oracle creates bigger mess by treating
@@ -84,6 +98,41 @@ public interface App {
 	 */
 	Emailer getEmailer();
 
+	/**
+	 *
+	 * @return non-null job manager to run services as background jobs
+	 */
+	JobManager getJobManager();
+
+	/**
+	 *
+	 * @return non-null scheduler to run services periodically
+	 */
+	Scheduler getScheduler();
+
+	/**
+	 *
+	 * @return non-null coordinator for work across the nodes of a cluster
+	 */
+	ClusterCoordinator getClusterCoordinator();
+
+	/**
+	 *
+	 * @return non-null manager for content that is to be kept across requests, or
+	 *         is too large to be kept in memory
+	 */
+	TempFileManager getTempFileManager();
+
+	/**
+	 * for requests that are not served as services, like the download of an
+	 * exported file, but are to be made by a logged-in user
+	 *
+	 * @param sessionId session id that was returned to the client on login
+	 * @return user context of the session, or null if there is no such session,
+	 *         possibly because it has timed-out
+	 */
+	DefaultUserContext getUserContext(String sessionId);
+
 	/**
 	 * designed to facilitate writing the response directly to the stream. internal
 	 * calls can use a StringWriter to get the response as an string
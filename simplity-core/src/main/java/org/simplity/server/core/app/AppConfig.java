@@ -1,10 +1,14 @@
 package org.simplity.server.core.app;
 
 import org.simplity.server.core.infra.AccessController;
+import org.simplity.server.core.infra.ClusterCoordinator;
 import org.simplity.server.core.infra.DbConnectionFactory;
 import org.simplity.server.core.infra.Emailer;
 import org.simplity.server.core.infra.ExceptionListener;
+import org.simplity.server.core.infra.JobManager;
 import org.simplity.server.core.infra.RequestLogger;
+import org.simplity.server.core.infra.Scheduler;
+import org.simplity.server.core.infra.TempFileManager;
 import org.simplity.server.core.infra.ServiceContextFactory;
 import org.simplity.server.core.infra.SessionCache;
 import org.simplity.server.core.infra.Texter;
@@ -58,6 +62,19 @@ public class AppConfig {
 
 	public DbConnectionFactory dbConnectionFactory;
 
+	/**
+	 * optional. factories for read-replicas of the db. If specified, read-only
+	 * operations are spread across these replicas.
+	 */
+	public DbConnectionFactory[] dbReplicaFactories;
+
+	/**
+	 * relevant only if dbReplicaFactories is specified. Number of milliseconds
+	 * after a write operation during which reads from the same session are routed
+	 * to the primary db, so that the user does not see stale data after a save.
+	 */
+	public int readYourWritesMillis = 5000;
+
 	/**
 	 * optional.
 	 */
@@ -89,10 +106,123 @@ public class AppConfig {
 	 */
 	public ServiceContextFactory contextFactory;
 
+	/**
+	 * optional. coordinates jobs and schedules across the nodes of a cluster. If
+	 * not specified, and leaseTableName is specified, leases in that table of the
+	 * default db are used. Else the app is assumed to run on a single node.
+	 */
+	public ClusterCoordinator clusterCoordinator;
+
+	/**
+	 * optional. table in the default db used for leases by the default cluster
+	 * coordinator
+	 */
+	public String leaseTableName;
+
+	/**
+	 * unique id of this node in the cluster. A random id is used if this is not
+	 * specified
+	 */
+	public String nodeId;
+
+	/**
+	 * seconds for which a lease is valid unless it is renewed. A node is
+	 * considered dead after its lease expires
+	 */
+	public int leaseTtlSeconds = 30;
+
+	/**
+	 * optional. if not specified, a default job manager is used, with the
+	 * settings that follow
+	 */
+	public JobManager jobManager;
+
+	/**
+	 * number of jobs that may run concurrently with the default job manager
+	 */
+	public int maxRunningJobs = 4;
+
+	/**
+	 * number of jobs that may wait in the queue of the default job manager. Any
+	 * job beyond this is rejected
+	 */
+	public int maxQueuedJobs = 100;
+
+	/**
+	 * number of jobs that a user may have waiting or running at any time. 0
+	 * means no limit
+	 */
+	public int maxJobsPerUser = 2;
+
+	/**
+	 * number of minutes for which a completed job, along with its output, is
+	 * retained by the default job manager
+	 */
+	public int jobRetentionMinutes = 60;
+
+	/**
+	 * optional. table to which the default job manager persists the status of
+	 * jobs. Status is not persisted if this is not specified
+	 */
+	public String jobStatusTableName;
+
+	/**
+	 * optional. if not specified, a default scheduler is used, with the settings
+	 * that follow
+	 */
+	public Scheduler scheduler;
+
+	/**
+	 * resolution, in milliseconds, of the default scheduler
+	 */
+	public int schedulerTickMillis = 1000;
+
+	/**
+	 * maximum random delay, in milliseconds, added to each scheduled run by the
+	 * default scheduler
+	 */
+	public int schedulerJitterMillis = 2000;
+
+	/**
+	 * optional. if not specified, a default temp file manager is used, with the
+	 * settings that follow
+	 */
+	public TempFileManager tempFileManager;
+
+	/**
+	 * folder for temp files of this node. A sub-folder of the temp folder of the
+	 * OS is used if this is not specified
+	 */
+	public String tempFileFolder;
+
+	/**
+	 * KB of content up to which a temp file is kept in memory rather than on the
+	 * disk
+	 */
+	public int tempFileMemoryKb = 256;
+
+	/**
+	 * MB of disk space that may be used for temp files on this node. 0 means no
+	 * limit
+	 */
+	public int tempFileDiskQuotaMb = 1024;
+
+	/**
+	 * number of minutes after which a temp file that is not accessed is removed
+	 */
+	public int tempFileTtlMinutes = 60;
+
 	/**
 	 * Max rows, as a safety measure, to be extracted from any query from a DB using
 	 * filter-feature.
 	 */
 	public int maxRowsForFilter = 10000;
 
+	/**
+	 * number of rows in an array of child rows in a request, from which the rows
+	 * are parsed and validated in parallel. 0, the default, means that the rows are
+	 * always parsed on the thread that is serving the request
+	 */
+	public int minRowsForParallelParse;
+
 }
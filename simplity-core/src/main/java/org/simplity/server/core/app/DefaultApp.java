@@ -4,6 +4,8 @@ package org.simplity.server.core.app;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.UUID;
 
 import org.simplity.server.core.Conventions;
@@ -11,17 +13,26 @@ import org.simplity.server.core.DefaultUserContext;
 import org.simplity.server.core.Message;
 import org.simplity.server.core.db.DbDriver;
 import org.simplity.server.core.infra.AccessController;
+import org.simplity.server.core.infra.ClusterCoordinator;
 import org.simplity.server.core.infra.CompProvider;
 import org.simplity.server.core.infra.Emailer;
 import org.simplity.server.core.infra.ExceptionListener;
+import org.simplity.server.core.infra.JobManager;
 import org.simplity.server.core.infra.RequestLogger;
+import org.simplity.server.core.infra.Scheduler;
+import org.simplity.server.core.infra.TempFileManager;
 import org.simplity.server.core.infra.ServiceContextFactory;
 import org.simplity.server.core.infra.SessionCache;
 import org.simplity.server.core.infra.Texter;
+import org.simplity.server.core.infra.defalt.DbLeaseCoordinator;
 import org.simplity.server.core.infra.defalt.DefaultCompProvider;
 import org.simplity.server.core.infra.defalt.DefaultContextFactory;
+import org.simplity.server.core.infra.defalt.DefaultJobManager;
+import org.simplity.server.core.infra.defalt.DefaultScheduler;
+import org.simplity.server.core.infra.defalt.DefaultTempFileManager;
 import org.simplity.server.core.infra.defalt.DefaultSessionCacher;
 import org.simplity.server.core.infra.defalt.DefunctAccessController;
+import org.simplity.server.core.infra.defalt.DefunctClusterCoordinator;
 import org.simplity.server.core.infra.defalt.DefunctCompProvider;
 import org.simplity.server.core.infra.defalt.DefunctDbConFactory;
 import org.simplity.server.core.infra.defalt.DefunctEmailer;
@@ -29,6 +40,7 @@ import org.simplity.server.core.infra.defalt.DefunctExceptionListener;
 import org.simplity.server.core.infra.defalt.DefunctRequestLogger;
 import org.simplity.server.core.infra.defalt.DefunctTexter;
 import org.simplity.server.core.jdbc.JdbcDriver;
+import org.simplity.server.core.job.internal.ServiceAsJob;
 import org.simplity.server.core.json.JsonUtil;
 import org.simplity.server.core.service.InputData;
 import org.simplity.server.core.service.OutputData;
@@ -70,7 +82,12 @@ class DefaultApp implements App {
 	private final Texter texter;
 	private final Emailer emailer;
 	private final ServiceContextFactory contextFactory;
+	private final ClusterCoordinator coordinator;
+	private final JobManager jobManager;
+	private final Scheduler scheduler;
+	private final TempFileManager tempFileManager;
 	private int maxRowsForFilter = 10000;
+	private final int minRowsForParallelParse;
 
 	/**
 	 * configure the app
@@ -86,6 +103,7 @@ class DefaultApp implements App {
 		if (config.maxRowsForFilter != 0) {
 			this.maxRowsForFilter = config.maxRowsForFilter;
 		}
+		this.minRowsForParallelParse = config.minRowsForParallelParse;
 
 		String rootPackageName = config.appRootPackage;
 
@@ -111,7 +129,8 @@ class DefaultApp implements App {
 			logger.warn("No DB connection configured. No db access");
 			this.rdbDriver = new JdbcDriver(new DefunctDbConFactory());
 		} else {
-			this.rdbDriver = new JdbcDriver(config.dbConnectionFactory);
+			this.rdbDriver = new JdbcDriver(config.dbConnectionFactory, config.dbReplicaFactories,
+					config.readYourWritesMillis);
 		}
 
 		if (config.exceptionListener == null) {
@@ -157,6 +176,47 @@ class DefaultApp implements App {
 		} else {
 			this.emailer = config.emailer;
 		}
+
+		if (config.clusterCoordinator != null) {
+			this.coordinator = config.clusterCoordinator;
+		} else if (config.leaseTableName == null || config.leaseTableName.isEmpty()) {
+			this.coordinator = new DefunctClusterCoordinator();
+		} else {
+			String nodeId = config.nodeId;
+			if (nodeId == null || nodeId.isEmpty()) {
+				nodeId = UUID.randomUUID().toString();
+			}
+			logger.info("Cluster coordination through leases in table {} as node {}", config.leaseTableName, nodeId);
+			this.coordinator = new DbLeaseCoordinator(this.rdbDriver, config.leaseTableName, nodeId,
+					config.leaseTtlSeconds);
+		}
+
+		if (config.tempFileManager == null) {
+			final String folder = config.tempFileFolder;
+			final Path path = folder == null || folder.isEmpty()
+					? Paths.get(System.getProperty("java.io.tmpdir"), "simplity")
+					: Paths.get(folder);
+			this.tempFileManager = new DefaultTempFileManager(path, config.tempFileMemoryKb * 1024,
+					config.tempFileDiskQuotaMb * 1024L * 1024L, config.tempFileTtlMinutes);
+		} else {
+			this.tempFileManager = config.tempFileManager;
+		}
+
+		if (config.jobManager == null) {
+			logger.warn("No custom job manager is configured. A default one is used");
+			this.jobManager = new DefaultJobManager(this.contextFactory, this.compProvider, this.rdbDriver, this.coordinator,
+					this.tempFileManager, config.maxRunningJobs, config.maxQueuedJobs, config.maxJobsPerUser,
+					config.jobRetentionMinutes, config.jobStatusTableName);
+		} else {
+			this.jobManager = config.jobManager;
+		}
+
+		if (config.scheduler == null) {
+			this.scheduler = new DefaultScheduler(this.jobManager, this.coordinator, config.schedulerTickMillis,
+					config.schedulerJitterMillis);
+		} else {
+			this.scheduler = config.scheduler;
+		}
 	}
 
 	@Override
@@ -164,6 +224,11 @@ class DefaultApp implements App {
 		return this.maxRowsForFilter;
 	}
 
+	@Override
+	public int getMinRowsForParallelParse() {
+		return this.minRowsForParallelParse;
+	}
+
 	@Override
 	public boolean treatNullAsEmptyString() {
 		return false;
@@ -194,6 +259,34 @@ class DefaultApp implements App {
 		return this.emailer;
 	}
 
+	@Override
+	public JobManager getJobManager() {
+		return this.jobManager;
+	}
+
+	@Override
+	public ClusterCoordinator getClusterCoordinator() {
+		return this.coordinator;
+	}
+
+	@Override
+	public Scheduler getScheduler() {
+		return this.scheduler;
+	}
+
+	@Override
+	public TempFileManager getTempFileManager() {
+		return this.tempFileManager;
+	}
+
+	@Override
+	public DefaultUserContext getUserContext(final String sessionId) {
+		if (sessionId == null || sessionId.isEmpty()) {
+			return null;
+		}
+		return this.cache.get(sessionId);
+	}
+
 	@Override
 	public boolean guestsOk() {
 		return this.serveGuests;
@@ -252,6 +345,10 @@ class DefaultApp implements App {
 				return writeErrorResponse(RequestStatus.NoSuchService, writer);
 			}
 
+			if (service.isAsynch()) {
+				service = new ServiceAsJob(service);
+			}
+
 			InputData data = inData.getData(TAG_DATA);
 			if (data == null) {
 				data = JsonUtil.newInputData();
@@ -267,7 +364,12 @@ class DefaultApp implements App {
 			this.reqLogger.log("" + userId, serviceName, ip, inData.toString());
 
 			outData.addName(TAG_DATA).beginObject();
-			service.serve(ctx, data);
+			JdbcDriver.beginRequest(sessionId);
+			try {
+				service.serve(ctx, data);
+			} finally {
+				JdbcDriver.endRequest();
+			}
 			outData.endObject();
 
 			RequestStatus status = ctx.allOk() ? RequestStatus.Completed : RequestStatus.CompletedWithErrors;
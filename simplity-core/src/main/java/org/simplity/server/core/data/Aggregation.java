@@ -0,0 +1,67 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import org.simplity.server.core.fn.FunctionDefinition;
+import org.simplity.server.core.fn.NumericFunction;
+
+/**
+ * an aggregate to be calculated for each group of rows of a DataTable, like
+ * sum of amount. The function is evaluated with the non-null values of the
+ * column in the group, in the order of the rows.
+ *
+ * Any NumericFunction, like Sum, Average, Min and Max, can be used on a numeric
+ * column, and any other function, like Concat, on any column.
+ *
+ * @author simplity.org
+ *
+ */
+public class Aggregation {
+	private final String outputName;
+	private final FunctionDefinition function;
+	private final int columnIndex;
+
+	/**
+	 *
+	 * @param outputName  name of the output column for this aggregate
+	 * @param function    function that evaluates the aggregate, like new Sum()
+	 * @param columnIndex 0-based index of the column in the table whose values
+	 *                    are aggregated
+	 */
+	public Aggregation(final String outputName, final FunctionDefinition function, final int columnIndex) {
+		this.outputName = outputName;
+		this.function = function;
+		this.columnIndex = columnIndex;
+	}
+
+	/**
+	 *
+	 * @return name of the output column for this aggregate
+	 */
+	public String getOutputName() {
+		return this.outputName;
+	}
+
+	/**
+	 *
+	 * @return function that evaluates this aggregate
+	 */
+	public FunctionDefinition getFunction() {
+		return this.function;
+	}
+
+	/**
+	 *
+	 * @return 0-based index of the column whose values are aggregated
+	 */
+	public int getColumnIndex() {
+		return this.columnIndex;
+	}
+
+	/**
+	 *
+	 * @return true if the values are numbers and the function works on doubles
+	 */
+	boolean isNumeric() {
+		return this.function instanceof NumericFunction;
+	}
+}
@@ -209,13 +209,12 @@ public class ChildMetaData {
 
 		final DbRecord thisRecord = (DbRecord) form.record;
 		outData.addName(this.childName);
-		final String[] names = thisRecord.fetchFieldNames();
 		final ValueType[] outputTypes = thisRecord.fetchValueTypes();
 		if (this.isTable) {
 			outData.beginArray();
 			handle.readWithRowProcessor(this.linkWhereClause, vt.values, vt.types, outputTypes, row -> {
 				outData.beginObject();
-				outData.addValues(names, row);
+				thisRecord.writeValues(outData, row);
 				form.readChildForms(row, outData, handle);
 				outData.endObject();
 				return true;
@@ -228,7 +227,7 @@ public class ChildMetaData {
 		final Object[] row = new Object[outputTypes.length];
 		final boolean ok = handle.read(this.linkWhereClause, vt.values, vt.types, outputTypes, row);
 		if (ok) {
-			outData.addValues(names, row);
+			thisRecord.writeValues(outData, row);
 		}
 
 		outData.endObject();
@@ -290,15 +289,22 @@ public class ChildMetaData {
 				return false;
 			}
 
-			InputData[] childRecs = arr.toDataArray();
-			for (int idx = 0; idx < childRecs.length; idx++) {
-				if (!thisRecord.parse(childRecs[idx], true, ctx, this.childFormName, idx)) {
-					return false;
-				}
-				this.copyParentKeys(parentRec, thisRecord);
-				thisRecord.saveOrFail(handle);
+			/*
+			 * all rows are parsed and validated before any of them is written, so that
+			 * they can be saved in a batch
+			 */
+			final Record[] records = RowsParser.parse(thisRecord, arr.toDataArray(), true, ctx, this.childFormName);
+			if (records == null) {
+				return false;
+			}
+			final Object[][] rows = new Object[records.length][];
+			for (int idx = 0; idx < records.length; idx++) {
+				this.copyParentKeys(parentRec, records[idx]);
+				rows[idx] = records[idx].fetchRawData();
+			}
+			if (!thisRecord.dba.saveAll(handle, rows)) {
+				throw new SQLException("Save failed silently for one or more rows of " + this.childFormName);
 			}
-
 			return true;
 		}
 
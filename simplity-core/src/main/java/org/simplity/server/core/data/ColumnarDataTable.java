@@ -0,0 +1,496 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.valueschema.ValueType;
+
+/**
+ * A DataTable that stores its data column-wise rather than as an array of
+ * objects for each row. Meant for large tables that are held in memory, like
+ * the rows of a report, where boxing every value of every row is expensive.
+ *
+ * <ul>
+ * <li>integers and dates are stored as long, and decimals as double</li>
+ * <li>text is dictionary-encoded: each distinct value is stored once, and the
+ * rows store an int code for it</li>
+ * <li>booleans and nulls are stored as bits</li>
+ * <li>timestamps are stored as they are</li>
+ * </ul>
+ *
+ * Columns grow in chunks of a fixed number of rows, and hence adding rows never
+ * copies the existing data.
+ *
+ * Note: The records returned by the iterator are flyweights: the same instance
+ * is re-used for every row. A record that is to be kept beyond the iteration
+ * must be copied with makeACopy(), or fetched with fetchRecord() instead.
+ *
+ * Aggregation code should use the column accessors like getLong() and
+ * getDouble() rather than the records, to avoid boxing the values altogether.
+ *
+ * @author simplity.org
+ * @param <T> record that describes the columns of this table
+ *
+ */
+public class ColumnarDataTable<T extends Record> extends DataTable<T> {
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int WORDS_PER_CHUNK = CHUNK_SIZE >>> 6;
+
+	private final T record;
+	private final ValueType[] valueTypes;
+	private final Column[] columns;
+	private int nbrRows;
+
+	/**
+	 * construct with an instance of the underlying Record
+	 *
+	 * @param record
+	 */
+	public ColumnarDataTable(final T record) {
+		super(record);
+		this.record = record;
+		this.valueTypes = record.fetchValueTypes();
+		this.columns = new Column[this.valueTypes.length];
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i] = newColumn(this.valueTypes[i]);
+		}
+	}
+
+	private static Column newColumn(final ValueType vt) {
+		switch (vt) {
+		case Integer:
+			return new LongColumn();
+		case Decimal:
+			return new DoubleColumn();
+		case Boolean:
+			return new BooleanColumn();
+		case Text:
+			return new TextColumn();
+		case Date:
+			return new DateColumn();
+		default:
+			return new ObjectColumn();
+		}
+	}
+
+	@Override
+	public void addRecord(final T rec) {
+		this.addRow(rec.fieldValues);
+	}
+
+	/**
+	 * values in the row are copied into the columns, and hence the row can be
+	 * re-used by the caller after this call
+	 */
+	@Override
+	public void addRow(final Object[] row) {
+		final int idx = this.nbrRows;
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i].add(idx, row[i]);
+		}
+		this.nbrRows++;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i] = newColumn(this.valueTypes[i]);
+		}
+		this.nbrRows = 0;
+	}
+
+	@Override
+	public int length() {
+		return this.nbrRows;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T fetchRecord(final int idx) {
+		if (idx < 0 || idx >= this.nbrRows) {
+			return null;
+		}
+		return (T) this.record.newInstance(this.fetchRow(idx, new Object[this.columns.length]));
+	}
+
+	/**
+	 * copy the values of a row into an array
+	 *
+	 * @param idx    0-based row index
+	 * @param values array into which the values are to be copied. Must have as
+	 *               many elements as there are columns
+	 * @return values, for convenience
+	 */
+	public Object[] fetchRow(final int idx, final Object[] values) {
+		this.checkRow(idx);
+		for (int i = 0; i < this.columns.length; i++) {
+			final Column col = this.columns[i];
+			values[i] = col.isNull(idx) ? null : col.get(idx);
+		}
+		return values;
+	}
+
+	/**
+	 * records returned by this iterator are flyweights. see class comment
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Iterator<T> iterator() {
+		final T view = (T) this.record.newInstance();
+		return new Iterator<>() {
+			private int idx = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.idx < ColumnarDataTable.this.nbrRows;
+			}
+
+			@Override
+			public T next() {
+				if (this.idx >= ColumnarDataTable.this.nbrRows) {
+					throw new NoSuchElementException();
+				}
+				ColumnarDataTable.this.fetchRow(this.idx++, view.fieldValues);
+				return view;
+			}
+		};
+	}
+
+	@Override
+	public boolean process(final Object[] row) throws SQLException {
+		this.addRow(row);
+		return true;
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based column index, that is the index of the field in the
+	 *            record
+	 * @return true if the value is null
+	 */
+	public boolean isNull(final int row, final int col) {
+		this.checkRow(row);
+		return this.columns[col].isNull(row);
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based index of a column of value type Integer or Date. Days
+	 *            since epoch for a date
+	 * @return value, or 0 if the value is null
+	 */
+	public long getLong(final int row, final int col) {
+		this.checkRow(row);
+		return this.column(col, LongColumn.class).getLong(row);
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based index of a column of value type Decimal or Integer
+	 * @return value, or 0 if the value is null
+	 */
+	public double getDouble(final int row, final int col) {
+		this.checkRow(row);
+		final Column c = this.columns[col];
+		if (c instanceof LongColumn) {
+			return ((LongColumn) c).getLong(row);
+		}
+		return this.column(col, DoubleColumn.class).getDouble(row);
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based index of a column of value type Boolean
+	 * @return value, or false if the value is null
+	 */
+	public boolean getBoolean(final int row, final int col) {
+		this.checkRow(row);
+		return this.column(col, BooleanColumn.class).getBoolean(row);
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based index of a column of value type Text
+	 * @return value, or null if the value is null
+	 */
+	public String getText(final int row, final int col) {
+		this.checkRow(row);
+		return this.column(col, TextColumn.class).get(row);
+	}
+
+	/**
+	 * text values are dictionary-encoded. Rows with the same text value have the
+	 * same code. Useful to group rows on a text column without comparing strings
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based index of a column of value type Text
+	 * @return code of the text value in this row, or -1 if the value is null
+	 */
+	public int getTextCode(final int row, final int col) {
+		this.checkRow(row);
+		return this.column(col, TextColumn.class).getCode(row);
+	}
+
+	/**
+	 *
+	 * @param col 0-based index of a column of value type Text
+	 * @return distinct values in this column, indexed by their code. This is a
+	 *         copy, and hence can be used even after more rows are added
+	 */
+	public String[] getTextDictionary(final int col) {
+		return this.column(col, TextColumn.class).values.toArray(new String[0]);
+	}
+
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based column index
+	 * @return value of the cell. null if it is null.
+	 */
+	public Object getValue(final int row, final int col) {
+		this.checkRow(row);
+		final Column c = this.columns[col];
+		return c.isNull(row) ? null : c.get(row);
+	}
+
+	@Override
+	public Object fetchValue(final int row, final int col) {
+		return this.getValue(row, col);
+	}
+
+	private void checkRow(final int row) {
+		if (row < 0 || row >= this.nbrRows) {
+			throw new ApplicationError("Row index " + row + " is invalid for a table with " + this.nbrRows + " rows");
+		}
+	}
+
+	private <C extends Column> C column(final int col, final Class<C> cls) {
+		final Column c = this.columns[col];
+		if (cls.isInstance(c)) {
+			return cls.cast(c);
+		}
+		throw new ApplicationError("Column " + col + " is of value type " + this.valueTypes[col]
+				+ " and can not be accessed as " + cls.getSimpleName());
+	}
+
+	/**
+	 * values of a column, in chunks, with the null-ness of a value stored as a bit
+	 */
+	private abstract static class Column {
+		private long[][] nulls = new long[1][];
+
+		final void add(final int row, final Object value) {
+			final int chunk = row >>> CHUNK_BITS;
+			if ((row & CHUNK_MASK) == 0) {
+				if (chunk == this.nulls.length) {
+					this.nulls = Arrays.copyOf(this.nulls, chunk * 2);
+				}
+				this.nulls[chunk] = new long[WORDS_PER_CHUNK];
+				this.newChunk(chunk);
+			}
+			if (value == null) {
+				final int i = row & CHUNK_MASK;
+				this.nulls[chunk][i >>> 6] |= 1L << i;
+				return;
+			}
+			this.set(chunk, row & CHUNK_MASK, value);
+		}
+
+		final boolean isNull(final int row) {
+			final int i = row & CHUNK_MASK;
+			return (this.nulls[row >>> CHUNK_BITS][i >>> 6] & (1L << i)) != 0;
+		}
+
+		/**
+		 * allocate storage for a new chunk
+		 */
+		abstract void newChunk(int chunk);
+
+		/**
+		 * set a non-null value
+		 */
+		abstract void set(int chunk, int idx, Object value);
+
+		/**
+		 * get the value of a row that is known to be not null
+		 */
+		abstract Object get(int row);
+	}
+
+	private static class LongColumn extends Column {
+		long[][] chunks = new long[1][];
+
+		@Override
+		void newChunk(final int chunk) {
+			if (chunk == this.chunks.length) {
+				this.chunks = Arrays.copyOf(this.chunks, chunk * 2);
+			}
+			this.chunks[chunk] = new long[CHUNK_SIZE];
+		}
+
+		@Override
+		void set(final int chunk, final int idx, final Object value) {
+			this.chunks[chunk][idx] = this.toLong(value);
+		}
+
+		long toLong(final Object value) {
+			return ((Number) value).longValue();
+		}
+
+		final long getLong(final int row) {
+			return this.chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+		}
+
+		@SuppressWarnings("boxing")
+		@Override
+		Object get(final int row) {
+			return this.getLong(row);
+		}
+	}
+
+	private static class DateColumn extends LongColumn {
+		@Override
+		long toLong(final Object value) {
+			return ((LocalDate) value).toEpochDay();
+		}
+
+		@Override
+		Object get(final int row) {
+			return LocalDate.ofEpochDay(this.getLong(row));
+		}
+	}
+
+	private static class DoubleColumn extends Column {
+		private double[][] chunks = new double[1][];
+
+		@Override
+		void newChunk(final int chunk) {
+			if (chunk == this.chunks.length) {
+				this.chunks = Arrays.copyOf(this.chunks, chunk * 2);
+			}
+			this.chunks[chunk] = new double[CHUNK_SIZE];
+		}
+
+		@Override
+		void set(final int chunk, final int idx, final Object value) {
+			this.chunks[chunk][idx] = ((Number) value).doubleValue();
+		}
+
+		double getDouble(final int row) {
+			return this.chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+		}
+
+		@SuppressWarnings("boxing")
+		@Override
+		Object get(final int row) {
+			return this.getDouble(row);
+		}
+	}
+
+	private static class BooleanColumn extends Column {
+		private long[][] chunks = new long[1][];
+
+		@Override
+		void newChunk(final int chunk) {
+			if (chunk == this.chunks.length) {
+				this.chunks = Arrays.copyOf(this.chunks, chunk * 2);
+			}
+			this.chunks[chunk] = new long[WORDS_PER_CHUNK];
+		}
+
+		@Override
+		void set(final int chunk, final int idx, final Object value) {
+			if (((Boolean) value).booleanValue()) {
+				this.chunks[chunk][idx >>> 6] |= 1L << idx;
+			}
+		}
+
+		boolean getBoolean(final int row) {
+			final int i = row & CHUNK_MASK;
+			return (this.chunks[row >>> CHUNK_BITS][i >>> 6] & (1L << i)) != 0;
+		}
+
+		@SuppressWarnings("boxing")
+		@Override
+		Object get(final int row) {
+			return this.getBoolean(row);
+		}
+	}
+
+	private static class TextColumn extends Column {
+		private int[][] chunks = new int[1][];
+		final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> codes = new HashMap<>();
+
+		@Override
+		void newChunk(final int chunk) {
+			if (chunk == this.chunks.length) {
+				this.chunks = Arrays.copyOf(this.chunks, chunk * 2);
+			}
+			final int[] arr = new int[CHUNK_SIZE];
+			Arrays.fill(arr, -1);
+			this.chunks[chunk] = arr;
+		}
+
+		@SuppressWarnings("boxing")
+		@Override
+		void set(final int chunk, final int idx, final Object value) {
+			final String text = value.toString();
+			Integer code = this.codes.get(text);
+			if (code == null) {
+				code = this.values.size();
+				this.values.add(text);
+				this.codes.put(text, code);
+			}
+			this.chunks[chunk][idx] = code;
+		}
+
+		int getCode(final int row) {
+			return this.chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+		}
+
+		@Override
+		String get(final int row) {
+			final int code = this.getCode(row);
+			return code == -1 ? null : this.values.get(code);
+		}
+	}
+
+	private static class ObjectColumn extends Column {
+		private Object[][] chunks = new Object[1][];
+
+		@Override
+		void newChunk(final int chunk) {
+			if (chunk == this.chunks.length) {
+				this.chunks = Arrays.copyOf(this.chunks, chunk * 2);
+			}
+			this.chunks[chunk] = new Object[CHUNK_SIZE];
+		}
+
+		@Override
+		void set(final int chunk, final int idx, final Object value) {
+			this.chunks[chunk][idx] = value;
+		}
+
+		@Override
+		Object get(final int row) {
+			return this.chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.db.RowProcessor;
 import org.simplity.server.core.service.OutputData;
 import org.simplity.server.core.valueschema.ValueType;
@@ -46,6 +47,23 @@ public class DataTable<T extends Record> implements Iterable<T>, RowProcessor {
 		return this.record.fetchValueTypes();
 	}
 
+	/**
+	 *
+	 * @return names of the fields/columns of this data table
+	 */
+	public String[] fetchFieldNames() {
+		return this.record.fetchFieldNames();
+	}
+
+	/**
+	 *
+	 * @return mapper to extract a row of this table from a result set. null if it
+	 *         is not generated for the underlying record
+	 */
+	public RowMapper fetchRowMapper() {
+		return this.record.fetchRowMapper();
+	}
+
 	/**
 	 * add a record
 	 *
@@ -79,6 +97,17 @@ public class DataTable<T extends Record> implements Iterable<T>, RowProcessor {
 		return this.rows.size();
 	}
 
+	/**
+	 *
+	 * @param row 0-based row index
+	 * @param col 0-based column index, that is the index of the field in the
+	 *            record
+	 * @return value of the cell, possibly null
+	 */
+	public Object fetchValue(final int row, final int col) {
+		return this.rows.get(row)[col];
+	}
+
 	/**
 	 * fetch is used instead of get to avoid clash with getters in generated classes
 	 *
@@ -146,10 +175,14 @@ public class DataTable<T extends Record> implements Iterable<T>, RowProcessor {
 		};
 	}
 
+	/**
+	 * adds the row to this table, so that the table itself can be used as the
+	 * processor of rows read from the db
+	 */
 	@Override
 	public boolean process(Object[] row) throws SQLException {
-		// TODO Auto-generated method stub
-		return false;
+		this.addRow(row);
+		return true;
 	}
 
 }
@@ -1,6 +1,7 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.data;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,6 +14,7 @@ import org.simplity.server.core.db.ReadonlyHandle;
 import org.simplity.server.core.filter.FilterDetails;
 import org.simplity.server.core.filter.FilterParams;
 import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.ExportService;
 import org.simplity.server.core.service.InputData;
 import org.simplity.server.core.service.ServiceContext;
 import org.simplity.server.core.service.ServiceWorker;
@@ -272,6 +274,21 @@ public abstract class DbRecord extends Record {
 		}
 	}
 
+	/**
+	 * get a service worker to export the filtered rows of this record as csv.
+	 * Export is allowed if filter is allowed on this record
+	 *
+	 * @return worker, or null if filter operation is not allowed on this record
+	 */
+	public ServiceWorker getExportWorker() {
+		if (!this.dba.operationAllowed(IoType.FILTER)) {
+			logger.info("Filter operation is not allowed on record {}, and hence it can not be exported",
+					this.fetchName());
+			return null;
+		}
+		return new Exporter();
+	}
+
 	protected class Reader implements ServiceWorker {
 
 		@Override
@@ -365,6 +382,7 @@ public abstract class DbRecord extends Record {
 	}
 
 	protected class Filter implements ServiceWorker {
+		@SuppressWarnings("boxing")
 		@Override
 		public void serve(final ServiceContext ctx, final InputData payload) throws Exception {
 			final DbRecord rec = DbRecord.this.newInstance();
@@ -387,21 +405,81 @@ public abstract class DbRecord extends Record {
 			}
 
 			final List<Object[]> rows = new ArrayList<>();
+			final long[] total = { -1 };
 
 			boolean readOk = AppManager.getApp().getDbDriver().doReadonlyOperations(handle -> {
-				int n = handle.readMany(filter.getSql(), filter.getParamValues(), filter.getParamTypes(),
-						filter.getOutputTypes(), rows);
-				return n > 0;
+				total[0] = Dba.readRowsAndCount(handle, filter, rows);
+				return rows.size() > 0;
 			});
 			if (!readOk) {
 				logger.warn("No rows filtered. Responding with empty list");
 			}
 
 			ctx.setAsResponse(tableName, filter.getOutputNames(), rows);
+			if (filter.isCountRequired()) {
+				ctx.getOutputData().addNameValuePair(Conventions.Request.TAG_TOTAL_COUNT, total[0]);
+			}
 		}
 
 	}
 
+	/**
+	 * exports the filtered rows to a file in the temp file manager, from where
+	 * the client can download them. Rows are streamed from the db to the file,
+	 * and hence there is no limit on the number of rows for a logged-in user.
+	 */
+	protected class Exporter implements ServiceWorker {
+		@SuppressWarnings("boxing")
+		@Override
+		public void serve(final ServiceContext ctx, final InputData payload) throws Exception {
+			final DbRecord rec = DbRecord.this.newInstance();
+			final FilterParams params = FilterParams.parse(payload, ctx);
+			if (params == null) {
+				logger.error("Input data for export did not follow the required data structure");
+				return;
+			}
+			params.includeTotalCount = false;
+
+			/*
+			 * guests are held to the same limit as for filter
+			 */
+			final int ceiling = ctx.hasUserContext() ? 0 : AppManager.getApp().getMaxRowsToExtractFromDb();
+			final FilterDetails filter = rec.dba.prepareFilterDetails(params, ctx, ceiling);
+			if (filter == null) {
+				logger.error("Error while parsing filter conditions from the input payload");
+				return;
+			}
+
+			final long userId = ctx.hasUserContext() ? ctx.getCurrentUserContext().getUserId() : 0;
+			final String fileName = ExportService.newFileName(userId);
+			final long[] nbrRows = { 0 };
+			final boolean ok = AppManager.getApp().getTempFileManager().newFile(fileName, writer -> {
+				try {
+					return AppManager.getApp().getDbDriver().doReadonlyOperations(handle -> {
+						try {
+							nbrRows[0] = Dba.writeRowsAsCsv(handle, filter, writer);
+							return true;
+						} catch (final IOException e) {
+							logger.error("Error while writing exported rows: {}", e.getMessage());
+							return false;
+						}
+					});
+				} catch (final SQLException e) {
+					logger.error("Error while exporting rows of {}: {}", DbRecord.this.fetchName(), e.getMessage());
+					return false;
+				}
+			});
+
+			if (!ok) {
+				ctx.addMessage(Message.newError(Conventions.MessageId.EXPORT_FAILED));
+				return;
+			}
+			logger.info("{} rows of {} exported to {}", nbrRows[0], DbRecord.this.fetchName(), fileName);
+			ctx.getOutputData().addName(Conventions.Request.TAG_EXPORT_FILE).addValue(fileName);
+			ctx.getOutputData().addName(Conventions.Request.TAG_NBR_ROWS).addValue(nbrRows[0]);
+		}
+	}
+
 	/**
 	 * fetch is used instead of get to avoid clash with getters in generated classes
 	 *
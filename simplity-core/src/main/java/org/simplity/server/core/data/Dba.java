@@ -1,6 +1,8 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.data;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,9 +14,14 @@ import org.simplity.server.core.Conventions;
 import org.simplity.server.core.Message;
 import org.simplity.server.core.app.App;
 import org.simplity.server.core.app.AppManager;
+import org.simplity.server.core.db.DbUtil;
+import org.simplity.server.core.db.ParamBinder;
 import org.simplity.server.core.db.ReadWriteHandle;
 import org.simplity.server.core.db.ReadonlyHandle;
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.db.RowProcessor;
+import org.simplity.server.core.filter.AggregateBy;
+import org.simplity.server.core.filter.AggregateFunction;
 import org.simplity.server.core.filter.FilterCondition;
 import org.simplity.server.core.filter.FilterDetails;
 import org.simplity.server.core.filter.FilterOperator;
@@ -80,6 +87,7 @@ public class Dba {
 	 */
 	private final int[] whereIndexes;
 	private final ValueType[] whereTypes;
+	private final ParamBinder whereBinder;
 	/**
 	 * e.g. select a,b,c from t
 	 */
@@ -89,6 +97,7 @@ public class Dba {
 	 */
 	private final ValueType[] selectTypes;
 	private final int[] selectIndexes;
+	private final RowMapper selectMapper;
 	/**
 	 * e.g insert a,b,c,d into table1 values(?,?,?,?)
 	 */
@@ -98,6 +107,7 @@ public class Dba {
 	 */
 	private final int[] insertIndexes;
 	private final ValueType[] insertTypes;
+	private final ParamBinder insertBinder;
 
 	/**
 	 * e.g. update table1 set a=?, b=?, c=?
@@ -108,6 +118,7 @@ public class Dba {
 	 */
 	private final int[] updateIndexes;
 	private final ValueType[] updateTypes;
+	private final ParamBinder updateBinder;
 
 	/**
 	 * e.g. delete from table1. Note that where is not part of this.
@@ -148,6 +159,11 @@ public class Dba {
 	@SuppressWarnings("unused")
 	private final DbField timestampField = null;
 
+	/**
+	 * null if rows read by primary key are not cached
+	 */
+	private final RecordCache cache;
+
 	/**
 	 *
 	 * @param allFields
@@ -166,6 +182,92 @@ public class Dba {
 	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause,
 			final int[] selectIndexes, final String insertClause, final int[] insertIndexes, final String updateClause,
 			final int[] updateIndexes, final String deleteClause, final String whereClause, final int[] whereIndexes) {
+		this(allFields, nameInDb, opers, selectClause, selectIndexes, insertClause, insertIndexes, updateClause,
+				updateIndexes, deleteClause, whereClause, whereIndexes, null);
+	}
+
+	/**
+	 * for a record that caches the rows read by its primary key
+	 *
+	 * @param allFields
+	 * @param nameInDb
+	 * @param opers
+	 * @param selectClause
+	 * @param selectIndexes
+	 * @param insertClause
+	 * @param insertIndexes
+	 * @param updateClause
+	 * @param updateIndexes
+	 * @param deleteClause
+	 * @param whereClause
+	 * @param whereIndexes
+	 * @param cache         null if rows are not to be cached
+	 */
+	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause,
+			final int[] selectIndexes, final String insertClause, final int[] insertIndexes, final String updateClause,
+			final int[] updateIndexes, final String deleteClause, final String whereClause, final int[] whereIndexes,
+			final RecordCache cache) {
+		this(allFields, nameInDb, opers, selectClause, selectIndexes, insertClause, insertIndexes, updateClause,
+				updateIndexes, deleteClause, whereClause, whereIndexes, cache, null);
+	}
+
+	/**
+	 * for a record with a generated mapper for its select clause
+	 *
+	 * @param allFields
+	 * @param nameInDb
+	 * @param opers
+	 * @param selectClause
+	 * @param selectIndexes
+	 * @param insertClause
+	 * @param insertIndexes
+	 * @param updateClause
+	 * @param updateIndexes
+	 * @param deleteClause
+	 * @param whereClause
+	 * @param whereIndexes
+	 * @param cache         null if rows are not to be cached
+	 * @param selectMapper  extracts the columns of the select clause, in that
+	 *                      order. null if it is not generated
+	 */
+	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause,
+			final int[] selectIndexes, final String insertClause, final int[] insertIndexes, final String updateClause,
+			final int[] updateIndexes, final String deleteClause, final String whereClause, final int[] whereIndexes,
+			final RecordCache cache, final RowMapper selectMapper) {
+		this(allFields, nameInDb, opers, selectClause, selectIndexes, insertClause, insertIndexes, updateClause,
+				updateIndexes, deleteClause, whereClause, whereIndexes, cache, selectMapper, null, null, null);
+	}
+
+	/**
+	 * for a record with generated binders for the parameters of its sqls
+	 *
+	 * @param allFields
+	 * @param nameInDb
+	 * @param opers
+	 * @param selectClause
+	 * @param selectIndexes
+	 * @param insertClause
+	 * @param insertIndexes
+	 * @param updateClause
+	 * @param updateIndexes
+	 * @param deleteClause
+	 * @param whereClause
+	 * @param whereIndexes
+	 * @param cache         null if rows are not to be cached
+	 * @param selectMapper  extracts the columns of the select clause, in that
+	 *                      order. null if it is not generated
+	 * @param insertBinder  sets the parameters of the insert sql. null if it is
+	 *                      not generated
+	 * @param updateBinder  sets the parameters of the update sql. null if it is
+	 *                      not generated
+	 * @param whereBinder   sets the parameters of the where clause. null if it is
+	 *                      not generated
+	 */
+	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause,
+			final int[] selectIndexes, final String insertClause, final int[] insertIndexes, final String updateClause,
+			final int[] updateIndexes, final String deleteClause, final String whereClause, final int[] whereIndexes,
+			final RecordCache cache, final RowMapper selectMapper, final ParamBinder insertBinder,
+			final ParamBinder updateBinder, final ParamBinder whereBinder) {
 
 		this.dbFields = new DbField[allFields.length];
 		this.prepareFields(allFields);
@@ -192,6 +294,11 @@ public class Dba {
 		this.whereTypes = typesOfFields(allFields, whereIndexes);
 
 		this.deleteClause = deleteClause;
+		this.cache = cache;
+		this.selectMapper = selectMapper;
+		this.insertBinder = insertBinder;
+		this.updateBinder = updateBinder;
+		this.whereBinder = whereBinder;
 
 	}
 
@@ -301,14 +408,37 @@ public class Dba {
 
 		// sql parameters from row-data
 		final Object[] params = copyFromRow(row, this.whereIndexes, null);
+		List<Object> key = null;
+		long stamp = 0;
+		/*
+		 * a handle within a transaction may see rows that are not committed yet.
+		 * Such reads neither use nor fill the cache
+		 */
+		if (this.cache != null && !handle.isWithinTransaction()) {
+			key = Arrays.asList(params);
+			final Object[] cached = this.cache.get(key);
+			if (cached != null) {
+				copyToRow(cached, this.selectIndexes, row);
+				return true;
+			}
+			stamp = this.cache.getStamp();
+		}
 
 		final Object[] result = new Object[this.selectTypes.length];
 		final String sql = this.selectClause + ' ' + this.whereClause;
 		try {
-			final boolean ok = handle.read(sql, params, this.whereTypes, this.selectTypes, result);
+			final boolean ok;
+			if (this.selectMapper == null) {
+				ok = handle.read(sql, params, this.whereTypes, this.selectTypes, result);
+			} else {
+				ok = handle.read(sql, params, this.whereTypes, this.whereBinder, this.selectMapper, result);
+			}
 			// copy selected fields into row-data
 			if (ok) {
-				copyFromRow(result, this.selectIndexes, row);
+				copyToRow(result, this.selectIndexes, row);
+				if (key != null) {
+					this.cache.put(key, result, stamp);
+				}
 			}
 			return ok;
 		} catch (SQLException e) {
@@ -336,6 +466,10 @@ public class Dba {
 	public boolean filter(final ReadonlyHandle handle, final FilterParams filterParams, DataTable<?> dataTable,
 			ServiceContext ctx) throws SQLException {
 
+		if (filterParams.isAggregated()) {
+			reportError("Aggregated rows of " + this.nameInDb + " can not be read into a data table of its rows", ctx);
+			return false;
+		}
 		FilterDetails fd = this.prepareFilterDetails(filterParams, ctx);
 		if (fd == null) {
 			return false;
@@ -355,6 +489,8 @@ public class Dba {
 	}
 
 	private static final ValueType[] COUNT_OUTPUT_TYPES = { ValueType.Integer };
+	private static final int CSV_FETCH_SIZE = 1000;
+	private static final String CSV_NEW_LINE = "\r\n";
 
 	/**
 	 * to be called from the parent Record. not to be called by other classes
@@ -433,15 +569,15 @@ public class Dba {
 
 		final Object[] params = copyFromRow(rowToInsert, this.insertIndexes, null);
 		if (this.generatedColumnName == null) {
-			return handle.write(this.insertClause, params, this.insertTypes) > 0;
+			return handle.write(this.insertClause, params, this.insertTypes, this.insertBinder) > 0;
 
 		}
 
 		final long[] generatedKeys = new long[1];
 		int n = 0;
 		try {
-			n = handle.insertWithKeyGeneration(this.insertClause, params, this.insertTypes, this.generatedColumnName,
-					generatedKeys);
+			n = handle.insertWithKeyGeneration(this.insertClause, params, this.insertTypes, this.insertBinder,
+					this.generatedColumnName, generatedKeys);
 		} catch (SQLException e) {
 			emitError(this.insertClause, params, e);
 			throw e;
@@ -481,11 +617,12 @@ public class Dba {
 
 		int n = 0;
 		try {
-			n = handle.write(this.updateClause, params, this.updateTypes);
+			n = handle.write(this.updateClause, params, this.updateTypes, this.updateBinder);
 		} catch (SQLException e) {
 			emitError(this.updateClause, params, e);
 			throw e;
 		}
+		this.invalidate(handle, rowToUpdate);
 		return n > 0;
 
 	}
@@ -505,15 +642,16 @@ public class Dba {
 			return notAllowed(IoType.DELETE);
 		}
 
-		final Object[] params = copyFromRow(rowToDelete, this.keyIndexes, null);
+		final Object[] params = copyFromRow(rowToDelete, this.whereIndexes, null);
 		int n = 0;
 		final String sql = this.deleteClause + ' ' + this.whereClause;
 		try {
-			n = handle.write(sql, params, this.keyTypes);
+			n = handle.write(sql, params, this.whereTypes, this.whereBinder);
 		} catch (SQLException e) {
 			emitError(sql, params, e);
 			throw e;
 		}
+		this.invalidate(handle, rowToDelete);
 
 		return n > 0;
 
@@ -546,7 +684,8 @@ public class Dba {
 
 	/**
 	 * save all rows into the db. Each row is inspected to check for the generated
-	 * primary key. If the key exists, that row is updated, else it is inserted. .
+	 * primary key. If the key exists, that row is updated, else it is inserted.
+	 * Rows without the generated key are inserted in a single batch.
 	 *
 	 * @param handle
 	 *
@@ -561,8 +700,27 @@ public class Dba {
 		}
 
 		boolean allOk = true;
+		Object[][] rowsToSave = rows;
+		if (this.generatedKeyIdx != -1) {
+			/*
+			 * a row with no key can not be in the db. No point trying to update it
+			 */
+			final List<Object[]> newRows = new ArrayList<>();
+			final List<Object[]> oldRows = new ArrayList<>();
+			for (final Object[] row : rows) {
+				if (row[this.generatedKeyIdx] == null) {
+					newRows.add(row);
+				} else {
+					oldRows.add(row);
+				}
+			}
+			if (newRows.isEmpty() == false) {
+				allOk = this.insertAll(handle, newRows.toArray(new Object[0][]));
+				rowsToSave = oldRows.toArray(new Object[0][]);
+			}
+		}
 
-		for (final Object[] row : rows) {
+		for (final Object[] row : rowsToSave) {
 			boolean ok = this.update(handle, row);
 			if (!ok) {
 				ok = this.insert(handle, row);
@@ -585,7 +743,7 @@ public class Dba {
 	 * @throws SQLException
 	 */
 	boolean insertAll(final ReadWriteHandle handle, final Object[][] rows) throws SQLException {
-		if (this.keyIndexes == null) {
+		if (this.insertIndexes == null) {
 			return notAllowed(IoType.CREATE);
 		}
 
@@ -595,11 +753,11 @@ public class Dba {
 
 		try {
 			if (this.generatedColumnName == null) {
-				nbrInserted = handle.writeMany(this.insertClause, paramValues, this.insertTypes);
+				nbrInserted = handle.writeMany(this.insertClause, paramValues, this.insertTypes, this.insertBinder);
 			} else {
 				final long[] generatedKeys = new long[nbrRows];
 				nbrInserted = handle.insertWithKeyGenerations(this.insertClause, paramValues, this.insertTypes,
-						this.generatedColumnName, generatedKeys);
+						this.insertBinder, this.generatedColumnName, generatedKeys);
 				if (nbrInserted > 0) {
 					this.copyKeys(rows, generatedKeys);
 				}
@@ -631,11 +789,14 @@ public class Dba {
 
 		int n = 0;
 		try {
-			n = handle.writeMany(this.updateClause, updateValues, this.updateTypes);
+			n = handle.writeMany(this.updateClause, updateValues, this.updateTypes, this.updateBinder);
 		} catch (SQLException e) {
 			emitError(this.updateClause, updateValues, e);
 			throw e;
 		}
+		for (final Object[] row : rows) {
+			this.invalidate(handle, row);
+		}
 		return n == nbrRows;
 	}
 
@@ -677,6 +838,19 @@ public class Dba {
 		return sbf.toString();
 	}
 
+	/*
+	 * remove the row from the cache, if it is cached, once the transaction is
+	 * committed. Evicting it earlier would let a read put back the old values, or
+	 * values that are never committed
+	 */
+	private void invalidate(final ReadWriteHandle handle, final Object[] row) {
+		if (this.cache != null) {
+			final RecordCache c = this.cache;
+			final List<Object> key = Arrays.asList(copyFromRow(row, this.whereIndexes, null));
+			handle.afterCommit(() -> c.invalidate(key));
+		}
+	}
+
 	private static boolean notAllowed(final IoType operation) {
 		logger.error("This record is not designed for '{}' operation", operation);
 		return false;
@@ -763,12 +937,21 @@ public class Dba {
 		return row;
 	}
 
+	/**
+	 * copy values from the selected columns into the row based on indexes
+	 */
+	private static void copyToRow(Object[] source, int[] indexes, Object[] target) {
+		for (int i = 0; i < indexes.length; i++) {
+			target[indexes[i]] = source[i];
+		}
+	}
+
 	/**
 	 * copy object values from rows of data to parameters based on indexes
 	 *
 	 */
 	private static Object[][] copyFromRows(Object[][] rows, int[] indexes) {
-		Object[][] params = new Object[indexes.length][];
+		Object[][] params = new Object[rows.length][];
 		final int nbrCols = indexes.length;
 
 		for (int rowIdx = 0; rowIdx < rows.length; rowIdx++) {
@@ -829,25 +1012,8 @@ public class Dba {
 		final List<ValueType> types = new ArrayList<>();
 
 		final StringBuilder wherePart = new StringBuilder();
-		/*
-		 * force a condition on tenant id if required
-		 */
-		if (this.tenantField != null) {
-			wherePart.append("(").append(this.tenantField.getColumnName()).append("=?");
-			values.add(ctx.getTenantId());
-			types.add(ValueType.Integer);
-		}
-
-		if (filters == null) {
-			if (this.tenantField != null) {
-				wherePart.append(")");
-			}
-		} else {
-			final boolean ok = parseConditions(map, filters, ctx, values, types, wherePart);
-			if (!ok) {
-				allOk = false;
-			}
-
+		if (!this.buildWhere(map, filters, ctx, values, types, wherePart)) {
+			allOk = false;
 		}
 
 		if (wherePart.length() > 0) {
@@ -895,8 +1061,26 @@ public class Dba {
 	 * @return parsedFilter, or null in case of any error. Error messages are added
 	 *         to the service context
 	 */
-	@SuppressWarnings("boxing")
 	public FilterDetails prepareFilterDetails(final FilterParams params, final ServiceContext ctx) {
+		return this.prepareFilterDetails(params, ctx, DEFAULT_MAX_ROWS);
+	}
+
+	/**
+	 * prepares the filter details with a specific ceiling on the number of rows
+	 *
+	 * @param params     filter parameters that are the input for the filter
+	 *                   operation
+	 * @param ctx
+	 * @param rowCeiling maximum number of rows that may be filtered, irrespective
+	 *                   of maxRows in the params. 0 means that there is no
+	 *                   ceiling, in which case all the rows are filtered unless
+	 *                   maxRows is specified in the params
+	 * @return parsedFilter, or null in case of any error. Error messages are added
+	 *         to the service context
+	 */
+	@SuppressWarnings("boxing")
+	public FilterDetails prepareFilterDetails(final FilterParams params, final ServiceContext ctx,
+			final int rowCeiling) {
 
 		/*
 		 * create a look-up map of fields by fieldName
@@ -910,13 +1094,27 @@ public class Dba {
 		 * let us start parsing the input, starting with max rows
 		 */
 		int maxRows = params.maxRows;
-		if (maxRows != 0 && maxRows > 0 && maxRows <= DEFAULT_MAX_ROWS) {
+		if (maxRows > 0 && (rowCeiling == 0 || maxRows <= rowCeiling)) {
 			logger.info("Client requested a max of {} rows.", maxRows);
+		} else if (rowCeiling == 0) {
+			maxRows = 0;
+			logger.info("No limit on the number of rows to be selected.");
 		} else {
-			maxRows = DEFAULT_MAX_ROWS;
+			maxRows = rowCeiling;
 			logger.info("As per configuration, a max of {} rows will be selected.", maxRows);
 		}
 
+		/*
+		 * total count is best fetched as an additional column in the same sql, if the
+		 * db supports that
+		 */
+		final boolean countInSelect = params.includeTotalCount && params.maxCount <= 0
+				&& DbUtil.windowFunctionsSupported();
+
+		if (params.isAggregated()) {
+			return this.prepareAggregateDetails(params, ctx, map, maxRows, countInSelect);
+		}
+
 		DbField[] outputFields = this.dbFields;
 		boolean allOk = true;
 
@@ -977,6 +1175,9 @@ public class Dba {
 				outputNames = Arrays.copyOf(outputNames, nbrColumns);
 			}
 			sql.setLength(sql.length() - 2);
+			if (countInSelect) {
+				sql.append(", COUNT(*) OVER()");
+			}
 			sql.append(" FROM ").append(this.nameInDb);
 		}
 
@@ -994,25 +1195,8 @@ public class Dba {
 		final List<ValueType> types = new ArrayList<>();
 
 		final StringBuilder wherePart = new StringBuilder();
-		/*
-		 * force a condition on tenant id if required
-		 */
-		if (this.tenantField != null) {
-			wherePart.append("(").append(this.tenantField.getColumnName()).append("=?");
-			values.add(ctx.getTenantId());
-			types.add(ValueType.Integer);
-		}
-
-		if (filters == null) {
-			if (this.tenantField != null) {
-				wherePart.append(")");
-			}
-		} else {
-			final boolean ok = parseConditions(map, filters, ctx, values, types, wherePart);
-			if (!ok) {
-				allOk = false;
-			}
-
+		if (!this.buildWhere(map, filters, ctx, values, types, wherePart)) {
+			allOk = false;
 		}
 
 		if (wherePart.length() > 0) {
@@ -1021,6 +1205,12 @@ public class Dba {
 
 		logger.info("SQL after WHERE = {}", sql.toString());
 
+		String countSql = null;
+		if (params.includeTotalCount && !countInSelect) {
+			countSql = this.buildCountSql(wherePart, params.maxCount);
+			logger.info("count SQL is: {}", countSql);
+		}
+
 		/*
 		 * sort order
 		 */
@@ -1062,7 +1252,9 @@ public class Dba {
 			return null;
 		}
 
-		sql.append(" FETCH FIRST " + maxRows + " ROWS ONLY");
+		if (maxRows > 0) {
+			sql.append(" FETCH FIRST " + maxRows + " ROWS ONLY");
+		}
 
 		final String sqlText = sql.toString();
 		Object[] paramValues = null;
@@ -1087,8 +1279,442 @@ public class Dba {
 			paramValues = values.toArray();
 			paramTypes = types.toArray(new ValueType[0]);
 		}
-		return new FilterDetails(sqlText, paramValues, paramTypes, outputNames, outputTypes);
+		return new FilterDetails(sqlText, paramValues, paramTypes, outputNames, outputTypes, maxRows, countSql,
+				countInSelect);
+
+	}
+
+	/*
+	 * filter details when the filtered rows are to be grouped and aggregated by
+	 * the db. Output has the group-by fields followed by the aggregates. The
+	 * where clause, including the condition on tenant id, is the same as that for
+	 * the rows. Total count, if requested, is the number of groups.
+	 */
+	@SuppressWarnings("boxing")
+	private FilterDetails prepareAggregateDetails(final FilterParams params, final ServiceContext ctx,
+			final Map<String, DbField> map, final int maxRows, final boolean countInSelect) {
+		boolean allOk = true;
+		final String[] groupNames = params.groupBy == null ? new String[0] : params.groupBy;
+		final AggregateBy[] aggregates = params.aggregates == null ? new AggregateBy[0] : params.aggregates;
+		final int nbrFields = groupNames.length + aggregates.length;
+		String[] outputNames = new String[nbrFields];
+		ValueType[] outputTypes = new ValueType[nbrFields];
+		/*
+		 * sql expression for each output name, used in select as well as order-by
+		 */
+		final Map<String, String> expressions = new HashMap<>();
+		final StringBuilder groupPart = new StringBuilder();
+		int nbrColumns = 0;
+
+		for (final String name : groupNames) {
+			final DbField f = map.get(name);
+			if (f == null || f.getColumnName() == null) {
+				reportError("Group-by field " + name
+						+ " does not exist in the form/record or it is not a column in the associated table/view", ctx);
+				allOk = false;
+				continue;
+			}
+			if (groupPart.length() > 0) {
+				groupPart.append(", ");
+			}
+			groupPart.append(f.getColumnName());
+			expressions.put(name, f.getColumnName());
+			outputNames[nbrColumns] = name;
+			outputTypes[nbrColumns] = f.getValueType();
+			nbrColumns++;
+		}
+
+		for (final AggregateBy agg : aggregates) {
+			final AggregateFunction fn = AggregateFunction.parse(agg.function);
+			if (fn == null) {
+				reportError(agg.function + " is not a valid aggregate function", ctx);
+				allOk = false;
+				continue;
+			}
+
+			final boolean hasField = agg.field != null && agg.field.isEmpty() == false;
+			final String expression;
+			final ValueType vt;
+			if (hasField) {
+				final DbField f = map.get(agg.field);
+				if (f == null || f.getColumnName() == null) {
+					reportError("Aggregate field " + agg.field
+							+ " does not exist in the form/record or it is not a column in the associated table/view",
+							ctx);
+					allOk = false;
+					continue;
+				}
+				final ValueType fieldType = f.getValueType();
+				if (fieldType != ValueType.Integer && fieldType != ValueType.Decimal) {
+					reportError("Field " + agg.field + " is not numeric, and hence can not be aggregated", ctx);
+					allOk = false;
+					continue;
+				}
+				expression = fn.name() + '(' + f.getColumnName() + ')';
+				if (fn == AggregateFunction.COUNT) {
+					vt = ValueType.Integer;
+				} else if (fn == AggregateFunction.AVG) {
+					vt = ValueType.Decimal;
+				} else {
+					vt = fieldType;
+				}
+			} else {
+				if (fn != AggregateFunction.COUNT) {
+					reportError("Aggregate function " + fn.getText() + " requires a field", ctx);
+					allOk = false;
+					continue;
+				}
+				expression = "COUNT(*)";
+				vt = ValueType.Integer;
+			}
+
+			String name = agg.name;
+			if (name == null || name.isEmpty()) {
+				name = hasField ? fn.getText() + '_' + agg.field : fn.getText();
+			}
+			if (expressions.containsKey(name)) {
+				reportError("Name " + name + " is used more than once in the output of the filter", ctx);
+				allOk = false;
+				continue;
+			}
+			expressions.put(name, expression);
+			outputNames[nbrColumns] = name;
+			outputTypes[nbrColumns] = vt;
+			nbrColumns++;
+		}
+
+		if (nbrColumns != nbrFields) {
+			outputNames = Arrays.copyOf(outputNames, nbrColumns);
+			outputTypes = Arrays.copyOf(outputTypes, nbrColumns);
+		}
+
+		final StringBuilder sql = new StringBuilder("SELECT ");
+		for (int i = 0; i < nbrColumns; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(expressions.get(outputNames[i]));
+		}
+		if (countInSelect) {
+			sql.append(", COUNT(*) OVER()");
+		}
+		sql.append(" FROM ").append(this.nameInDb);
+
+		FilterCondition[] filters = params.filters;
+		if (filters == null || filters.length == 0) {
+			logger.warn("Filter request has no conditions. All rows will be aggregated");
+			filters = null;
+		}
+
+		final List<Object> values = new ArrayList<>();
+		final List<ValueType> types = new ArrayList<>();
+		final StringBuilder wherePart = new StringBuilder();
+		if (!this.buildWhere(map, filters, ctx, values, types, wherePart)) {
+			allOk = false;
+		}
+
+		final StringBuilder fromPart = new StringBuilder();
+		if (wherePart.length() > 0) {
+			fromPart.append(" WHERE ").append(wherePart);
+		}
+		if (groupPart.length() > 0) {
+			fromPart.append(" GROUP BY ").append(groupPart);
+		}
+		sql.append(fromPart);
+
+		String countSql = null;
+		if (params.includeTotalCount && !countInSelect) {
+			/*
+			 * count of groups, stopped at maxCount if that is positive
+			 */
+			final StringBuilder sbf = new StringBuilder("SELECT count(*) FROM (SELECT COUNT(*) FROM ");
+			sbf.append(this.nameInDb).append(fromPart);
+			if (params.maxCount > 0) {
+				sbf.append(" FETCH FIRST ").append(params.maxCount).append(" ROWS ONLY");
+			}
+			countSql = sbf.append(") CNT_").toString();
+			logger.info("count SQL is: {}", countSql);
+		}
+
+		final SortBy[] sorts = params.sorts;
+		if (sorts != null) {
+			boolean isFirst = true;
+			for (SortBy sortBy : sorts) {
+				final String expression = expressions.get(sortBy.field);
+				if (expression == null) {
+					reportError("Field " + sortBy.field
+							+ " is neither a group-by field nor an aggregate, and hence the output can not be sorted on it",
+							ctx);
+					allOk = false;
+					continue;
+				}
+				if (isFirst) {
+					sql.append(" ORDER BY ");
+					isFirst = false;
+				} else {
+					sql.append(", ");
+				}
+
+				final DbField field = map.get(sortBy.field);
+				if (field != null && field.getValueType() == ValueType.Text && expression.equals(field.getColumnName())) {
+					sql.append("UPPER(").append(expression).append(")");
+				} else {
+					sql.append(expression);
+				}
+				if (sortBy.descending) {
+					sql.append(" DESC ");
+				}
+			}
+		}
+
+		if (!allOk) {
+			return null;
+		}
+
+		if (maxRows > 0) {
+			sql.append(" FETCH FIRST " + maxRows + " ROWS ONLY");
+		}
+
+		final String sqlText = sql.toString();
+		Object[] paramValues = null;
+		ValueType[] paramTypes = null;
+		final int n = values.size();
+		logger.info("aggregate SQL is: {}", sqlText);
+		if (n > 0) {
+			final StringBuilder sbf = new StringBuilder();
+			for (int i = 0; i < n; i++) {
+				sbf.append('\n').append(i).append("= ").append(values.get(i));
+			}
+			logger.info("Where parameters : {}", sbf.toString());
+			paramValues = values.toArray();
+			paramTypes = types.toArray(new ValueType[0]);
+		}
+		return new FilterDetails(sqlText, paramValues, paramTypes, outputNames, outputTypes, maxRows, countSql,
+				countInSelect);
+	}
+
+	/*
+	 * where clause for the filter conditions, with the condition on tenant id
+	 * forced if required. returns false in case of any error in the conditions
+	 */
+	private boolean buildWhere(final Map<String, DbField> map, final FilterCondition[] filters,
+			final ServiceContext ctx, final List<Object> values, final List<ValueType> types,
+			final StringBuilder wherePart) {
+		if (this.tenantField != null) {
+			wherePart.append("(").append(this.tenantField.getColumnName()).append("=?");
+			values.add(ctx.getTenantId());
+			types.add(ValueType.Integer);
+		}
+
+		if (filters == null) {
+			if (this.tenantField != null) {
+				wherePart.append(")");
+			}
+			return true;
+		}
+		return parseConditions(map, filters, ctx, values, types, wherePart);
+	}
+
+	/*
+	 * count sql, with the same where clause as the filter-sql. if maxCount is
+	 * positive, the count is stopped at that number.
+	 */
+	private String buildCountSql(final StringBuilder wherePart, final int maxCount) {
+		final StringBuilder sbf = new StringBuilder("SELECT count(*) FROM ");
+		if (maxCount > 0) {
+			sbf.append("(SELECT 1 FROM ");
+		}
+		sbf.append(this.nameInDb);
+		if (wherePart.length() > 0) {
+			sbf.append(" WHERE ").append(wherePart);
+		}
+		if (maxCount > 0) {
+			sbf.append(" FETCH FIRST ").append(maxCount).append(" ROWS ONLY) CNT_");
+		}
+		return sbf.toString();
+	}
+
+	/**
+	 * read rows as per the filter details, and also get the total count of rows
+	 * that satisfy the filter conditions, if that was requested. Both are done
+	 * using the same handle, and hence the same connection.
+	 *
+	 * @param handle readOnly handle
+	 * @param fd     non-null filter details, as prepared by
+	 *               prepareFilterDetails()
+	 * @param rows   to which the filtered rows are added
+	 * @return total number of rows that satisfy the filter conditions. -1 if the
+	 *         total count was not requested.
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("boxing")
+	public static long readRowsAndCount(final ReadonlyHandle handle, final FilterDetails fd,
+			final List<Object[]> rows) throws SQLException {
+		final String sql = fd.getSql();
+		final ValueType[] outputTypes = fd.getOutputTypes();
+		if (fd.isCountInSelect()) {
+			/*
+			 * count is the additional column at the end of each row
+			 */
+			final int nbrCols = outputTypes.length;
+			final ValueType[] types = Arrays.copyOf(outputTypes, nbrCols + 1);
+			types[nbrCols] = ValueType.Integer;
+			final long[] total = { 0 };
+			try {
+				handle.readWithRowProcessor(sql, fd.getParamValues(), fd.getParamTypes(), types, row -> {
+					total[0] = (long) row[nbrCols];
+					rows.add(Arrays.copyOf(row, nbrCols));
+					return true;
+				});
+			} catch (SQLException e) {
+				emitError(sql, fd.getParamValues(), e);
+				throw e;
+			}
+			return total[0];
+		}
+
+		try {
+			handle.readMany(sql, fd.getParamValues(), fd.getParamTypes(), outputTypes, rows);
+		} catch (SQLException e) {
+			emitError(sql, fd.getParamValues(), e);
+			throw e;
+		}
 
+		final String countSql = fd.getCountSql();
+		if (countSql == null) {
+			return -1;
+		}
+
+		final int nbrRows = rows.size();
+		final int maxRows = fd.getMaxRows();
+		if (maxRows <= 0 || nbrRows < maxRows) {
+			/*
+			 * we got all the rows that satisfy the filter, either because there is no
+			 * limit, or the limit was not reached. No need to count again
+			 */
+			return nbrRows;
+		}
+
+		final Object[] counts = new Object[1];
+		try {
+			handle.read(countSql, fd.getParamValues(), fd.getParamTypes(), COUNT_OUTPUT_TYPES, counts);
+		} catch (SQLException e) {
+			emitError(countSql, fd.getParamValues(), e);
+			throw e;
+		}
+		/*
+		 * in case of a capped count, we may have read more rows than counted
+		 */
+		return Math.max((long) counts[0], nbrRows);
+	}
+
+	/**
+	 * write the rows filtered as per the filter details in CSV format, with a
+	 * header row of field names. Rows are fetched from the db in batches and
+	 * written one at a time, and hence any number of rows can be written without
+	 * holding them in memory.
+	 *
+	 * @param handle readOnly handle
+	 * @param fd     non-null filter details, as prepared by
+	 *               prepareFilterDetails(), without any total count
+	 * @param writer to which the rows are written
+	 * @return number of rows written, excluding the header row
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public static long writeRowsAsCsv(final ReadonlyHandle handle, final FilterDetails fd, final Writer writer)
+			throws SQLException, IOException {
+		final String[] names = fd.getOutputNames();
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writeCsvValue(names[i], writer);
+		}
+		writer.write(CSV_NEW_LINE);
+
+		final ValueType[] types = fd.getOutputTypes();
+		final String sql = fd.getSql();
+		final IOException[] ioError = { null };
+		final int nbrRows;
+		try {
+			nbrRows = handle.readWithRowProcessor(sql, fd.getParamValues(), fd.getParamTypes(), fd.getOutputTypes(),
+					CSV_FETCH_SIZE, row -> {
+						try {
+							for (int i = 0; i < row.length; i++) {
+								if (i > 0) {
+									writer.write(',');
+								}
+								final String text = toCsvText(row[i], types[i]);
+								if (text != null) {
+									writeCsvValue(text, writer);
+								}
+							}
+							writer.write(CSV_NEW_LINE);
+							return true;
+						} catch (final IOException e) {
+							ioError[0] = e;
+							return false;
+						}
+					});
+		} catch (SQLException e) {
+			emitError(sql, fd.getParamValues(), e);
+			throw e;
+		}
+
+		if (ioError[0] != null) {
+			throw ioError[0];
+		}
+		return nbrRows;
+	}
+
+	/*
+	 * same text as in the json response, except that a decimal that is not a
+	 * number is left empty, as json can not have it either
+	 */
+	private static String toCsvText(final Object value, final ValueType type) {
+		if (value == null) {
+			return null;
+		}
+		if (!type.isRighType(value)) {
+			logger.warn("Value {} is not of type {} but is exported as it is", value, type);
+			return value.toString();
+		}
+		switch (type) {
+		case Integer:
+			return Long.toString(((Number) value).longValue());
+		case Decimal:
+			final double d = ((Number) value).doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d)) {
+				return null;
+			}
+			return Double.toString(d);
+		case Boolean:
+			return ((Boolean) value).booleanValue() ? "true" : "false";
+		default:
+			/*
+			 * text, and dates and instants in their ISO format
+			 */
+			return value.toString();
+		}
+	}
+
+	private static void writeCsvValue(final String value, final Writer writer) throws IOException {
+		boolean toQuote = false;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				toQuote = true;
+				break;
+			}
+		}
+		if (!toQuote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
 	}
 
 	private static void reportError(final String error, final ServiceContext ctx) {
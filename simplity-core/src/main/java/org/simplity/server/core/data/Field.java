@@ -240,6 +240,60 @@ public class Field {
 		return val != null;
 	}
 
+	/**
+	 * same as parseIntoRow() with a string value, except that a value that is
+	 * already of the right type, like a number from a json, is validated as it
+	 * is, without converting it to text and parsing it back
+	 *
+	 * @param fieldValue value as received. null, Boolean, Number or String.
+	 *                   Anything else is treated as no value.
+	 * @param row        into which parsed values is to be set to. MUST be array
+	 *                   with the right number of elements
+	 * @param ctx        into which any error message is added
+	 * @param tableName  if this row is inside a table. used for reporting error
+	 * @param rowNbr     used for reporting error is this is part of table
+	 * @return true if all ok. false if an error message is added to the context
+	 */
+	public boolean parseIntoRow(final Object fieldValue, final Object[] row, final ServiceContext ctx,
+			final String tableName, final int rowNbr) {
+		if (fieldValue instanceof String) {
+			return this.parseIntoRow((String) fieldValue, row, ctx, tableName, rowNbr);
+		}
+
+		if (fieldValue instanceof Boolean == false && fieldValue instanceof Number == false) {
+			/*
+			 * an object or an array is not a value for a field
+			 */
+			return this.parseIntoRow((String) null, row, ctx, tableName, rowNbr);
+		}
+
+		if (this.isArray || this.valueSchema == null || !this.isOfParsedType(fieldValue)) {
+			return this.parseIntoRow(fieldValue.toString(), row, ctx, tableName, rowNbr);
+		}
+
+		final Object val = this.validateParsed(this.valueSchema.parse(fieldValue), fieldValue, ctx, tableName,
+				rowNbr);
+		row[this.index] = val;
+		return val != null;
+	}
+
+	/*
+	 * can the value schema accept this value as it is? an integral field accepts
+	 * only an integral number. anything else is parsed from its text, as before
+	 */
+	private boolean isOfParsedType(final Object value) {
+		switch (this.valueType) {
+		case Integer:
+			return value instanceof Long;
+		case Decimal:
+			return value instanceof Number;
+		case Boolean:
+			return value instanceof Boolean;
+		default:
+			return false;
+		}
+	}
+
 	/**
 	 * parse into the desired type, validate and return the value. Meant to be
 	 * called after validating null input for mandatory condition
@@ -250,7 +304,6 @@ public class Field {
 	 * @param idx
 	 * @return object of the right type. or null if the value is invalid
 	 */
-	@SuppressWarnings("boxing")
 	public Object parse(final String inputValue, final ServiceContext ctx, final String tableName, final int idx) {
 		Object obj = null;
 		if (this.valueSchema == null) {
@@ -258,9 +311,18 @@ public class Field {
 		} else {
 			obj = this.valueSchema.parse(inputValue);
 		}
+		return this.validateParsed(obj, inputValue, ctx, tableName, idx);
+	}
+
+	/*
+	 * validate the value that is parsed from the input value
+	 */
+	@SuppressWarnings("boxing")
+	private Object validateParsed(final Object obj, final Object inputValue, final ServiceContext ctx,
+			final String tableName, final int idx) {
 		if (obj == null) {
 			logger.error("{} is not valid for field {} as per value schema {}", inputValue, this.name,
-					this.valueSchema.getName());
+					this.valueSchema == null ? this.valueType : this.valueSchema.getName());
 			this.addError(ctx, tableName, idx);
 			return null;
 		}
@@ -0,0 +1,22 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+/**
+ * Maps the name of a member in the input data to the index of the field of a
+ * record. Generated for records, so that the members of the input can be
+ * parsed in a single pass, in the order in which they are received, rather
+ * than looking up each field by its name.
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface FieldIndexer {
+	/**
+	 *
+	 * @param memberName name of the member in the input data
+	 * @return 0-based index of the field with this name. -1 if there is no such
+	 *         field
+	 */
+	int indexOf(String memberName);
+}
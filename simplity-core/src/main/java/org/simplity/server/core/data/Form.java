@@ -161,6 +161,26 @@ public abstract class Form<T extends Record> {
 		return null;
 	}
 
+	/**
+	 * get a service worker to export the filtered rows of this form as csv. Only
+	 * the fields of the underlying record are exported, and not those of its
+	 * child forms.
+	 *
+	 * @return worker, or null if filter operation is not allowed on this form
+	 */
+	public ServiceWorker getExportWorker() {
+		if (!this.operations[IoType.FILTER.ordinal()]) {
+			logger.info("Filter operation is not allowed on form {}, and hence it can not be exported", this.name);
+			return null;
+		}
+		if (this.isDb) {
+			return ((DbRecord) this.record).getExportWorker();
+		}
+
+		logger.error("Form {} is based on non-db record. It can not be exported.", this.name);
+		return null;
+	}
+
 	protected class Reader implements ServiceWorker {
 
 		@Override
@@ -183,7 +203,7 @@ public abstract class Form<T extends Record> {
 				 */
 				final OutputData outData = ctx.getOutputData();
 				outData.beginObject();
-				outData.addValues(rec.fetchFieldNames(), rec.fieldValues);
+				rec.writeValues(outData);
 
 				for (final ChildForm<?> child : Form.this.childForms) {
 					child.read(rec, outData, handle);
@@ -279,6 +299,7 @@ public abstract class Form<T extends Record> {
 
 	protected class Filter implements ServiceWorker {
 
+		@SuppressWarnings("boxing")
 		@Override
 		public void serve(final ServiceContext ctx, final InputData payload) throws Exception {
 			final DbRecord rec = (DbRecord) Form.this.record;
@@ -298,8 +319,7 @@ public abstract class Form<T extends Record> {
 
 			final List<Object[]> rows = new ArrayList<>();
 			AppManager.getApp().getDbDriver().doReadonlyOperations(handle -> {
-				handle.readMany(filter.getSql(), filter.getParamValues(), filter.getParamTypes(),
-						filter.getOutputTypes(), rows);
+				final long total = Dba.readRowsAndCount(handle, filter, rows);
 
 				/*
 				 * instead of storing data and then serializing it, we have designed this
@@ -312,11 +332,17 @@ public abstract class Form<T extends Record> {
 
 				if (rows.size() == 0) {
 					logger.warn("No rows filtered. Responding with empty list");
+				} else if (params.isAggregated()) {
+					/*
+					 * summary rows have the group and aggregate columns, and not the fields of
+					 * the record. Child forms are not relevant for them
+					 */
+					outData.addArrayElements(filter.getOutputNames(), rows);
 				} else {
 					for (final Object[] row : rows) {
 						final DbRecord r = rec.newInstance(row);
 						outData.beginObject();
-						outData.addValues(r.fetchFieldNames(), r.fieldValues);
+						r.writeValues(outData);
 						for (final ChildForm<?> child : Form.this.childForms) {
 							child.read(r, outData, handle);
 						}
@@ -325,6 +351,9 @@ public abstract class Form<T extends Record> {
 				}
 
 				outData.endArray();
+				if (filter.isCountRequired()) {
+					outData.addNameValuePair(Conventions.Request.TAG_TOTAL_COUNT, total);
+				}
 				outData.endObject();
 				return true;
 			});
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.service.InputArray;
 import org.simplity.server.core.service.InputData;
 import org.simplity.server.core.service.OutputData;
@@ -253,6 +254,15 @@ public class Record implements Cloneable {
 		return this.fieldValues;
 	}
 
+	/**
+	 *
+	 * @return mapper to extract the values of all the fields from a result set.
+	 *         null if it is not generated for this record
+	 */
+	public RowMapper fetchRowMapper() {
+		return this.metaData.getRowMapper();
+	}
+
 	/**
 	 *
 	 * @return value-types for the fields in that order
@@ -628,11 +638,16 @@ public class Record implements Cloneable {
 	public boolean parse(final InputData inputObject, final boolean forInsert, final ServiceContext ctx,
 			final String tableName, final int rowNbr) {
 		boolean ok = true;
-		for (final Field field : this.metaData.getFields()) {
-			final String value = inputObject.getString(field.getName());
-			if (!field.parseIntoRow(value, this.fieldValues, ctx, tableName, rowNbr)) {
-				ok = false;
+		final FieldIndexer indexer = this.metaData.getFieldIndexer();
+		if (indexer == null) {
+			for (final Field field : this.metaData.getFields()) {
+				final String value = inputObject.getString(field.getName());
+				if (!field.parseIntoRow(value, this.fieldValues, ctx, tableName, rowNbr)) {
+					ok = false;
+				}
 			}
+		} else {
+			ok = this.parseMembers(inputObject, indexer, ctx, tableName, rowNbr);
 		}
 
 		final FormDataValidation[] vals = this.metaData.getValidations();
@@ -647,6 +662,35 @@ public class Record implements Cloneable {
 		return ok;
 	}
 
+	/**
+	 * parse the members of the input in a single pass, in the order in which they
+	 * are received, with the indexer to locate the field for a member
+	 */
+	private boolean parseMembers(final InputData inputObject, final FieldIndexer indexer, final ServiceContext ctx,
+			final String tableName, final int rowNbr) {
+		final Field[] fields = this.metaData.getFields();
+		final boolean[] received = new boolean[fields.length];
+		final boolean[] allOk = { true };
+		inputObject.visitMembers((name, value) -> {
+			final int idx = indexer.indexOf(name);
+			if (idx == -1) {
+				return;
+			}
+			received[idx] = true;
+			if (!fields[idx].parseIntoRow(value, this.fieldValues, ctx, tableName, rowNbr)) {
+				allOk[0] = false;
+			}
+		});
+
+		boolean ok = allOk[0];
+		for (int i = 0; i < fields.length; i++) {
+			if (!received[i] && !fields[i].parseIntoRow((String) null, this.fieldValues, ctx, tableName, rowNbr)) {
+				ok = false;
+			}
+		}
+		return ok;
+	}
+
 	/**
 	 * parse this record from a serialized input
 	 *
@@ -656,6 +700,8 @@ public class Record implements Cloneable {
 	 *                    false if it is meant for an update instead
 	 * @param ctx
 	 * @return list of parsed data rows. null in case of any error.
+	 *         Large tables may be parsed in parallel, see
+	 *         AppConfig.minRowsForParallelParse
 	 */
 	public List<? extends Record> parseTable(final InputData inputObject, final String memberName,
 			final boolean forInsert, final ServiceContext ctx) {
@@ -666,13 +712,9 @@ public class Record implements Cloneable {
 			return list;
 		}
 
-		for (InputData ele : arr.toDataArray()) {
-			final Record rec = this.newInstance();
-			if (!rec.parse(ele, forInsert, ctx, memberName, 0)) {
-				list.clear(); // indicate error condition
-				break;
-			}
-			list.add(rec);
+		final Record[] records = RowsParser.parse(this, arr.toDataArray(), forInsert, ctx, memberName);
+		if (records != null) {
+			list.addAll(Arrays.asList(records));
 		}
 
 		/*
@@ -704,6 +746,34 @@ public class Record implements Cloneable {
 		}
 	}
 
+	/**
+	 * write the values of all the fields of this record as members of an object
+	 * that is already started. Unlike writeOut(), a null value is written out as
+	 * an empty string, exactly as in OutputData.addValues()
+	 *
+	 * @param outputData
+	 */
+	public void writeValues(final OutputData outputData) {
+		this.writeValues(outputData, this.fieldValues);
+	}
+
+	/**
+	 * write values of a row, that has values for all the fields of this record,
+	 * as members of an object that is already started. A null value is written
+	 * out as an empty string, exactly as in OutputData.addValues()
+	 *
+	 * @param outputData
+	 * @param values     values for all the fields of this record
+	 */
+	public void writeValues(final OutputData outputData, final Object[] values) {
+		final RecordWriter writer = this.metaData.getRecordWriter();
+		if (writer == null) {
+			outputData.addValues(this.fetchFieldNames(), values);
+		} else {
+			writer.write(outputData, values);
+		}
+	}
+
 	/**
 	 * add this as a member of an object that is already started.
 	 *
@@ -0,0 +1,284 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of rows read by primary key for a db record. Key is the values of the
+ * where-clause of the record, that is the primary key plus the tenant key if
+ * relevant. Rows are kept within a memory budget (least-recently-used row is
+ * evicted) and for a time-to-live.
+ *
+ * The cache is invalidated by the Dba whenever a row is updated/deleted/saved
+ * through it, after the transaction is committed. Rows modified by any other
+ * means are seen only after the TTL.
+ *
+ * A row read from the db is put into the cache only if no row was invalidated
+ * since the read began. Otherwise a read that started before a commit could
+ * put the old values back, after the commit had invalidated them.
+ *
+ * @author simplity.org
+ *
+ */
+public class RecordCache {
+	protected static final Logger logger = LoggerFactory.getLogger(RecordCache.class);
+
+	/*
+	 * rough estimates of memory used by objects in a row
+	 */
+	private static final int ENTRY_OVERHEAD = 96;
+	private static final int OBJECT_SIZE = 24;
+	private static final int STRING_OVERHEAD = 40;
+
+	private static final Map<String, RecordCache> allCaches = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final long maxBytes;
+	private final long ttlMillis;
+	/*
+	 * access-ordered so that the eldest one is the least-recently-used
+	 */
+	private final LinkedHashMap<Object, CachedRow> rows = new LinkedHashMap<>(16, 0.75f, true);
+	private long usedBytes;
+	/*
+	 * incremented on every invalidation. used as a stamp for a read
+	 */
+	private long nbrChanges;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 *
+	 * @param name       name of the record. Used to access the cache for its
+	 *                   statistics
+	 * @param budgetKb   approximate memory, in KB, that this cache may use
+	 * @param ttlSeconds number of seconds for which a row is kept in the cache. 0
+	 *                   means no expiry
+	 */
+	public RecordCache(final String name, final int budgetKb, final int ttlSeconds) {
+		this.name = name;
+		this.maxBytes = budgetKb * 1024L;
+		this.ttlMillis = ttlSeconds * 1000L;
+		allCaches.put(name, this);
+	}
+
+	/**
+	 *
+	 * @param recordName
+	 * @return cache for this record, or null if this record does not use a cache,
+	 *         or the record class is not loaded yet
+	 */
+	public static RecordCache getCache(final String recordName) {
+		return allCaches.get(recordName);
+	}
+
+	/**
+	 *
+	 * @return all the caches that are in use. Useful for reporting the hit-rates
+	 */
+	public static Collection<RecordCache> getAllCaches() {
+		return Collections.unmodifiableCollection(allCaches.values());
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return cached values. null if it is not cached, or has expired. Note that
+	 *         the returned array MUST NOT be modified
+	 */
+	synchronized Object[] get(final Object key) {
+		final CachedRow row = this.rows.get(key);
+		if (row == null) {
+			this.misses.increment();
+			return null;
+		}
+		if (this.ttlMillis > 0 && System.currentTimeMillis() > row.expiresAt) {
+			this.remove(key);
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return row.values;
+	}
+
+	/**
+	 *
+	 * @return stamp to be taken before reading a row from the db, and passed to
+	 *         put() with the row that is read
+	 */
+	synchronized long getStamp() {
+		return this.nbrChanges;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param values values to be cached. Caller MUST NOT modify this array after
+	 *               this call
+	 * @param stamp  as returned by getStamp() before the row was read from the
+	 *               db. The row is not cached if any row was invalidated since
+	 *               then
+	 */
+	synchronized void put(final Object key, final Object[] values, final long stamp) {
+		if (stamp != this.nbrChanges) {
+			return;
+		}
+		final int size = estimateSize(values);
+		if (size > this.maxBytes) {
+			return;
+		}
+		this.remove(key);
+		final long expiresAt = this.ttlMillis > 0 ? System.currentTimeMillis() + this.ttlMillis : 0;
+		this.rows.put(key, new CachedRow(values, size, expiresAt));
+		this.usedBytes += size;
+
+		final Iterator<CachedRow> iter = this.rows.values().iterator();
+		while (this.usedBytes > this.maxBytes && iter.hasNext()) {
+			this.usedBytes -= iter.next().size;
+			iter.remove();
+			this.evictions.increment();
+		}
+	}
+
+	/**
+	 * remove the row from the cache, if it is cached
+	 *
+	 * @param key
+	 */
+	synchronized void invalidate(final Object key) {
+		this.nbrChanges++;
+		if (this.remove(key)) {
+			this.invalidations.increment();
+		}
+	}
+
+	/**
+	 * remove all rows from this cache
+	 */
+	public synchronized void clear() {
+		this.rows.clear();
+		this.usedBytes = 0;
+	}
+
+	private boolean remove(final Object key) {
+		final CachedRow row = this.rows.remove(key);
+		if (row == null) {
+			return false;
+		}
+		this.usedBytes -= row.size;
+		return true;
+	}
+
+	private static int estimateSize(final Object[] values) {
+		int size = ENTRY_OVERHEAD + 8 * values.length;
+		for (final Object value : values) {
+			if (value instanceof String) {
+				size += STRING_OVERHEAD + 2 * ((String) value).length();
+			} else if (value != null) {
+				size += OBJECT_SIZE;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 *
+	 * @return name of the record for which this cache is used
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 *
+	 * @return number of reads that were served from the cache
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 *
+	 * @return number of reads that had to go to the db
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 *
+	 * @return fraction of reads that were served from the cache. 0 if there were
+	 *         no reads
+	 */
+	public double getHitRate() {
+		final long h = this.hits.sum();
+		final long total = h + this.misses.sum();
+		if (total == 0) {
+			return 0;
+		}
+		return (double) h / total;
+	}
+
+	/**
+	 *
+	 * @return number of rows evicted to keep the memory within budget
+	 */
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 *
+	 * @return number of rows removed because they were modified
+	 */
+	public long getInvalidations() {
+		return this.invalidations.sum();
+	}
+
+	/**
+	 *
+	 * @return number of rows in the cache
+	 */
+	public synchronized int getNbrRows() {
+		return this.rows.size();
+	}
+
+	/**
+	 *
+	 * @return approximate memory, in bytes, used by the cached rows
+	 */
+	public synchronized long getUsedBytes() {
+		return this.usedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + ": rows=" + this.getNbrRows() + " hits=" + this.getHits() + " misses="
+				+ this.getMisses() + " evictions=" + this.getEvictions() + " invalidations="
+				+ this.getInvalidations();
+	}
+
+	private static class CachedRow {
+		final Object[] values;
+		final int size;
+		final long expiresAt;
+
+		CachedRow(final Object[] values, final int size, final long expiresAt) {
+			this.values = values;
+			this.size = size;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package org.simplity.server.core.data;
 
 import java.util.Map;
 
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.validn.FormDataValidation;
 
 /**
@@ -23,6 +24,24 @@ public class RecordMetaData {
 	 */
 	private final FormDataValidation[] validations;
 
+	/**
+	 * generated mapper to extract all the fields from a result set. null if it
+	 * is not generated
+	 */
+	private final RowMapper rowMapper;
+
+	/**
+	 * generated indexer to parse the input data in a single pass. null if it is
+	 * not generated
+	 */
+	private final FieldIndexer fieldIndexer;
+
+	/**
+	 * generated writer to serialize the field values. null if it is not
+	 * generated
+	 */
+	private final RecordWriter recordWriter;
+
 	/**
 	 *
 	 * @param name
@@ -30,9 +49,42 @@ public class RecordMetaData {
 	 * @param validations
 	 */
 	public RecordMetaData(final String name, final Field[] fields, final FormDataValidation[] validations) {
+		this(name, fields, validations, null);
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @param fields
+	 * @param validations
+	 * @param rowMapper   to extract all the fields, in that order, from a result
+	 *                    set
+	 */
+	public RecordMetaData(final String name, final Field[] fields, final FormDataValidation[] validations,
+			final RowMapper rowMapper) {
+		this(name, fields, validations, rowMapper, null, null);
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @param fields
+	 * @param validations
+	 * @param rowMapper    to extract all the fields, in that order, from a result
+	 *                     set
+	 * @param fieldIndexer to get the index of a field from its name in the input
+	 *                     data
+	 * @param recordWriter to write the values of all the fields to the output
+	 *                     data
+	 */
+	public RecordMetaData(final String name, final Field[] fields, final FormDataValidation[] validations,
+			final RowMapper rowMapper, final FieldIndexer fieldIndexer, final RecordWriter recordWriter) {
 		this.name = name;
 		this.fields = fields;
 		this.validations = validations;
+		this.rowMapper = rowMapper;
+		this.fieldIndexer = fieldIndexer;
+		this.recordWriter = recordWriter;
 	}
 
 	/**
@@ -61,6 +113,9 @@ public class RecordMetaData {
 		this.name = this.getClass().getName().toString();
 		this.fields = fields;
 		this.validations = null;
+		this.rowMapper = null;
+		this.fieldIndexer = null;
+		this.recordWriter = null;
 	}
 
 	/**
@@ -70,6 +125,30 @@ public class RecordMetaData {
 		return this.name;
 	}
 
+	/**
+	 * @return mapper to extract all the fields from a result set. null if it is
+	 *         not generated
+	 */
+	public RowMapper getRowMapper() {
+		return this.rowMapper;
+	}
+
+	/**
+	 * @return indexer to get the index of a field from its name in the input
+	 *         data. null if it is not generated
+	 */
+	public FieldIndexer getFieldIndexer() {
+		return this.fieldIndexer;
+	}
+
+	/**
+	 * @return writer to write the values of all the fields to the output data.
+	 *         null if it is not generated
+	 */
+	public RecordWriter getRecordWriter() {
+		return this.recordWriter;
+	}
+
 	/**
 	 * @return the fields
 	 */
@@ -0,0 +1,26 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import org.simplity.server.core.service.OutputData;
+
+/**
+ * Writes the values of the fields of a record as members of an object. Generated
+ * for records, so that each value is written with the typed method of the
+ * output, without having to inspect its type at run time.
+ *
+ * Output must be the same as that of OutputData.addValues() for the field names
+ * of the record
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface RecordWriter {
+	/**
+	 *
+	 * @param outputData to which the members are to be written. An object must
+	 *                   have been started
+	 * @param values     values of the fields, in the order of the fields
+	 */
+	void write(OutputData outputData, Object[] values);
+}
@@ -0,0 +1,153 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.simplity.server.core.Message;
+import org.simplity.server.core.app.AppManager;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.RowContext;
+import org.simplity.server.core.service.ServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * parses an array of rows received for a record, each into its own instance of
+ * the record.
+ *
+ * If there are at least App.getMinRowsForParallelParse() rows, they are parsed
+ * and validated in parallel, with fork/join on the common pool. Each task
+ * collects the messages in its own context, and the messages are then added to
+ * the context of the request in the order of the rows, so that the response
+ * does not depend on how the rows got split across threads. All the rows are
+ * validated in this case, and not just up to the first row in error.
+ *
+ * The tasks have the user context of the request, and they report the same
+ * tenant and user as the request does. They do not have the values set in the
+ * context of the request. Hence a record with inter-field validations, that
+ * receive the context and may use such values, is always parsed sequentially.
+ *
+ * @author simplity.org
+ *
+ */
+final class RowsParser {
+	private static final Logger logger = LoggerFactory.getLogger(RowsParser.class);
+	/*
+	 * rows below this are not split further across tasks
+	 */
+	private static final int MIN_ROWS_PER_TASK = 16;
+
+	private RowsParser() {
+		// static methods only
+	}
+
+	/**
+	 *
+	 * @param prototype whose new instance is used for each row
+	 * @param inputs    rows to be parsed
+	 * @param forInsert true if the rows are parsed for an insert operation
+	 * @param ctx       to which error messages are added
+	 * @param tableName name with which the rows are received. used for reporting
+	 *                  errors
+	 * @return parsed records, in the same order as the inputs. null in case of
+	 *         any error, in which case error messages are added to the context
+	 */
+	static Record[] parse(final Record prototype, final InputData[] inputs, final boolean forInsert,
+			final ServiceContext ctx, final String tableName) {
+		final int nbr = inputs.length;
+		final Record[] records = new Record[nbr];
+		final int minRows = AppManager.getApp().getMinRowsForParallelParse();
+		if (minRows <= 0 || nbr < minRows || prototype.fetchValidaitons() != null) {
+			for (int idx = 0; idx < nbr; idx++) {
+				final Record rec = prototype.newInstance();
+				if (!rec.parse(inputs[idx], forInsert, ctx, tableName, idx)) {
+					return null;
+				}
+				records[idx] = rec;
+			}
+			return records;
+		}
+
+		logger.info("{} rows of {} being parsed in parallel", nbr, tableName);
+		final Message[][] messages = new Message[nbr][];
+		final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		final int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, nbr / (parallelism * 4));
+		final ParseTask task = new ParseTask(prototype, inputs, forInsert, tableName, ctx, records, messages,
+				rowsPerTask, 0, nbr);
+		ForkJoinPool.commonPool().invoke(task);
+
+		boolean allOk = true;
+		for (int idx = 0; idx < nbr; idx++) {
+			if (messages[idx] != null) {
+				ctx.addMessages(messages[idx]);
+			}
+			if (records[idx] == null) {
+				allOk = false;
+			}
+		}
+		return allOk ? records : null;
+	}
+
+	/**
+	 * parses a range of rows, after splitting it if it is too large
+	 */
+	private static class ParseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Record prototype;
+		private final InputData[] inputs;
+		private final boolean forInsert;
+		private final String tableName;
+		private final ServiceContext ctx;
+		private final Record[] records;
+		private final Message[][] messages;
+		private final int rowsPerTask;
+		private final int from;
+		private final int to;
+
+		ParseTask(final Record prototype, final InputData[] inputs, final boolean forInsert, final String tableName,
+				final ServiceContext ctx, final Record[] records, final Message[][] messages, final int rowsPerTask,
+				final int from, final int to) {
+			this.prototype = prototype;
+			this.inputs = inputs;
+			this.forInsert = forInsert;
+			this.tableName = tableName;
+			this.ctx = ctx;
+			this.records = records;
+			this.messages = messages;
+			this.rowsPerTask = rowsPerTask;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > this.rowsPerTask) {
+				final int mid = (this.from + this.to) >>> 1;
+				invokeAll(this.split(this.from, mid), this.split(mid, this.to));
+				return;
+			}
+
+			final RowContext context = new RowContext(this.ctx);
+			for (int idx = this.from; idx < this.to; idx++) {
+				final Record rec = this.prototype.newInstance();
+				boolean ok;
+				try {
+					ok = rec.parse(this.inputs[idx], this.forInsert, context, this.tableName, idx);
+				} catch (final Exception e) {
+					ok = false;
+					context.addMessage(Message.newError("Row could not be parsed: " + e.getMessage()));
+				}
+				if (ok) {
+					this.records[idx] = rec;
+				}
+				this.messages[idx] = context.takeMessages();
+			}
+		}
+
+		private ParseTask split(final int start, final int end) {
+			return new ParseTask(this.prototype, this.inputs, this.forInsert, this.tableName, this.ctx, this.records,
+					this.messages, this.rowsPerTask, start, end);
+		}
+	}
+}
@@ -0,0 +1,671 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.fn.NumericFunction;
+import org.simplity.server.core.valueschema.ValueType;
+
+/**
+ * sort, group and aggregate the rows of a DataTable in memory, for the data
+ * that is already fetched from the db, like the rows of a report.
+ *
+ * Values of the columns used for sorting and grouping are extracted once into
+ * primitive arrays, so that rows are compared without unboxing any value. A
+ * ColumnarDataTable is read with its column accessors, and its text columns are
+ * compared using their dictionary codes.
+ *
+ * Tables with a large number of rows are sorted and grouped in parallel with
+ * fork/join on the common pool. The results do not depend on whether they are
+ * processed in parallel: sort is stable, groups are in the order of their first
+ * row, and values are aggregated in the order of the rows.
+ *
+ * Null is treated as the smallest value for sorting, and a group by itself for
+ * grouping. Nulls are skipped while aggregating.
+ *
+ * @author simplity.org
+ *
+ */
+public class TableQuery {
+	/*
+	 * tables with fewer rows are processed on the caller's thread
+	 */
+	private static final int MIN_PARALLEL_ROWS = 8192;
+	/*
+	 * rows below this are sorted without splitting them further
+	 */
+	private static final int MIN_SORT_SPLIT = 2048;
+	private static final int MIN_INSERTION_SORT = 32;
+
+	private final DataTable<?> table;
+	private final ValueType[] valueTypes;
+	private final int nbrRows;
+
+	/**
+	 *
+	 * @param table rows to be queried. Must not be modified while this query is
+	 *              being used
+	 */
+	public TableQuery(final DataTable<?> table) {
+		this.table = table;
+		this.valueTypes = table.fetchValueTypes();
+		this.nbrRows = table.length();
+	}
+
+	/**
+	 * sort the rows on one or more columns. The table itself is not modified.
+	 *
+	 * @param columns    0-based indexes of the columns to sort on, in the order
+	 *                   of priority
+	 * @param descending null if all columns are to be sorted in the ascending
+	 *                   order. Else must have an element for each column
+	 * @return 0-based row indexes of the table in the sorted order. Rows with the
+	 *         same values for all the sort-columns are in their original order
+	 */
+	public int[] sort(final int[] columns, final boolean[] descending) {
+		final int n = this.nbrRows;
+		final int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		if (n < 2 || columns.length == 0) {
+			return order;
+		}
+
+		final SortKey[] keys = new SortKey[columns.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = this.sortKey(columns[i], descending != null && descending[i]);
+		}
+		final RowComparator comparator = keys.length == 1 ? keys[0] : (a, b) -> {
+			for (final SortKey key : keys) {
+				final int c = key.compare(a, b);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return 0;
+		};
+
+		final int[] work = new int[n];
+		if (n < MIN_PARALLEL_ROWS) {
+			mergeSort(order, work, 0, n, comparator);
+		} else {
+			ForkJoinPool.commonPool().invoke(new SortTask(order, work, 0, n, comparator));
+		}
+		return order;
+	}
+
+	/**
+	 * group rows on one or more columns, and evaluate aggregates for each group
+	 *
+	 * @param keyColumns   0-based indexes of the columns to group the rows on.
+	 *                     Empty array to aggregate all the rows into a single
+	 *                     group
+	 * @param aggregations aggregates to be evaluated for each group
+	 * @return one row for each group, in the order in which the groups first
+	 *         appear in the table. Each row has the values of the key columns
+	 *         followed by the values of the aggregates. see getGroupColumnNames()
+	 */
+	public Object[][] group(final int[] keyColumns, final Aggregation[] aggregations) {
+		final GroupKeys keys = this.groupKeys(keyColumns);
+		final int n = this.nbrRows;
+		final Map<GroupKey, Group> groups;
+		if (n < MIN_PARALLEL_ROWS) {
+			groups = this.groupRows(keys, aggregations, 0, n);
+		} else {
+			final int nbrTasks = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+			final GroupTask[] tasks = new GroupTask[nbrTasks];
+			for (int i = 0; i < nbrTasks; i++) {
+				tasks[i] = new GroupTask(keys, aggregations, (int) ((long) n * i / nbrTasks),
+						(int) ((long) n * (i + 1) / nbrTasks));
+			}
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+
+			/*
+			 * merged in the order of the row ranges, so that groups and their values
+			 * are in the same order as that of a sequential run
+			 */
+			groups = tasks[0].groups;
+			for (int i = 1; i < nbrTasks; i++) {
+				for (final Map.Entry<GroupKey, Group> entry : tasks[i].groups.entrySet()) {
+					final Group existing = groups.get(entry.getKey());
+					if (existing == null) {
+						groups.put(entry.getKey(), entry.getValue());
+					} else {
+						existing.append(entry.getValue(), aggregations);
+					}
+				}
+			}
+		}
+
+		final int nbrKeys = keyColumns.length;
+		final Object[][] result = new Object[groups.size()][];
+		int rowIdx = 0;
+		for (final Group group : groups.values()) {
+			final Object[] row = new Object[nbrKeys + aggregations.length];
+			for (int i = 0; i < nbrKeys; i++) {
+				row[i] = this.table.fetchValue(group.firstRow, keyColumns[i]);
+			}
+			for (int i = 0; i < aggregations.length; i++) {
+				row[nbrKeys + i] = group.evaluate(aggregations[i], i);
+			}
+			result[rowIdx++] = row;
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param keyColumns   as used for group()
+	 * @param aggregations as used for group()
+	 * @return names of the columns of the rows returned by group()
+	 */
+	public String[] getGroupColumnNames(final int[] keyColumns, final Aggregation[] aggregations) {
+		final String[] allNames = this.table.fetchFieldNames();
+		final String[] names = new String[keyColumns.length + aggregations.length];
+		for (int i = 0; i < keyColumns.length; i++) {
+			names[i] = allNames[keyColumns[i]];
+		}
+		for (int i = 0; i < aggregations.length; i++) {
+			names[keyColumns.length + i] = aggregations[i].getOutputName();
+		}
+		return names;
+	}
+
+	/**
+	 *
+	 * @param order row indexes, typically as returned by sort()
+	 * @return rows of the table in this order, as arrays of values
+	 */
+	public Object[][] fetchRows(final int[] order) {
+		final int nbrCols = this.valueTypes.length;
+		final Object[][] rows = new Object[order.length][];
+		for (int i = 0; i < order.length; i++) {
+			final Object[] row = new Object[nbrCols];
+			for (int j = 0; j < nbrCols; j++) {
+				row[j] = this.table.fetchValue(order[i], j);
+			}
+			rows[i] = row;
+		}
+		return rows;
+	}
+
+	/*
+	 * sort
+	 */
+
+	@FunctionalInterface
+	private interface RowComparator {
+		int compare(int row1, int row2);
+	}
+
+	private SortKey sortKey(final int col, final boolean descending) {
+		final int n = this.nbrRows;
+		final ColumnarDataTable<?> columnar = this.table instanceof ColumnarDataTable
+				? (ColumnarDataTable<?>) this.table
+				: null;
+		final ValueType vt = this.valueTypes[col];
+		final boolean[] nulls = new boolean[n];
+
+		if (vt == ValueType.Decimal) {
+			final double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				if (columnar != null) {
+					nulls[i] = columnar.isNull(i, col);
+					values[i] = columnar.getDouble(i, col);
+				} else {
+					final Object obj = this.table.fetchValue(i, col);
+					nulls[i] = obj == null;
+					values[i] = obj == null ? 0 : ((Number) obj).doubleValue();
+				}
+			}
+			return new DoubleKey(values, nulls, descending);
+		}
+
+		if (vt == ValueType.Timestamp || (vt == ValueType.Text && columnar == null)) {
+			final Comparable<?>[] values = new Comparable<?>[n];
+			for (int i = 0; i < n; i++) {
+				final Object obj = this.table.fetchValue(i, col);
+				nulls[i] = obj == null;
+				values[i] = (Comparable<?>) obj;
+			}
+			return new ObjectKey(values, nulls, descending);
+		}
+
+		final long[] values = new long[n];
+		int[] ranks = null;
+		if (vt == ValueType.Text) {
+			/*
+			 * rank of each text in the sorted dictionary
+			 */
+			final String[] dictionary = columnar.getTextDictionary(col);
+			final Integer[] codes = new Integer[dictionary.length];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = i;
+			}
+			Arrays.sort(codes, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+			ranks = new int[codes.length];
+			for (int i = 0; i < codes.length; i++) {
+				ranks[codes[i]] = i;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (columnar != null) {
+				final boolean isNull = columnar.isNull(i, col);
+				nulls[i] = isNull;
+				if (isNull) {
+					continue;
+				}
+				if (ranks != null) {
+					values[i] = ranks[columnar.getTextCode(i, col)];
+				} else if (vt == ValueType.Boolean) {
+					values[i] = columnar.getBoolean(i, col) ? 1 : 0;
+				} else {
+					values[i] = columnar.getLong(i, col);
+				}
+				continue;
+			}
+			final Object obj = this.table.fetchValue(i, col);
+			nulls[i] = obj == null;
+			if (obj != null) {
+				values[i] = toLong(obj, vt);
+			}
+		}
+		return new LongKey(values, nulls, descending);
+	}
+
+	private static long toLong(final Object obj, final ValueType vt) {
+		switch (vt) {
+		case Boolean:
+			return ((Boolean) obj).booleanValue() ? 1 : 0;
+		case Date:
+			return ((LocalDate) obj).toEpochDay();
+		case Integer:
+			return ((Number) obj).longValue();
+		default:
+			throw new ApplicationError("Value type " + vt + " can not be used as a long value");
+		}
+	}
+
+	private abstract static class SortKey implements RowComparator {
+		private final boolean[] nulls;
+		private final int sign;
+
+		SortKey(final boolean[] nulls, final boolean descending) {
+			this.nulls = nulls;
+			this.sign = descending ? -1 : 1;
+		}
+
+		@Override
+		public final int compare(final int row1, final int row2) {
+			final boolean null1 = this.nulls[row1];
+			final boolean null2 = this.nulls[row2];
+			if (null1 || null2) {
+				if (null1 == null2) {
+					return 0;
+				}
+				return null1 ? -this.sign : this.sign;
+			}
+			return this.sign * this.compareValues(row1, row2);
+		}
+
+		abstract int compareValues(int row1, int row2);
+	}
+
+	private static final class LongKey extends SortKey {
+		private final long[] values;
+
+		LongKey(final long[] values, final boolean[] nulls, final boolean descending) {
+			super(nulls, descending);
+			this.values = values;
+		}
+
+		@Override
+		int compareValues(final int row1, final int row2) {
+			return Long.compare(this.values[row1], this.values[row2]);
+		}
+	}
+
+	private static final class DoubleKey extends SortKey {
+		private final double[] values;
+
+		DoubleKey(final double[] values, final boolean[] nulls, final boolean descending) {
+			super(nulls, descending);
+			this.values = values;
+		}
+
+		@Override
+		int compareValues(final int row1, final int row2) {
+			return Double.compare(this.values[row1], this.values[row2]);
+		}
+	}
+
+	private static final class ObjectKey extends SortKey {
+		private final Comparable<?>[] values;
+
+		ObjectKey(final Comparable<?>[] values, final boolean[] nulls, final boolean descending) {
+			super(nulls, descending);
+			this.values = values;
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		int compareValues(final int row1, final int row2) {
+			return ((Comparable) this.values[row1]).compareTo(this.values[row2]);
+		}
+	}
+
+	/*
+	 * stable merge sort of a[from, to)
+	 */
+	private static void mergeSort(final int[] a, final int[] work, final int from, final int to,
+			final RowComparator comparator) {
+		if (to - from <= MIN_INSERTION_SORT) {
+			insertionSort(a, from, to, comparator);
+			return;
+		}
+		final int mid = (from + to) >>> 1;
+		mergeSort(a, work, from, mid, comparator);
+		mergeSort(a, work, mid, to, comparator);
+		merge(a, work, from, mid, to, comparator);
+	}
+
+	private static void insertionSort(final int[] a, final int from, final int to, final RowComparator comparator) {
+		for (int i = from + 1; i < to; i++) {
+			final int row = a[i];
+			int j = i - 1;
+			while (j >= from && comparator.compare(a[j], row) > 0) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = row;
+		}
+	}
+
+	private static void merge(final int[] a, final int[] work, final int from, final int mid, final int to,
+			final RowComparator comparator) {
+		if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+			// already in order
+			return;
+		}
+		System.arraycopy(a, from, work, from, to - from);
+		int i = from;
+		int j = mid;
+		int k = from;
+		while (i < mid && j < to) {
+			if (comparator.compare(work[j], work[i]) < 0) {
+				a[k++] = work[j++];
+			} else {
+				a[k++] = work[i++];
+			}
+		}
+		while (i < mid) {
+			a[k++] = work[i++];
+		}
+		while (j < to) {
+			a[k++] = work[j++];
+		}
+	}
+
+	private static class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] a;
+		private final int[] work;
+		private final int from;
+		private final int to;
+		private final RowComparator comparator;
+
+		SortTask(final int[] a, final int[] work, final int from, final int to, final RowComparator comparator) {
+			this.a = a;
+			this.work = work;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= MIN_SORT_SPLIT) {
+				mergeSort(this.a, this.work, this.from, this.to, this.comparator);
+				return;
+			}
+			final int mid = (this.from + this.to) >>> 1;
+			invokeAll(new SortTask(this.a, this.work, this.from, mid, this.comparator),
+					new SortTask(this.a, this.work, mid, this.to, this.comparator));
+			merge(this.a, this.work, this.from, mid, this.to, this.comparator);
+		}
+	}
+
+	/*
+	 * group
+	 */
+
+	/**
+	 * values of the key columns of all the rows, coded as long
+	 */
+	private static class GroupKeys {
+		final long[][] codes;
+		final boolean[][] nulls;
+
+		GroupKeys(final int nbrKeys, final int nbrRows) {
+			this.codes = new long[nbrKeys][nbrRows];
+			this.nulls = new boolean[nbrKeys][nbrRows];
+		}
+
+		GroupKey keyOf(final int row) {
+			final int n = this.codes.length;
+			final long[] parts = new long[n];
+			long nullBits = 0;
+			for (int i = 0; i < n; i++) {
+				if (this.nulls[i][row]) {
+					nullBits |= 1L << (i & 63);
+				} else {
+					parts[i] = this.codes[i][row];
+				}
+			}
+			return new GroupKey(parts, nullBits);
+		}
+	}
+
+	private GroupKeys groupKeys(final int[] keyColumns) {
+		final int n = this.nbrRows;
+		final GroupKeys keys = new GroupKeys(keyColumns.length, n);
+		final ColumnarDataTable<?> columnar = this.table instanceof ColumnarDataTable
+				? (ColumnarDataTable<?>) this.table
+				: null;
+		for (int k = 0; k < keyColumns.length; k++) {
+			final int col = keyColumns[k];
+			final ValueType vt = this.valueTypes[col];
+			final long[] codes = keys.codes[k];
+			final boolean[] nulls = keys.nulls[k];
+			final Map<Object, Integer> dictionary = new HashMap<>();
+			for (int i = 0; i < n; i++) {
+				if (columnar != null && vt == ValueType.Text) {
+					final int code = columnar.getTextCode(i, col);
+					nulls[i] = code == -1;
+					codes[i] = code;
+					continue;
+				}
+				final Object obj = this.table.fetchValue(i, col);
+				if (obj == null) {
+					nulls[i] = true;
+					continue;
+				}
+				switch (vt) {
+				case Boolean:
+				case Date:
+				case Integer:
+					codes[i] = toLong(obj, vt);
+					break;
+				case Decimal:
+					// 0.0 and -0.0 are the same value for grouping
+					codes[i] = Double.doubleToLongBits(((Number) obj).doubleValue() + 0.0);
+					break;
+				default:
+					codes[i] = dictionary.computeIfAbsent(obj, o -> dictionary.size()).longValue();
+				}
+			}
+		}
+		return keys;
+	}
+
+	private LinkedHashMap<GroupKey, Group> groupRows(final GroupKeys keys, final Aggregation[] aggregations, final int from,
+			final int to) {
+		final LinkedHashMap<GroupKey, Group> groups = new LinkedHashMap<>();
+		final ColumnarDataTable<?> columnar = this.table instanceof ColumnarDataTable
+				? (ColumnarDataTable<?>) this.table
+				: null;
+		for (int row = from; row < to; row++) {
+			final GroupKey key = keys.keyOf(row);
+			Group group = groups.get(key);
+			if (group == null) {
+				group = new Group(row, aggregations);
+				groups.put(key, group);
+			}
+			for (int i = 0; i < aggregations.length; i++) {
+				final Aggregation agg = aggregations[i];
+				final int col = agg.getColumnIndex();
+				if (agg.isNumeric() && columnar != null) {
+					if (!columnar.isNull(row, col)) {
+						((DoubleBuffer) group.values[i]).add(columnar.getDouble(row, col));
+					}
+					continue;
+				}
+				final Object obj = this.table.fetchValue(row, col);
+				if (obj == null) {
+					continue;
+				}
+				if (agg.isNumeric()) {
+					((DoubleBuffer) group.values[i]).add(((Number) obj).doubleValue());
+				} else {
+					@SuppressWarnings("unchecked")
+					final List<Object> list = (List<Object>) group.values[i];
+					list.add(obj);
+				}
+			}
+		}
+		return groups;
+	}
+
+	private class GroupTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final GroupKeys keys;
+		private final Aggregation[] aggregations;
+		private final int from;
+		private final int to;
+		LinkedHashMap<GroupKey, Group> groups;
+
+		GroupTask(final GroupKeys keys, final Aggregation[] aggregations, final int from, final int to) {
+			this.keys = keys;
+			this.aggregations = aggregations;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			this.groups = TableQuery.this.groupRows(this.keys, this.aggregations, this.from, this.to);
+		}
+	}
+
+	private static final class GroupKey {
+		private final long[] parts;
+		private final long nullBits;
+		private final int hash;
+
+		GroupKey(final long[] parts, final long nullBits) {
+			this.parts = parts;
+			this.nullBits = nullBits;
+			this.hash = 31 * Arrays.hashCode(parts) + Long.hashCode(nullBits);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof GroupKey == false) {
+				return false;
+			}
+			final GroupKey other = (GroupKey) obj;
+			return this.nullBits == other.nullBits && Arrays.equals(this.parts, other.parts);
+		}
+	}
+
+	private static final class Group {
+		final int firstRow;
+		/*
+		 * DoubleBuffer for a numeric aggregation, List<Object> otherwise
+		 */
+		final Object[] values;
+
+		Group(final int firstRow, final Aggregation[] aggregations) {
+			this.firstRow = firstRow;
+			this.values = new Object[aggregations.length];
+			for (int i = 0; i < aggregations.length; i++) {
+				this.values[i] = aggregations[i].isNumeric() ? new DoubleBuffer() : new ArrayList<>();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void append(final Group other, final Aggregation[] aggregations) {
+			for (int i = 0; i < aggregations.length; i++) {
+				if (aggregations[i].isNumeric()) {
+					((DoubleBuffer) this.values[i]).addAll((DoubleBuffer) other.values[i]);
+				} else {
+					((List<Object>) this.values[i]).addAll((List<Object>) other.values[i]);
+				}
+			}
+		}
+
+		@SuppressWarnings("boxing")
+		Object evaluate(final Aggregation agg, final int idx) {
+			if (agg.isNumeric()) {
+				return ((NumericFunction) agg.getFunction()).calculate(((DoubleBuffer) this.values[idx]).toArray());
+			}
+			return agg.getFunction().eval(((List<?>) this.values[idx]).toArray());
+		}
+	}
+
+	private static final class DoubleBuffer {
+		private double[] values = new double[8];
+		private int size;
+
+		void add(final double value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+
+		void addAll(final DoubleBuffer other) {
+			if (this.size + other.size > this.values.length) {
+				this.values = Arrays.copyOf(this.values, Math.max(this.size * 2, this.size + other.size));
+			}
+			System.arraycopy(other.values, 0, this.values, this.size, other.size);
+			this.size += other.size;
+		}
+
+		double[] toArray() {
+			return Arrays.copyOf(this.values, this.size);
+		}
+	}
+}
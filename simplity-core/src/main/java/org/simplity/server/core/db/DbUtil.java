@@ -24,6 +24,7 @@ import org.simplity.server.core.valueschema.ValueType;
 public class DbUtil {
 
 	private static boolean useIntForBoolean = true;
+	private static boolean windowFunctionsSupported = true;
 
 	/**
 	 *
@@ -34,6 +35,32 @@ public class DbUtil {
 		useIntForBoolean = useInt;
 	}
 
+	/**
+	 *
+	 * @return true if int (1/0) is used for boolean fields in the DB. false if
+	 *         true/false is used
+	 */
+	public static final boolean useIntForBoolean() {
+		return useIntForBoolean;
+	}
+
+	/**
+	 *
+	 * @param supported true if the db supports window functions like COUNT(*)
+	 *                  OVER(). false otherwise.
+	 */
+	public static final void setWindowFunctionsSupported(boolean supported) {
+		windowFunctionsSupported = supported;
+	}
+
+	/**
+	 *
+	 * @return true if the db supports window functions like COUNT(*) OVER()
+	 */
+	public static final boolean windowFunctionsSupported() {
+		return windowFunctionsSupported;
+	}
+
 	/**
 	 * set value for a parameter for a prepared statement
 	 *
@@ -132,6 +159,28 @@ public class DbUtil {
 		}
 	}
 
+	/**
+	 * set values for all the parameters in a prepared statement, using the
+	 * (generated) binder if it is available
+	 *
+	 * @param ps
+	 * @param values     has the right number of values for the ps
+	 * @param valueTypes one value-type for each of the values
+	 * @param binder     null if the parameters are to be set based on the value
+	 *                   types
+	 * @throws SQLException
+	 */
+	public static final void setPsParamValues(final PreparedStatement ps, final Object[] values,
+			final ValueType[] valueTypes, final ParamBinder binder) throws SQLException {
+		if (binder == null) {
+			setPsParamValues(ps, values, valueTypes);
+			return;
+		}
+		if (values != null) {
+			binder.bind(ps, values);
+		}
+	}
+
 	/**
 	 * set values for all the parameters in a prepared statement
 	 *
@@ -377,6 +426,31 @@ public class DbUtil {
 		return nbr;
 	}
 
+	/**
+	 * process all the rows from a ResultSet, using a row mapper to extract the
+	 * values
+	 *
+	 * @param rs         non-null
+	 * @param nbrColumns number of columns to be extracted
+	 * @param mapper     non-null
+	 * @param processor
+	 * @return number of rows processed.
+	 * @throws SQLException
+	 */
+	public static final int processRowsFromRs(final ResultSet rs, final int nbrColumns, final RowMapper mapper,
+			final RowProcessor processor) throws SQLException {
+		int nbr = 0;
+		while (rs.next()) {
+			nbr++;
+			final Object[] row = new Object[nbrColumns];
+			mapper.mapRow(rs, row);
+			if (processor.process(row) == false) {
+				break;
+			}
+		}
+		return nbr;
+	}
+
 	/**
 	 *
 	 * @param rs     non-null
@@ -385,6 +459,11 @@ public class DbUtil {
 	 * @throws SQLException
 	 */
 	public static final void rsToRecord(final ResultSet rs, Record record) throws SQLException {
+		final RowMapper mapper = record.fetchRowMapper();
+		if (mapper != null) {
+			mapper.mapRow(rs, record.fetchRawData());
+			return;
+		}
 		ValueType[] valueTypes = record.fetchValueTypes();
 		for (int i = 0; i < valueTypes.length; i++) {
 			record.assignValue(i, getValueFromRs(rs, i + 1, valueTypes[i]));
@@ -400,12 +479,17 @@ public class DbUtil {
 	 */
 	public static final void rsToDataTable(final ResultSet rs, DataTable<?> dataTable) throws SQLException {
 		ValueType[] types = dataTable.fetchValueTypes();
+		final RowMapper mapper = dataTable.fetchRowMapper();
 		while (rs.next()) {
 			Object[] row = new Object[types.length];
-			for (int i = 0; i < row.length; i++) {
-				row[i] = getValueFromRs(rs, i + 1, types[i]);
-				dataTable.addRow(row);
+			if (mapper == null) {
+				for (int i = 0; i < row.length; i++) {
+					row[i] = getValueFromRs(rs, i + 1, types[i]);
+				}
+			} else {
+				mapper.mapRow(rs, row);
 			}
+			dataTable.addRow(row);
 		}
 	}
 
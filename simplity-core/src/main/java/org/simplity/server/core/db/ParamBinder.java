@@ -0,0 +1,29 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets the values of all the parameters of a prepared statement. Generated for
+ * records and sqls whose parameters are known at generation time, so that each
+ * parameter is set with its typed setter, without having to look up its value
+ * type for every row.
+ *
+ * Values set must be the same as those set by DbUtil.setPsParamValue() for the
+ * value type of the parameter
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface ParamBinder {
+	/**
+	 *
+	 * @param ps     prepared statement whose parameters are to be set
+	 * @param values values for the parameters, in the order of the parameters.
+	 *               Elements may be null
+	 * @throws SQLException
+	 */
+	void bind(PreparedStatement ps, Object[] values) throws SQLException;
+}
@@ -28,6 +28,23 @@ public interface ReadWriteHandle extends ReadonlyHandle {
 	public int write(final String sql, final Object[] paramaterValues,
 			ValueType[] parameterTypes) throws SQLException;
 
+	/**
+	 * @param sql
+	 *            a prepared statement that manipulates data.
+	 * @param paramaterValues
+	 *            parameters to be set the prepared statement
+	 * @param parameterTypes
+	 * @param paramBinder
+	 *            (generated) binder that sets the parameters. null if they are
+	 *            to be set based on the parameter types
+	 * @return number of rows affected by this operation. -1 if the driver was
+	 *         unable to count the affected rows.
+	 * @throws SQLException
+	 */
+	public int write(final String sql, final Object[] paramaterValues,
+			ValueType[] parameterTypes, ParamBinder paramBinder)
+			throws SQLException;
+
 	/**
 	 * @param sql
 	 *            a prepared statement that manipulates data.
@@ -68,6 +85,27 @@ public interface ReadWriteHandle extends ReadonlyHandle {
 			String generatedColumnName, long[] generatedKeys)
 			throws SQLException;
 
+	/**
+	 * same as the other insertWithKeyGeneration(), except that the parameters
+	 * are set with the (generated) binder
+	 *
+	 * @param sql
+	 * @param parameterValues
+	 * @param parameterTypes
+	 * @param paramBinder
+	 *            null if the parameters are to be set based on the parameter
+	 *            types
+	 * @param generatedColumnName
+	 * @param generatedKeys
+	 * @return number of affected rows. -1 if the driver was unable to determine
+	 *         it
+	 * @throws SQLException
+	 */
+	public int insertWithKeyGeneration(final String sql,
+			final Object[] parameterValues, ValueType[] parameterTypes,
+			ParamBinder paramBinder, String generatedColumnName,
+			long[] generatedKeys) throws SQLException;
+
 	/**
 	 * execute a prepared statement repeatedly for each record in the input
 	 * records collection
@@ -86,6 +124,24 @@ public interface ReadWriteHandle extends ReadonlyHandle {
 	public int writeMany(final String sql, final Object[][] parameterValues,
 			ValueType[] parameterTypes) throws SQLException;
 
+	/**
+	 * same as the other writeMany(), except that the parameters for each row
+	 * are set with the (generated) binder
+	 *
+	 * @param sql
+	 * @param parameterValues
+	 * @param parameterTypes
+	 * @param paramBinder
+	 *            null if the parameters are to be set based on the parameter
+	 *            types
+	 * @return number of affected rows. Not reliable. If the driver returns -1,
+	 *         we assume it to be 1 for the sake of counting
+	 * @throws SQLException
+	 */
+	public int writeMany(final String sql, final Object[][] parameterValues,
+			ValueType[] parameterTypes, ParamBinder paramBinder)
+			throws SQLException;
+
 	/**
 	 * @param sql
 	 *            a prepared statement that manipulates data.
@@ -122,4 +178,36 @@ public interface ReadWriteHandle extends ReadonlyHandle {
 			final Object[][] rowsToInsert, ValueType[] parameterTypes,
 			String generatedColumnName, long[] generatedKeys)
 			throws SQLException;
+
+	/**
+	 * same as the other insertWithKeyGenerations(), except that the parameters
+	 * for each row are set with the (generated) binder
+	 *
+	 * @param sql
+	 * @param rowsToInsert
+	 * @param parameterTypes
+	 * @param paramBinder
+	 *            null if the parameters are to be set based on the parameter
+	 *            types
+	 * @param generatedColumnName
+	 * @param generatedKeys
+	 * @return number of affected rows. -1 if the driver was unable to determine
+	 *         it
+	 * @throws SQLException
+	 */
+	public int insertWithKeyGenerations(final String sql,
+			final Object[][] rowsToInsert, ValueType[] parameterTypes,
+			ParamBinder paramBinder, String generatedColumnName,
+			long[] generatedKeys) throws SQLException;
+
+	/**
+	 * action to be taken after the current transaction is committed, like evicting
+	 * the modified rows from a cache. The action is run right away if the handle
+	 * is in auto-commit mode, and is dropped if the transaction is rolled back.
+	 * The action should not throw any exception, as the transaction is already
+	 * committed.
+	 *
+	 * @param action non-null
+	 */
+	public void afterCommit(Runnable action);
 }
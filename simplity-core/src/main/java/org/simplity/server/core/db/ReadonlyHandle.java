@@ -36,6 +36,26 @@ public interface ReadonlyHandle {
 	public boolean read(final String sql, final Object[] parameterValues, final ValueType[] parameterTypes,
 			final ValueType[] outputTypes, Object[] outputData) throws SQLException;
 
+	/**
+	 * read a row of data as an array of values, using a (generated) mapper to
+	 * extract the values from the result set
+	 *
+	 * @param sql             valid prepared statement to read from the database
+	 * @param parameterValues null if the prepared statement has no parameters
+	 * @param parameterTypes  value type of parameters
+	 * @param paramBinder     (generated) binder that sets the parameters. null if
+	 *                        they are to be set based on the parameter types
+	 * @param rowMapper       non-null mapper that extracts the output columns
+	 * @param outputData      array into which extracted values are to be put into.
+	 *                        Caller has to ensure that the array size matches the
+	 *                        number of columns extracted by the mapper
+	 * @return true if all OK and the output data is populated. false if no data is
+	 *         extracted.
+	 * @throws SQLException
+	 */
+	public boolean read(final String sql, final Object[] parameterValues, final ValueType[] parameterTypes,
+			final ParamBinder paramBinder, final RowMapper rowMapper, Object[] outputData) throws SQLException;
+
 	/**
 	 * read a row of data into a record
 	 *
@@ -123,6 +143,28 @@ public interface ReadonlyHandle {
 	public int readWithRowProcessor(final String sql, final Object[] parameterValues, final ValueType[] parameterTypes,
 			final ValueType[] outputTypes, RowProcessor rowProcessor) throws SQLException;
 
+	/**
+	 * same as readWithRowProcessor(), except that the rows are fetched from the
+	 * database in batches of the given size, rather than all at once, if the
+	 * driver supports it. To be used when a very large number of rows are to be
+	 * processed, without having them all in memory at any time.
+	 *
+	 * @param sql             non-null valid prepared statement to read from the
+	 *                        database
+	 * @param parameterValues null if the prepared statement has no parameters
+	 * @param parameterTypes  value type of parameters
+	 * @param outputTypes     must have the right types in the right order to
+	 *                        receive data from the result set
+	 * @param fetchSize       number of rows to be fetched from the database at a
+	 *                        time
+	 * @param rowProcessor    lambda function to process one row at a time from the
+	 *                        result set
+	 * @return number of rows processed
+	 * @throws SQLException
+	 */
+	public int readWithRowProcessor(final String sql, final Object[] parameterValues, final ValueType[] parameterTypes,
+			final ValueType[] outputTypes, int fetchSize, RowProcessor rowProcessor) throws SQLException;
+
 	/**
 	 * read rows from the db as records and process each with the processor
 	 *
@@ -170,6 +212,23 @@ public interface ReadonlyHandle {
 	public <T extends Record> void readIntoDataTable(String sql, final Object[] parameterValues,
 			final ValueType[] parameterTypes, DataTable<T> outputTable) throws SQLException;
 
+	/**
+	 * read rows from the db into a DataTable, with the parameters set by a
+	 * (generated) binder
+	 *
+	 * @param <T>             underlying record for the output table
+	 * @param sql             prepared statement for the read operation
+	 * @param parameterValues null if the prepared statement has no parameters
+	 * @param parameterTypes  value type of parameters
+	 * @param paramBinder     null if the parameters are to be set based on the
+	 *                        parameter types
+	 * @param outputTable
+	 * @throws SQLException
+	 */
+	public <T extends Record> void readIntoDataTable(String sql, final Object[] parameterValues,
+			final ValueType[] parameterTypes, final ParamBinder paramBinder, DataTable<T> outputTable)
+			throws SQLException;
+
 	/**
 	 * A stored procedure may produce one or more outputs as well as return a value.
 	 * While the returned values, if any, is returned by this method, the outputs
@@ -219,4 +278,14 @@ public interface ReadonlyHandle {
 	 */
 	public Object callStoredProcedure(String callableSql, Record inputRecord, ValueType returnedValueType,
 			SpOutputProcessor fn) throws SQLException;
+
+	/**
+	 * a handle may see the writes that are not yet committed, as in the case of a
+	 * read-write handle, or a read-only handle that shares its connection with a
+	 * read-write operation in progress. Rows read with such a handle must not be
+	 * cached.
+	 *
+	 * @return true if the reads may see writes that are not yet committed
+	 */
+	public boolean isWithinTransaction();
 }
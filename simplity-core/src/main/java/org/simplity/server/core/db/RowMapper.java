@@ -0,0 +1,29 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Extracts the values of the current row of a result set into an array. Generated
+ * for records and sqls whose output columns are known at generation time, so
+ * that each column is read with its typed getter, without having to look up its
+ * value type for every row.
+ *
+ * Values extracted must be the same as those extracted by
+ * DbUtil.getValueFromRs() for the value type of the column
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface RowMapper {
+	/**
+	 *
+	 * @param rs  positioned at the row to be extracted
+	 * @param row to which the column values are extracted, in the order of the
+	 *            columns
+	 * @throws SQLException
+	 */
+	void mapRow(ResultSet rs, Object[] row) throws SQLException;
+}
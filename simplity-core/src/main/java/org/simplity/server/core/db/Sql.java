@@ -26,6 +26,14 @@ public abstract class Sql {
 	protected final String sqlText;
 	protected final Field[] inputFields;
 	protected final ValueType[] outputTypes;
+	/**
+	 * generated mapper for the output fields. null if it is not generated
+	 */
+	protected final RowMapper outputMapper;
+	/**
+	 * generated binder for the input fields. null if it is not generated
+	 */
+	protected final ParamBinder inputBinder;
 
 	/**
 	 * derived from fields for ready-use
@@ -41,9 +49,39 @@ public abstract class Sql {
 	 * @param inputTypes
 	 */
 	protected Sql(final String sqlText, Field[] inputFields, final ValueType[] outputTypes) {
+		this(sqlText, inputFields, outputTypes, null);
+	}
+
+	/**
+	 *
+	 * @param sqlText
+	 * @param inputFields
+	 * @param outputTypes
+	 * @param outputMapper extracts the output fields from a result set. null if
+	 *                     it is not generated
+	 */
+	protected Sql(final String sqlText, Field[] inputFields, final ValueType[] outputTypes,
+			final RowMapper outputMapper) {
+		this(sqlText, inputFields, outputTypes, outputMapper, null);
+	}
+
+	/**
+	 *
+	 * @param sqlText
+	 * @param inputFields
+	 * @param outputTypes
+	 * @param outputMapper extracts the output fields from a result set. null if
+	 *                     it is not generated
+	 * @param inputBinder  sets the input fields as parameters of the sql. null
+	 *                     if it is not generated
+	 */
+	protected Sql(final String sqlText, Field[] inputFields, final ValueType[] outputTypes,
+			final RowMapper outputMapper, final ParamBinder inputBinder) {
 		this.sqlText = sqlText;
 		this.inputFields = inputFields;
 		this.outputTypes = outputTypes;
+		this.outputMapper = outputMapper;
+		this.inputBinder = inputBinder;
 		this.setDerivedFields();
 
 	}
@@ -81,8 +119,13 @@ public abstract class Sql {
 
 		this.checkValues();
 		final Object[] row = new Object[outputRecord.length()];
-		final boolean ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, outputRecord.fetchValueTypes(),
-				row);
+		final RowMapper mapper = outputRecord.fetchRowMapper();
+		final boolean ok;
+		if (mapper == null) {
+			ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, outputRecord.fetchValueTypes(), row);
+		} else {
+			ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, this.inputBinder, mapper, row);
+		}
 		if (ok) {
 			outputRecord.assignRawData(row);
 		}
@@ -114,7 +157,7 @@ public abstract class Sql {
 	 */
 	protected void readMany(final ReadonlyHandle handle, DataTable<Record> dataTable) throws SQLException {
 		this.checkValues();
-		handle.readIntoDataTable(this.sqlText, this.inputValues, this.inputTypes, dataTable);
+		handle.readIntoDataTable(this.sqlText, this.inputValues, this.inputTypes, this.inputBinder, dataTable);
 	}
 
 	// read methods with input record and output record //
@@ -174,8 +217,14 @@ public abstract class Sql {
 	protected boolean readIn(final ReadonlyHandle handle, Record inputRecord) throws SQLException {
 
 		Object[] row = new Object[this.outputTypes.length];
-		final boolean ok = handle.read(this.sqlText, inputRecord.fetchRawData(), inputRecord.fetchValueTypes(),
-				this.outputTypes, row);
+		final boolean ok;
+		if (this.outputMapper == null) {
+			ok = handle.read(this.sqlText, inputRecord.fetchRawData(), inputRecord.fetchValueTypes(), this.outputTypes,
+					row);
+		} else {
+			ok = handle.read(this.sqlText, inputRecord.fetchRawData(), inputRecord.fetchValueTypes(), null,
+					this.outputMapper, row);
+		}
 		if (ok) {
 			this.outputValues = row;
 		}
@@ -211,7 +260,13 @@ public abstract class Sql {
 		this.checkValues();
 
 		Object[] row = new Object[this.outputTypes.length];
-		final boolean ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, this.outputTypes, row);
+		final boolean ok;
+		if (this.outputMapper == null) {
+			ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, this.outputTypes, row);
+		} else {
+			ok = handle.read(this.sqlText, this.inputValues, this.inputTypes, this.inputBinder, this.outputMapper,
+					row);
+		}
 		if (ok) {
 			this.outputValues = row;
 		}
@@ -276,7 +331,7 @@ public abstract class Sql {
 	 */
 	protected int write(final ReadWriteHandle handle) throws SQLException {
 		this.checkValues();
-		return handle.write(this.sqlText, this.inputValues, this.inputTypes);
+		return handle.write(this.sqlText, this.inputValues, this.inputTypes, this.inputBinder);
 	}
 
 	/**
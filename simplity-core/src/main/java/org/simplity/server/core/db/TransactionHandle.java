@@ -2,6 +2,7 @@
 package org.simplity.server.core.db;
 
 import java.sql.SQLException;
+import java.sql.Savepoint;
 
 /**
  * db handle that allows multiple transactions.
@@ -35,4 +36,31 @@ public interface TransactionHandle extends ReadWriteHandle {
 	 */
 	public void rollback() throws SQLException;
 
+	/**
+	 * mark a point in the current transaction to which the writes can be
+	 * rolled-back to, without affecting the writes before this point. Valid only
+	 * when auto-commit mode is off
+	 *
+	 * @return save point
+	 * @throws SQLException
+	 */
+	public Savepoint setSavepoint() throws SQLException;
+
+	/**
+	 * roll back the writes made after the save point was set. The transaction
+	 * continues
+	 *
+	 * @param savepoint
+	 * @throws SQLException
+	 */
+	public void rollbackToSavepoint(Savepoint savepoint) throws SQLException;
+
+	/**
+	 * release the save point, as it is no longer required.
+	 *
+	 * @param savepoint
+	 * @throws SQLException
+	 */
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException;
+
 }
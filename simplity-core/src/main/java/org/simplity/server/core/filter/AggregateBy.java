@@ -0,0 +1,43 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.filter;
+
+/**
+ * an aggregate to be calculated by the database for each group of the filtered
+ * rows, like the sum of amount
+ */
+public class AggregateBy {
+	/**
+	 * numeric field whose values are to be aggregated. optional for count, in
+	 * which case the rows are counted
+	 */
+	public String field;
+	/**
+	 * one of sum, avg, min, max and count
+	 */
+	public String function;
+	/**
+	 * optional. name of the aggregate in the output rows. defaults to
+	 * function_field, like sum_amount, or just count if no field is specified
+	 */
+	public String name;
+
+	/**
+	 * default constructor
+	 */
+	public AggregateBy() {
+		// default constructor
+	}
+
+	/**
+	 * constructor with all fields
+	 *
+	 * @param field    field to be aggregated. null to count rows
+	 * @param function one of sum, avg, min, max and count
+	 * @param name     name of the aggregate in the output. null to use the default
+	 */
+	public AggregateBy(String field, String function, String name) {
+		this.field = field;
+		this.function = function;
+		this.name = name;
+	}
+}
@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.filter;
+
+import org.simplity.server.core.Conventions;
+
+/**
+ * aggregate functions that can be requested in a filter operation
+ *
+ * @author simplity.org
+ *
+ */
+public enum AggregateFunction {
+	/** sum of the values */
+	SUM(Conventions.Filter.SUM),
+	/** average of the values */
+	AVG(Conventions.Filter.AVG),
+	/** smallest of the values */
+	MIN(Conventions.Filter.MIN),
+	/** largest of the values */
+	MAX(Conventions.Filter.MAX),
+	/** number of rows, or the number of non-null values of a field */
+	COUNT(Conventions.Filter.COUNT);
+
+	private String textValue;
+
+	AggregateFunction(String text) {
+		this.textValue = text;
+	}
+
+	/**
+	 * get the text value of this enumeration: like "sum" for SUM
+	 *
+	 * @return text value of this enumeration
+	 */
+	public String getText() {
+		return this.textValue;
+	}
+
+	/**
+	 * parse a text into enum
+	 *
+	 * @param text text to be parsed into enum
+	 * @return aggregate function, or null if there is no function for this text
+	 */
+	public static AggregateFunction parse(String text) {
+		if (text == null) {
+			return null;
+		}
+		for (AggregateFunction f : AggregateFunction.values()) {
+			if (f.textValue.equalsIgnoreCase(text)) {
+				return f;
+			}
+		}
+		return null;
+	}
+}
@@ -18,6 +18,13 @@ public class FilterDetails {
 	// final private DbField[] outputFields;
 	final private String[] outputNames;
 	final private ValueType[] outputTypes;
+	/*
+	 * total count related. relevant only if the client had requested for the total
+	 * count
+	 */
+	final private int maxRows;
+	final private String countSql;
+	final private boolean countIsInSelect;
 
 	/**
 	 * @param sql         complete sql for fetching rows from the db
@@ -39,11 +46,37 @@ public class FilterDetails {
 	 */
 	public FilterDetails(final String sql, final Object[] paramValues, ValueType[] paramTypes,
 			final String[] outputNames, final ValueType[] outputTypes) {
+		this(sql, paramValues, paramTypes, outputNames, outputTypes, 0, null, false);
+	}
+
+	/**
+	 * to be used when the total count of filtered rows is also to be fetched
+	 *
+	 * @param sql             complete sql for fetching rows from the db
+	 * @param paramValues     as in the other constructor
+	 * @param paramTypes      as in the other constructor
+	 * @param outputNames     as in the other constructor
+	 * @param outputTypes     as in the other constructor
+	 * @param maxRows         max rows that the sql is limited to fetch
+	 * @param countSql        sql to get the count of rows that satisfy the filter
+	 *                        conditions. It uses the same parameters as the sql.
+	 *                        null if the count is not to be fetched, or if it is
+	 *                        included as the last column in the select-sql
+	 * @param countIsInSelect true if the select-sql has an additional column at the
+	 *                        end for the total count (like COUNT(*) OVER()). Note
+	 *                        that outputTypes does not include this column
+	 */
+	public FilterDetails(final String sql, final Object[] paramValues, ValueType[] paramTypes,
+			final String[] outputNames, final ValueType[] outputTypes, final int maxRows, final String countSql,
+			final boolean countIsInSelect) {
 		this.sql = sql;
 		this.paraamValues = paramValues;
 		this.paramTypes = paramTypes;
 		this.outputNames = outputNames;
 		this.outputTypes = outputTypes;
+		this.maxRows = maxRows;
+		this.countSql = countSql;
+		this.countIsInSelect = countIsInSelect;
 	}
 
 	/**
@@ -91,4 +124,36 @@ public class FilterDetails {
 		return this.outputTypes;
 	}
 
+	/**
+	 * @return true if the total count of filtered rows is to be fetched along with
+	 *         the rows
+	 */
+	public boolean isCountRequired() {
+		return this.countIsInSelect || this.countSql != null;
+	}
+
+	/**
+	 * @return true if the total count is returned as an additional column at the
+	 *         end of each row of the select-sql.
+	 */
+	public boolean isCountInSelect() {
+		return this.countIsInSelect;
+	}
+
+	/**
+	 * @return sql to count the rows that satisfy the filter conditions. Uses the
+	 *         same parameters as the select-sql. null if the count is not to be
+	 *         fetched, or if it is included in the select-sql itself
+	 */
+	public String getCountSql() {
+		return this.countSql;
+	}
+
+	/**
+	 * @return max rows that the select-sql is limited to. 0 if this is not known.
+	 */
+	public int getMaxRows() {
+		return this.maxRows;
+	}
+
 }
@@ -38,6 +38,42 @@ public class FilterParams {
 	 * optional. How the rows are to be sorted
 	 */
 	public SortBy[] sorts;
+	/**
+	 * optional. set this to true to get the total number of rows that satisfy the
+	 * filter conditions along with the filtered rows. This avoids a separate
+	 * count-request from the client, that would parse and execute the same
+	 * where-clause again
+	 */
+	public boolean includeTotalCount;
+	/**
+	 * optional, relevant only if includeTotalCount is true. A positive number
+	 * implies that an estimate is good enough, and the counting stops once these
+	 * many rows are counted. In that case, a total-count equal to this number is
+	 * to be interpreted as "these many or more". Useful for large tables where an
+	 * exact count is expensive.
+	 */
+	public int maxCount;
+	/**
+	 * optional. fields on which the filtered rows are to be grouped. If this or
+	 * aggregates is specified, then the output has one row per group, with the
+	 * group-by fields followed by the aggregates. fields is ignored in this case.
+	 */
+	public String[] groupBy;
+	/**
+	 * optional. aggregates to be calculated by the database for each group, or for
+	 * all the filtered rows if groupBy is not specified
+	 */
+	public AggregateBy[] aggregates;
+
+	/**
+	 *
+	 * @return true if the filtered rows are to be grouped/aggregated, rather than
+	 *         being returned as they are
+	 */
+	public boolean isAggregated() {
+		return (this.groupBy != null && this.groupBy.length > 0)
+				|| (this.aggregates != null && this.aggregates.length > 0);
+	}
 
 	/**
 	 * parse filter parameters from a payload
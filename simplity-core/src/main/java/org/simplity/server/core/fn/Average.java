@@ -1,8 +1,10 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.fn;
 
+import java.util.Arrays;
+
 /**
- * Concatenate strings
+ * Average of the numbers
  *
  */
 public class Average extends NumericFunction {
@@ -27,4 +29,21 @@ public class Average extends NumericFunction {
 
 		return sum / args.length;
 	}
+
+	@Override
+	protected void evaluate(final double[][] columns, final int nbrRows, final double[] result) {
+		Arrays.fill(result, 0, nbrRows, 0);
+		final int nbrCols = columns.length;
+		if (nbrCols == 0) {
+			return;
+		}
+		for (final double[] col : columns) {
+			for (int row = 0; row < nbrRows; row++) {
+				result[row] += col[row];
+			}
+		}
+		for (int row = 0; row < nbrRows; row++) {
+			result[row] /= nbrCols;
+		}
+	}
 }
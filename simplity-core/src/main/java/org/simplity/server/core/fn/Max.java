@@ -1,8 +1,10 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.fn;
 
+import java.util.Arrays;
+
 /**
- * Concatenate strings
+ * Maximum of the numbers
  *
  */
 public class Max extends NumericFunction {
@@ -19,7 +21,7 @@ public class Max extends NumericFunction {
 			return 0;
 		}
 
-		double max = Double.MIN_VALUE;
+		double max = -Double.MAX_VALUE;
 		for (final double n : args) {
 			if (n > max) {
 				max = n;
@@ -28,4 +30,20 @@ public class Max extends NumericFunction {
 
 		return max;
 	}
+
+	@Override
+	protected void evaluate(final double[][] columns, final int nbrRows, final double[] result) {
+		if (columns.length == 0) {
+			Arrays.fill(result, 0, nbrRows, 0);
+			return;
+		}
+		Arrays.fill(result, 0, nbrRows, -Double.MAX_VALUE);
+		for (final double[] col : columns) {
+			for (int row = 0; row < nbrRows; row++) {
+				if (col[row] > result[row]) {
+					result[row] = col[row];
+				}
+			}
+		}
+	}
 }
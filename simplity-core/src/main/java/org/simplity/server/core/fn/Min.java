@@ -1,6 +1,8 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.fn;
 
+import java.util.Arrays;
+
 /**
  * Minimum of the numbers
  *
@@ -28,4 +30,20 @@ public class Min extends NumericFunction {
 
 		return min;
 	}
+
+	@Override
+	protected void evaluate(final double[][] columns, final int nbrRows, final double[] result) {
+		if (columns.length == 0) {
+			Arrays.fill(result, 0, nbrRows, 0);
+			return;
+		}
+		Arrays.fill(result, 0, nbrRows, Double.MAX_VALUE);
+		for (final double[] col : columns) {
+			for (int row = 0; row < nbrRows; row++) {
+				if (col[row] < result[row]) {
+					result[row] = col[row];
+				}
+			}
+		}
+	}
 }
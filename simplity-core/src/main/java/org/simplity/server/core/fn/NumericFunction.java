@@ -87,6 +87,45 @@ public abstract class NumericFunction implements FunctionDefinition {
 
 	protected abstract double evaluate(double[] args);
 
+	/**
+	 * calculate the results for a batch of rows, with the arguments organized as
+	 * columns. This is to be used when the function is to be evaluated for a
+	 * large number of rows, like during an upload, as it avoids an argument array
+	 * for each row.
+	 *
+	 * @param columns one column for each argument. columns[i][row] is the value
+	 *                of argument i for that row. Each column must have at least
+	 *                nbrRows values
+	 * @param nbrRows number of rows to be calculated
+	 * @param result  to which the result for each row is set. Must have at least
+	 *                nbrRows elements
+	 */
+	public final void calculate(final double[][] columns, final int nbrRows, final double[] result) {
+		this.ensureNbrArgs(columns == null ? 0 : columns.length);
+		this.evaluate(columns == null ? new double[0][] : columns, nbrRows, result);
+	}
+
+	/**
+	 * evaluate the function for a batch of rows. This default implementation
+	 * calls evaluate() for each row, with an argument array that is re-used
+	 * across the rows. Sub-classes should override this to work on the columns
+	 * directly.
+	 *
+	 * @param columns non-null, with the right number of columns
+	 * @param nbrRows number of rows to be evaluated
+	 * @param result  to which the results are to be set
+	 */
+	protected void evaluate(final double[][] columns, final int nbrRows, final double[] result) {
+		final int nbrCols = columns.length;
+		final double[] args = new double[nbrCols];
+		for (int row = 0; row < nbrRows; row++) {
+			for (int col = 0; col < nbrCols; col++) {
+				args[col] = columns[col][row];
+			}
+			result[row] = this.evaluate(args);
+		}
+	}
+
 	private void ensureNbrArgs(final int nbr) {
 		if (this.nbrArgs >= 0 && nbr != this.nbrArgs) {
 			this.throwError(nbr + " params received");
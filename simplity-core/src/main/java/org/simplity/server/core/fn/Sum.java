@@ -1,8 +1,10 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.fn;
 
+import java.util.Arrays;
+
 /**
- * Concatenate strings
+ * Sum of the numbers
  *
  */
 public class Sum extends NumericFunction {
@@ -32,4 +34,14 @@ public class Sum extends NumericFunction {
 
 		return result;
 	}
+
+	@Override
+	protected void evaluate(final double[][] columns, final int nbrRows, final double[] result) {
+		Arrays.fill(result, 0, nbrRows, 0);
+		for (final double[] col : columns) {
+			for (int row = 0; row < nbrRows; row++) {
+				result[row] += col[row];
+			}
+		}
+	}
 }
@@ -2,14 +2,18 @@
 package org.simplity.server.core.http;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 
 import org.simplity.server.core.Conventions;
+import org.simplity.server.core.DefaultUserContext;
 import org.simplity.server.core.app.App;
 import org.simplity.server.core.app.RequestStatus;
+import org.simplity.server.core.infra.TempFileManager;
 import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.ExportService;
 import org.simplity.server.core.service.InputData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +99,63 @@ public class HttpAgent {
 		}
 	}
 
+	/**
+	 * download a file that was exported earlier. The file name is a random one
+	 * that was returned to the client by the export service. The session id is
+	 * to be sent in the Authorization header, and the file is handed over only to
+	 * the user who exported it. A file exported by a guest can be downloaded
+	 * without a session. The file is removed once it is downloaded fully
+	 *
+	 * @param req
+	 * @param resp
+	 * @throws IOException IO exception
+	 */
+	@SuppressWarnings("boxing")
+	public void download(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+		final String fileName = req.getParameter(Conventions.Http.PARAM_EXPORT_FILE);
+		final long owner = ExportService.getFileOwner(fileName);
+		if (owner == -1) {
+			logger.error("Invalid file name {} received for download", fileName);
+			resp.setStatus(Conventions.Http.STATUS_INVALID_DATA);
+			return;
+		}
+
+		final DefaultUserContext utx = this.app.getUserContext(req.getHeader(Conventions.Http.HEADER_AUTH));
+		final long userId = utx == null ? 0 : utx.getUserId();
+		if (userId != owner) {
+			/*
+			 * we do not tell whether the file exists
+			 */
+			logger.error("User {} is not the owner of file {}. Download rejected", userId, fileName);
+			resp.setStatus(Conventions.Http.STATUS_AUTH_REQUIRED);
+			return;
+		}
+
+		final TempFileManager fm = this.app.getTempFileManager();
+		if (!fm.fileExists(fileName)) {
+			logger.error("File {} is not available for download", fileName);
+			resp.setStatus(Conventions.Http.STATUS_INVALID_DATA);
+			return;
+		}
+
+		setStandardHeaders(resp);
+		resp.setStatus(Conventions.Http.STATUS_ALL_OK);
+		resp.setContentType(Conventions.Http.CSV_CONTENT_TYPE);
+		resp.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + ".csv\"");
+		try (OutputStream out = resp.getOutputStream()) {
+			if (fm.transferFile(fileName, out, false) < 0) {
+				logger.error("File {} was removed before it could be downloaded", fileName);
+				return;
+			}
+			/*
+			 * an incomplete transfer throws an exception, and the file is left for the
+			 * client to try again, till it expires
+			 */
+			out.flush();
+		}
+		fm.removeFile(fileName);
+	}
+
 	private static int toHttpStatus(RequestStatus status) {
 		switch (status) {
 		case CompletedWithErrors:
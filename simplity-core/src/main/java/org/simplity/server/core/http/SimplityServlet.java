@@ -84,6 +84,10 @@ public class SimplityServlet extends HttpServlet {
 	@Override
 	protected void doGet(final HttpServletRequest req, final HttpServletResponse resp)
 			throws ServletException, IOException {
-		resp.setStatus(STATUS_METHOD_NOT_ALLOWED);
+		/*
+		 * get is used only to download exported files. The agent checks that the
+		 * file is downloaded by the user who exported it
+		 */
+		this.agent.download(req, resp);
 	}
 }
@@ -0,0 +1,56 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra;
+
+/**
+ * coordinates work across the nodes of a cluster that run the same app, so
+ * that a piece of work, like a scheduled run, is done by only one of them.
+ * Coordination is through named leases. A lease is held by one node at a time
+ * for a limited period, and is renewed by that node as long as it is alive.
+ *
+ * @author simplity.org
+ *
+ */
+public interface ClusterCoordinator {
+
+	/**
+	 *
+	 * @return unique id of this node in the cluster
+	 */
+	String getNodeId();
+
+	/**
+	 * acquire a lease, or renew it if this node is already holding it.
+	 *
+	 * @param leaseName
+	 *            unique name of the work to be coordinated
+	 * @return fencing token for the lease if this node holds it. 0 if another
+	 *         node is holding it. A fencing token is larger than the tokens
+	 *         issued to any earlier holder of the same lease
+	 */
+	long acquire(String leaseName);
+
+	/**
+	 * give up a lease, if this node is holding it
+	 *
+	 * @param leaseName
+	 */
+	void release(String leaseName);
+
+	/**
+	 *
+	 * @param nodeId
+	 * @return true if the node is alive, that is, it has been renewing its leases
+	 */
+	boolean isNodeAlive(String nodeId);
+
+	/**
+	 * fencing token of the lease that this node holds for itself. It changes
+	 * whenever the node loses this lease and acquires it again. Work that is
+	 * recorded with this token can be fenced-off from this node once it is
+	 * presumed dead by the other nodes.
+	 *
+	 * @return fencing token of the lease of this node. 0 if the node could not
+	 *         acquire its own lease
+	 */
+	long getNodeToken();
+}
@@ -3,6 +3,7 @@ package org.simplity.server.core.infra;
 
 import java.io.Reader;
 
+import org.simplity.server.core.DefaultUserContext;
 import org.simplity.server.core.job.JobHandle;
 
 /**
@@ -19,10 +20,17 @@ public interface JobManager {
 	 *            from which to read the input data
 	 * @param serviceName
 	 *            service to be executed
+	 * @param utx
+	 *            context of the user submitting the job. null if the job is
+	 *            submitted without a user session
+	 * @param priority
+	 *            jobs with higher priority are picked-up ahead of the ones
+	 *            with lower priority. Jobs with the same priority are run in
+	 *            the order of submission
 	 * @return Handle for the new Job that is created.
 	 */
 
-	JobHandle newJob(Reader reader, String serviceName);
+	JobHandle newJob(Reader reader, String serviceName, DefaultUserContext utx, int priority);
 
 	/**
 	 * locate the handle to a job that was created earlier. A job may be deleted
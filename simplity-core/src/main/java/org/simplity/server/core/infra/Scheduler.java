@@ -1,11 +1,53 @@
+// SPDX-License-Identifier: MIT
 package org.simplity.server.core.infra;
 
 /**
- * 
+ * runs services periodically. Each run is submitted to the JobManager, and a
+ * run is skipped if the earlier run of the same schedule is not yet done.
+ *
  * @author simplity.org
  *
  */
 public interface Scheduler {
-	// yet to design this
+
+	/**
+	 * run a service at a fixed rate
+	 *
+	 * @param serviceName
+	 *            service to be run
+	 * @param inputJson
+	 *            input data for the service as a json object. null if the
+	 *            service requires no input
+	 * @param initialDelaySeconds
+	 *            seconds after which the first run is to be made
+	 * @param periodSeconds
+	 *            seconds between the start of successive runs. must be
+	 *            positive
+	 * @return id of the schedule, that can be used to cancel it
+	 */
+	String scheduleAtFixedRate(String serviceName, String inputJson, long initialDelaySeconds, long periodSeconds);
+
+	/**
+	 * run a service as per a cron expression
+	 *
+	 * @param serviceName
+	 *            service to be run
+	 * @param inputJson
+	 *            input data for the service as a json object. null if the
+	 *            service requires no input
+	 * @param cronExpression
+	 *            standard 5-field expression: minute hour day-of-month month
+	 *            day-of-week. ApplicationError is thrown if it is not valid
+	 * @return id of the schedule, that can be used to cancel it
+	 */
+	String scheduleWithCron(String serviceName, String inputJson, String cronExpression);
+
+	/**
+	 * cancel a schedule. A run that is already submitted is not affected
+	 *
+	 * @param scheduleId
+	 * @return true if the schedule was cancelled. false if no such schedule
+	 */
+	boolean cancel(String scheduleId);
 
 }
@@ -1,10 +1,17 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.infra;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 
 /**
+ * Manages content that is to be kept across requests, or is too large to be
+ * kept in memory, like outputs of jobs and large exports. Content is identified
+ * by a name that is unique across the app, and may or may not be saved as a
+ * file in the file system.
+ *
  * @author simplity.org
  *
  */
@@ -54,25 +61,47 @@ public interface TempFileManager {
 
 	/**
 	 * create a new file with the content being written by the call-back method.
+	 * An existing file with the same name is replaced.
 	 *
 	 * @param fileName
 	 * @param fileWriter
+	 * @return true if the file is created. false if the writer failed, or there
+	 *         is no space for the file
 	 */
 
-	void newFile(String fileName, IFileWriter fileWriter);
+	boolean newFile(String fileName, IFileWriter fileWriter);
 
 	/**
 	 *
 	 * @param fileName
+	 * @param fileReader
+	 *            call-back that reads the content of the file
 	 * @param removeAfterRead
 	 *            if true, the file is deleted after the reader returns
 	 * @return true if the file was indeed opened and read. false if it could
 	 *         not be opened for reading.
 	 */
 
-	boolean readFile(String fileName, boolean removeAfterRead);
+	boolean readFile(String fileName, IFileReader fileReader, boolean removeAfterRead);
+
+	/**
+	 * copy the content of the file, as it is, to an output stream, like the
+	 * response stream of a servlet, without decoding it into characters
+	 *
+	 * @param fileName
+	 * @param out
+	 *            to which the content is copied. It is not closed
+	 * @param removeAfterRead
+	 *            if true, the file is deleted after it is copied
+	 * @return number of bytes copied. -1 if the file does not exist
+	 * @throws IOException
+	 *             in case of error while writing to the output stream
+	 */
+	long transferFile(String fileName, OutputStream out, boolean removeAfterRead) throws IOException;
 
 	/**
+	 * remove the file. If it is being read, it is deleted once the readers are
+	 * done.
 	 *
 	 * @param fileName
 	 */
@@ -0,0 +1,254 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra.defalt;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.infra.ClusterCoordinator;
+import org.simplity.server.core.valueschema.ValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates the nodes of a cluster through leases in a table of the
+ * application database. No other infrastructure is required. The table is
+ * expected to be created as:
+ *
+ * <pre>
+ * create table _leases (
+ * 	lease_name varchar(200) primary key,
+ * 	owner_node varchar(100) not null,
+ * 	fencing_token bigint not null,
+ * 	expires_at timestamp not null
+ * )
+ * </pre>
+ *
+ * Every lease held by this node is renewed by a heartbeat at a third of its
+ * time-to-live. The node itself holds a lease named "node:" + nodeId, and a node
+ * is considered dead once this lease expires. Expiry is checked against the
+ * clock of the node that is checking it, and hence the clocks of the nodes are
+ * expected to be in sync to within a small fraction of the time-to-live.
+ *
+ * Leases are always read from the primary database, within the same
+ * transaction that changes them, and never from a replica that may lag behind.
+ *
+ * @author simplity.org
+ *
+ */
+public class DbLeaseCoordinator implements ClusterCoordinator {
+	protected static final Logger logger = LoggerFactory.getLogger(DbLeaseCoordinator.class);
+
+	private static final String NODE_LEASE_PREFIX = "node:";
+	private static final ValueType[] STEAL_TYPES = { ValueType.Text, ValueType.Timestamp, ValueType.Text,
+			ValueType.Text, ValueType.Timestamp };
+	private static final ValueType[] INSERT_TYPES = { ValueType.Text, ValueType.Text, ValueType.Timestamp };
+	private static final ValueType[] RENEW_TYPES = { ValueType.Timestamp, ValueType.Text, ValueType.Text,
+			ValueType.Integer };
+	private static final ValueType[] RELEASE_TYPES = { ValueType.Timestamp, ValueType.Text, ValueType.Text };
+	private static final ValueType[] KEY_TYPES = { ValueType.Text, ValueType.Text };
+	private static final ValueType[] NAME_TYPES = { ValueType.Text };
+	private static final ValueType[] TOKEN_TYPES = { ValueType.Integer };
+	private static final ValueType[] EXPIRY_TYPES = { ValueType.Timestamp };
+
+	private final DbDriver dbDriver;
+	private final String nodeId;
+	private final String nodeLease;
+	private final long ttlMillis;
+
+	private final String stealSql;
+	private final String insertSql;
+	private final String renewSql;
+	private final String tokenSql;
+	private final String releaseSql;
+	private final String expirySql;
+
+	/*
+	 * leases held by this node, with their fencing tokens
+	 */
+	private final Map<String, Long> heldLeases = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param dbDriver   to access the lease table
+	 * @param tableName  name of the lease table
+	 * @param nodeId     unique id of this node in the cluster
+	 * @param ttlSeconds seconds for which a lease is valid unless it is renewed
+	 */
+	public DbLeaseCoordinator(final DbDriver dbDriver, final String tableName, final String nodeId,
+			final int ttlSeconds) {
+		this.dbDriver = dbDriver;
+		this.nodeId = nodeId;
+		this.nodeLease = NODE_LEASE_PREFIX + nodeId;
+		this.ttlMillis = ttlSeconds * 1000L;
+
+		this.stealSql = "update " + tableName
+				+ " set owner_node=?, fencing_token=fencing_token+1, expires_at=? where lease_name=? and (owner_node=? or expires_at<?)";
+		this.insertSql = "insert into " + tableName
+				+ " (lease_name, owner_node, fencing_token, expires_at) values (?,?,1,?)";
+		this.renewSql = "update " + tableName
+				+ " set expires_at=? where lease_name=? and owner_node=? and fencing_token=?";
+		this.tokenSql = "select fencing_token from " + tableName + " where lease_name=? and owner_node=?";
+		this.releaseSql = "update " + tableName + " set expires_at=? where lease_name=? and owner_node=?";
+		this.expirySql = "select expires_at from " + tableName + " where lease_name=?";
+
+		if (this.acquire(this.nodeLease) == 0) {
+			logger.error("Node {} could not acquire its own lease. Is another node running with the same id?",
+					nodeId);
+		}
+
+		final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "lease-heartbeat");
+			t.setDaemon(true);
+			return t;
+		});
+		final long interval = Math.max(1, this.ttlMillis / 3);
+		heartbeat.scheduleWithFixedDelay(this::renewAll, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public String getNodeId() {
+		return this.nodeId;
+	}
+
+	@SuppressWarnings("boxing")
+	@Override
+	public long acquire(final String leaseName) {
+		try {
+			final Long token = this.heldLeases.get(leaseName);
+			if (token != null) {
+				if (this.renew(leaseName, token)) {
+					return token;
+				}
+				this.heldLeases.remove(leaseName);
+				logger.warn("Lease {} was lost by node {}", leaseName, this.nodeId);
+			}
+
+			final Instant now = Instant.now();
+			final Instant expiresAt = now.plusMillis(this.ttlMillis);
+			final Object[] stealValues = { this.nodeId, expiresAt, leaseName, this.nodeId, now };
+			final Object[] nameParams = { leaseName };
+			final Object[] keyParams = { leaseName, this.nodeId };
+			final long[] newToken = { 0 };
+			this.dbDriver.doReadWriteOperations(handle -> {
+				if (handle.write(this.stealSql, stealValues, STEAL_TYPES) == 0) {
+					if (handle.read(this.expirySql, nameParams, NAME_TYPES, EXPIRY_TYPES, new Object[1])) {
+						/*
+						 * held by another node
+						 */
+						return false;
+					}
+					/*
+					 * another node may insert it in the meantime, in which case our
+					 * insert fails with a duplicate key
+					 */
+					final Object[] insertValues = { leaseName, this.nodeId, expiresAt };
+					try {
+						handle.write(this.insertSql, insertValues, INSERT_TYPES);
+					} catch (final SQLException e) {
+						logger.info("Lease {} was created by another node", leaseName);
+						return false;
+					}
+				}
+
+				final Object[] row = new Object[1];
+				if (handle.read(this.tokenSql, keyParams, KEY_TYPES, TOKEN_TYPES, row)) {
+					newToken[0] = ((Number) row[0]).longValue();
+				}
+				return true;
+			});
+
+			if (newToken[0] != 0) {
+				this.heldLeases.put(leaseName, newToken[0]);
+			}
+			return newToken[0];
+		} catch (final SQLException e) {
+			logger.error("Error while acquiring lease {}: {}", leaseName, e.getMessage());
+			return 0;
+		}
+	}
+
+	@Override
+	public void release(final String leaseName) {
+		if (this.heldLeases.remove(leaseName) == null) {
+			return;
+		}
+		/*
+		 * we just expire it, so that the fencing token continues to increase
+		 */
+		final Object[] values = { Instant.EPOCH, leaseName, this.nodeId };
+		try {
+			this.write(this.releaseSql, values, RELEASE_TYPES);
+		} catch (final SQLException e) {
+			logger.error("Error while releasing lease {}: {}", leaseName, e.getMessage());
+		}
+	}
+
+	@Override
+	public boolean isNodeAlive(final String node) {
+		if (this.nodeId.equals(node)) {
+			return true;
+		}
+		final Object[] params = { NODE_LEASE_PREFIX + node };
+		final Object[] row = new Object[1];
+		final boolean[] found = { false };
+		try {
+			/*
+			 * read-write, so that it is read from the primary. Nothing is changed
+			 */
+			this.dbDriver.doReadWriteOperations(handle -> {
+				found[0] = handle.read(this.expirySql, params, NAME_TYPES, EXPIRY_TYPES, row);
+				return false;
+			});
+			return found[0] && ((Instant) row[0]).isAfter(Instant.now());
+		} catch (final SQLException e) {
+			logger.error("Error while checking whether node {} is alive: {}. Assumed to be alive", node,
+					e.getMessage());
+			return true;
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	@Override
+	public long getNodeToken() {
+		final Long token = this.heldLeases.get(this.nodeLease);
+		if (token != null) {
+			return token;
+		}
+		return this.acquire(this.nodeLease);
+	}
+
+	@SuppressWarnings("boxing")
+	private void renewAll() {
+		for (final Map.Entry<String, Long> entry : this.heldLeases.entrySet()) {
+			try {
+				if (!this.renew(entry.getKey(), entry.getValue())) {
+					this.heldLeases.remove(entry.getKey());
+					logger.warn("Lease {} was lost by node {}", entry.getKey(), this.nodeId);
+				}
+			} catch (final SQLException e) {
+				logger.error("Error while renewing lease {}: {}", entry.getKey(), e.getMessage());
+			}
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	private boolean renew(final String leaseName, final long token) throws SQLException {
+		final Object[] values = { Instant.now().plusMillis(this.ttlMillis), leaseName, this.nodeId, token };
+		return this.write(this.renewSql, values, RENEW_TYPES) > 0;
+	}
+
+	private int write(final String sql, final Object[] values, final ValueType[] types) throws SQLException {
+		final int[] n = new int[1];
+		this.dbDriver.doReadWriteOperations(handle -> {
+			n[0] = handle.write(sql, values, types);
+			return true;
+		});
+		return n[0];
+	}
+}
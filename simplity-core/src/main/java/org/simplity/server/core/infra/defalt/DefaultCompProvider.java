@@ -15,7 +15,9 @@ import org.simplity.server.core.fn.Max;
 import org.simplity.server.core.fn.Min;
 import org.simplity.server.core.fn.Sum;
 import org.simplity.server.core.infra.CompProvider;
+import org.simplity.server.core.service.ExportService;
 import org.simplity.server.core.service.FormService;
+import org.simplity.server.core.service.GetJobResponse;
 import org.simplity.server.core.service.GetReportSettings;
 import org.simplity.server.core.service.ListService;
 import org.simplity.server.core.service.Service;
@@ -78,6 +80,8 @@ public class DefaultCompProvider implements CompProvider {
 		this.services.put(Conventions.App.SERVICE_FORM, FormService.getInstance());
 		this.services.put(Conventions.App.SERVICE_LIST, ListService.getInstance());
 		this.services.put(Conventions.App.SERVICE_GET_REPORT_SETTINGS, GetReportSettings.getInstance());
+		this.services.put(Conventions.App.SERVICE_GET_RESPONSE, GetJobResponse.getInstance());
+		this.services.put(Conventions.App.SERVICE_EXPORT, ExportService.getInstance());
 		/*
 		 * add standard functions
 		 */
@@ -0,0 +1,445 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra.defalt;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.DefaultUserContext;
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.infra.ClusterCoordinator;
+import org.simplity.server.core.infra.CompProvider;
+import org.simplity.server.core.infra.JobManager;
+import org.simplity.server.core.infra.ServiceContextFactory;
+import org.simplity.server.core.infra.TempFileManager;
+import org.simplity.server.core.job.JobHandle;
+import org.simplity.server.core.job.JobProgressReporter;
+import org.simplity.server.core.job.internal.ServiceJob;
+import org.simplity.server.core.service.Service;
+import org.simplity.server.core.valueschema.ValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs services as background jobs on a fixed number of threads. Jobs wait in
+ * a priority queue, and the number of jobs that are waiting or running is
+ * limited, as is the number of pending jobs per user. Output of a job is
+ * retained till it is delivered, or till the retention period after the job is
+ * done.
+ *
+ * Jobs submitted without a user context, like the runs of schedules, are not
+ * counted against any user, and are limited only by the queue. A schedule does
+ * not submit a run while its earlier run is pending.
+ *
+ * Status of jobs is optionally persisted to a table in the default schema, so
+ * that it can be monitored/audited outside of this process. The table is
+ * expected to be created as:
+ *
+ * <pre>
+ * create table _jobs (
+ * 	job_id varchar(50) primary key,
+ * 	service_name varchar(200) not null,
+ * 	user_id bigint not null,
+ * 	node_id varchar(100) not null,
+ * 	fencing_token bigint not null,
+ * 	user_context clob,
+ * 	input_data clob,
+ * 	status varchar(20) not null,
+ * 	percent_completed integer,
+ * 	progress_count bigint,
+ * 	progress_message varchar(1000),
+ * 	updated_at timestamp not null
+ * )
+ * </pre>
+ *
+ * When the status is persisted, and the app runs on several nodes, jobs that
+ * were waiting/running on a node that is no longer alive are adopted by one of
+ * the other nodes and are run again. A node claims such a job by changing its
+ * node_id and fencing_token conditionally on the earlier ones. The fencing
+ * token is that of the lease that the node holds for itself. Status updates
+ * are also conditional on the node_id and the fencing token, so a node that
+ * was presumed dead can not update a job that has been adopted by another
+ * node, even if it has since acquired its lease again. An adopted job is run
+ * with the user context of the user who submitted it, as saved with
+ * UserContext.persist() when the job was created.
+ *
+ * @author simplity.org
+ *
+ */
+public class DefaultJobManager implements JobManager {
+	protected static final Logger logger = LoggerFactory.getLogger(DefaultJobManager.class);
+
+	private static final ValueType[] INSERT_TYPES = { ValueType.Text, ValueType.Text, ValueType.Integer,
+			ValueType.Text, ValueType.Integer, ValueType.Text, ValueType.Text, ValueType.Text, ValueType.Integer,
+			ValueType.Integer, ValueType.Text, ValueType.Timestamp };
+	private static final ValueType[] UPDATE_TYPES = { ValueType.Text, ValueType.Integer, ValueType.Integer,
+			ValueType.Text, ValueType.Timestamp, ValueType.Text, ValueType.Text, ValueType.Integer };
+	private static final ValueType[] ORPHAN_PARAM_TYPES = { ValueType.Text };
+	private static final ValueType[] ORPHAN_TYPES = { ValueType.Text, ValueType.Text, ValueType.Integer,
+			ValueType.Text, ValueType.Integer, ValueType.Text, ValueType.Text };
+	private static final ValueType[] CLAIM_TYPES = { ValueType.Text, ValueType.Integer, ValueType.Timestamp,
+			ValueType.Text, ValueType.Text, ValueType.Integer };
+	private static final int MAX_MESSAGE_LENGTH = 1000;
+	private static final long CLEANUP_INTERVAL_SECONDS = 60;
+
+	private final ServiceContextFactory contextFactory;
+	private final CompProvider compProvider;
+	private final DbDriver dbDriver;
+	private final ClusterCoordinator coordinator;
+	private final TempFileManager fileManager;
+	private final int maxQueuedJobs;
+	/*
+	 * jobs that are waiting or running are limited to the queue plus the
+	 * running ones. A slot is reserved with an atomic increment before the job
+	 * is created, so that concurrent requests can not go past the limit
+	 */
+	private final int maxPendingJobs;
+	private final AtomicInteger nbrPendingJobs = new AtomicInteger();
+	private final int maxJobsPerUser;
+	private final long retentionMillis;
+	private final String insertSql;
+	private final String updateSql;
+	private final String orphansSql;
+	private final String claimSql;
+
+	private final ThreadPoolExecutor executor;
+	private final ScheduledExecutorService cleaner;
+	private final Map<String, ServiceJob> jobs = new ConcurrentHashMap<>();
+	/*
+	 * number of jobs that are waiting/running, by user id
+	 */
+	private final Map<Long, AtomicInteger> pendingJobs = new ConcurrentHashMap<>();
+	private final AtomicLong seqNo = new AtomicLong();
+
+	/**
+	 *
+	 * @param contextFactory   to create service context for running the jobs
+	 * @param compProvider     to locate the services
+	 * @param dbDriver         used to persist the job status. relevant only if
+	 *                         statusTableName is non-null
+	 * @param coordinator      used to find out whether the node running a job is
+	 *                         alive. relevant only if statusTableName is
+	 *                         non-null
+	 * @param fileManager      to which the output of jobs is saved
+	 * @param maxRunningJobs   maximum number of jobs that run concurrently
+	 * @param maxQueuedJobs    maximum number of jobs that may wait in the queue.
+	 *                         Any new job is rejected when the queue is full
+	 * @param maxJobsPerUser   maximum number of jobs a user may have waiting or
+	 *                         running at any time. 0 means no limit
+	 * @param retentionMinutes number of minutes for which a job, along with its
+	 *                         output, is retained after it is done
+	 * @param statusTableName  table to which the status of jobs is persisted.
+	 *                         null if the status is not to be persisted
+	 */
+	public DefaultJobManager(final ServiceContextFactory contextFactory, final CompProvider compProvider,
+			final DbDriver dbDriver, final ClusterCoordinator coordinator, final TempFileManager fileManager,
+			final int maxRunningJobs, final int maxQueuedJobs, final int maxJobsPerUser, final int retentionMinutes,
+			final String statusTableName) {
+		this.contextFactory = contextFactory;
+		this.compProvider = compProvider;
+		this.dbDriver = dbDriver;
+		this.coordinator = coordinator;
+		this.fileManager = fileManager;
+		this.maxQueuedJobs = maxQueuedJobs;
+		this.maxPendingJobs = maxRunningJobs + maxQueuedJobs;
+		this.maxJobsPerUser = maxJobsPerUser;
+		this.retentionMillis = retentionMinutes * 60_000L;
+
+		if (statusTableName == null || statusTableName.isEmpty()) {
+			this.insertSql = null;
+			this.updateSql = null;
+			this.orphansSql = null;
+			this.claimSql = null;
+		} else {
+			this.insertSql = "insert into " + statusTableName
+					+ " (job_id, service_name, user_id, node_id, fencing_token, user_context, input_data, status, percent_completed, progress_count, progress_message, updated_at) values (?,?,?,?,?,?,?,?,?,?,?,?)";
+			this.updateSql = "update " + statusTableName
+					+ " set status=?, percent_completed=?, progress_count=?, progress_message=?, updated_at=? where job_id=? and node_id=? and fencing_token=?";
+			this.orphansSql = "select job_id, service_name, user_id, node_id, fencing_token, user_context, input_data from "
+					+ statusTableName + " where status in ('Waiting', 'Running') and node_id<>?";
+			this.claimSql = "update " + statusTableName
+					+ " set node_id=?, fencing_token=?, updated_at=? where job_id=? and node_id=? and fencing_token=?";
+		}
+
+		/*
+		 * core and max are the same, so jobs beyond maxRunningJobs wait in the
+		 * queue in the order of their priority
+		 */
+		this.executor = new ThreadPoolExecutor(maxRunningJobs, maxRunningJobs, 0, TimeUnit.MILLISECONDS,
+				new PriorityBlockingQueue<>(), new JobThreadFactory());
+		this.cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "job-cleaner");
+			t.setDaemon(true);
+			return t;
+		});
+		this.cleaner.scheduleWithFixedDelay(this::cleanup, CLEANUP_INTERVAL_SECONDS, CLEANUP_INTERVAL_SECONDS,
+				TimeUnit.SECONDS);
+	}
+
+	@SuppressWarnings("boxing")
+	@Override
+	public JobHandle newJob(final Reader reader, final String serviceName, final DefaultUserContext utx,
+			final int priority) {
+		final Service service = this.compProvider.getService(serviceName, null);
+		if (service == null) {
+			throw new ApplicationError("Job can not be created because there is no service named " + serviceName);
+		}
+
+		if (this.nbrPendingJobs.incrementAndGet() > this.maxPendingJobs) {
+			this.nbrPendingJobs.decrementAndGet();
+			throw new ApplicationError(
+					"Job queue is full with " + this.maxQueuedJobs + " jobs. Service " + serviceName + " rejected");
+		}
+
+		final long userId = utx == null ? 0 : utx.getUserId();
+		final AtomicInteger pending = utx == null ? null
+				: this.pendingJobs.computeIfAbsent(userId, k -> new AtomicInteger());
+		if (pending != null && pending.incrementAndGet() > this.maxJobsPerUser && this.maxJobsPerUser > 0) {
+			pending.decrementAndGet();
+			this.nbrPendingJobs.decrementAndGet();
+			throw new ApplicationError("User " + userId + " already has " + this.maxJobsPerUser
+					+ " jobs pending. Service " + serviceName + " rejected");
+		}
+
+		final String id = UUID.randomUUID().toString();
+		final ServiceJob job;
+		try {
+			job = new ServiceJob(id, service, reader, utx, userId, this.contextFactory, this.fileManager, priority,
+					this.seqNo.incrementAndGet(), this::statusChanged);
+		} catch (final IOException e) {
+			if (pending != null) {
+				pending.decrementAndGet();
+			}
+			this.nbrPendingJobs.decrementAndGet();
+			throw new ApplicationError("Error while reading input for job for service " + serviceName, e);
+		}
+
+		this.jobs.put(id, job);
+		this.insertStatus(job);
+		this.executor.execute(job);
+		logger.info("Job {} created for service {} with priority {}", id, serviceName, priority);
+		return job;
+	}
+
+	@Override
+	public JobHandle getJob(final String jobId) {
+		return this.jobs.get(jobId);
+	}
+
+	/**
+	 *
+	 * @return number of jobs that are waiting in the queue
+	 */
+	public int getNbrWaitingJobs() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 *
+	 * @return number of jobs that are running
+	 */
+	public int getNbrRunningJobs() {
+		return this.executor.getActiveCount();
+	}
+
+	@SuppressWarnings("boxing")
+	private void statusChanged(final ServiceJob job) {
+		if (job.isDone()) {
+			/*
+			 * a cancelled job may still be in the queue
+			 */
+			this.executor.remove(job);
+			this.nbrPendingJobs.decrementAndGet();
+			if (job.getUserContext() != null) {
+				this.pendingJobs.get(job.getUserId()).decrementAndGet();
+			}
+			logger.info("Job {} is done with status {}", job.getId(), job.getStatus());
+		}
+		this.updateStatus(job);
+	}
+
+	/*
+	 * run periodically by the cleaner. package-private for the tests
+	 */
+	void cleanup() {
+		final long cutoff = System.currentTimeMillis() - this.retentionMillis;
+		final Iterator<ServiceJob> iter = this.jobs.values().iterator();
+		while (iter.hasNext()) {
+			final ServiceJob job = iter.next();
+			if (job.isDone() && job.getFinishedAt() < cutoff) {
+				iter.remove();
+				job.removeOutput();
+				logger.info("Job {} cleaned-up", job.getId());
+			}
+		}
+
+		if (this.orphansSql != null) {
+			try {
+				this.adoptOrphans();
+			} catch (final Exception e) {
+				logger.error("Error while looking for jobs of dead nodes: {}", e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * jobs of nodes that are no longer alive are claimed and run again
+	 */
+	@SuppressWarnings("boxing")
+	private void adoptOrphans() throws SQLException {
+		final String nodeId = this.coordinator.getNodeId();
+		final Object[] params = { nodeId };
+		final List<Object[]> rows = new ArrayList<>();
+		this.dbDriver.doReadonlyOperations(handle -> {
+			return handle.readMany(this.orphansSql, params, ORPHAN_PARAM_TYPES, ORPHAN_TYPES, rows) > 0;
+		});
+
+		final Map<String, Boolean> aliveNodes = new HashMap<>();
+		for (final Object[] row : rows) {
+			final String deadNode = (String) row[3];
+			if (aliveNodes.computeIfAbsent(deadNode, this.coordinator::isNodeAlive)) {
+				continue;
+			}
+
+			final String jobId = (String) row[0];
+			final long nodeToken = this.coordinator.getNodeToken();
+			if (nodeToken == 0) {
+				logger.error("Jobs of dead nodes are not adopted as this node does not hold its own lease");
+				return;
+			}
+			final Object[] claimValues = { nodeId, nodeToken, Instant.now(), jobId, deadNode, row[4] };
+			final int[] n = new int[1];
+			this.dbDriver.doReadWriteOperations(handle -> {
+				n[0] = handle.write(this.claimSql, claimValues, CLAIM_TYPES);
+				return true;
+			});
+			if (n[0] == 0) {
+				logger.info("Job {} of dead node {} was claimed by another node", jobId, deadNode);
+				continue;
+			}
+
+			final String serviceName = (String) row[1];
+			final Service service = this.compProvider.getService(serviceName, null);
+			if (service == null) {
+				logger.error("Job {} of dead node {} can not be run as there is no service named {}", jobId,
+						deadNode, serviceName);
+				continue;
+			}
+
+			final long userId = ((Number) row[2]).longValue();
+			DefaultUserContext utx = null;
+			if (row[5] != null) {
+				utx = new DefaultUserContext(userId);
+				if (!utx.load(new StringReader((String) row[5]))) {
+					logger.error("User context of job {} could not be loaded. It is run with just the user id", jobId);
+				}
+			}
+			final String input = row[6] == null ? "{}" : (String) row[6];
+			final ServiceJob job;
+			try {
+				job = new ServiceJob(jobId, service, new StringReader(input), utx, userId, this.contextFactory,
+						this.fileManager, 0, this.seqNo.incrementAndGet(), this::statusChanged);
+			} catch (final IOException e) {
+				// StringReader does not throw this
+				continue;
+			}
+			/*
+			 * adopted jobs are not rejected, but they do take up their slots
+			 */
+			this.nbrPendingJobs.incrementAndGet();
+			if (utx != null) {
+				this.pendingJobs.computeIfAbsent(userId, k -> new AtomicInteger()).incrementAndGet();
+			}
+			this.jobs.put(jobId, job);
+			this.updateStatus(job);
+			this.executor.execute(job);
+			logger.info("Job {} of dead node {} adopted by node {}", jobId, deadNode, nodeId);
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	private void insertStatus(final ServiceJob job) {
+		if (this.insertSql == null) {
+			return;
+		}
+		final JobProgressReporter p = job.getProgress();
+		String userContext = null;
+		final DefaultUserContext utx = job.getUserContext();
+		if (utx != null) {
+			final StringWriter sw = new StringWriter();
+			utx.persist(sw);
+			userContext = sw.toString();
+		}
+		final Object[] values = { job.getId(), job.getServiceName(), job.getUserId(), this.coordinator.getNodeId(),
+				this.coordinator.getNodeToken(), userContext, job.getInput(), job.getStatus().name(),
+				(long) p.getPercentageCompleted(), p.getProgressCount(), truncate(p.getMessage()), Instant.now() };
+		this.persist(this.insertSql, values, INSERT_TYPES, job);
+	}
+
+	@SuppressWarnings("boxing")
+	private void updateStatus(final ServiceJob job) {
+		if (this.updateSql == null) {
+			return;
+		}
+		final JobProgressReporter p = job.getProgress();
+		final Object[] values = { job.getStatus().name(), (long) p.getPercentageCompleted(), p.getProgressCount(),
+				truncate(p.getMessage()), Instant.now(), job.getId(), this.coordinator.getNodeId(),
+				this.coordinator.getNodeToken() };
+		if (!this.persist(this.updateSql, values, UPDATE_TYPES, job)) {
+			logger.warn("Status of job {} is not updated as it is fenced-off. It may have been adopted by another node",
+					job.getId());
+		}
+	}
+
+	/*
+	 * failure to persist the status is not a reason to fail the job. returns
+	 * false if no row is affected
+	 */
+	private boolean persist(final String sql, final Object[] values, final ValueType[] types, final ServiceJob job) {
+		try {
+			return this.dbDriver.doReadWriteOperations(handle -> {
+				return handle.write(sql, values, types) > 0;
+			});
+		} catch (final SQLException e) {
+			logger.error("Status of job {} could not be persisted: {}", job.getId(), e.getMessage());
+			return true;
+		}
+	}
+
+	private static String truncate(final String text) {
+		if (text.length() <= MAX_MESSAGE_LENGTH) {
+			return text;
+		}
+		return text.substring(0, MAX_MESSAGE_LENGTH);
+	}
+
+	private static class JobThreadFactory implements ThreadFactory {
+		private final AtomicInteger nbr = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r, "job-runner-" + this.nbr.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra.defalt;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.infra.ClusterCoordinator;
+import org.simplity.server.core.infra.JobManager;
+import org.simplity.server.core.infra.Scheduler;
+import org.simplity.server.core.job.CronExpression;
+import org.simplity.server.core.job.JobHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler that keeps its schedules on a hashed timing wheel. A single daemon
+ * thread advances the wheel once every tick, and looks at only the schedules
+ * in that slot of the wheel. Hence a large number of schedules cost almost
+ * nothing while they are waiting. The thread is started only when the first
+ * schedule is added.
+ *
+ * Each run is submitted to the JobManager, and hence is subject to the same
+ * limits on concurrency as any other job. A random jitter is added to the time
+ * of every run so that schedules with the same timing do not all hit the
+ * server at the same instant. A run is skipped if the earlier run of the same
+ * schedule is not yet done.
+ *
+ * When the app runs on several nodes, each of them would have the same
+ * schedules. A run is made only by the node that holds the lease for that
+ * schedule, and hence each run is made only once across the cluster. If that
+ * node dies, its lease expires and another node takes over. For this to work,
+ * the id of a schedule, and hence the name of its lease, is derived from the
+ * service, its input and its timing, along with the number of identical
+ * schedules that were added before it. Nodes that add the same schedules get
+ * the same ids.
+ *
+ * @author simplity.org
+ *
+ */
+public class DefaultScheduler implements Scheduler {
+	protected static final Logger logger = LoggerFactory.getLogger(DefaultScheduler.class);
+
+	private static final int WHEEL_SIZE = 512;
+	/*
+	 * scheduled runs are picked-up after the jobs submitted by users
+	 */
+	private static final int JOB_PRIORITY = -1;
+
+	private final JobManager jobManager;
+	private final ClusterCoordinator coordinator;
+	private final long tickMillis;
+	private final long jitterMillis;
+	private final ZoneId zone = ZoneId.systemDefault();
+
+	private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+	/*
+	 * number of schedules added so far, by their specification
+	 */
+	private final Map<String, AtomicInteger> specCounts = new ConcurrentHashMap<>();
+	@SuppressWarnings("unchecked")
+	private final List<Schedule>[] wheel = (List<Schedule>[]) new List<?>[WHEEL_SIZE];
+	/*
+	 * slot that is to be processed at the next tick. guarded by this
+	 */
+	private long currentTick;
+	/*
+	 * started when the first schedule is added. guarded by this
+	 */
+	private Thread wheelThread;
+
+	/**
+	 *
+	 * @param jobManager   to which each run is submitted as a job
+	 * @param coordinator  to ensure that a run is made by only one node of the
+	 *                     cluster
+	 * @param tickMillis   resolution of the scheduler. A run may be delayed by up
+	 *                     to one tick
+	 * @param jitterMillis maximum random delay added to each run. 0 for no
+	 *                     jitter
+	 */
+	public DefaultScheduler(final JobManager jobManager, final ClusterCoordinator coordinator,
+			final long tickMillis, final long jitterMillis) {
+		this.jobManager = jobManager;
+		this.coordinator = coordinator;
+		this.tickMillis = tickMillis;
+		this.jitterMillis = jitterMillis;
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			this.wheel[i] = new ArrayList<>();
+		}
+	}
+
+	@Override
+	public String scheduleAtFixedRate(final String serviceName, final String inputJson,
+			final long initialDelaySeconds, final long periodSeconds) {
+		if (periodSeconds <= 0) {
+			throw new ApplicationError("Period for a schedule must be positive. " + periodSeconds + " is invalid");
+		}
+		final Schedule s = new Schedule(this.newId(serviceName, inputJson, "every " + periodSeconds), serviceName,
+				inputJson, null, periodSeconds * 1000);
+		s.nominalAt = System.currentTimeMillis() + initialDelaySeconds * 1000;
+		return this.add(s);
+	}
+
+	@Override
+	public String scheduleWithCron(final String serviceName, final String inputJson, final String cronExpression) {
+		final CronExpression cron = new CronExpression(cronExpression);
+		final Schedule s = new Schedule(this.newId(serviceName, inputJson, cronExpression), serviceName, inputJson,
+				cron, 0);
+		s.nominalAt = this.nextCronTime(cron, System.currentTimeMillis());
+		return this.add(s);
+	}
+
+	@Override
+	public boolean cancel(final String scheduleId) {
+		final Schedule s = this.schedules.remove(scheduleId);
+		if (s == null) {
+			return false;
+		}
+		this.coordinator.release(s.leaseName);
+		/*
+		 * it is dropped from the wheel when its slot is processed next
+		 */
+		s.cancelled = true;
+		logger.info("Schedule {} for service {} cancelled", scheduleId, s.serviceName);
+		return true;
+	}
+
+	/*
+	 * same across the nodes that add the same schedules in the same order
+	 */
+	private String newId(final String serviceName, final String inputJson, final String timing) {
+		final String spec = serviceName + '\n' + timing + '\n' + inputJson;
+		final int nbr = this.specCounts.computeIfAbsent(spec, k -> new AtomicInteger()).incrementAndGet();
+		return UUID.nameUUIDFromBytes((spec + '\n' + nbr).getBytes(StandardCharsets.UTF_8)).toString();
+	}
+
+	private String add(final Schedule s) {
+		this.schedules.put(s.id, s);
+		synchronized (this) {
+			if (this.wheelThread == null) {
+				this.wheelThread = new Thread(this::runWheel, "scheduler-wheel");
+				this.wheelThread.setDaemon(true);
+				this.wheelThread.start();
+			}
+		}
+		this.placeOnWheel(s);
+		logger.info("Service {} scheduled with id {}", s.serviceName, s.id);
+		return s.id;
+	}
+
+	private void placeOnWheel(final Schedule s) {
+		long dueAt = s.nominalAt;
+		if (this.jitterMillis > 0) {
+			dueAt += ThreadLocalRandom.current().nextLong(this.jitterMillis);
+		}
+		final long delay = dueAt - System.currentTimeMillis();
+		final long ticks = Math.max(1, (delay + this.tickMillis - 1) / this.tickMillis);
+		synchronized (this) {
+			s.rounds = (ticks - 1) / WHEEL_SIZE;
+			this.wheel[(int) ((this.currentTick + ticks - 1) % WHEEL_SIZE)].add(s);
+		}
+	}
+
+	private void runWheel() {
+		long nextTickAt = System.currentTimeMillis() + this.tickMillis;
+		while (true) {
+			final long wait = nextTickAt - System.currentTimeMillis();
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait);
+				} catch (final InterruptedException e) {
+					logger.error("Scheduler thread interrupted. No more scheduled runs");
+					return;
+				}
+			}
+			nextTickAt += this.tickMillis;
+
+			final List<Schedule> due = new ArrayList<>();
+			synchronized (this) {
+				final List<Schedule> slot = this.wheel[(int) (this.currentTick % WHEEL_SIZE)];
+				final Iterator<Schedule> iter = slot.iterator();
+				while (iter.hasNext()) {
+					final Schedule s = iter.next();
+					if (s.cancelled) {
+						iter.remove();
+					} else if (s.rounds > 0) {
+						s.rounds--;
+					} else {
+						iter.remove();
+						due.add(s);
+					}
+				}
+				this.currentTick++;
+			}
+
+			for (final Schedule s : due) {
+				try {
+					this.fire(s);
+				} catch (final Exception e) {
+					logger.error("Error while running schedule {} for service {}: {}", s.id, s.serviceName,
+							e.getMessage());
+				}
+				this.reschedule(s);
+			}
+		}
+	}
+
+	private void fire(final Schedule s) {
+		final JobHandle last = s.lastRun;
+		if (last != null && !isDone(last)) {
+			logger.warn("Schedule {} for service {} skipped as its earlier run {} is still {}", s.id, s.serviceName,
+					last.getId(), last.getStatus());
+			return;
+		}
+		if (this.coordinator.acquire(s.leaseName) == 0) {
+			logger.info("Schedule {} for service {} is being run by another node", s.id, s.serviceName);
+			return;
+		}
+		try {
+			s.lastRun = this.jobManager.newJob(new StringReader(s.inputJson), s.serviceName, null, JOB_PRIORITY);
+		} catch (final ApplicationError e) {
+			logger.error("Schedule {} for service {} could not submit a job: {}", s.id, s.serviceName,
+					e.getMessage());
+		}
+	}
+
+	private void reschedule(final Schedule s) {
+		if (s.cancelled) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (s.cron == null) {
+			s.nominalAt += s.periodMillis;
+			/*
+			 * in case we have fallen behind, we do not try to catch-up
+			 */
+			if (s.nominalAt < now) {
+				s.nominalAt = now;
+			}
+		} else {
+			s.nominalAt = this.nextCronTime(s.cron, now);
+		}
+		this.placeOnWheel(s);
+	}
+
+	private long nextCronTime(final CronExpression cron, final long after) {
+		final ZonedDateTime t = ZonedDateTime.ofInstant(Instant.ofEpochMilli(after), this.zone);
+		return cron.nextAfter(t).toInstant().toEpochMilli();
+	}
+
+	private static boolean isDone(final JobHandle job) {
+		switch (job.getStatus()) {
+		case Waiting:
+		case Running:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	private static class Schedule {
+		final String id;
+		final String serviceName;
+		final String inputJson;
+		final CronExpression cron;
+		final long periodMillis;
+		/*
+		 * same across the nodes for the same schedule, as is the id
+		 */
+		final String leaseName;
+
+		/*
+		 * accessed only by the wheel thread, except when it is being added
+		 */
+		long nominalAt;
+		long rounds;
+		volatile boolean cancelled;
+		volatile JobHandle lastRun;
+
+		Schedule(final String id, final String serviceName, final String inputJson, final CronExpression cron,
+				final long periodMillis) {
+			this.id = id;
+			this.leaseName = "schedule:" + id;
+			this.serviceName = serviceName;
+			this.inputJson = inputJson == null ? "{}" : inputJson;
+			this.cron = cron;
+			this.periodMillis = periodMillis;
+		}
+	}
+}
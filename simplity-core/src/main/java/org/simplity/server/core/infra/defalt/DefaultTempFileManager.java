@@ -0,0 +1,442 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra.defalt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.infra.TempFileManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps small files in memory, and spills a file to the disk once its content
+ * grows beyond a threshold. Content is saved in UTF-8.
+ *
+ * Files on the disk are given names of their own, and are created in a folder
+ * that is meant for the exclusive use of this node. Total size of these files is
+ * limited to a quota, beyond which a new file can not be created.
+ *
+ * A file that is being read is not deleted till all its readers are done, even
+ * if it is removed in the meantime. Files that are not accessed for a while are
+ * removed, and so are the files left behind in the folder by an earlier run.
+ *
+ * @author simplity.org
+ *
+ */
+public class DefaultTempFileManager implements TempFileManager {
+	protected static final Logger logger = LoggerFactory.getLogger(DefaultTempFileManager.class);
+
+	private static final String FILE_PREFIX = "simplity-";
+	private static final String FILE_SUFFIX = ".tmp";
+	private static final long MAX_CLEANUP_INTERVAL = 60 * 1000L;
+
+	private final Path folder;
+	private final int memoryThreshold;
+	private final long diskQuota;
+	private final long ttlMillis;
+
+	private final Map<String, TempFile> files = new ConcurrentHashMap<>();
+	/*
+	 * files on the disk that are not deleted yet. This includes the ones that
+	 * are removed, but are still being read
+	 */
+	private final Map<Path, TempFile> onDisk = new ConcurrentHashMap<>();
+	/*
+	 * bytes reserved on the disk by the files of this manager
+	 */
+	private final AtomicLong diskUsed = new AtomicLong();
+
+	/**
+	 *
+	 * @param folder          in which files are to be created. Created if
+	 *                        required. Any file in this folder with the naming
+	 *                        convention of this class is treated as left behind
+	 *                        by an earlier run, and is deleted
+	 * @param memoryThreshold number of bytes beyond which the content of a file is
+	 *                        saved to the disk rather than kept in memory
+	 * @param diskQuota       maximum number of bytes that may be saved to the
+	 *                        disk at any time. 0 means no limit
+	 * @param ttlMinutes      number of minutes after which a file that is not
+	 *                        accessed is removed
+	 */
+	public DefaultTempFileManager(final Path folder, final int memoryThreshold, final long diskQuota,
+			final int ttlMinutes) {
+		this.folder = folder;
+		this.memoryThreshold = memoryThreshold;
+		this.diskQuota = diskQuota <= 0 ? Long.MAX_VALUE : diskQuota;
+		this.ttlMillis = ttlMinutes * 60 * 1000L;
+		try {
+			Files.createDirectories(folder);
+		} catch (final IOException e) {
+			throw new ApplicationError("Unable to create folder " + folder + " for temp files", e);
+		}
+
+		final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "temp-file-cleaner");
+			t.setDaemon(true);
+			return t;
+		});
+		final long interval = Math.max(1000, Math.min(this.ttlMillis, MAX_CLEANUP_INTERVAL));
+		cleaner.scheduleWithFixedDelay(this::cleanup, 0, interval, TimeUnit.MILLISECONDS);
+		logger.info("Temp files are kept in memory up to {} bytes, and in folder {} beyond that", memoryThreshold,
+				folder);
+	}
+
+	@Override
+	public boolean fileExists(final String fileName) {
+		return this.files.containsKey(fileName);
+	}
+
+	@Override
+	public boolean newFile(final String fileName, final IFileWriter fileWriter) {
+		final SpillStream stream = new SpillStream();
+		boolean ok = false;
+		try (Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+			ok = fileWriter.writeToFile(writer);
+		} catch (final IOException e) {
+			logger.error("Error while writing temp file {}: {}", fileName, e.getMessage());
+			ok = false;
+		} catch (final Exception e) {
+			stream.discard();
+			throw e;
+		}
+
+		if (!ok) {
+			stream.discard();
+			return false;
+		}
+
+		final TempFile file = new TempFile(stream.getBytes(), stream.getPath(), stream.getSize());
+		if (file.path != null) {
+			this.onDisk.put(file.path, file);
+		}
+		final TempFile old = this.files.put(fileName, file);
+		if (old != null) {
+			this.markRemoved(old);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean readFile(final String fileName, final IFileReader fileReader, final boolean removeAfterRead) {
+		final TempFile file = this.acquire(fileName, removeAfterRead);
+		if (file == null) {
+			return false;
+		}
+		try (Reader reader = file.path == null
+				? new InputStreamReader(new ByteArrayInputStream(file.bytes), StandardCharsets.UTF_8)
+				: Files.newBufferedReader(file.path, StandardCharsets.UTF_8)) {
+			fileReader.readFromFile(reader);
+			return true;
+		} catch (final IOException e) {
+			logger.error("Error while reading temp file {}: {}", fileName, e.getMessage());
+			return false;
+		} finally {
+			this.release(file);
+		}
+	}
+
+	@Override
+	public long transferFile(final String fileName, final OutputStream out, final boolean removeAfterRead)
+			throws IOException {
+		final TempFile file = this.acquire(fileName, removeAfterRead);
+		if (file == null) {
+			return -1;
+		}
+		try {
+			if (file.path == null) {
+				out.write(file.bytes);
+				return file.bytes.length;
+			}
+			if (out instanceof FileOutputStream == false) {
+				/*
+				 * a channel over any other stream, like that of a servlet, is just a
+				 * copy through a buffer, and hence there is no point in using one
+				 */
+				return Files.copy(file.path, out);
+			}
+
+			/*
+			 * file to file: the OS copies the bytes, without bringing them into the
+			 * heap
+			 */
+			final FileChannel target = ((FileOutputStream) out).getChannel();
+			try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+				final long size = channel.size();
+				long done = 0;
+				while (done < size) {
+					done += channel.transferTo(done, size - done, target);
+				}
+				return done;
+			}
+		} finally {
+			this.release(file);
+		}
+	}
+
+	@Override
+	public void removeFile(final String fileName) {
+		final TempFile file = this.files.remove(fileName);
+		if (file != null) {
+			this.markRemoved(file);
+		}
+	}
+
+	/*
+	 * get the file for reading. It is not deleted till it is released
+	 */
+	private TempFile acquire(final String fileName, final boolean removeAfterRead) {
+		final TempFile file = removeAfterRead ? this.files.remove(fileName) : this.files.get(fileName);
+		if (file == null) {
+			return null;
+		}
+		file.refs.incrementAndGet();
+		if (file.removed && !removeAfterRead) {
+			/*
+			 * removed after we got it, but before we could increment the count
+			 */
+			this.release(file);
+			return null;
+		}
+		file.lastAccessed = System.currentTimeMillis();
+		if (removeAfterRead) {
+			file.removed = true;
+		}
+		return file;
+	}
+
+	private void release(final TempFile file) {
+		if (file.refs.decrementAndGet() == 0 && file.removed) {
+			this.delete(file);
+		}
+	}
+
+	private void markRemoved(final TempFile file) {
+		file.removed = true;
+		if (file.refs.get() == 0) {
+			this.delete(file);
+		}
+	}
+
+	private void delete(final TempFile file) {
+		if (!file.deleted.compareAndSet(false, true) || file.path == null) {
+			return;
+		}
+		this.deleteFromDisk(file.path, file.size);
+		this.onDisk.remove(file.path);
+	}
+
+	private void deleteFromDisk(final Path path, final long size) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (final IOException e) {
+			logger.error("Error while deleting temp file {}: {}", path, e.getMessage());
+		}
+		this.diskUsed.addAndGet(-size);
+	}
+
+	/*
+	 * run periodically by the cleaner. package-private for the tests
+	 */
+	void cleanup() {
+		final long cutoff = System.currentTimeMillis() - this.ttlMillis;
+		for (final Map.Entry<String, TempFile> entry : this.files.entrySet()) {
+			final TempFile file = entry.getValue();
+			if (file.refs.get() == 0 && file.lastAccessed < cutoff && this.files.remove(entry.getKey(), file)) {
+				logger.info("Temp file {} removed as it was not accessed for a while", entry.getKey());
+				this.markRemoved(file);
+			}
+		}
+
+		/*
+		 * files in our folder that we do not know about are orphans. A file that
+		 * is removed, but is still being read, is known till it is deleted. Ones
+		 * being written right now are not known yet, but they are never old enough
+		 */
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.folder,
+				FILE_PREFIX + "*" + FILE_SUFFIX)) {
+			for (final Path path : stream) {
+				try {
+					if (!this.onDisk.containsKey(path) && Files.getLastModifiedTime(path).toMillis() < cutoff) {
+						logger.info("Orphaned temp file {} deleted", path);
+						Files.deleteIfExists(path);
+					}
+				} catch (final NoSuchFileException e) {
+					/*
+					 * deleted after it was listed
+					 */
+				}
+			}
+		} catch (final IOException e) {
+			logger.error("Error while looking for orphaned files in folder {}: {}", this.folder, e.getMessage());
+		}
+	}
+
+	private static class TempFile {
+		/*
+		 * one of these is non-null
+		 */
+		final byte[] bytes;
+		final Path path;
+		final long size;
+		/*
+		 * number of readers of this file
+		 */
+		final AtomicInteger refs = new AtomicInteger();
+		final AtomicBoolean deleted = new AtomicBoolean();
+		volatile boolean removed;
+		volatile long lastAccessed = System.currentTimeMillis();
+
+		TempFile(final byte[] bytes, final Path path, final long size) {
+			this.bytes = bytes;
+			this.path = path;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * buffers the content in memory, and switches over to a file once the
+	 * content grows beyond the threshold. Space on the disk is reserved against
+	 * the quota before it is written to
+	 */
+	private class SpillStream extends OutputStream {
+		private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private Path path;
+		private OutputStream fileStream;
+		private long size;
+
+		SpillStream() {
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if (this.fileStream == null && this.size + len > DefaultTempFileManager.this.memoryThreshold) {
+				this.spill();
+			}
+			if (this.fileStream == null) {
+				this.buffer.write(b, off, len);
+			} else {
+				this.reserve(len);
+				try {
+					this.fileStream.write(b, off, len);
+				} catch (final IOException e) {
+					this.unreserve(len);
+					throw e;
+				}
+			}
+			this.size += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (this.fileStream != null) {
+				this.fileStream.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.fileStream != null) {
+				this.fileStream.close();
+			}
+		}
+
+		byte[] getBytes() {
+			return this.buffer == null ? null : this.buffer.toByteArray();
+		}
+
+		Path getPath() {
+			return this.path;
+		}
+
+		long getSize() {
+			return this.size;
+		}
+
+		/*
+		 * content written so far is abandoned
+		 */
+		void discard() {
+			if (this.path == null) {
+				return;
+			}
+			try {
+				this.close();
+			} catch (final IOException e) {
+				// we are deleting it anyway
+			}
+			DefaultTempFileManager.this.deleteFromDisk(this.path, this.size);
+			this.path = null;
+		}
+
+		private void spill() throws IOException {
+			final DefaultTempFileManager mgr = DefaultTempFileManager.this;
+			this.reserve(this.size);
+			final Path file = mgr.folder.resolve(FILE_PREFIX + UUID.randomUUID().toString() + FILE_SUFFIX);
+			OutputStream out = null;
+			try {
+				out = Files.newOutputStream(file);
+				this.buffer.writeTo(out);
+			} catch (final IOException e) {
+				/*
+				 * content continues to be in memory, and the space is not reserved any
+				 * more
+				 */
+				this.unreserve(this.size);
+				try {
+					if (out != null) {
+						out.close();
+					}
+					Files.deleteIfExists(file);
+				} catch (final IOException e1) {
+					logger.error("Error while deleting temp file {}: {}", file, e1.getMessage());
+				}
+				throw e;
+			}
+			this.path = file;
+			this.fileStream = out;
+			this.buffer = null;
+		}
+
+		private void reserve(final long nbrBytes) throws IOException {
+			final AtomicLong used = DefaultTempFileManager.this.diskUsed;
+			if (used.addAndGet(nbrBytes) > DefaultTempFileManager.this.diskQuota) {
+				used.addAndGet(-nbrBytes);
+				throw new IOException("Disk quota for temp files exceeded");
+			}
+		}
+
+		private void unreserve(final long nbrBytes) {
+			DefaultTempFileManager.this.diskUsed.addAndGet(-nbrBytes);
+		}
+	}
+}
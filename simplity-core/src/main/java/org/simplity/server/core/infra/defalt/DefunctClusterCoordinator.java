@@ -0,0 +1,44 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.infra.defalt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplity.server.core.infra.ClusterCoordinator;
+
+/**
+ * coordinator for an app that runs as a single node. Every lease is granted,
+ * and every node is considered alive
+ *
+ * @author simplity.org
+ *
+ */
+public class DefunctClusterCoordinator implements ClusterCoordinator {
+	private static final String NODE_ID = "local";
+	private final AtomicLong token = new AtomicLong();
+
+	@Override
+	public String getNodeId() {
+		return NODE_ID;
+	}
+
+	@Override
+	public long acquire(final String leaseName) {
+		return this.token.incrementAndGet();
+	}
+
+	@Override
+	public void release(final String leaseName) {
+		//
+	}
+
+	@Override
+	public boolean isNodeAlive(final String nodeId) {
+		return true;
+	}
+
+	@Override
+	public long getNodeToken() {
+		return 1;
+	}
+
+}
@@ -3,6 +3,7 @@ package org.simplity.server.core.infra.defalt;
 
 import java.io.Reader;
 
+import org.simplity.server.core.DefaultUserContext;
 import org.simplity.server.core.infra.JobManager;
 import org.simplity.server.core.job.JobHandle;
 
@@ -13,7 +14,8 @@ import org.simplity.server.core.job.JobHandle;
 public class DefunctJobManager implements JobManager {
 
 	@Override
-	public JobHandle newJob(final Reader reader, final String serviceName) {
+	public JobHandle newJob(final Reader reader, final String serviceName, final DefaultUserContext utx,
+			final int priority) {
 		return null;
 	}
 
@@ -33,6 +33,7 @@ public class JdbcConnectionFactory {
 	private static final String PASSWORD_KEY = "db.password";
 	private static final String DRIVER_KEY = "db.driver";
 	private static final String USES_INT_FOR_BOOLEAN_KEY = "db.usesIntForBoolean";
+	private static final String SUPPORTS_WINDOW_FUNCTIONS_KEY = "db.supportsWindowFunctions";
 
 	/**
 	 *
@@ -59,6 +60,10 @@ public class JdbcConnectionFactory {
 		final String password = dbProperties.getProperty(PASSWORD_KEY);
 		final String intForBoolean = dbProperties.getProperty(USES_INT_FOR_BOOLEAN_KEY);
 		DbUtil.setUseIntForBoolean("true".equalsIgnoreCase(intForBoolean));
+		final String windowFunctions = dbProperties.getProperty(SUPPORTS_WINDOW_FUNCTIONS_KEY);
+		if (windowFunctions != null) {
+			DbUtil.setWindowFunctionsSupported("true".equalsIgnoreCase(windowFunctions));
+		}
 
 		return new DbConnectionFactory() {
 
@@ -3,6 +3,12 @@ package org.simplity.server.core.jdbc;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.simplity.server.core.db.DbDriver;
 import org.simplity.server.core.db.DbMetaDataReader;
@@ -11,7 +17,6 @@ import org.simplity.server.core.db.DbTransacter;
 import org.simplity.server.core.db.DbWriter;
 import org.simplity.server.core.db.ReadWriteHandle;
 import org.simplity.server.core.db.ReadonlyHandle;
-import org.simplity.server.core.db.TransactionHandle;
 import org.simplity.server.core.infra.DbConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,16 +27,50 @@ import org.slf4j.LoggerFactory;
  * very basic feature : read/write. That is the whole idea of this class -
  * provide simple API to do the most common operation
  *
- * This is an immutable class, and hence can be used as a singleton. This is
+ * This is a thread-safe class, and hence can be used as a singleton. This is
  * designed to be accessed through App
  *
+ * If read-replicas are configured, read-only operations are routed to the
+ * replica with the least number of outstanding requests, except that a session
+ * that has recently written to the db is routed to the primary, so that it
+ * reads its own writes.
+ *
+ * When the App marks the beginning and end of a request, a single connection is
+ * used for all the operations within that request, instead of borrowing a
+ * connection from the pool for each of them. Transaction boundaries are still
+ * those of the outermost read-write call: a read-write call made from within
+ * another one runs within a save-point, and commits nothing on its own. A
+ * multiple-transactions call made from within a read-write call manages its own
+ * commits, and hence it uses a connection of its own.
+ *
+ * Operations on a named schema always borrow a connection from the pool, as
+ * the request-scoped connection is for the default schema.
+ *
  * @author simplity.org
  *
  */
 public class JdbcDriver implements DbDriver {
 	protected static final Logger logger = LoggerFactory.getLogger(JdbcDriver.class);
 
+	/*
+	 * sessions that have written to the db are remembered for a while, so that
+	 * their reads are not routed to a replica that may not have caught up
+	 */
+	private static final int SWEEP_THRESHOLD = 1000;
+	/*
+	 * request-scoped connection and session. set by the App for the duration of
+	 * serving a request
+	 */
+	private static final ThreadLocal<RequestScope> currentScope = new ThreadLocal<>();
+
 	private final DbConnectionFactory factory;
+	/*
+	 * null if no replicas are configured
+	 */
+	private final Replica[] replicas;
+	private final long pinMillis;
+	private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+	private final AtomicInteger nextReplica = new AtomicInteger();
 
 	/**
 	 * to be used by APP, and no one else..
@@ -39,23 +78,108 @@ public class JdbcDriver implements DbDriver {
 	 * @param factory
 	 */
 	public JdbcDriver(final DbConnectionFactory factory) {
+		this(factory, null, 0);
+	}
+
+	/**
+	 * to be used by APP, and no one else..
+	 *
+	 * @param factory   for the primary db. All write operations are done using
+	 *                  this
+	 * @param replicas  factories for read-replicas of the primary db. read-only
+	 *                  operations are spread across these. null or empty if there
+	 *                  are no replicas
+	 * @param pinMillis number of milliseconds after a write operation, during
+	 *                  which the read-only operations from the same session are
+	 *                  routed to the primary db instead of a replica
+	 */
+	public JdbcDriver(final DbConnectionFactory factory, final DbConnectionFactory[] replicas,
+			final long pinMillis) {
 		this.factory = factory;
-		//
+		this.pinMillis = pinMillis;
+		if (replicas == null || replicas.length == 0) {
+			this.replicas = null;
+			return;
+		}
+		this.replicas = new Replica[replicas.length];
+		for (int i = 0; i < replicas.length; i++) {
+			this.replicas[i] = new Replica(replicas[i]);
+		}
+		logger.info("{} read-replicas configured. Reads are pinned to primary for {} ms after a write",
+				replicas.length, pinMillis);
+	}
+
+	/**
+	 * to be called by the App before serving a request. A connection is acquired
+	 * on the first db operation, and is re-used for all the subsequent operations
+	 * within this request. It is released when endRequest() is called. Also, the
+	 * read-only operations are routed to the primary db for a while after this
+	 * session writes to the db.
+	 *
+	 * @param sessionId null if the request is not within a session
+	 */
+	public static void beginRequest(final String sessionId) {
+		final RequestScope scope = currentScope.get();
+		if (scope != null) {
+			logger.error("A request scope was not ended before beginning another one. Connection being released.");
+			scope.release();
+		}
+		currentScope.set(new RequestScope(sessionId));
+	}
+
+	/**
+	 * to be called by the App after serving a request, typically in a finally
+	 * block. Any connection acquired for this request is released
+	 */
+	public static void endRequest() {
+		final RequestScope scope = currentScope.get();
+		if (scope != null) {
+			currentScope.remove();
+			scope.release();
+		}
 	}
 
 	@Override
 	public boolean doReadonlyOperations(final DbReader reader) throws SQLException {
 		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			return doReadOnly(con, reader);
+		final Replica replica = this.selectReplica();
+		if (replica == null) {
+			final RequestScope scope = currentScope.get();
+			if (scope != null) {
+				final Connection con = this.getScopedConnection(scope);
+				return doReadOnly(con, reader, false, scope.depth > 0 || !con.getAutoCommit());
+			}
+			try (Connection con = this.factory.getConnection()) {
+				return doReadOnly(con, reader, true, false);
+			}
+		}
+
+		replica.outstanding.incrementAndGet();
+		try (Connection con = replica.factory.getConnection()) {
+			return doReadOnly(con, reader, true, false);
+		} finally {
+			replica.outstanding.decrementAndGet();
 		}
 	}
 
 	@Override
 	public boolean doReadonlyOperations(final String schemaName, final DbReader reader) throws SQLException {
 		this.checkFactory();
-		try (Connection con = this.factory.getConnection(schemaName)) {
-			return doReadOnly(con, reader);
+		/*
+		 * request-scoped connection is for the default schema, and hence is not used
+		 */
+		final Replica replica = this.selectReplica();
+		if (replica == null) {
+			try (Connection con = this.factory.getConnection(schemaName)) {
+				return doReadOnly(con, reader, true, false);
+			}
+		}
+
+		replica.outstanding.incrementAndGet();
+		try (Connection con = replica.factory.getConnection(schemaName)) {
+			return doReadOnly(con, reader, true, false);
+		} finally {
+			replica.outstanding.decrementAndGet();
 		}
 	}
 
@@ -100,35 +224,154 @@ public class JdbcDriver implements DbDriver {
 	@Override
 	public boolean doReadWriteOperations(final DbWriter updater) throws SQLException {
 		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			return doReadWrite(con, updater);
+		this.markWrite();
+		final RequestScope scope = currentScope.get();
+		if (scope == null) {
+			try (Connection con = this.factory.getConnection()) {
+				return doReadWrite(con, updater, new ArrayList<>());
+			}
+		}
+
+		final Connection con = this.getScopedConnection(scope);
+		if (scope.depth > 0) {
+			return doNestedReadWrite(con, updater, scope.commitActions);
+		}
+		final boolean autoCommit = con.getAutoCommit();
+		scope.depth++;
+		try {
+			return doReadWrite(con, updater, scope.commitActions);
+		} finally {
+			scope.depth--;
+			if (autoCommit) {
+				/*
+				 * the transaction is over. Subsequent reads need not be treated as being
+				 * within a transaction
+				 */
+				con.setAutoCommit(true);
+			}
 		}
 	}
 
 	@Override
 	public boolean doReadWriteOperations(final String schemaName, final DbWriter updater) throws SQLException {
 		this.checkFactory();
+		/*
+		 * request-scoped connection is for the default schema, and hence is not used
+		 */
+		this.markWrite();
 		try (Connection con = this.factory.getConnection(schemaName)) {
-			return doReadWrite(con, updater);
+			return doReadWrite(con, updater, new ArrayList<>());
 		}
 	}
 
 	@Override
 	public boolean doMultipleTransactions(final DbTransacter transacter) throws SQLException {
 		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			return doTransact(con, transacter);
+		this.markWrite();
+		final RequestScope scope = currentScope.get();
+		if (scope == null || scope.depth > 0) {
+			/*
+			 * commits by this transacter must not commit the work of an enclosing
+			 * read-write call
+			 */
+			try (Connection con = this.factory.getConnection()) {
+				return doTransact(con, transacter, new ArrayList<>());
+			}
+		}
+
+		final Connection con = this.getScopedConnection(scope);
+		scope.depth++;
+		try {
+			return doTransact(con, transacter, scope.commitActions);
+		} finally {
+			scope.depth--;
 		}
 	}
 
 	@Override
 	public boolean doMultipleTransactions(final String schemaName, final DbTransacter transacter) throws SQLException {
 		this.checkFactory();
+		/*
+		 * request-scoped connection is for the default schema, and hence is not used
+		 */
+		this.markWrite();
 		try (Connection con = this.factory.getConnection(schemaName)) {
-			return doTransact(con, transacter);
+			return doTransact(con, transacter, new ArrayList<>());
 		}
 	}
 
+	/*
+	 * replica with the least outstanding requests, or null if the primary is to be
+	 * used
+	 */
+	private Replica selectReplica() {
+		if (this.replicas == null) {
+			return null;
+		}
+
+		final RequestScope scope = currentScope.get();
+		if (scope != null && scope.con != null) {
+			/*
+			 * this request has already used the primary. Let us continue with that
+			 */
+			return null;
+		}
+
+		final String session = scope == null ? null : scope.sessionId;
+		if (session != null) {
+			final Long writtenAt = this.lastWrites.get(session);
+			if (writtenAt != null) {
+				if (System.currentTimeMillis() - writtenAt < this.pinMillis) {
+					return null;
+				}
+				this.lastWrites.remove(session);
+			}
+		}
+
+		/*
+		 * start with a rotating index so that the ties are not always resolved in
+		 * favour of the first replica
+		 */
+		final int n = this.replicas.length;
+		final int start = (this.nextReplica.getAndIncrement() & Integer.MAX_VALUE) % n;
+		Replica selected = this.replicas[start];
+		int least = selected.outstanding.get();
+		for (int i = 1; i < n && least > 0; i++) {
+			final Replica r = this.replicas[(start + i) % n];
+			final int count = r.outstanding.get();
+			if (count < least) {
+				least = count;
+				selected = r;
+			}
+		}
+		return selected;
+	}
+
+	@SuppressWarnings("boxing")
+	private void markWrite() {
+		if (this.replicas == null || this.pinMillis <= 0) {
+			return;
+		}
+		final RequestScope scope = currentScope.get();
+		if (scope == null || scope.sessionId == null) {
+			return;
+		}
+		final String session = scope.sessionId;
+
+		final long now = System.currentTimeMillis();
+		this.lastWrites.put(session, now);
+		if (this.lastWrites.size() > SWEEP_THRESHOLD) {
+			this.lastWrites.values().removeIf(t -> now - t >= this.pinMillis);
+		}
+	}
+
+	private Connection getScopedConnection(final RequestScope scope) throws SQLException {
+		if (scope.con == null) {
+			scope.con = this.factory.getConnection();
+		}
+		return scope.con;
+	}
+
 	private void checkFactory() throws SQLException {
 		if (this.factory == null) {
 			final String msg = "Db driver is not set up for this application. No db operations are possible";
@@ -137,11 +380,18 @@ public class JdbcDriver implements DbDriver {
 		}
 	}
 
-	private static boolean doReadOnly(final Connection con, final DbReader reader) throws SQLException {
+	/*
+	 * a shared connection is not set to read-only, as it may be used for writes
+	 * later
+	 */
+	private static boolean doReadOnly(final Connection con, final DbReader reader, final boolean setReadOnly,
+			final boolean withinTransaction) throws SQLException {
 
-		final ReadonlyHandle handle = new JdbcReadonlyHandle(con);
+		final ReadonlyHandle handle = new JdbcReadonlyHandle(con, withinTransaction);
 		try {
-			con.setReadOnly(true);
+			if (setReadOnly) {
+				con.setReadOnly(true);
+			}
 			return reader.read(handle);
 		} catch (final Exception e) {
 			e.printStackTrace();
@@ -150,20 +400,26 @@ public class JdbcDriver implements DbDriver {
 		}
 	}
 
-	private static boolean doReadWrite(final Connection con, final DbWriter updater) throws SQLException {
-		final ReadWriteHandle handle = new JdbcReadWriteHandle(con);
+	private static boolean doReadWrite(final Connection con, final DbWriter updater,
+			final List<Runnable> commitActions) throws SQLException {
+		final JdbcReadWriteHandle handle = new JdbcReadWriteHandle(con, commitActions);
 		try {
-			con.setAutoCommit(false);
+			if (con.getAutoCommit()) {
+				con.setAutoCommit(false);
+			}
 			if (updater.readWrite(handle)) {
 				con.commit();
+				handle.runCommitActions();
 				return true;
 			}
 			con.rollback();
+			handle.dropCommitActions();
 			return false;
 
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Exception occurred in the middle of a transaction: {}, {}", e, e.getMessage());
+			handle.dropCommitActions();
 			try {
 				con.rollback();
 			} catch (final Exception ignore) {
@@ -173,14 +429,58 @@ public class JdbcDriver implements DbDriver {
 		}
 	}
 
-	private static boolean doTransact(final Connection con, final DbTransacter transacter) throws SQLException {
-		final TransactionHandle handle = new JdbcTransactionHandle(con);
+	/*
+	 * read-write within a transaction that is managed by an enclosing call. A
+	 * roll-back is to a save-point, so that the work of the enclosing call is not
+	 * lost, and the commit is left to the enclosing call. After-commit actions
+	 * are run when the enclosing transaction commits, even if this part is rolled
+	 * back, as the actions are only evictions from caches
+	 */
+	private static boolean doNestedReadWrite(final Connection con, final DbWriter updater,
+			final List<Runnable> commitActions) throws SQLException {
+		final ReadWriteHandle handle = new JdbcReadWriteHandle(con, commitActions);
+		if (con.getAutoCommit()) {
+			/*
+			 * enclosing transacter is in auto-commit mode. Let us have a transaction of
+			 * our own
+			 */
+			try {
+				con.setAutoCommit(false);
+				return doReadWrite(con, updater, commitActions);
+			} finally {
+				con.setAutoCommit(true);
+			}
+		}
+
+		final Savepoint savepoint = con.setSavepoint();
+		try {
+			if (updater.readWrite(handle)) {
+				con.releaseSavepoint(savepoint);
+				return true;
+			}
+			con.rollback(savepoint);
+			return false;
+		} catch (final Exception e) {
+			logger.error("Exception occurred in the middle of a nested transaction: {}, {}", e, e.getMessage());
+			try {
+				con.rollback(savepoint);
+			} catch (final Exception ignore) {
+				//
+			}
+			throw new SQLException(e.getMessage());
+		}
+	}
+
+	private static boolean doTransact(final Connection con, final DbTransacter transacter,
+			final List<Runnable> commitActions) throws SQLException {
+		final JdbcTransactionHandle handle = new JdbcTransactionHandle(con, commitActions);
 		try {
 			return transacter.transact(handle);
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Exception thrown by a batch processor. {}, {}", e, e.getMessage());
 			final SQLException se = new SQLException(e.getMessage());
+			handle.dropCommitActions();
 			try {
 				con.rollback();
 			} catch (final Exception ignore) {
@@ -190,4 +490,57 @@ public class JdbcDriver implements DbDriver {
 		}
 
 	}
-}
\ No newline at end of file
+
+	private static class Replica {
+		final DbConnectionFactory factory;
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		Replica(final DbConnectionFactory factory) {
+			this.factory = factory;
+		}
+	}
+
+	private static class RequestScope {
+		final String sessionId;
+		/*
+		 * acquired lazily on the first db operation
+		 */
+		Connection con;
+		/*
+		 * number of read-write calls in progress on this connection
+		 */
+		int depth;
+		/*
+		 * after-commit actions of the transaction in progress on this connection
+		 */
+		final List<Runnable> commitActions = new ArrayList<>();
+
+		RequestScope(final String sessionId) {
+			this.sessionId = sessionId;
+		}
+
+		void release() {
+			this.commitActions.clear();
+			if (this.con == null) {
+				return;
+			}
+			try {
+				/*
+				 * end any transaction that is left open by a read operation
+				 */
+				if (this.con.getAutoCommit() == false) {
+					this.con.rollback();
+					this.con.setAutoCommit(true);
+				}
+			} catch (final SQLException e) {
+				logger.error("Error while ending the transaction on a request-scoped connection: {}", e.getMessage());
+			}
+			try {
+				this.con.close();
+			} catch (final SQLException e) {
+				logger.error("Error while closing a request-scoped connection: {}", e.getMessage());
+			}
+			this.con = null;
+		}
+	}
+}
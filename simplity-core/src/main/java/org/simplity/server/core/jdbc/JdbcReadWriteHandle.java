@@ -6,11 +6,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.simplity.server.core.ApplicationError;
 import org.simplity.server.core.data.DataTable;
 import org.simplity.server.core.data.Record;
 import org.simplity.server.core.db.DbUtil;
+import org.simplity.server.core.db.ParamBinder;
 import org.simplity.server.core.db.ReadWriteHandle;
 import org.simplity.server.core.valueschema.ValueType;
 import org.slf4j.Logger;
@@ -23,14 +26,71 @@ import org.slf4j.LoggerFactory;
 public class JdbcReadWriteHandle extends JdbcReadonlyHandle implements ReadWriteHandle {
 	private static final Logger logger = LoggerFactory.getLogger(JdbcReadWriteHandle.class);
 
+	/*
+	 * actions to be run after the transaction is committed. shared by all the
+	 * handles on the same transaction
+	 */
+	private final List<Runnable> commitActions;
+
 	/**
 	 * to be created by DbDriver ONLY
 	 *
 	 * @param con
-	 * @param readOnly
 	 */
 	JdbcReadWriteHandle(final Connection con) {
-		super(con);
+		this(con, new ArrayList<>());
+	}
+
+	/**
+	 * to be created by DbDriver ONLY
+	 *
+	 * @param con
+	 * @param commitActions list to which after-commit actions are added. to be
+	 *                      shared with the other handles on the same transaction
+	 */
+	JdbcReadWriteHandle(final Connection con, final List<Runnable> commitActions) {
+		super(con, true);
+		this.commitActions = commitActions;
+	}
+
+	@Override
+	public void afterCommit(final Runnable action) {
+		boolean autoCommit = false;
+		try {
+			autoCommit = this.con.getAutoCommit();
+		} catch (final SQLException e) {
+			// assume that a transaction is in progress
+		}
+		if (autoCommit) {
+			action.run();
+		} else {
+			this.commitActions.add(action);
+		}
+	}
+
+	/**
+	 * to be called after the transaction is committed
+	 */
+	void runCommitActions() {
+		if (this.commitActions.isEmpty()) {
+			return;
+		}
+		final Runnable[] actions = this.commitActions.toArray(new Runnable[0]);
+		this.commitActions.clear();
+		for (final Runnable action : actions) {
+			try {
+				action.run();
+			} catch (final Exception e) {
+				logger.error("Error while running an after-commit action: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * to be called after the transaction is rolled back
+	 */
+	void dropCommitActions() {
+		this.commitActions.clear();
 	}
 
 	@Override
@@ -44,9 +104,15 @@ public class JdbcReadWriteHandle extends JdbcReadonlyHandle implements ReadWrite
 
 	@Override
 	public int write(final String sql, final Object[] parameterValues, ValueType[] parameterTypes) throws SQLException {
+		return this.write(sql, parameterValues, parameterTypes, null);
+	}
+
+	@Override
+	public int write(final String sql, final Object[] parameterValues, ValueType[] parameterTypes,
+			ParamBinder paramBinder) throws SQLException {
 		logger.info("Write SQL={}\n{}", sql, DbUtil.logParameters(parameterValues, parameterTypes));
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
-			DbUtil.setPsParamValues(ps, parameterValues, parameterTypes);
+			DbUtil.setPsParamValues(ps, parameterValues, parameterTypes, paramBinder);
 			return ps.executeUpdate();
 		}
 	}
@@ -54,9 +120,16 @@ public class JdbcReadWriteHandle extends JdbcReadonlyHandle implements ReadWrite
 	@Override
 	public int insertWithKeyGeneration(final String sql, final Object[] parameterValues, ValueType[] parameterTypes,
 			String generatedColumnName, long[] generatedKeys) throws SQLException {
+		return this.insertWithKeyGeneration(sql, parameterValues, parameterTypes, null, generatedColumnName,
+				generatedKeys);
+	}
+
+	@Override
+	public int insertWithKeyGeneration(final String sql, final Object[] parameterValues, ValueType[] parameterTypes,
+			ParamBinder paramBinder, String generatedColumnName, long[] generatedKeys) throws SQLException {
 		logger.info("Write SQL={}\n{}", sql, DbUtil.logParameters(parameterValues, parameterTypes));
 		try (PreparedStatement ps = this.con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-			DbUtil.setPsParamValues(ps, parameterValues, parameterTypes);
+			DbUtil.setPsParamValues(ps, parameterValues, parameterTypes, paramBinder);
 			final int n = ps.executeUpdate();
 			if (n > 0) {
 				generatedKeys[0] = getGeneratedKey(ps);
@@ -82,10 +155,16 @@ public class JdbcReadWriteHandle extends JdbcReadonlyHandle implements ReadWrite
 	@Override
 	public int writeMany(final String sql, final Object[][] parameterValues, ValueType[] parameterTypes)
 			throws SQLException {
+		return this.writeMany(sql, parameterValues, parameterTypes, null);
+	}
+
+	@Override
+	public int writeMany(final String sql, final Object[][] parameterValues, ValueType[] parameterTypes,
+			ParamBinder paramBinder) throws SQLException {
 		logger.info("Batch Write SQL:{}", sql);
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Object[] row : parameterValues) {
-				DbUtil.setPsParamValues(ps, row, parameterTypes);
+				DbUtil.setPsParamValues(ps, row, parameterTypes, paramBinder);
 				logger.info(DbUtil.logParameters(row, parameterTypes));
 				ps.addBatch();
 			}
@@ -96,10 +175,17 @@ public class JdbcReadWriteHandle extends JdbcReadonlyHandle implements ReadWrite
 	@Override
 	public int insertWithKeyGenerations(final String sql, final Object[][] rowsToInsert, ValueType[] parameterTypes,
 			String generatedColumnName, long[] generatedKeys) throws SQLException {
+		return this.insertWithKeyGenerations(sql, rowsToInsert, parameterTypes, null, generatedColumnName,
+				generatedKeys);
+	}
+
+	@Override
+	public int insertWithKeyGenerations(final String sql, final Object[][] rowsToInsert, ValueType[] parameterTypes,
+			ParamBinder paramBinder, String generatedColumnName, long[] generatedKeys) throws SQLException {
 		logger.info("Batch Write SQL:{}", sql);
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Object[] row : rowsToInsert) {
-				DbUtil.setPsParamValues(ps, row, parameterTypes);
+				DbUtil.setPsParamValues(ps, row, parameterTypes, paramBinder);
 				logger.info(DbUtil.logParameters(row, parameterTypes));
 				ps.addBatch();
 			}
@@ -13,8 +13,10 @@ import java.util.List;
 import org.simplity.server.core.data.DataTable;
 import org.simplity.server.core.data.Record;
 import org.simplity.server.core.db.DbUtil;
+import org.simplity.server.core.db.ParamBinder;
 import org.simplity.server.core.db.ReadonlyHandle;
 import org.simplity.server.core.db.RecordProcessor;
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.db.RowProcessor;
 import org.simplity.server.core.db.SpOutputProcessor;
 import org.simplity.server.core.valueschema.ValueType;
@@ -33,15 +35,32 @@ public class JdbcReadonlyHandle implements ReadonlyHandle {
 
 	@SuppressWarnings("resource")
 	protected final Connection con;
+	private final boolean withinTransaction;
 
 	/**
 	 * to be created by DbDriver ONLY
 	 *
 	 * @param con
-	 * @param readOnly
 	 */
 	JdbcReadonlyHandle(final Connection con) {
+		this(con, false);
+	}
+
+	/**
+	 * to be created by DbDriver ONLY
+	 *
+	 * @param con
+	 * @param withinTransaction true if the connection has writes that are not
+	 *                          yet committed
+	 */
+	JdbcReadonlyHandle(final Connection con, final boolean withinTransaction) {
 		this.con = con;
+		this.withinTransaction = withinTransaction;
+	}
+
+	@Override
+	public boolean isWithinTransaction() {
+		return this.withinTransaction;
 	}
 
 	@Override
@@ -60,6 +79,23 @@ public class JdbcReadonlyHandle implements ReadonlyHandle {
 		}
 	}
 
+	@Override
+	public boolean read(final String sql, final Object[] parameterValues, ValueType[] parameterTypes,
+			final ParamBinder paramBinder, final RowMapper rowMapper, Object[] outputData) throws SQLException {
+
+		logger.info("Read SQL= {}\n{}", sql, DbUtil.logParameters(parameterValues, parameterTypes));
+		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
+			DbUtil.setPsParamValues(ps, parameterValues, parameterTypes, paramBinder);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (!rs.next()) {
+					return false;
+				}
+				rowMapper.mapRow(rs, outputData);
+				return true;
+			}
+		}
+	}
+
 	@Override
 	public boolean readIntoRecord(final String sql, final Record inputRecord, final Record outputRecord)
 			throws SQLException {
@@ -138,11 +174,17 @@ public class JdbcReadonlyHandle implements ReadonlyHandle {
 			}
 
 			ValueType[] types = outputTable.fetchValueTypes();
+			final RowMapper mapper = outputTable.fetchRowMapper();
 			try (ResultSet rs = ps.executeQuery()) {
-				DbUtil.processRowsFromRs(rs, types, row -> {
+				final RowProcessor processor = row -> {
 					outputTable.addRow(row);
 					return true;
-				});
+				};
+				if (mapper == null) {
+					DbUtil.processRowsFromRs(rs, types, processor);
+				} else {
+					DbUtil.processRowsFromRs(rs, types.length, mapper, processor);
+				}
 			}
 		}
 	}
@@ -150,18 +192,31 @@ public class JdbcReadonlyHandle implements ReadonlyHandle {
 	@Override
 	public <T extends Record> void readIntoDataTable(String sql, final Object[] parameterValues,
 			final ValueType[] parameterTypes, DataTable<T> outputTable) throws SQLException {
+		this.readIntoDataTable(sql, parameterValues, parameterTypes, null, outputTable);
+	}
+
+	@Override
+	public <T extends Record> void readIntoDataTable(String sql, final Object[] parameterValues,
+			final ValueType[] parameterTypes, final ParamBinder paramBinder, DataTable<T> outputTable)
+			throws SQLException {
 
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			if (parameterValues != null) {
-				DbUtil.setPsParamValues(ps, parameterValues, parameterTypes);
+				DbUtil.setPsParamValues(ps, parameterValues, parameterTypes, paramBinder);
 			}
 
 			ValueType[] types = outputTable.fetchValueTypes();
+			final RowMapper mapper = outputTable.fetchRowMapper();
 			try (ResultSet rs = ps.executeQuery()) {
-				DbUtil.processRowsFromRs(rs, types, row -> {
+				final RowProcessor processor = row -> {
 					outputTable.addRow(row);
 					return true;
-				});
+				};
+				if (mapper == null) {
+					DbUtil.processRowsFromRs(rs, types, processor);
+				} else {
+					DbUtil.processRowsFromRs(rs, types.length, mapper, processor);
+				}
 			}
 		}
 	}
@@ -182,6 +237,35 @@ public class JdbcReadonlyHandle implements ReadonlyHandle {
 
 	}
 
+	@Override
+	public int readWithRowProcessor(final String sql, final Object[] parameterValues, final ValueType[] parameterTypes,
+			final ValueType[] outputTypes, final int fetchSize, RowProcessor rowProcessor) throws SQLException {
+
+		/*
+		 * some drivers, like that of postgres, fetch rows in batches only within a
+		 * transaction
+		 */
+		final boolean autoCommit = this.con.getAutoCommit();
+		if (autoCommit) {
+			this.con.setAutoCommit(false);
+		}
+		try (PreparedStatement ps = this.con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY)) {
+			ps.setFetchSize(fetchSize);
+			if (parameterValues != null) {
+				DbUtil.setPsParamValues(ps, parameterValues, parameterTypes);
+			}
+
+			try (ResultSet rs = ps.executeQuery()) {
+				return DbUtil.processRowsFromRs(rs, outputTypes, rowProcessor);
+			}
+		} finally {
+			if (autoCommit) {
+				this.con.setAutoCommit(true);
+			}
+		}
+	}
+
 	@Override
 	public <T extends Record> void readWithRecordProcessor(final String sql, final Record inputRecord,
 			T instanceToClone, final RecordProcessor<T> processor) throws SQLException {
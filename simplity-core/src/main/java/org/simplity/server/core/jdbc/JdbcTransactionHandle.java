@@ -3,6 +3,8 @@ package org.simplity.server.core.jdbc;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
 
 import org.simplity.server.core.db.TransactionHandle;
 
@@ -23,19 +25,51 @@ public class JdbcTransactionHandle extends JdbcReadWriteHandle
 		super(con);
 	}
 
+	/**
+	 * @param con
+	 * @param commitActions shared with the other handles on the same connection
+	 */
+	JdbcTransactionHandle(final Connection con, final List<Runnable> commitActions) {
+		super(con, commitActions);
+	}
+
 	@Override
 	public void setAutoCommitMode(final boolean mode) throws SQLException {
+		final boolean wasOff = !this.con.getAutoCommit();
 		this.con.setAutoCommit(mode);
+		if (mode && wasOff) {
+			/*
+			 * switching auto-commit on commits the pending transaction
+			 */
+			this.runCommitActions();
+		}
 	}
 
 	@Override
 	public void commit() throws SQLException {
 		this.con.commit();
+		this.runCommitActions();
 	}
 
 	@Override
 	public void rollback() throws SQLException {
 		this.con.rollback();
+		this.dropCommitActions();
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		return this.con.setSavepoint();
+	}
+
+	@Override
+	public void rollbackToSavepoint(final Savepoint savepoint) throws SQLException {
+		this.con.rollback(savepoint);
+	}
+
+	@Override
+	public void releaseSavepoint(final Savepoint savepoint) throws SQLException {
+		this.con.releaseSavepoint(savepoint);
 	}
 
 }
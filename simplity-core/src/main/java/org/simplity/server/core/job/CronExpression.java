@@ -0,0 +1,184 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.job;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+import org.simplity.server.core.ApplicationError;
+
+/**
+ * A cron expression with the standard five fields: minute hour day-of-month
+ * month day-of-week. Each field may be '*', a number, a range 'a-b', a list
+ * 'a,b,c', or any of these with a step like '*&#47;15' or '10-40/5'.
+ * Day-of-week is 0-7 with both 0 and 7 for Sunday.
+ *
+ * As in the standard cron, if both day-of-month and day-of-week are
+ * restricted, a day that matches either of them is a match.
+ *
+ * Times are matched against the local date-time in the time zone of the given
+ * time. When clocks are set forward, a time that falls in the gap is moved
+ * forward by the length of the gap, and hence a run at such a time is not
+ * missed. When clocks are set back, a local time that is repeated matches only
+ * once.
+ *
+ * @author simplity.org
+ *
+ */
+public class CronExpression {
+	/*
+	 * safety against an expression that never matches, like 30th of February.
+	 * We look ahead at most these many days
+	 */
+	private static final int MAX_DAYS_AHEAD = 366 * 5;
+
+	private final String expression;
+	private final BitSet minutes;
+	private final BitSet hours;
+	private final BitSet days;
+	private final BitSet months;
+	private final BitSet weekDays;
+	private final boolean anyDay;
+	private final boolean anyWeekDay;
+
+	/**
+	 *
+	 * @param expression non-null cron expression with five fields. Throws
+	 *                   ApplicationError if it is not a valid expression
+	 */
+	public CronExpression(final String expression) {
+		this.expression = expression;
+		final String[] fields = expression.trim().split("\\s+");
+		if (fields.length != 5) {
+			throw new ApplicationError(
+					"Cron expression '" + expression + "' is invalid. It should have exactly 5 fields");
+		}
+		this.minutes = parseField(fields[0], 0, 59, expression);
+		this.hours = parseField(fields[1], 0, 23, expression);
+		this.days = parseField(fields[2], 1, 31, expression);
+		this.months = parseField(fields[3], 1, 12, expression);
+		this.weekDays = parseField(fields[4], 0, 7, expression);
+		if (this.weekDays.get(7)) {
+			this.weekDays.set(0);
+		}
+		this.anyDay = fields[2].equals("*");
+		this.anyWeekDay = fields[4].equals("*");
+	}
+
+	/**
+	 *
+	 * @param after
+	 * @return the first time, after the given time, that matches this expression.
+	 *         Seconds and nanos are always zero. Throws ApplicationError if there
+	 *         is no matching time in the next few years
+	 */
+	public ZonedDateTime nextAfter(final ZonedDateTime after) {
+		final LocalDateTime t = this.nextAfter(after.toLocalDateTime());
+		/*
+		 * in an overlap, we stay with the offset of the given time, so that the
+		 * repeated local times are not matched again
+		 */
+		return ZonedDateTime.ofLocal(t, after.getZone(), after.getOffset());
+	}
+
+	private LocalDateTime nextAfter(final LocalDateTime after) {
+		LocalDateTime t = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+		final LocalDateTime limit = t.plusDays(MAX_DAYS_AHEAD);
+
+		while (t.isBefore(limit)) {
+			if (!this.months.get(t.getMonthValue())) {
+				t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+				continue;
+			}
+
+			if (!this.dayMatches(t)) {
+				t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+				continue;
+			}
+
+			if (!this.hours.get(t.getHour())) {
+				t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+				continue;
+			}
+
+			if (!this.minutes.get(t.getMinute())) {
+				t = t.plusMinutes(1);
+				continue;
+			}
+			return t;
+		}
+		throw new ApplicationError("Cron expression '" + this.expression + "' never matches a valid time");
+	}
+
+	private boolean dayMatches(final LocalDateTime t) {
+		final boolean dayOk = this.days.get(t.getDayOfMonth());
+		/*
+		 * java has 1-7 for Monday-Sunday, while cron has 0-6 for Sunday-Saturday
+		 */
+		final boolean weekDayOk = this.weekDays.get(t.getDayOfWeek().getValue() % 7);
+		if (this.anyDay) {
+			return weekDayOk;
+		}
+		if (this.anyWeekDay) {
+			return dayOk;
+		}
+		return dayOk || weekDayOk;
+	}
+
+	private static BitSet parseField(final String field, final int min, final int max, final String expression) {
+		final BitSet bits = new BitSet(max + 1);
+		for (final String part : field.split(",")) {
+			String range = part;
+			int step = 1;
+			final int idx = part.indexOf('/');
+			if (idx != -1) {
+				range = part.substring(0, idx);
+				step = parseNumber(part.substring(idx + 1), 1, max, expression);
+			}
+
+			int from;
+			int to;
+			if (range.equals("*")) {
+				from = min;
+				to = max;
+			} else {
+				final int dash = range.indexOf('-');
+				if (dash == -1) {
+					from = parseNumber(range, min, max, expression);
+					to = idx == -1 ? from : max;
+				} else {
+					from = parseNumber(range.substring(0, dash), min, max, expression);
+					to = parseNumber(range.substring(dash + 1), min, max, expression);
+				}
+			}
+
+			if (from > to) {
+				throw new ApplicationError("Cron expression '" + expression + "' has an invalid range " + part);
+			}
+			for (int i = from; i <= to; i += step) {
+				bits.set(i);
+			}
+		}
+		return bits;
+	}
+
+	private static int parseNumber(final String text, final int min, final int max, final String expression) {
+		final int n;
+		try {
+			n = Integer.parseInt(text);
+		} catch (final NumberFormatException e) {
+			throw new ApplicationError("Cron expression '" + expression + "' has an invalid number " + text);
+		}
+		if (n < min || n > max) {
+			throw new ApplicationError("Cron expression '" + expression + "' has " + n
+					+ " that is outside the range " + min + "-" + max);
+		}
+		return n;
+	}
+
+	@Override
+	public String toString() {
+		return this.expression;
+	}
+}
@@ -22,6 +22,20 @@ public interface JobHandle {
 	 */
 	JobStatus getStatus();
 
+	/**
+	 *
+	 * @return progress reported by the job. Can be polled while the job is
+	 *         running
+	 */
+	JobProgressReporter getProgress();
+
+	/**
+	 *
+	 * @return id of the user who submitted this job. 0 if it was submitted
+	 *         without a user session
+	 */
+	long getUserId();
+
 	/**
 	 * cancel the job if it is still waiting. Optionally try to abort it if it
 	 * is running
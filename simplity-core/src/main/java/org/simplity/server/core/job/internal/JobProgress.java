@@ -5,14 +5,18 @@ import org.simplity.server.core.job.JobProgressRecorder;
 import org.simplity.server.core.job.JobProgressReporter;
 
 /**
+ * progress of a job. It is recorded by the thread running the job, and is read
+ * by other threads that poll for the status. Fields are volatile so that the
+ * latest values are always visible to the readers.
+ *
  * @author simplity.org
  *
  */
 public class JobProgress implements JobProgressRecorder, JobProgressReporter {
 
-	private int percent;
-	private long count;
-	private String info = "";
+	private volatile int percent;
+	private volatile long count;
+	private volatile String info = "";
 
 	@Override
 	public int getPercentageCompleted() {
@@ -1,25 +1,83 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.job.internal;
 
+import java.io.StringReader;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.DefaultUserContext;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.job.JobHandle;
 import org.simplity.server.core.service.AbstractService;
 import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.Service;
 import org.simplity.server.core.service.ServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Class that serves a service as a job
+ * Class that serves a service as a job. The service is submitted to the
+ * JobManager, and the response has just the jobId. The client uses the jobId
+ * to get the status, and eventually the response, of the job.
  *
  * @author simplity.org
  *
  */
 public class ServiceAsJob extends AbstractService {
+	protected static final Logger logger = LoggerFactory.getLogger(ServiceAsJob.class);
+	private static final int DEFAULT_PRIORITY = 0;
+
+	private final Service service;
+
+	/**
+	 *
+	 * @param service to be run as a job
+	 */
+	public ServiceAsJob(final Service service) {
+		super(service.getId());
+		this.service = service;
+	}
 
 	@Override
 	public void serve(final ServiceContext ctx, final InputData inputObject)
 			throws Exception {
-		/**
-		 * TODO: implement this method
-		 */
-		// final String uid = UUID.randomUUID().toString();
+		final DefaultUserContext utx = ctx.hasUserContext() ? ctx.getCurrentUserContext() : null;
+		final JobHandle job;
+		try {
+			job = ctx.getApp().getJobManager().newJob(new StringReader(inputObject.toString()), this.serviceName,
+					utx, DEFAULT_PRIORITY);
+		} catch (final ApplicationError e) {
+			logger.error("Service {} could not be submitted as a job: {}", this.serviceName, e.getMessage());
+			ctx.addMessage(Message.newError(Conventions.MessageId.JOB_NOT_ACCEPTED));
+			return;
+		}
+
+		if (job == null) {
+			logger.error("Job Manager did not accept service {} as a job", this.serviceName);
+			ctx.addMessage(Message.newError(Conventions.MessageId.JOB_NOT_ACCEPTED));
+			return;
+		}
+
+		final String jobId = job.getId();
+		if (utx != null) {
+			utx.addJob(jobId);
+		}
+		ctx.getOutputData().addName(Conventions.Request.TAG_JOB_ID).addValue(jobId);
+	}
+
+	@Override
+	public boolean serveGuests() {
+		return this.service.serveGuests();
+	}
+
+	@Override
+	public boolean isAbortable() {
+		return this.service.isAbortable();
+	}
+
+	@Override
+	public boolean isAsynch() {
+		return true;
 	}
 
 }
@@ -0,0 +1,347 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.job.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.DefaultUserContext;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.infra.ServiceContextFactory;
+import org.simplity.server.core.infra.TempFileManager;
+import org.simplity.server.core.jdbc.JdbcDriver;
+import org.simplity.server.core.job.JobHandle;
+import org.simplity.server.core.job.JobProgressReporter;
+import org.simplity.server.core.job.JobStatus;
+import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.OutputData;
+import org.simplity.server.core.service.Service;
+import org.simplity.server.core.service.ServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A service that is run as a background job. Input is retained as text till
+ * the job is run. Output of the job is streamed to a temp file of the temp
+ * file manager as it is produced, and is retained till it is written out, or
+ * the job is cleaned-up.
+ *
+ * Output is of the form {data: {...}, allOk: true/false, messages: [...]}
+ *
+ * @author simplity.org
+ *
+ */
+public class ServiceJob implements JobHandle, Runnable, Comparable<ServiceJob> {
+	protected static final Logger logger = LoggerFactory.getLogger(ServiceJob.class);
+
+	private static final String TAG_DATA = "data";
+	private static final String TAG_ALL_OK = "allOk";
+	private static final String TAG_MESSAGES = "messages";
+	private static final String FILE_PREFIX = "job-";
+
+	private final String id;
+	private final Service service;
+	private final String input;
+	private final DefaultUserContext utx;
+	private final long userId;
+	private final ServiceContextFactory contextFactory;
+	private final TempFileManager fileManager;
+	private final int priority;
+	private final long seqNo;
+	private final JobProgress progress = new JobProgress();
+	private final AtomicReference<JobStatus> status = new AtomicReference<>(JobStatus.Waiting);
+	/*
+	 * manager is notified of every change in the status
+	 */
+	private final Consumer<ServiceJob> statusListener;
+
+	private volatile Thread runner;
+	private volatile boolean abortRequested;
+	/*
+	 * name of the output in the temp file manager. null if there is no output
+	 */
+	private volatile String outputName;
+	private volatile long finishedAt;
+
+	/**
+	 *
+	 * @param id             unique id of this job
+	 * @param service        to be run
+	 * @param reader         from which the input data for the service is read
+	 * @param utx            user context, null if the job is run without a
+	 *                       user session
+	 * @param userId         id of the user who submitted the job. 0 if it is
+	 *                       submitted without a user session
+	 * @param contextFactory to create the service context for running the
+	 *                       service
+	 * @param fileManager    to which the output of the job is saved
+	 * @param priority       higher priority jobs are run ahead of lower
+	 *                       priority ones
+	 * @param seqNo          sequence number that determines the order of jobs
+	 *                       with the same priority
+	 * @param statusListener called whenever the status of the job changes
+	 * @throws IOException in case of error while reading the input
+	 */
+	public ServiceJob(final String id, final Service service, final Reader reader, final DefaultUserContext utx,
+			final long userId, final ServiceContextFactory contextFactory, final TempFileManager fileManager,
+			final int priority, final long seqNo, final Consumer<ServiceJob> statusListener) throws IOException {
+		this.id = id;
+		this.service = service;
+		this.utx = utx;
+		this.userId = userId;
+		this.contextFactory = contextFactory;
+		this.fileManager = fileManager;
+		this.priority = priority;
+		this.seqNo = seqNo;
+		this.statusListener = statusListener;
+
+		final StringWriter sw = new StringWriter();
+		reader.transferTo(sw);
+		this.input = sw.toString();
+	}
+
+	@Override
+	public String getId() {
+		return this.id;
+	}
+
+	@Override
+	public JobStatus getStatus() {
+		return this.status.get();
+	}
+
+	@Override
+	public JobProgressReporter getProgress() {
+		return this.progress;
+	}
+
+	@Override
+	public long getUserId() {
+		return this.userId;
+	}
+
+	/**
+	 *
+	 * @return user context with which the job is run. null if it is run without
+	 *         a user session
+	 */
+	public DefaultUserContext getUserContext() {
+		return this.utx;
+	}
+
+	/**
+	 *
+	 * @return name of the service that this job runs
+	 */
+	public String getServiceName() {
+		return this.service.getId();
+	}
+
+	/**
+	 *
+	 * @return input data for the service as json text
+	 */
+	public String getInput() {
+		return this.input;
+	}
+
+	/**
+	 *
+	 * @return epoch millis at which the job was completed/failed/cancelled. 0 if it
+	 *         is not yet done
+	 */
+	public long getFinishedAt() {
+		return this.finishedAt;
+	}
+
+	/**
+	 *
+	 * @return true if the job is done, and its status will not change any more
+	 */
+	public boolean isDone() {
+		final JobStatus s = this.status.get();
+		return s != JobStatus.Waiting && s != JobStatus.Running;
+	}
+
+	@Override
+	public boolean cancelJob(final boolean abortIfRunning) {
+		if (this.status.compareAndSet(JobStatus.Waiting, JobStatus.Cancelled)) {
+			this.finished();
+			return true;
+		}
+
+		if (!abortIfRunning || !this.service.isAbortable() || this.status.get() != JobStatus.Running) {
+			return false;
+		}
+
+		this.abortRequested = true;
+		final Thread t = this.runner;
+		if (t != null) {
+			t.interrupt();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean writeOutput(final Writer writer) {
+		if (!this.copyOutput(writer)) {
+			return false;
+		}
+		this.removeOutput();
+		return true;
+	}
+
+	@Override
+	public boolean copyOutput(final Writer writer) {
+		final String name = this.outputName;
+		if (name == null) {
+			return false;
+		}
+		final boolean[] copied = { false };
+		final boolean read = this.fileManager.readFile(name, reader -> {
+			try {
+				reader.transferTo(writer);
+				copied[0] = true;
+			} catch (final IOException e) {
+				logger.error("Error while copying output of job {}: {}", this.id, e.getMessage());
+			}
+		}, false);
+		return read && copied[0];
+	}
+
+	/**
+	 * remove the spooled output, if any
+	 */
+	public void removeOutput() {
+		final String name = this.outputName;
+		this.outputName = null;
+		if (name != null) {
+			this.fileManager.removeFile(name);
+		}
+	}
+
+	@Override
+	public void run() {
+		this.start();
+	}
+
+	@Override
+	public boolean start() {
+		if (!this.status.compareAndSet(JobStatus.Waiting, JobStatus.Running)) {
+			return false;
+		}
+		this.runner = Thread.currentThread();
+		this.statusListener.accept(this);
+
+		JobStatus finalStatus = JobStatus.Failed;
+		try {
+			finalStatus = this.serve();
+		} catch (final Exception | Error e) {
+			logger.error("Job {} for service {} failed with an exception: {}", this.id, this.service.getId(),
+					e.getMessage());
+			this.progress.getMessage(e.getMessage());
+		} finally {
+			this.runner = null;
+			/*
+			 * clear the interrupt, if any, so that the pool thread is not affected
+			 */
+			Thread.interrupted();
+		}
+
+		if (this.abortRequested) {
+			finalStatus = JobStatus.Cancelled;
+		}
+		this.status.set(finalStatus);
+		this.finished();
+		return true;
+	}
+
+	private JobStatus serve() throws Exception {
+		final String name = FILE_PREFIX + this.id;
+		final boolean[] allOk = { false };
+		final Exception[] error = { null };
+		final boolean saved = this.fileManager.newFile(name, writer -> {
+			try {
+				allOk[0] = this.produceOutput(writer);
+				return true;
+			} catch (final Exception e) {
+				error[0] = e;
+				return false;
+			}
+		});
+		if (error[0] != null) {
+			throw error[0];
+		}
+		if (!saved) {
+			throw new IOException("Output of the job could not be saved");
+		}
+		this.outputName = name;
+
+		if (this.progress.getMessage().isEmpty()) {
+			this.progress.getMessage(allOk[0] ? "completed" : "completed with errors");
+		}
+		return JobStatus.Completed;
+	}
+
+	/*
+	 * run the service, with its output written to the writer as it is produced
+	 */
+	private boolean produceOutput(final Writer writer) throws Exception {
+		final OutputData outData = JsonUtil.newOutputData(writer);
+		outData.beginObject();
+
+		final ServiceContext ctx;
+		if (this.utx == null) {
+			ctx = this.contextFactory.newSessionLessContext(outData);
+		} else {
+			ctx = this.contextFactory.newContext(this.utx, outData);
+		}
+		ctx.setValue(Conventions.App.JOB_PROGRESS_IN_CTX, this.progress);
+
+		final InputData inData = JsonUtil.newInputData(new StringReader(this.input));
+
+		outData.addName(TAG_DATA).beginObject();
+		JdbcDriver.beginRequest(null);
+		try {
+			this.service.serve(ctx, inData);
+		} finally {
+			JdbcDriver.endRequest();
+		}
+		outData.endObject();
+
+		final boolean allOk = ctx.allOk();
+		outData.addName(TAG_ALL_OK).addValue(allOk);
+		final Message[] messages = ctx.getMessages();
+		if (messages != null && messages.length > 0) {
+			outData.addName(TAG_MESSAGES).beginArray();
+			for (final Message msg : messages) {
+				msg.toOutputData(outData);
+			}
+			outData.endArray();
+		}
+		outData.endObject();
+		return allOk;
+	}
+
+	private void finished() {
+		this.finishedAt = System.currentTimeMillis();
+		this.statusListener.accept(this);
+	}
+
+	@Override
+	public int compareTo(final ServiceJob other) {
+		/*
+		 * higher priority first, and then first-come-first-served
+		 */
+		if (this.priority != other.priority) {
+			return this.priority > other.priority ? -1 : 1;
+		}
+		return Long.compare(this.seqNo, other.seqNo);
+	}
+}
@@ -1,7 +1,7 @@
 package org.simplity.server.core.json;
 
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.Writer;
 
 import org.simplity.server.core.IoUtil;
 import org.simplity.server.core.json.gson.GsonAdapter;
@@ -79,10 +79,10 @@ public class JsonUtil {
 	/**
 	 * Create an OutputData on this stream
 	 *
-	 * @param writer
+	 * @param writer to which the json is written to. it is not closed or flushed
 	 * @return non-null IOutputData instance
 	 */
-	public static OutputData newOutputData(StringWriter writer) {
+	public static OutputData newOutputData(Writer writer) {
 		return new GsonOutputData(writer);
 
 	}
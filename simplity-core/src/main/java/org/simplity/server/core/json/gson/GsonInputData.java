@@ -3,12 +3,14 @@ package org.simplity.server.core.json.gson;
 import java.io.Reader;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Map;
 import java.util.Set;
 
 import org.simplity.server.core.ApplicationError;
 import org.simplity.server.core.json.JsonException;
 import org.simplity.server.core.service.InputArray;
 import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.MemberVisitor;
 import org.simplity.server.core.service.NullableValue;
 
 import com.google.gson.JsonArray;
@@ -193,6 +195,47 @@ public class GsonInputData implements InputData {
 		return this.json.keySet();
 	}
 
+	@Override
+	public void visitMembers(final MemberVisitor visitor) {
+		for (final Map.Entry<String, JsonElement> entry : this.json.entrySet()) {
+			visitor.visit(entry.getKey(), toMemberValue(entry.getValue()));
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	private static Object toMemberValue(final JsonElement ele) {
+		if (ele == null || ele.isJsonNull()) {
+			return null;
+		}
+		if (ele.isJsonObject()) {
+			return new GsonInputData(ele.getAsJsonObject());
+		}
+		if (ele.isJsonArray()) {
+			return new GsonInputArray(ele.getAsJsonArray());
+		}
+
+		final JsonPrimitive p = ele.getAsJsonPrimitive();
+		if (p.isBoolean()) {
+			return p.getAsBoolean();
+		}
+		if (p.isString()) {
+			return p.getAsString();
+		}
+		/*
+		 * number: Gson keeps the text as received, and parses it lazily
+		 */
+		final Number n = p.getAsNumber();
+		final String s = n.toString();
+		if (s.indexOf('.') == -1 && s.indexOf('e') == -1 && s.indexOf('E') == -1) {
+			try {
+				return Long.parseLong(s);
+			} catch (final NumberFormatException e) {
+				// too large for a long
+			}
+		}
+		return n;
+	}
+
 	@Override
 	public NullableValue getValue(String memberName) {
 		JsonElement ele = this.json.get(memberName);
@@ -2,7 +2,7 @@
 package org.simplity.server.core.json.gson;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -25,9 +25,10 @@ public class GsonOutputData implements OutputData {
 
 	/**
 	 *
-	 * @param sw underlying string writer to which output json is written to
+	 * @param sw underlying writer to which output json is written to. It is
+	 *           not closed or flushed by this class
 	 */
-	public GsonOutputData(final StringWriter sw) {
+	public GsonOutputData(final Writer sw) {
 		this.writer = new JsonWriter(sw);
 	}
 
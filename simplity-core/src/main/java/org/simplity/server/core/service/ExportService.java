@@ -0,0 +1,104 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.service;
+
+import java.util.UUID;
+
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.app.AppManager;
+import org.simplity.server.core.data.DbRecord;
+import org.simplity.server.core.data.Form;
+import org.simplity.server.core.infra.CompProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Internal service that exports the rows of a form/record, filtered as per the
+ * same filter parameters as for the filter operation, as a csv file. The file
+ * name is returned in the response, and the client downloads the file with an
+ * http GET. The file name has the id of the exporting user, so that the file is
+ * handed over to that user only.
+ *
+ * @author simplity.org
+ *
+ */
+public class ExportService extends AbstractService {
+	private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+	private static final ExportService instance = new ExportService();
+
+	/**
+	 *
+	 * @return non-null instance
+	 */
+	public static ExportService getInstance() {
+		return instance;
+	}
+
+	/**
+	 *
+	 * @param userId id of the user who is exporting the rows. 0 for a guest
+	 * @return a new, unique, name for the export file of this user
+	 */
+	public static String newFileName(final long userId) {
+		return Conventions.App.EXPORT_FILE_PREFIX + userId + '-' + UUID.randomUUID().toString();
+	}
+
+	/**
+	 *
+	 * @param fileName name of an export file
+	 * @return id of the user who exported the file, 0 if it was exported by a
+	 *         guest, and -1 if this is not the name of an export file
+	 */
+	public static long getFileOwner(final String fileName) {
+		final int start = Conventions.App.EXPORT_FILE_PREFIX.length();
+		if (fileName == null || !fileName.startsWith(Conventions.App.EXPORT_FILE_PREFIX)) {
+			return -1;
+		}
+		final int end = fileName.indexOf('-', start);
+		if (end == -1) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(fileName.substring(start, end));
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private ExportService() {
+		super(Conventions.App.SERVICE_EXPORT);
+	}
+
+	@Override
+	public void serve(final ServiceContext ctx, final InputData payload) throws Exception {
+		final String formName = payload.getString(Conventions.Request.TAG_FORM_NAME);
+		final InputData inputData = payload.getData(Conventions.Request.TAG_FORM_DATA);
+
+		final ServiceWorker worker = getWorker(formName, ctx);
+		if (worker == null) {
+			ctx.addMessage(Message.newError(Conventions.MessageId.INVALID_DATA));
+			return;
+		}
+		worker.serve(ctx, inputData);
+	}
+
+	private static ServiceWorker getWorker(final String formName, final ServiceContext ctx) {
+		if (formName == null || formName.isEmpty()) {
+			return null;
+		}
+
+		final CompProvider cp = AppManager.getApp().getCompProvider();
+		final Form<?> form = cp.getForm(formName, ctx);
+		if (form != null) {
+			return form.getExportWorker();
+		}
+
+		final org.simplity.server.core.data.Record record = cp.getRecord(formName, ctx);
+		if (record != null && record instanceof DbRecord) {
+			return ((DbRecord) record).getExportWorker();
+		}
+
+		logger.error("{} is not a form or DbRecord and hence it can not be exported", formName);
+		return null;
+	}
+}
@@ -0,0 +1,89 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.service;
+
+import java.io.StringWriter;
+
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.job.JobHandle;
+import org.simplity.server.core.job.JobProgressReporter;
+import org.simplity.server.core.job.JobStatus;
+
+/**
+ * returns the status, progress, and eventually the response, of a job that was
+ * submitted earlier. The response is delivered only once, after which the job
+ * is forgotten by the user context. The client may request cancellation of the
+ * job instead.
+ *
+ * @author simplity.org
+ *
+ */
+public class GetJobResponse extends AbstractService {
+	private static final String SERVICE_NAME = Conventions.App.SERVICE_GET_RESPONSE;
+	private static final String JOB_ID = Conventions.Request.TAG_JOB_ID;
+	private static final GetJobResponse instance = new GetJobResponse();
+
+	/**
+	 *
+	 * @return non-null instance
+	 */
+	public static Service getInstance() {
+		/**
+		 * our instance is immutable. Hence a single instance will do.
+		 */
+		return instance;
+	}
+
+	private GetJobResponse() {
+		super(SERVICE_NAME);
+	}
+
+	@Override
+	public void serve(final ServiceContext ctx, final InputData payload) throws Exception {
+		final String jobId = payload.getString(JOB_ID);
+		if (jobId == null || jobId.isEmpty()) {
+			ctx.addMessage(Message.newError(Conventions.MessageId.JOB_ID_REQUIRED));
+			return;
+		}
+
+		final JobHandle job = ctx.getApp().getJobManager().getJob(jobId);
+		/*
+		 * jobs are visible only to the user who submitted them
+		 */
+		final long userId = ctx.hasUserContext() ? ctx.getCurrentUserContext().getUserId() : 0;
+		if (job == null || job.getUserId() != userId) {
+			ctx.addMessage(Message.newError(Conventions.MessageId.NO_SUCH_JOB));
+			return;
+		}
+
+		if (payload.getBoolean(Conventions.Request.TAG_CANCEL_JOB)) {
+			job.cancelJob(true);
+		}
+
+		final JobStatus status = job.getStatus();
+		final JobProgressReporter progress = job.getProgress();
+		final OutputData outData = ctx.getOutputData();
+		outData.addName(JOB_ID).addValue(jobId);
+		outData.addName(Conventions.Request.TAG_JOB_STATUS).addValue(status.name());
+		outData.addName(Conventions.Request.TAG_JOB_PERCENT).addValue(progress.getPercentageCompleted());
+		outData.addName(Conventions.Request.TAG_JOB_COUNT).addValue(progress.getProgressCount());
+		outData.addName(Conventions.Request.TAG_JOB_MESSAGE).addValue(progress.getMessage());
+
+		if (status == JobStatus.Waiting || status == JobStatus.Running) {
+			return;
+		}
+
+		final StringWriter writer = new StringWriter();
+		if (job.writeOutput(writer)) {
+			outData.addName(Conventions.Request.TAG_JOB_RESPONSE).addStringAsJson(writer.toString());
+		}
+		if (ctx.hasUserContext()) {
+			ctx.getCurrentUserContext().removeJob(jobId);
+		}
+	}
+
+	@Override
+	public boolean serveGuests() {
+		return true;
+	}
+}
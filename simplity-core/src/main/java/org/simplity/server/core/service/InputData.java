@@ -86,6 +86,16 @@ public interface InputData {
 	 */
 	Set<String> getMemberNames();
 
+	/**
+	 * visit all the members of this object, in the order in which they are
+	 * received. Primitive values are passed as they are received, without
+	 * converting them to text. This is cheaper than looking up each member by
+	 * its name when all the members are to be processed.
+	 *
+	 * @param visitor called for each member
+	 */
+	void visitMembers(MemberVisitor visitor);
+
 	/**
 	 * to be used carefully. This alters the inputData.
 	 *
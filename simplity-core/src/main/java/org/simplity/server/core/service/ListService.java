@@ -6,6 +6,7 @@ import java.util.Map;
 import org.simplity.server.core.Conventions;
 import org.simplity.server.core.Message;
 import org.simplity.server.core.app.AppManager;
+import org.simplity.server.core.validn.RenderedList;
 import org.simplity.server.core.validn.ValueList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,11 +25,12 @@ public class ListService extends AbstractService {
 	private static final String INPUT_LIST = Conventions.Request.TAG_LIST;
 	private static final String INPUT_KEY = Conventions.Request.TAG_KEY;
 	private static final String INPUT_ALL_KEYS = Conventions.Request.TAG_ALL_KEYS;
+	private static final String INPUT_VERSION = Conventions.Request.TAG_LIST_VERSION;
 
 	private static final String OUTPUT_LIST = Conventions.Request.TAG_LIST;
 	private static final String OUTPUT_LISTS = Conventions.Request.TAG_LISTS;
-	private static final String OUTPUT_VALUE = Conventions.Request.TAG_LIST_ENTRY_VALUE;
-	private static final String OUTPUT_LABEL = Conventions.Request.TAG_LIST_ENTRY_LABEL;
+	private static final String OUTPUT_VERSION = Conventions.Request.TAG_LIST_VERSION;
+	private static final String OUTPUT_NOT_MODIFIED = Conventions.Request.TAG_NOT_MODIFIED;
 
 	/**
 	 *
@@ -69,10 +71,16 @@ public class ListService extends AbstractService {
 			}
 		}
 
+		final String version = payload.getString(INPUT_VERSION);
 		String key = null;
 		if (list.isKeyBased()) {
 			boolean forAllKeys = payload.getBoolean(INPUT_ALL_KEYS);
 			if (forAllKeys) {
+				final RenderedList rendered = list.getRenderedLists(ctx);
+				if (rendered != null) {
+					writeOut(ctx.getOutputData(), OUTPUT_LISTS, rendered, version);
+					return;
+				}
 				Map<String, Object[][]> allLists = list.getAllLists(ctx);
 				writeOut(ctx.getOutputData(), allLists);
 				return;
@@ -85,6 +93,12 @@ public class ListService extends AbstractService {
 			}
 		}
 
+		final RenderedList rendered = list.getRenderedList(key, ctx);
+		if (rendered != null) {
+			writeOut(ctx.getOutputData(), OUTPUT_LIST, rendered, version);
+			return;
+		}
+
 		Object[][] result = list.getList(key, ctx);
 		if (result == null) {
 			reportError(ctx, Conventions.MessageId.INTERNAL_ERROR);
@@ -109,20 +123,22 @@ public class ListService extends AbstractService {
 		data.endObject();
 	}
 
-	private static void emitRows(final OutputData data, final Object[][] rows) {
-		data.beginArray();
-		for (final Object[] row : rows) {
-			data.beginObject();
-
-			data.addName(OUTPUT_VALUE);
-			data.addPrimitive(row[0]);
-
-			data.addName(OUTPUT_LABEL);
-			data.addValue(row[1].toString());
-
-			data.endObject();
+	/*
+	 * splice the pre-rendered json, unless the client already has this version
+	 */
+	private static void writeOut(final OutputData data, final String memberName, final RenderedList rendered,
+			final String clientVersion) {
+		final String version = rendered.getVersion();
+		data.addName(OUTPUT_VERSION).addValue(version);
+		if (version.equals(clientVersion)) {
+			data.addName(OUTPUT_NOT_MODIFIED).addValue(true);
+			return;
 		}
-		data.endArray();
+		data.addName(memberName).addStringAsJson(rendered.getJson());
+	}
+
+	private static void emitRows(final OutputData data, final Object[][] rows) {
+		RenderedList.writeRows(data, rows);
 	}
 
 	@Override
@@ -0,0 +1,22 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.service;
+
+/**
+ * lambda function that is called for each member of an input object, with its
+ * value as received, without having to look up the member by its name
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface MemberVisitor {
+	/**
+	 *
+	 * @param name  member name
+	 * @param value null if the value is null. Boolean, Long (for an integral
+	 *              number), Number (for any other number, with its toString()
+	 *              returning the text as received), String, InputData or
+	 *              InputArray otherwise
+	 */
+	void visit(String name, Object value);
+}
@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.service;
+
+import java.io.StringWriter;
+
+import org.simplity.server.core.Message;
+import org.simplity.server.core.json.JsonUtil;
+
+/**
+ * context in which the rows of a request are processed one at a time, possibly
+ * on a thread other than that of the request. It has the user context, tenant
+ * and user of the request, but not the values set in its context. Messages are
+ * taken out after each row, so that they can be reported against that row, and
+ * are not accumulated across rows.
+ *
+ * @author simplity.org
+ *
+ */
+public class RowContext extends DefaultServiceContext {
+	private final Object tenantId;
+	private final Object userIdOfRequest;
+
+	/**
+	 *
+	 * @param mainCtx context of the request
+	 */
+	public RowContext(final ServiceContext mainCtx) {
+		super(mainCtx.hasUserContext() ? mainCtx.getCurrentUserContext() : null,
+				JsonUtil.newOutputData(new StringWriter()));
+		this.tenantId = mainCtx.getTenantId();
+		this.userIdOfRequest = mainCtx.hasUserContext() ? mainCtx.getUserId() : null;
+	}
+
+	@Override
+	public Object getTenantId() {
+		return this.tenantId;
+	}
+
+	@Override
+	public Object getUserId() {
+		if (this.userIdOfRequest == null) {
+			return super.getUserId();
+		}
+		return this.userIdOfRequest;
+	}
+
+	/**
+	 *
+	 * @return messages added since the last call. null if there are none
+	 */
+	public Message[] takeMessages() {
+		if (this.messages.isEmpty()) {
+			return null;
+		}
+		final Message[] msgs = this.messages.toArray(new Message[0]);
+		this.messages.clear();
+		this.nbrErrors = 0;
+		return msgs;
+	}
+}
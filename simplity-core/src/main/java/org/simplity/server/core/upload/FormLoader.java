@@ -2,11 +2,15 @@
 package org.simplity.server.core.upload;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.simplity.server.core.Message;
 import org.simplity.server.core.data.DbRecord;
+import org.simplity.server.core.data.DbTable;
 import org.simplity.server.core.db.TransactionHandle;
+import org.simplity.server.core.service.RowContext;
 import org.simplity.server.core.service.ServiceContext;
 
 /**
@@ -26,6 +30,17 @@ class FormLoader {
 	 */
 	private final InputValueProvider[] valueProviders;
 
+	/**
+	 * compiled form of the value providers that are numeric functions. null for
+	 * the others
+	 */
+	private final NumericExpression[] expressions;
+	private final boolean hasExpressions;
+	/**
+	 * values of the expressions for the rows of the batch being prepared
+	 */
+	private final double[][] batchValues;
+
 	private final int keyIdx;
 
 	/**
@@ -43,6 +58,17 @@ class FormLoader {
 		this.record = record;
 		this.generatedKeyOutputName = generatedKeyOutputName;
 		this.valueProviders = valueProviders;
+		this.expressions = new NumericExpression[valueProviders.length];
+		boolean found = false;
+		for (int i = 0; i < valueProviders.length; i++) {
+			final NumericExpression exp = NumericExpression.compile(valueProviders[i]);
+			if (exp != null) {
+				this.expressions[i] = exp;
+				found = true;
+			}
+		}
+		this.hasExpressions = found;
+		this.batchValues = new double[valueProviders.length][0];
 		if (this.generatedKeyOutputName == null) {
 			this.keyIdx = -1;
 		} else {
@@ -50,6 +76,74 @@ class FormLoader {
 		}
 	}
 
+	/**
+	 *
+	 * @return a copy that can be used concurrently with this loader
+	 */
+	FormLoader newCopy() {
+		return new FormLoader(this.record.newInstance(), this.generatedKeyOutputName, this.valueProviders);
+	}
+
+	/**
+	 * add names of all the variables used by the value providers of this form
+	 *
+	 * @param names
+	 */
+	void addVariableNames(final Set<String> names) {
+		for (final InputValueProvider vp : this.valueProviders) {
+			addVariableNames(vp, names);
+		}
+	}
+
+	private static void addVariableNames(final InputValueProvider vp, final Set<String> names) {
+		if (vp instanceof VariableValueProvider) {
+			final String name = ((VariableValueProvider) vp).getVariable();
+			if (name != null) {
+				names.add(name);
+			}
+		} else if (vp instanceof LookupValueProvider) {
+			final LookupValueProvider lvp = (LookupValueProvider) vp;
+			addVariableNames(lvp.getTextValue(), names);
+			addVariableNames(lvp.getKeyValue(), names);
+		} else if (vp instanceof FunctionValueProvider) {
+			final InputValueProvider[] params = ((FunctionValueProvider) vp).params;
+			if (params != null) {
+				for (final InputValueProvider p : params) {
+					addVariableNames(p, names);
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the key generated by this form is used by other forms
+	 */
+	boolean generatesKey() {
+		return this.generatedKeyOutputName != null;
+	}
+
+	/**
+	 * parse the values into a data row for this form
+	 *
+	 * @param values
+	 * @param ctx    errors, if any, are added to this.
+	 * @return data row for the form. null in case of any error
+	 */
+	Object[] prepareRow(final Map<String, String> values, final ServiceContext ctx) {
+		return this.prepareRow(values, ctx, -1);
+	}
+
+	private Object[] prepareRow(final Map<String, String> values, final ServiceContext ctx, final int batchIdx) {
+		if (!this.parseInput(values, ctx, batchIdx)) {
+			return null;
+		}
+		/*
+		 * record is re-used for every row, hence we need a copy of its data
+		 */
+		return this.record.fetchRawData().clone();
+	}
+
 	/**
 	 * validate data
 	 *
@@ -60,17 +154,32 @@ class FormLoader {
 	 *         errors
 	 */
 	boolean validate(final Map<String, String> values, final ServiceContext ctx) {
-		return this.parseInput(values, ctx);
+		return this.parseInput(values, ctx, -1);
 
 	}
 
-	private boolean parseInput(final Map<String, String> values, final ServiceContext ctx) {
-		int idx = -1;
-		for (final InputValueProvider vp : this.valueProviders) {
-			idx++;
-			if (vp != null) {
-				this.record.assignValue(idx, vp.getValue(values, ctx));
+	/*
+	 * batchIdx is the index of the row in the batch whose expressions are already
+	 * evaluated. -1 if the expressions are to be evaluated for this row
+	 */
+	private boolean parseInput(final Map<String, String> values, final ServiceContext ctx, final int batchIdx) {
+		for (int idx = 0; idx < this.valueProviders.length; idx++) {
+			final InputValueProvider vp = this.valueProviders[idx];
+			if (vp == null) {
+				continue;
 			}
+			final NumericExpression exp = this.expressions[idx];
+			if (exp != null) {
+				final double d = batchIdx == -1 ? exp.evaluate(values) : this.batchValues[idx][batchIdx];
+				if (!Double.isNaN(d)) {
+					this.record.assignValue(idx, Double.toString(d));
+					continue;
+				}
+				/*
+				 * let the value provider deal with the invalid input
+				 */
+			}
+			this.record.assignValue(idx, vp.getValue(values, ctx));
 		}
 
 		// this.record.parseForInsert(data, ctx);
@@ -88,7 +197,7 @@ class FormLoader {
 	 */
 	boolean loadData(final Map<String, String> values, final TransactionHandle handle, final ServiceContext ctx)
 			throws SQLException {
-		if (!this.parseInput(values, ctx)) {
+		if (!this.parseInput(values, ctx, -1)) {
 			return false;
 		}
 
@@ -106,4 +215,86 @@ class FormLoader {
 		return true;
 	}
 
+	/**
+	 * insert a batch of rows with a single batched statement. Messages from
+	 * preparing the rows are added to the context only if the batch is inserted,
+	 * as the caller is expected to fall back to row-by-row inserts in case this
+	 * fails, and those add the messages again
+	 *
+	 * @param batch  values for each row. generated key, if required, is put back
+	 *               into the values for that row
+	 * @param data   data rows prepared for the batch. null if they are to be
+	 *               prepared now
+	 * @param handle
+	 * @param ctx
+	 * @return true if every row was inserted. false otherwise, in which case the
+	 *         caller must roll back the inserts, if any
+	 * @throws SQLException
+	 */
+	boolean loadBatch(final List<Map<String, String>> batch, final Object[][] data, final TransactionHandle handle,
+			final ServiceContext ctx) throws SQLException {
+		final DbTable<DbRecord> table = new DbTable<>(this.record);
+		Object[][] rows = data;
+		RowContext batchCtx = null;
+		if (rows == null) {
+			this.evaluateExpressions(batch);
+			batchCtx = new RowContext(ctx);
+			rows = new Object[batch.size()][];
+			int idx = 0;
+			for (final Map<String, String> values : batch) {
+				final Object[] row = this.prepareRow(values, batchCtx, this.hasExpressions ? idx : -1);
+				if (row == null) {
+					return false;
+				}
+				rows[idx] = row;
+				idx++;
+			}
+		}
+		for (final Object[] row : rows) {
+			table.addRow(row);
+		}
+
+		if (!table.insert(handle)) {
+			return false;
+		}
+		if (batchCtx != null) {
+			final Message[] msgs = batchCtx.takeMessages();
+			if (msgs != null) {
+				ctx.addMessages(msgs);
+			}
+		}
+
+		if (this.generatedKeyOutputName != null) {
+			int idx = 0;
+			for (final Map<String, String> values : batch) {
+				final Object key = rows[idx][this.keyIdx];
+				idx++;
+				if (key != null) {
+					values.put(this.generatedKeyOutputName, key.toString());
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * evaluate the numeric expressions for all the rows of the batch, one column
+	 * at a time
+	 */
+	private void evaluateExpressions(final List<Map<String, String>> batch) {
+		if (!this.hasExpressions) {
+			return;
+		}
+		final int nbrRows = batch.size();
+		for (int i = 0; i < this.expressions.length; i++) {
+			final NumericExpression exp = this.expressions[i];
+			if (exp == null) {
+				continue;
+			}
+			if (this.batchValues[i].length < nbrRows) {
+				this.batchValues[i] = new double[nbrRows];
+			}
+			exp.evaluate(batch, this.batchValues[i]);
+		}
+	}
 }
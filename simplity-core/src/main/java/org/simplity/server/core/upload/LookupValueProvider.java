@@ -28,6 +28,14 @@ public class LookupValueProvider implements InputValueProvider{
 		this.keyValue = keyValue;
 	}
 	
+	InputValueProvider getTextValue() {
+		return this.textValue;
+	}
+
+	InputValueProvider getKeyValue() {
+		return this.keyValue;
+	}
+
 	@Override
 	public String getValue(Map<String, String> input, ServiceContext ctx) {
 		String text = this.textValue.getValue(input, ctx);
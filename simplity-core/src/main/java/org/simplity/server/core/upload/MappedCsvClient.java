@@ -0,0 +1,370 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.upload;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.service.ServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Upload client that reads rows from a CSV/TSV file. The file is memory-mapped
+ * in windows, and the rows are split in the mapped buffer. Only the columns
+ * that are used by the uploader are decoded into strings, and the same map is
+ * re-used for every row. Hence a large file is read without allocating objects
+ * for every cell.
+ *
+ * Fields may be enclosed in double-quotes, in which case they may contain the
+ * separator, new-lines and escaped double-quotes (""). The file is expected to
+ * be in UTF-8.
+ *
+ * Columns are named by the header row if the file has one. Otherwise they are
+ * named like the columns of a spread-sheet: a, b, ... z, aa, ab...
+ *
+ * A window is unmapped as soon as the next one is mapped, on the thread that
+ * reads the rows, rather than waiting for the garbage collector to do it. The
+ * last window is left to the garbage collector, because close() may be called
+ * from another thread while a row is still being read from it.
+ *
+ * @author simplity.org
+ *
+ */
+public class MappedCsvClient implements UploadClient, AutoCloseable {
+	protected static final Logger logger = LoggerFactory.getLogger(MappedCsvClient.class);
+
+	private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+	private static final byte QUOTE = '"';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	/*
+	 * sun.misc.Unsafe.invokeCleaner() to unmap a buffer. null if it is not
+	 * available, in which case the buffers are unmapped when they are garbage
+	 * collected
+	 */
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method method = null;
+		try {
+			final Class<?> cls = Class.forName("sun.misc.Unsafe");
+			final Field field = cls.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			method = cls.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (final Exception e) {
+			logger.warn("Mapped buffers will be released only when they are garbage collected: {}", e.getMessage());
+			unsafe = null;
+			method = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = method;
+	}
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final long windowSize;
+	private final byte separator;
+	private final Map<String, String> row = new HashMap<>();
+
+	/*
+	 * names of columns, and whether the column is to be decoded, by column index.
+	 * Extended as required when a row has more columns than the earlier ones
+	 */
+	private final List<String> names = new ArrayList<>();
+	private final List<Boolean> toDecode = new ArrayList<>();
+	private final Set<String> requiredNames;
+
+	private MappedByteBuffer buffer;
+	/*
+	 * file position at which the current window starts
+	 */
+	private long windowStart;
+	/*
+	 * position in the current window where the next row starts
+	 */
+	private int pos;
+	private byte[] scratch = new byte[256];
+
+	/**
+	 *
+	 * @param file          to be read
+	 * @param separator     typically ',' or '\t'
+	 * @param hasHeader     true if the first row has the column names
+	 * @param requiredNames names of the columns to be decoded. Typically the
+	 *                      result of Uploader.getVariableNames(). null to decode
+	 *                      every column
+	 * @throws IOException
+	 */
+	public MappedCsvClient(final Path file, final char separator, final boolean hasHeader,
+			final Set<String> requiredNames) throws IOException {
+		this(file, separator, hasHeader, requiredNames, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 *
+	 * @param file          to be read
+	 * @param separator     typically ',' or '\t'
+	 * @param hasHeader     true if the first row has the column names
+	 * @param requiredNames names of the columns to be decoded. null to decode
+	 *                      every column
+	 * @param windowSize    number of bytes that are mapped at a time. A row must
+	 *                      fit within a window
+	 * @throws IOException
+	 */
+	public MappedCsvClient(final Path file, final char separator, final boolean hasHeader,
+			final Set<String> requiredNames, final long windowSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.fileSize = this.channel.size();
+		this.separator = (byte) separator;
+		this.requiredNames = requiredNames;
+		this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+		this.map(0);
+
+		if (hasHeader) {
+			final List<String> header = new ArrayList<>();
+			if (this.readRow(header)) {
+				for (final String name : header) {
+					this.addColumn(name.trim());
+				}
+			}
+		}
+	}
+
+	@Override
+	public Map<String, String> nextRow(final ServiceContext ctx) {
+		if (this.readRow(null)) {
+			return this.row;
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		/*
+		 * the current window stays valid after the channel is closed, and is
+		 * unmapped when this client is garbage collected
+		 */
+		this.channel.close();
+	}
+
+	/*
+	 * read the next non-empty row. Values are put into the map, or added to the
+	 * list if it is non-null
+	 */
+	private boolean readRow(final List<String> allValues) {
+		while (true) {
+			if (this.atEnd()) {
+				return false;
+			}
+			final int end = this.parseRow(allValues);
+			if (end >= 0) {
+				final boolean empty = end == this.pos + 1 || end == this.pos + 2 && this.buffer.get(this.pos) == CR;
+				this.pos = end;
+				if (!empty || allValues != null) {
+					return true;
+				}
+				continue;
+			}
+
+			/*
+			 * row crosses the window. Map the next window starting with this row
+			 */
+			final long rowStart = this.windowStart + this.pos;
+			if (this.pos == 0) {
+				throw new ApplicationError("A row at position " + rowStart + " is longer than the window size of "
+						+ this.windowSize + " bytes");
+			}
+			this.map(rowStart);
+		}
+	}
+
+	private boolean atEnd() {
+		return this.windowStart + this.pos >= this.fileSize;
+	}
+
+	/*
+	 * parse a row starting at pos.
+	 *
+	 * @return position after the end of this row. -1 if the row does not end in
+	 * this window, and the file has more data beyond this window
+	 */
+	private int parseRow(final List<String> allValues) {
+		final MappedByteBuffer buf = this.buffer;
+		final int limit = buf.limit();
+		final boolean lastWindow = this.windowStart + limit >= this.fileSize;
+		int p = this.pos;
+		int col = 0;
+		if (allValues != null) {
+			allValues.clear();
+		}
+
+		while (true) {
+			int start = p;
+			int end;
+			boolean hasEscape = false;
+			if (p < limit && buf.get(p) == QUOTE) {
+				p++;
+				start = p;
+				while (true) {
+					if (p >= limit) {
+						if (!lastWindow) {
+							return -1;
+						}
+						end = p;
+						break;
+					}
+					if (buf.get(p) == QUOTE) {
+						if (p + 1 < limit && buf.get(p + 1) == QUOTE) {
+							hasEscape = true;
+							p += 2;
+							continue;
+						}
+						if (p + 1 >= limit && !lastWindow) {
+							return -1;
+						}
+						end = p;
+						p++;
+						break;
+					}
+					p++;
+				}
+				/*
+				 * skip anything between the closing quote and the separator
+				 */
+				while (p < limit && buf.get(p) != this.separator && buf.get(p) != LF) {
+					p++;
+				}
+			} else {
+				while (p < limit && buf.get(p) != this.separator && buf.get(p) != LF) {
+					p++;
+				}
+				end = p;
+				if (end > start && buf.get(end - 1) == CR && (p >= limit || buf.get(p) == LF)) {
+					end--;
+				}
+			}
+
+			if (p >= limit && !lastWindow) {
+				return -1;
+			}
+
+			if (allValues != null) {
+				allValues.add(this.decode(start, end, hasEscape));
+			} else if (this.isRequired(col)) {
+				this.row.put(this.names.get(col), this.decode(start, end, hasEscape));
+			}
+			col++;
+
+			if (p >= limit || buf.get(p) == LF) {
+				if (allValues == null) {
+					this.clearMissingColumns(col);
+				}
+				return p >= limit ? p : p + 1;
+			}
+			/*
+			 * at the separator
+			 */
+			p++;
+		}
+	}
+
+	private boolean isRequired(final int col) {
+		while (this.names.size() <= col) {
+			this.addColumn(toColumnName(this.names.size()));
+		}
+		return this.toDecode.get(col);
+	}
+
+	/*
+	 * a row may have fewer columns than the earlier row
+	 */
+	private void clearMissingColumns(final int nbrCols) {
+		for (int i = nbrCols; i < this.names.size(); i++) {
+			if (this.toDecode.get(i)) {
+				this.row.remove(this.names.get(i));
+			}
+		}
+	}
+
+	@SuppressWarnings("boxing")
+	private void addColumn(final String name) {
+		this.names.add(name);
+		this.toDecode.add(this.requiredNames == null || this.requiredNames.contains(name));
+	}
+
+	private String decode(final int start, final int end, final boolean hasEscape) {
+		final int len = end - start;
+		if (len <= 0) {
+			return "";
+		}
+		if (this.scratch.length < len) {
+			this.scratch = new byte[Math.max(len, this.scratch.length * 2)];
+		}
+		this.buffer.get(start, this.scratch, 0, len);
+		final String text = new String(this.scratch, 0, len, StandardCharsets.UTF_8);
+		if (hasEscape) {
+			return text.replace("\"\"", "\"");
+		}
+		return text;
+	}
+
+	private void map(final long start) {
+		final long size = Math.min(this.windowSize, this.fileSize - start);
+		final MappedByteBuffer old = this.buffer;
+		try {
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		} catch (final IOException e) {
+			throw new ApplicationError("Error while mapping upload file at position " + start, e);
+		}
+		this.windowStart = start;
+		this.pos = 0;
+		unmap(old);
+	}
+
+	/*
+	 * the buffer must not be accessed after this
+	 */
+	private static void unmap(final MappedByteBuffer buf) {
+		if (buf == null || INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buf);
+		} catch (final Exception e) {
+			logger.warn("Mapped buffer could not be released: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * @param idx 0-based column index
+	 * @return spread-sheet like column name: a, b,... z, aa, ab...
+	 */
+	static String toColumnName(final int idx) {
+		final StringBuilder sbf = new StringBuilder();
+		int n = idx + 1;
+		while (n > 0) {
+			n--;
+			sbf.insert(0, (char) ('a' + n % 26));
+			n /= 26;
+		}
+		return sbf.toString();
+	}
+}
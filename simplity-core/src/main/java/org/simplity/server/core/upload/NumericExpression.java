@@ -0,0 +1,219 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.upload;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.simplity.server.core.fn.NumericFunction;
+
+/**
+ * compiled form of a value provider that evaluates a numeric function, like
+ * %sum($a, $b, =10). The expression is a tree of evaluators that work with
+ * doubles, rather than with strings as the value provider does. It is
+ * evaluated for a batch of rows, one column at a time: each argument is
+ * evaluated into a column of doubles, and the function is then calculated for
+ * all the rows in one call.
+ *
+ * Constants are parsed once when the expression is compiled, and a function
+ * with only constants as arguments is calculated right away. Input values are
+ * parsed just once for each row. The columns are scratch buffers that are
+ * re-used across batches, and hence an instance is not thread-safe. Each form
+ * loader compiles its own expressions.
+ *
+ * An input value that is missing or is not a number results in NaN for that
+ * row. The caller is expected to use the value provider for such rows, so that
+ * they are handled exactly as they would be without the compiled expression.
+ *
+ * @author simplity.org
+ *
+ */
+abstract class NumericExpression {
+
+	/**
+	 *
+	 * @param vp value provider to be compiled
+	 * @return compiled expression, or null if the value provider is not a numeric
+	 *         function, or can not be compiled
+	 */
+	static NumericExpression compile(final InputValueProvider vp) {
+		if (vp instanceof FunctionValueProvider == false) {
+			return null;
+		}
+		final FunctionValueProvider fvp = (FunctionValueProvider) vp;
+		if (fvp.function instanceof NumericFunction == false || fvp.params == null) {
+			return null;
+		}
+
+		final NumericFunction fn = (NumericFunction) fvp.function;
+		final int nbrArgs = fvp.params.length;
+		if (!fn.acceptsVarArgs() && fn.getNbrArguments() != nbrArgs) {
+			return null;
+		}
+
+		final NumericExpression[] args = new NumericExpression[nbrArgs];
+		boolean allConstants = true;
+		for (int i = 0; i < nbrArgs; i++) {
+			final InputValueProvider p = fvp.params[i];
+			if (p instanceof VariableValueProvider == false) {
+				return null;
+			}
+			final VariableValueProvider var = (VariableValueProvider) p;
+			final double constant = toDouble(var.getConstant());
+			if (var.getVariable() == null) {
+				if (Double.isNaN(constant)) {
+					/*
+					 * function is bound to fail for every row
+					 */
+					return null;
+				}
+				args[i] = new Constant(constant);
+			} else {
+				allConstants = false;
+				args[i] = new Variable(var.getVariable(), constant);
+			}
+		}
+
+		if (allConstants) {
+			final double[] values = new double[nbrArgs];
+			for (int i = 0; i < nbrArgs; i++) {
+				values[i] = ((Constant) args[i]).value;
+			}
+			return new Constant(fn.calculate(values));
+		}
+		return new Function(fn, args);
+	}
+
+	/**
+	 * evaluate this expression for a single row
+	 *
+	 * @param row input values
+	 * @return value, NaN if an input value is missing or is not a number
+	 */
+	abstract double evaluate(Map<String, String> row);
+
+	/**
+	 * evaluate this expression for a batch of rows
+	 *
+	 * @param rows   input values
+	 * @param result to which the value for each row is set. Must have at least as
+	 *               many elements as the rows. NaN if an input value is missing
+	 *               or is not a number
+	 */
+	abstract void evaluate(List<Map<String, String>> rows, double[] result);
+
+	/*
+	 * NaN if the text is null or is not a number
+	 */
+	static double toDouble(final String text) {
+		if (text == null) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(text);
+		} catch (final NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static class Constant extends NumericExpression {
+		final double value;
+
+		Constant(final double value) {
+			this.value = value;
+		}
+
+		@Override
+		double evaluate(final Map<String, String> row) {
+			return this.value;
+		}
+
+		@Override
+		void evaluate(final List<Map<String, String>> rows, final double[] result) {
+			Arrays.fill(result, 0, rows.size(), this.value);
+		}
+	}
+
+	private static class Variable extends NumericExpression {
+		private final String name;
+		/*
+		 * NaN if there is no default value
+		 */
+		private final double defaultValue;
+
+		Variable(final String name, final double defaultValue) {
+			this.name = name;
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		double evaluate(final Map<String, String> row) {
+			final String text = row.get(this.name);
+			if (text == null) {
+				return this.defaultValue;
+			}
+			return toDouble(text);
+		}
+
+		@Override
+		void evaluate(final List<Map<String, String>> rows, final double[] result) {
+			int idx = 0;
+			for (final Map<String, String> row : rows) {
+				result[idx] = this.evaluate(row);
+				idx++;
+			}
+		}
+	}
+
+	private static class Function extends NumericExpression {
+		private final NumericFunction function;
+		private final NumericExpression[] args;
+		/*
+		 * scratch buffers, re-used across rows and batches
+		 */
+		private final double[] rowArgs;
+		private final double[][] columns;
+
+		Function(final NumericFunction function, final NumericExpression[] args) {
+			this.function = function;
+			this.args = args;
+			this.rowArgs = new double[args.length];
+			this.columns = new double[args.length][0];
+		}
+
+		@Override
+		double evaluate(final Map<String, String> row) {
+			for (int i = 0; i < this.args.length; i++) {
+				final double d = this.args[i].evaluate(row);
+				if (Double.isNaN(d)) {
+					return Double.NaN;
+				}
+				this.rowArgs[i] = d;
+			}
+			return this.function.calculate(this.rowArgs);
+		}
+
+		@Override
+		void evaluate(final List<Map<String, String>> rows, final double[] result) {
+			final int nbrRows = rows.size();
+			for (int i = 0; i < this.args.length; i++) {
+				if (this.columns[i].length < nbrRows) {
+					this.columns[i] = new double[nbrRows];
+				}
+				this.args[i].evaluate(rows, this.columns[i]);
+			}
+			this.function.calculate(this.columns, nbrRows, result);
+
+			/*
+			 * functions like min/max may ignore a NaN argument
+			 */
+			for (final double[] col : this.columns) {
+				for (int row = 0; row < nbrRows; row++) {
+					if (Double.isNaN(col[row])) {
+						result[row] = Double.NaN;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,300 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.upload;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.service.RowContext;
+import org.simplity.server.core.service.ServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Supplies rows from an upload client, after resolving their value providers
+ * into the data rows of the forms. The values are not validated here.
+ *
+ * With no workers, a row is read and prepared on the caller's thread when it is
+ * asked for. With workers, a reader thread reads rows from the client, the
+ * workers prepare them in parallel, and the rows are handed back to the caller
+ * in the same order in which they were read. Both queues are bounded, so the
+ * reader waits when the caller or the workers fall behind, and the memory used
+ * stays bounded.
+ *
+ * The reader and each of the workers have their own context, as a context is
+ * not thread-safe. Messages added while reading or preparing a row are
+ * carried with that row, and it is for the caller to add them to its context.
+ *
+ * Rows are prepared for a form only if its values do not depend on a key
+ * generated by an earlier form. Such forms are parsed by the caller after the
+ * earlier forms are inserted.
+ *
+ * @author simplity.org
+ *
+ */
+class UploadPipeline implements AutoCloseable {
+	protected static final Logger logger = LoggerFactory.getLogger(UploadPipeline.class);
+
+	private static final UploadRow END_OF_ROWS = new UploadRow(null, 0);
+
+	private final UploadClient client;
+	private final ServiceContext ctx;
+	/*
+	 * context for reading and preparing rows on the caller's thread, or on the
+	 * reader thread
+	 */
+	private final RowContext rowContext;
+	private final FormLoader[] loaders;
+	/*
+	 * number of leading loaders whose rows can be prepared in advance
+	 */
+	private final int nbrToPrepare;
+
+	private final BlockingQueue<UploadRow> orderedRows;
+	private final BlockingQueue<UploadRow> pendingRows;
+	private final Thread[] threads;
+	private volatile Throwable readError;
+
+	/**
+	 *
+	 * @param client     source of rows
+	 * @param ctx        in which the upload is being run
+	 * @param loaders    forms into which the rows are to be inserted
+	 * @param nbrWorkers number of threads to prepare the rows. 0 to prepare them
+	 *                   on the caller's thread
+	 * @param capacity   maximum number of rows that may be read ahead of the
+	 *                   caller
+	 * @param forInsert  true if the rows are to be inserted. false if they are to
+	 *                   be just validated, in which case every form is prepared
+	 */
+	UploadPipeline(final UploadClient client, final ServiceContext ctx, final FormLoader[] loaders,
+			final int nbrWorkers, final int capacity, final boolean forInsert) {
+		this.client = client;
+		this.ctx = ctx;
+		this.rowContext = new RowContext(ctx);
+		this.loaders = loaders;
+
+		int n = loaders.length;
+		if (forInsert) {
+			for (int i = 0; i < loaders.length; i++) {
+				if (loaders[i].generatesKey()) {
+					n = i + 1;
+					break;
+				}
+			}
+		}
+		this.nbrToPrepare = n;
+
+		if (nbrWorkers <= 0) {
+			this.orderedRows = null;
+			this.pendingRows = null;
+			this.threads = null;
+			return;
+		}
+
+		this.orderedRows = new ArrayBlockingQueue<>(capacity);
+		this.pendingRows = new ArrayBlockingQueue<>(capacity + nbrWorkers);
+		this.threads = new Thread[nbrWorkers + 1];
+		this.threads[0] = new Thread(this::read, "upload-reader");
+		for (int i = 1; i <= nbrWorkers; i++) {
+			final Preparer preparer = new Preparer();
+			this.threads[i] = new Thread(preparer::run, "upload-worker-" + i);
+		}
+		for (final Thread t : this.threads) {
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 *
+	 * @return next row, prepared. null if there are no more rows
+	 */
+	UploadRow next() {
+		if (this.threads == null) {
+			final Map<String, String> values = this.client.nextRow(this.rowContext);
+			if (values == null) {
+				this.addReadMessages();
+				return null;
+			}
+			final UploadRow row = new UploadRow(new HashMap<>(values), this.loaders.length);
+			row.messages = this.rowContext.takeMessages();
+			prepare(row, this.loaders, this.nbrToPrepare, this.rowContext);
+			return row;
+		}
+
+		try {
+			final UploadRow row = this.orderedRows.take();
+			if (row == END_OF_ROWS) {
+				this.addReadMessages();
+				if (this.readError != null) {
+					throw new ApplicationError("Error while reading rows for upload", this.readError);
+				}
+				return null;
+			}
+			row.prepared.await();
+			return row;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApplicationError("Upload interrupted while waiting for the next row");
+		}
+	}
+
+	/*
+	 * messages added by the client after the last row
+	 */
+	private void addReadMessages() {
+		final Message[] msgs = this.rowContext.takeMessages();
+		if (msgs != null) {
+			this.ctx.addMessages(msgs);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (this.threads == null) {
+			return;
+		}
+		for (final Thread t : this.threads) {
+			t.interrupt();
+		}
+	}
+
+	/*
+	 * runs on the reader thread
+	 */
+	private void read() {
+		try {
+			while (true) {
+				final Map<String, String> values = this.client.nextRow(this.rowContext);
+				if (values == null) {
+					break;
+				}
+				/*
+				 * client may re-use the map for the next row
+				 */
+				final UploadRow row = new UploadRow(new HashMap<>(values), this.loaders.length);
+				row.messages = this.rowContext.takeMessages();
+				this.orderedRows.put(row);
+				this.pendingRows.put(row);
+			}
+		} catch (final InterruptedException e) {
+			return;
+		} catch (final Exception | Error e) {
+			logger.error("Error while reading rows for upload: {}", e.getMessage());
+			this.readError = e;
+		}
+
+		try {
+			this.orderedRows.put(END_OF_ROWS);
+			for (int i = 1; i < this.threads.length; i++) {
+				this.pendingRows.put(END_OF_ROWS);
+			}
+		} catch (final InterruptedException e) {
+			// we are being closed
+		}
+	}
+
+	/*
+	 * messages added while preparing are appended to the messages of the row
+	 */
+	static void prepare(final UploadRow row, final FormLoader[] forms, final int nbr, final RowContext context) {
+		for (int i = 0; i < nbr; i++) {
+			final Object[] data = forms[i].prepareRow(row.values, context);
+			if (data == null) {
+				row.valid = false;
+			}
+			row.preparedData[i] = data;
+		}
+		row.addMessages(context.takeMessages());
+	}
+
+	/**
+	 * prepares rows on a worker thread. Each worker has its own copy of the
+	 * loaders, as they are not thread-safe, and its own context to collect the
+	 * messages
+	 */
+	private class Preparer {
+		private final FormLoader[] forms;
+		private final RowContext context;
+
+		Preparer() {
+			final FormLoader[] all = UploadPipeline.this.loaders;
+			this.forms = new FormLoader[all.length];
+			for (int i = 0; i < all.length; i++) {
+				this.forms[i] = all[i].newCopy();
+			}
+			this.context = new RowContext(UploadPipeline.this.ctx);
+		}
+
+		void run() {
+			try {
+				while (true) {
+					final UploadRow row = UploadPipeline.this.pendingRows.take();
+					if (row == END_OF_ROWS) {
+						return;
+					}
+					boolean done = false;
+					try {
+						prepare(row, this.forms, UploadPipeline.this.nbrToPrepare, this.context);
+						done = true;
+					} catch (final Exception e) {
+						this.context.takeMessages();
+						row.addMessages(new Message[] { Message.newError("Row could not be parsed: " + e.getMessage()) });
+					} finally {
+						/*
+						 * the caller is waiting for this row, whatever happens to it
+						 */
+						if (!done) {
+							row.valid = false;
+						}
+						row.prepared.countDown();
+					}
+				}
+			} catch (final InterruptedException e) {
+				// we are being closed
+			}
+		}
+	}
+
+	/**
+	 * a row from the client along with its prepared data
+	 */
+	static class UploadRow {
+		final Map<String, String> values;
+		/*
+		 * data for each loader. null if it is not prepared in advance
+		 */
+		final Object[][] preparedData;
+		final CountDownLatch prepared = new CountDownLatch(1);
+		volatile boolean valid = true;
+		/*
+		 * messages added while reading and preparing this row. null if none
+		 */
+		volatile Message[] messages;
+
+		UploadRow(final Map<String, String> values, final int nbrLoaders) {
+			this.values = values;
+			this.preparedData = new Object[nbrLoaders][];
+		}
+
+		void addMessages(final Message[] msgs) {
+			if (msgs == null) {
+				return;
+			}
+			final Message[] existing = this.messages;
+			if (existing == null) {
+				this.messages = msgs;
+				return;
+			}
+			final Message[] all = new Message[existing.length + msgs.length];
+			System.arraycopy(existing, 0, all, 0, existing.length);
+			System.arraycopy(msgs, 0, all, existing.length, msgs.length);
+			this.messages = all;
+		}
+	}
+}
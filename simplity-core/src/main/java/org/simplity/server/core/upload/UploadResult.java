@@ -52,5 +52,6 @@ public class UploadResult {
 		this.doneAt = doneAt;
 		this.nbrRowsProcessed = nbrRowsProcessed;
 		this.nbrRowsInError = nbrRowsInError;
+		this.errors = errors;
 	}
 }
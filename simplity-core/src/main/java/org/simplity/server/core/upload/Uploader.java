@@ -2,22 +2,76 @@
 package org.simplity.server.core.upload;
 
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.simplity.server.core.Message;
 import org.simplity.server.core.app.AppManager;
 import org.simplity.server.core.db.TransactionHandle;
 import org.simplity.server.core.service.ServiceContext;
+import org.simplity.server.core.upload.UploadPipeline.UploadRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Uploads rows from a client into the db. Rows are inserted in batches, and
+ * are committed after every commitEveryRows rows, or commitEveryMillis
+ * milliseconds, whichever is earlier.
+ *
+ * If a batch fails, it is rolled back to a save point and its rows are
+ * inserted one by one, each within its own save point. Hence a bad row is
+ * rolled back without affecting the other rows.
+ *
+ * Values of rows may be resolved by parallel workers, in which case a single
+ * writer, on the caller's thread, still inserts them in the order in which
+ * they were read. Parallel workers are to be used only if the functions used by
+ * this uploader are thread-safe.
+ *
  * @author simplity.org
  *
  */
 public class Uploader {
+	protected static final Logger logger = LoggerFactory.getLogger(Uploader.class);
+	/**
+	 * default number of rows after which the inserts are committed
+	 */
+	public static final int DEFAULT_COMMIT_ROWS = 500;
+	/*
+	 * rows that the pipeline may read ahead of the batch being written
+	 */
+	private static final int READ_AHEAD = 100;
+
 	protected final FormLoader[] inserts;
+	protected final int commitEveryRows;
+	protected final long commitEveryMillis;
+	protected final int nbrWorkers;
 
-	Uploader(final FormLoader[] inserts) {
+	Uploader(final FormLoader[] inserts, final int commitEveryRows, final long commitEveryMillis,
+			final int nbrWorkers) {
 		this.inserts = inserts;
+		this.commitEveryRows = commitEveryRows;
+		this.commitEveryMillis = commitEveryMillis;
+		this.nbrWorkers = nbrWorkers;
+	}
+
+	/**
+	 * names of the variables that the value providers of this uploader use. A
+	 * client may supply values for just these names, as the others are not used.
+	 * Note that the names of generated keys, if any, are also included.
+	 *
+	 * @return non-null set of names
+	 */
+	public Set<String> getVariableNames() {
+		final Set<String> names = new HashSet<>();
+		for (final FormLoader loader : this.inserts) {
+			loader.addVariableNames(names);
+		}
+		return names;
 	}
 
 	/**
@@ -66,52 +120,135 @@ public class Uploader {
 
 		protected boolean transact(final TransactionHandle handle) throws SQLException {
 			this.startedAt = Instant.now();
-			while (true) {
-				final Map<String, String> input = this.client.nextRow(this.ctx);
-				if (input == null) {
-					this.doneAt = Instant.now();
-					return true;
-				}
+			handle.setAutoCommitMode(false);
+
+			final List<UploadRow> batch = new ArrayList<>();
+			long lastCommitAt = System.currentTimeMillis();
+			try (UploadPipeline pipeline = this.newPipeline(true)) {
+				while (true) {
+					final UploadRow row = this.nextRow(pipeline);
+					if (row != null && row.valid) {
+						batch.add(row);
+					}
+
+					final long now = System.currentTimeMillis();
+					final boolean timeUp = Uploader.this.commitEveryMillis > 0
+							&& now - lastCommitAt >= Uploader.this.commitEveryMillis;
+					if (row == null || timeUp || batch.size() >= Uploader.this.commitEveryRows) {
+						if (!batch.isEmpty()) {
+							this.writeBatch(batch, handle);
+							batch.clear();
+							handle.commit();
+						}
+						lastCommitAt = now;
+					}
 
-				this.nbrRows++;
-				boolean ok = true;
-				for (final FormLoader loader : Uploader.this.inserts) {
-					if (!loader.loadData(input, handle, this.ctx)) {
-						ok = false;
-						break;
+					if (row == null) {
+						this.doneAt = Instant.now();
+						return true;
 					}
 				}
+			}
+		}
+
+		/*
+		 * next row from the pipeline, with its messages and errors accounted for
+		 */
+		private UploadRow nextRow(final UploadPipeline pipeline) {
+			final UploadRow row = pipeline.next();
+			if (row == null) {
+				return null;
+			}
+			this.nbrRows++;
+			if (row.messages != null) {
+				this.ctx.addMessages(row.messages);
+			}
+			if (!row.valid) {
+				this.nbrErrors++;
+			}
+			return row;
+		}
+
+		private UploadPipeline newPipeline(final boolean forInsert) {
+			return new UploadPipeline(this.client, this.ctx, Uploader.this.inserts, Uploader.this.nbrWorkers,
+					Uploader.this.commitEveryRows + READ_AHEAD, forInsert);
+		}
+
+		private void writeBatch(final List<UploadRow> batch, final TransactionHandle handle) throws SQLException {
+			final Savepoint batchPoint = handle.setSavepoint();
+			try {
+				if (this.insertBatch(batch, handle)) {
+					handle.releaseSavepoint(batchPoint);
+					return;
+				}
+			} catch (final SQLException e) {
+				logger.info("Batch insert failed with {}. Rows will be inserted one by one", e.getMessage());
+			}
+			handle.rollbackToSavepoint(batchPoint);
+
+			for (final UploadRow row : batch) {
+				final Savepoint rowPoint = handle.setSavepoint();
+				boolean ok = false;
+				try {
+					ok = this.insertRow(row.values, handle);
+				} catch (final SQLException e) {
+					this.ctx.addMessage(Message.newError("Row not inserted: " + e.getMessage()));
+				}
 				if (ok) {
-					handle.commit();
+					handle.releaseSavepoint(rowPoint);
 				} else {
-					handle.rollback();
+					handle.rollbackToSavepoint(rowPoint);
 					this.nbrErrors++;
 				}
-				return ok;
 			}
 		}
 
-		protected void validate() {
-			this.startedAt = Instant.now();
-			while (true) {
-				final Map<String, String> input = this.client.nextRow(this.ctx);
-				if (input == null) {
-					this.doneAt = Instant.now();
-					return;
-				}
+		private boolean insertBatch(final List<UploadRow> batch, final TransactionHandle handle)
+				throws SQLException {
+			final List<Map<String, String>> values = new ArrayList<>(batch.size());
+			for (final UploadRow row : batch) {
+				values.add(row.values);
+			}
 
-				this.nbrRows++;
-				boolean ok = true;
-				for (final FormLoader loader : Uploader.this.inserts) {
-					if (!loader.validate(input, this.ctx)) {
-						ok = false;
+			final FormLoader[] loaders = Uploader.this.inserts;
+			for (int i = 0; i < loaders.length; i++) {
+				/*
+				 * data is either prepared for all the rows or for none
+				 */
+				Object[][] data = null;
+				if (batch.get(0).preparedData[i] != null) {
+					data = new Object[batch.size()][];
+					int idx = 0;
+					for (final UploadRow row : batch) {
+						data[idx] = row.preparedData[i];
+						idx++;
 					}
 				}
+				if (!loaders[i].loadBatch(values, data, handle, this.ctx)) {
+					return false;
+				}
+			}
+			return true;
+		}
 
-				if (!ok) {
-					this.nbrErrors++;
+		private boolean insertRow(final Map<String, String> input, final TransactionHandle handle)
+				throws SQLException {
+			for (final FormLoader loader : Uploader.this.inserts) {
+				if (!loader.loadData(input, handle, this.ctx)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		protected void validate() {
+			this.startedAt = Instant.now();
+			try (UploadPipeline pipeline = this.newPipeline(false)) {
+				while (this.nextRow(pipeline) != null) {
+					//
 				}
 			}
+			this.doneAt = Instant.now();
 		}
 	}
 }
@@ -90,7 +90,37 @@ public class UploaderParser {
 			return null;
 		}
 
-		return new Uploader(this.inserts);
+		int commitRows = Uploader.DEFAULT_COMMIT_ROWS;
+		ele = json.get(Conventions.Upload.TAG_COMMIT_ROWS);
+		if (ele != null) {
+			if (!ele.isJsonPrimitive() || !ele.getAsJsonPrimitive().isNumber() || ele.getAsInt() <= 0) {
+				missingTag(Conventions.Upload.TAG_COMMIT_ROWS);
+				return null;
+			}
+			commitRows = ele.getAsInt();
+		}
+
+		long commitMillis = 0;
+		ele = json.get(Conventions.Upload.TAG_COMMIT_MILLIS);
+		if (ele != null) {
+			if (!ele.isJsonPrimitive() || !ele.getAsJsonPrimitive().isNumber() || ele.getAsLong() < 0) {
+				missingTag(Conventions.Upload.TAG_COMMIT_MILLIS);
+				return null;
+			}
+			commitMillis = ele.getAsLong();
+		}
+
+		int nbrWorkers = 0;
+		ele = json.get(Conventions.Upload.TAG_WORKERS);
+		if (ele != null) {
+			if (!ele.isJsonPrimitive() || !ele.getAsJsonPrimitive().isNumber() || ele.getAsInt() < 0) {
+				missingTag(Conventions.Upload.TAG_WORKERS);
+				return null;
+			}
+			nbrWorkers = ele.getAsInt();
+		}
+
+		return new Uploader(this.inserts, commitRows, commitMillis, nbrWorkers);
 	}
 
 	private boolean parseParams(final JsonObject json) {
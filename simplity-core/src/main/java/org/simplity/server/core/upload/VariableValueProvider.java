@@ -29,6 +29,22 @@ public class VariableValueProvider implements InputValueProvider {
 		this.constant = constant;
 	}
 
+	/**
+	 *
+	 * @return name of the variable. null if this provides just a constant
+	 */
+	String getVariable() {
+		return this.variable;
+	}
+
+	/**
+	 *
+	 * @return the constant value. null if there is no constant value
+	 */
+	String getConstant() {
+		return this.constant;
+	}
+
 	@Override
 	public String getValue(Map<String, String> input, ServiceContext ctx) {
 		String result = input.get(this.variable);
@@ -18,6 +18,10 @@ public class DependentListValidation implements FormDataValidation {
 	private final int parentFieldIndex;
 	private final String fieldName;
 	private final String messaageId;
+	/**
+	 * looked up on the first use, and not for every row that is validated
+	 */
+	private volatile ValueList valueList;
 
 	/**
 	 * create the list with valid keys and values
@@ -50,10 +54,14 @@ public class DependentListValidation implements FormDataValidation {
 			return true;
 		}
 
-		final ValueList vl = AppManager.getApp().getCompProvider()
-				.getValueList(this.listName);
+		ValueList vl = this.valueList;
 		if (vl == null) {
-			return true;
+			vl = AppManager.getApp().getCompProvider()
+					.getValueList(this.listName);
+			if (vl == null) {
+				return true;
+			}
+			this.valueList = vl;
 		}
 		if (vl.isValid(fieldValue, keyValue, ctx)) {
 			return true;
@@ -27,6 +27,23 @@ public class InterFieldValidation implements FormDataValidation {
 	 */
 	protected final String field1ValueToMatch;
 
+	/**
+	 * value type of the fields. null if it is not known till the validation is
+	 * carried out
+	 */
+	protected final ValueType valueType;
+
+	/**
+	 * rule resolved once for the validation type (and value type if it is known)
+	 * rather than for every row that is validated
+	 */
+	private final Rule rule;
+
+	/**
+	 * typed value of field1ValueToMatch, if the value type is known
+	 */
+	private final Object valueToMatch;
+
 	/**
 	 * Constructor for inter-field validation
 	 *
@@ -40,177 +57,150 @@ public class InterFieldValidation implements FormDataValidation {
 	 */
 	public InterFieldValidation(int index1, int index2, String fieldName, String messageId, String field1Value,
 			InterFieldValidationType validationType) {
+		this(index1, index2, fieldName, messageId, field1Value, validationType, null);
+	}
+
+	/**
+	 * Constructor for inter-field validation when the value type of the fields is
+	 * known, in which case the validation is resolved once for the value type
+	 *
+	 * @param index1         0-based index of the first field
+	 * @param index2         0-based index of the second field
+	 * @param fieldName      name of the field that is to be used for flagging the
+	 *                       error message
+	 * @param messageId
+	 * @param field1Value
+	 * @param validationType
+	 * @param valueType      value type of the first field. null if it is to be
+	 *                       taken from the record at the time of validation
+	 */
+	public InterFieldValidation(int index1, int index2, String fieldName, String messageId, String field1Value,
+			InterFieldValidationType validationType, ValueType valueType) {
 		this.index1 = index1;
 		this.index2 = index2;
 		this.fieldName = fieldName;
 		this.messageId = messageId;
 		this.field1ValueToMatch = field1Value;
 		this.validationType = validationType;
+		this.valueType = valueType;
+		if (valueType == null) {
+			this.rule = null;
+			this.valueToMatch = field1Value;
+		} else {
+			this.rule = toRule(validationType, valueType);
+			final Object typedValue = field1Value == null ? null : valueType.parse(field1Value);
+			this.valueToMatch = typedValue == null ? field1Value : typedValue;
+		}
 	}
 
 	@Override
 	public boolean isValid(Record record, ServiceContext ctx) {
 		final Object v1 = record.fetchValue(this.index1);
-		final Object v2 = record.fetchValue(this.index2);
-		final ValueType vt = record.fetchValueTypes()[this.index1];
-		final boolean v1Exists = isSpecified(v1, vt);
-		final boolean v2Exists = isSpecified(v2, vt);
 
 		/*
 		 * is this rule applicable?
 		 */
-		if (this.field1ValueToMatch != null && this.field1ValueToMatch.equals(v1) == false) {
+		if (this.valueToMatch != null && this.valueToMatch.equals(v1) == false) {
 			return true;
 		}
 
-		switch (this.validationType) {
-		case BothOrNone:
-			if (v1Exists) {
-				/*
-				 * val2 must be specified
-				 */
-				return v2Exists;
-			}
-			/*
-			 * val2 should be skipped
-			 */
-			return !v2Exists;
-
-		case BothOrSecond:
-			if (v1Exists) {
-				/*
-				 * val2 must be specified
-				 */
-				return v2Exists;
-			}
-			/**
-			 * val2 has no restrictions
-			 */
-			return true;
-
-		case OneOf:
-
-			if (v1Exists) {
-				/*
-				 * val2 should be skipped
-				 */
-				return !v2Exists;
-			}
-
-			/*
-			 * val2 is required
-			 */
-			return v2Exists;
-
-		case Different:
-			if (v1Exists) {
-				return !v1.equals(v2);
-			}
-			/*
-			 * null can not be compared with null!!
-			 */
-			return false;
-
-		case Equal:
-			if (v1Exists) {
-				return v1.equals(v2);
-			}
-			/*
-			 * null can not be compared with null!!
-			 */
-			return false;
-
-		case Range:
-			return this.rangeOk(v1, v2, false, vt);
-
-		case RangeOrEqual:
-			return this.rangeOk(v1, v2, true, vt);
-
-		default:
-			throw new ApplicationError("Inter-field Validation " + this.validationType.name() + " is not handled ");
-
-		}
-
-	}
-
-	@SuppressWarnings({ "boxing" })
-	private boolean rangeOk(Object value1, Object value2, boolean equalOk, ValueType vt) {
-		if (value1 == null || value2 == null) {
-			return false;
-		}
+		final Object v2 = record.fetchValue(this.index2);
+		final ValueType vt = this.valueType == null ? record.fetchFields()[this.index1].getValueType()
+				: this.valueType;
+		final Rule r = this.rule == null ? toRule(this.validationType, vt) : this.rule;
 		try {
-			switch (vt) {
-			case Boolean:
-				if (equalOk) {
-					return value1.equals(value1);
-				}
-				logger.error("Field " + this.getFieldName()
-						+ " is a boolean, but it has an inter-field validation for from-to (range). This validation will ALWAYS fail");
-				return false;
-			case Date:
-				return dateOk((LocalDate) value1, (LocalDate) value2, equalOk);
-
-			case Decimal:
-				return doubleOk((Double) value1, (Double) value2, equalOk);
-
-			case Integer:
-				return longOk((Long) value1, (Long) value2, equalOk);
-
-			case Text:
-				return textOk((String) value1, (String) value2, equalOk);
-
-			case Timestamp:
-				return timestampOk((Instant) value1, (Instant) value2, equalOk);
-
-			default:
-				throw new ApplicationError("ValueType " + vt.name() + " not handled in inter-field validation");
-			}
+			return r.isOk(v1, v2, isSpecified(v1, vt), isSpecified(v2, vt));
 		} catch (ClassCastException e) {
 			throw new ApplicationError("Field " + this.getFieldName() + " is of value type " + vt.name()
 					+ " and has a inter-field validation for range. However the actual value of field1 is "
-					+ value1.getClass().getName() + " and field2 is " + value2.getClass().getName());
+					+ v1.getClass().getName() + " and field2 is " + v2.getClass().getName());
 		}
 	}
 
-	/**
-	 * @param fm
-	 * @param to
-	 * @return
+	/*
+	 * rules are stateless, and hence one instance for each combination is enough
 	 */
-	private static boolean timestampOk(final Instant fm, final Instant to, boolean equalOk) {
-		if (equalOk) {
-			return !fm.isAfter(to);
-		}
-		return to.isAfter(fm);
-	}
-
-	private static boolean longOk(final long fm, final long to, boolean equalOk) {
-		if (equalOk) {
-			return to >= fm;
-		}
-		return to > fm;
+	@FunctionalInterface
+	private interface Rule {
+		boolean isOk(Object v1, Object v2, boolean v1Exists, boolean v2Exists);
 	}
 
-	private static boolean doubleOk(final double fm, final double to, boolean equalOk) {
-		if (equalOk) {
-			return to >= fm;
-		}
-		return to > fm;
-	}
-
-	private static boolean dateOk(final LocalDate fm, final LocalDate to, boolean equalOk) {
-		if (equalOk) {
-			return !fm.isAfter(to);
+	// val2 must be specified if val1 is, and should be skipped if val1 is not
+	private static final Rule BOTH_OR_NONE = (v1, v2, e1, e2) -> e1 == e2;
+	// val2 must be specified if val1 is. no restrictions otherwise
+	private static final Rule BOTH_OR_SECOND = (v1, v2, e1, e2) -> !e1 || e2;
+	// one and only one must be specified
+	private static final Rule ONE_OF = (v1, v2, e1, e2) -> e1 != e2;
+	// null can not be compared with null!!
+	private static final Rule DIFFERENT = (v1, v2, e1, e2) -> e1 && !v1.equals(v2);
+	private static final Rule EQUAL = (v1, v2, e1, e2) -> e1 && v1.equals(v2);
+
+	private static final Rule BOOLEAN_RANGE = (v1, v2, e1, e2) -> false;
+	private static final Rule BOOLEAN_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null;
+	private static final Rule DATE_RANGE = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((LocalDate) v2).isAfter((LocalDate) v1);
+	private static final Rule DATE_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& !((LocalDate) v1).isAfter((LocalDate) v2);
+	private static final Rule DECIMAL_RANGE = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((Double) v2).doubleValue() > ((Double) v1).doubleValue();
+	private static final Rule DECIMAL_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((Double) v2).doubleValue() >= ((Double) v1).doubleValue();
+	private static final Rule INTEGER_RANGE = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((Long) v2).longValue() > ((Long) v1).longValue();
+	private static final Rule INTEGER_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((Long) v2).longValue() >= ((Long) v1).longValue();
+	private static final Rule TEXT_RANGE = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((String) v2).compareToIgnoreCase((String) v1) > 0;
+	private static final Rule TEXT_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((String) v2).compareToIgnoreCase((String) v1) >= 0;
+	private static final Rule TIMESTAMP_RANGE = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& ((Instant) v2).isAfter((Instant) v1);
+	private static final Rule TIMESTAMP_RANGE_OR_EQUAL = (v1, v2, e1, e2) -> v1 != null && v2 != null
+			&& !((Instant) v1).isAfter((Instant) v2);
+
+	private Rule toRule(final InterFieldValidationType type, final ValueType vt) {
+		switch (type) {
+		case BothOrNone:
+			return BOTH_OR_NONE;
+		case BothOrSecond:
+			return BOTH_OR_SECOND;
+		case OneOf:
+			return ONE_OF;
+		case Different:
+			return DIFFERENT;
+		case Equal:
+			return EQUAL;
+		case Range:
+			return this.rangeRule(vt, false);
+		case RangeOrEqual:
+			return this.rangeRule(vt, true);
+		default:
+			throw new ApplicationError("Inter-field Validation " + type.name() + " is not handled ");
 		}
-		return to.isAfter(fm);
 	}
 
-	private static boolean textOk(final String fm, final String to, boolean equalOk) {
-		final int n = to.compareToIgnoreCase(fm);
-		if (equalOk) {
-			return n >= 0;
+	private Rule rangeRule(final ValueType vt, final boolean equalOk) {
+		switch (vt) {
+		case Boolean:
+			if (equalOk) {
+				return BOOLEAN_RANGE_OR_EQUAL;
+			}
+			logger.error("Field " + this.getFieldName()
+					+ " is a boolean, but it has an inter-field validation for from-to (range). This validation will ALWAYS fail");
+			return BOOLEAN_RANGE;
+		case Date:
+			return equalOk ? DATE_RANGE_OR_EQUAL : DATE_RANGE;
+		case Decimal:
+			return equalOk ? DECIMAL_RANGE_OR_EQUAL : DECIMAL_RANGE;
+		case Integer:
+			return equalOk ? INTEGER_RANGE_OR_EQUAL : INTEGER_RANGE;
+		case Text:
+			return equalOk ? TEXT_RANGE_OR_EQUAL : TEXT_RANGE;
+		case Timestamp:
+			return equalOk ? TIMESTAMP_RANGE_OR_EQUAL : TIMESTAMP_RANGE;
+		default:
+			throw new ApplicationError("ValueType " + vt.name() + " not handled in inter-field validation");
 		}
-		return n > 0;
 	}
 
 	private static boolean isSpecified(Object val, ValueType vt) {
@@ -218,9 +208,8 @@ public class InterFieldValidation implements FormDataValidation {
 			return false;
 		}
 
-		final String text = val.toString();
-		if (text.isEmpty()) {
-			return false;
+		if (val instanceof String) {
+			return ((String) val).isEmpty() == false;
 		}
 
 		if (vt != ValueType.Integer && vt != ValueType.Decimal) {
@@ -21,6 +21,10 @@ public class KeyedValueList implements ValueList {
 	protected String name;
 	protected boolean authenticationRequired;
 	protected Map<Object, SimpleValueList> values = new HashMap<>();
+	/*
+	 * rendered on first request
+	 */
+	private volatile RenderedList renderedLists;
 
 	@Override
 	public boolean isValid(final Object fieldValue, final Object keyValue,
@@ -85,6 +89,26 @@ public class KeyedValueList implements ValueList {
 		return result;
 	}
 
+	@Override
+	public RenderedList getRenderedList(final Object keyValue,
+			final ServiceContext ctx) {
+		final SimpleValueList vl = this.values.get(keyValue);
+		if (vl == null) {
+			return null;
+		}
+		return vl.getRenderedList(null, ctx);
+	}
+
+	@Override
+	public RenderedList getRenderedLists(final ServiceContext ctx) {
+		RenderedList rendered = this.renderedLists;
+		if (rendered == null) {
+			rendered = RenderedList.render(this.getAllLists(ctx));
+			this.renderedLists = rendered;
+		}
+		return rendered;
+	}
+
 	@Override
 	public boolean authenticationRequired() {
 		return this.authenticationRequired;
@@ -0,0 +1,124 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.validn;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.OutputData;
+
+/**
+ * A list, or lists for all keys, already serialized as json, along with a
+ * version that changes whenever the contents change. Lists whose contents do
+ * not change across requests render them once, and the list service just
+ * splices the json into the response. The version allows a client to skip
+ * receiving a list it already has.
+ *
+ * @author simplity.org
+ *
+ */
+public class RenderedList {
+	private static final String VALUE = Conventions.Request.TAG_LIST_ENTRY_VALUE;
+	private static final String LABEL = Conventions.Request.TAG_LIST_ENTRY_LABEL;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	/*
+	 * 8 bytes of the digest is good enough to detect a change
+	 */
+	private static final int VERSION_BYTES = 8;
+
+	private final String json;
+	private final String version;
+
+	private RenderedList(final String json) {
+		this.json = json;
+		this.version = toVersion(json);
+	}
+
+	/**
+	 *
+	 * @param rows non-null rows of [value, label]
+	 * @return list rendered as a json array of {value, label} objects
+	 */
+	public static RenderedList render(final Object[][] rows) {
+		final StringWriter writer = new StringWriter();
+		writeRows(JsonUtil.newOutputData(writer), rows);
+		return new RenderedList(writer.toString());
+	}
+
+	/**
+	 *
+	 * @param lists non-null lists mapped by their keys
+	 * @return lists rendered as a json object with the key as the member name and
+	 *         the list as its value
+	 */
+	public static RenderedList render(final Map<String, Object[][]> lists) {
+		final StringWriter writer = new StringWriter();
+		final OutputData outData = JsonUtil.newOutputData(writer);
+		outData.beginObject();
+		for (final Map.Entry<String, Object[][]> entry : lists.entrySet()) {
+			outData.addName(entry.getKey());
+			writeRows(outData, entry.getValue());
+		}
+		outData.endObject();
+		return new RenderedList(writer.toString());
+	}
+
+	/**
+	 * write rows of a list as an array of {value, label} objects
+	 *
+	 * @param outData
+	 * @param rows    non-null rows of [value, label]
+	 */
+	public static void writeRows(final OutputData outData, final Object[][] rows) {
+		outData.beginArray();
+		for (final Object[] row : rows) {
+			outData.beginObject();
+
+			outData.addName(VALUE);
+			outData.addPrimitive(row[0]);
+
+			outData.addName(LABEL);
+			outData.addValue(row[1].toString());
+
+			outData.endObject();
+		}
+		outData.endArray();
+	}
+
+	/**
+	 *
+	 * @return the list/lists as a json text that can be spliced into a response
+	 */
+	public String getJson() {
+		return this.json;
+	}
+
+	/**
+	 *
+	 * @return a hash of the contents that changes whenever the contents change
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+
+	private static String toVersion(final String text) {
+		final byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new ApplicationError("SHA-256 is not available in this JVM");
+		}
+		final char[] chars = new char[VERSION_BYTES * 2];
+		for (int i = 0; i < VERSION_BYTES; i++) {
+			final int b = digest[i] & 0xFF;
+			chars[2 * i] = HEX[b >>> 4];
+			chars[2 * i + 1] = HEX[b & 0xF];
+		}
+		return new String(chars);
+	}
+}
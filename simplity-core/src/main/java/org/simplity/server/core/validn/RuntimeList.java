@@ -5,8 +5,11 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.simplity.server.core.app.AppManager;
 import org.simplity.server.core.service.ServiceContext;
@@ -17,6 +20,10 @@ import org.slf4j.LoggerFactory;
 /**
  * represents meta data for a value list to be fetched at run time
  *
+ * If cacheTtlSeconds is set, lists fetched from the db are cached, and field
+ * values are validated against the cached lists. Note that the cached arrays
+ * are returned to the callers, and hence they must not be modified.
+ *
  * @author simplity.org
  *
  */
@@ -25,6 +32,7 @@ public class RuntimeList implements ValueList {
 	private static final ValueType[] TYPES_FOR_ALL_ENTRIES = { ValueType.Text, ValueType.Text, ValueType.Text };
 	private static final ValueType[] TYPES_FOR_KEYS = { ValueType.Text };
 	private static final ValueType[] TYPES_FOR_VALIDATION = {};
+	private static final int DEFAULT_CACHE_MAX_LISTS = 500;
 
 	protected String name;
 	/**
@@ -44,11 +52,40 @@ public class RuntimeList implements ValueList {
 	 * sql that returns unique keys
 	 */
 	protected String allKeysSql;
+	/**
+	 * sql that returns key, value and label of all the rows, ordered by the key.
+	 * Used to get lists for all the keys in a single query
+	 */
+	protected String allListsSql;
 	protected boolean hasKey;
 	protected boolean keyIsNumeric;
 	protected boolean column1IsNumeric;
 	protected boolean isTenantSpecific;
 	protected boolean authenticationRequired;
+	/**
+	 * number of seconds for which a list fetched from the db is cached. 0 means
+	 * that the list is not cached, and is fetched from the db every time.
+	 */
+	protected int cacheTtlSeconds;
+	/**
+	 * max number of lists (one per key-tenant combination) that are cached
+	 */
+	protected int cacheMaxLists = DEFAULT_CACHE_MAX_LISTS;
+
+	/*
+	 * created on first use. access-ordered to evict the least-recently-used one
+	 */
+	private Map<List<Object>, CachedList> cache;
+	/*
+	 * lists for all keys, cached by tenant. created on first use, and bounded
+	 * like the cache for single lists
+	 */
+	private Map<Object, CachedLists> allListsCache;
+	/*
+	 * incremented on every invalidation. used as a stamp for a read, so that a
+	 * list read before an invalidation is not cached after it
+	 */
+	private long nbrChanges;
 
 	@Override
 	public String getName() {
@@ -60,9 +97,20 @@ public class RuntimeList implements ValueList {
 		return this.hasKey;
 	}
 
-	@SuppressWarnings("boxing")
 	@Override
 	public Object[][] getList(final Object key, final ServiceContext ctx) {
+		final CachedList list = this.fetchList(key, ctx);
+		if (list == null) {
+			return null;
+		}
+		return list.rows;
+	}
+
+	/*
+	 * get the list from the cache, or from the db if it is not cached
+	 */
+	@SuppressWarnings("boxing")
+	private CachedList fetchList(final Object key, final ServiceContext ctx) {
 		Object tenantId = ctx.getTenantId();
 		long numericKey = 0;
 		if (this.hasKey) {
@@ -98,7 +146,7 @@ public class RuntimeList implements ValueList {
 			nbr = 1;
 		}
 
-		if (tenantId != null) {
+		if (this.isTenantSpecific) {
 			params[nbr] = tenantId;
 			paramTypes[nbr] = ValueType.Integer;
 			nbr++;
@@ -109,6 +157,19 @@ public class RuntimeList implements ValueList {
 			paramTypes = Arrays.copyOf(paramTypes, nbr);
 		}
 
+		List<Object> cacheKey = null;
+		long stamp = 0;
+		if (this.cacheTtlSeconds > 0) {
+			cacheKey = Arrays.asList(params);
+			synchronized (this) {
+				final CachedList cached = this.getCached(cacheKey);
+				if (cached != null) {
+					return cached;
+				}
+				stamp = this.nbrChanges;
+			}
+		}
+
 		final ValueType[] typesForList = { this.column1IsNumeric ? ValueType.Integer : ValueType.Text, ValueType.Text };
 		final Object[] finalParams = params;
 		final ValueType[] finalTypes = paramTypes;
@@ -130,9 +191,17 @@ public class RuntimeList implements ValueList {
 		Object[][] emptyList = {};
 		if (list.size() == 0) {
 			logger.warn("No data found for list {} with key {}", this.name, key);
-			return emptyList;
 		}
-		return list.toArray(emptyList);
+		final CachedList result = new CachedList(list.toArray(emptyList),
+				System.currentTimeMillis() + this.cacheTtlSeconds * 1000L);
+		if (cacheKey != null) {
+			synchronized (this) {
+				if (stamp == this.nbrChanges) {
+					this.putCached(cacheKey, result);
+				}
+			}
+		}
+		return result;
 	}
 
 	@Override
@@ -141,6 +210,18 @@ public class RuntimeList implements ValueList {
 			logger.error("Key should have value for list {}", this.name);
 			return false;
 		}
+
+		if (this.cacheTtlSeconds > 0 && ctx != null) {
+			/*
+			 * validate against the cached list rather than checking with the db
+			 */
+			final CachedList list = this.fetchList(keyValue, ctx);
+			if (list == null) {
+				return false;
+			}
+			return list.getValues().contains(fieldValue.toString());
+		}
+
 		boolean isValid = false;
 		try {
 			isValid = AppManager.getApp().getDbDriver().doReadonlyOperations(handle -> {
@@ -212,6 +293,10 @@ public class RuntimeList implements ValueList {
 	@SuppressWarnings("boxing")
 	@Override
 	public Map<String, Object[][]> getAllLists(ServiceContext ctx) {
+		if (this.allListsSql != null) {
+			final CachedLists cached = this.getAllListsInOneGo(ctx);
+			return cached == null ? null : cached.lists;
+		}
 		if (this.allKeysSql == null) {
 			return null;
 		}
@@ -268,8 +353,282 @@ public class RuntimeList implements ValueList {
 		return lists;
 	}
 
+	/*
+	 * all rows are read, ordered by key, and the lists are built in a single pass
+	 */
+	private CachedLists getAllListsInOneGo(final ServiceContext ctx) {
+		final Object tenantId = this.isTenantSpecific ? ctx.getTenantId() : null;
+		final long now = System.currentTimeMillis();
+		long stamp = 0;
+		if (this.cacheTtlSeconds > 0) {
+			synchronized (this) {
+				if (this.allListsCache != null) {
+					final CachedLists cached = this.allListsCache.get(tenantId);
+					if (cached != null && now <= cached.expiresAt) {
+						return cached;
+					}
+				}
+				stamp = this.nbrChanges;
+			}
+		}
+
+		Object[] params = null;
+		ValueType[] paramTypes = null;
+		if (this.isTenantSpecific) {
+			params = new Object[] { tenantId };
+			paramTypes = new ValueType[] { ValueType.Integer };
+		}
+		final Object[] finalParams = params;
+		final ValueType[] finalTypes = paramTypes;
+		final ValueType[] types = { this.keyIsNumeric ? ValueType.Integer : ValueType.Text,
+				this.column1IsNumeric ? ValueType.Integer : ValueType.Text, ValueType.Text };
+
+		/*
+		 * keys are also kept in the form that is used for the cache of a single list
+		 */
+		final Map<String, Object[][]> lists = new HashMap<>();
+		final List<Object> keys = new ArrayList<>();
+		try {
+			AppManager.getApp().getDbDriver().doReadonlyOperations(handle -> {
+				final List<Object[]> list = new ArrayList<>();
+				final Object[] currentKey = { null };
+				handle.readWithRowProcessor(this.allListsSql, finalParams, finalTypes, types, row -> {
+					final Object key = row[0];
+					if (key == null) {
+						/*
+						 * a list for a null key can never be asked for
+						 */
+						return true;
+					}
+					if (!key.equals(currentKey[0])) {
+						if (currentKey[0] != null) {
+							lists.put(currentKey[0].toString(), list.toArray(new Object[0][]));
+							keys.add(currentKey[0]);
+							list.clear();
+						}
+						currentKey[0] = key;
+					}
+					list.add(new Object[] { row[1], row[2] });
+					return true;
+				});
+				if (currentKey[0] != null) {
+					lists.put(currentKey[0].toString(), list.toArray(new Object[0][]));
+					keys.add(currentKey[0]);
+				}
+				return true;
+			});
+
+		} catch (final SQLException e) {
+			final String msg = e.getMessage();
+			logger.error("Error while getting values for list {}. ERROR: {} ", this.name, msg);
+			return null;
+		}
+
+		final long expiresAt = now + this.cacheTtlSeconds * 1000L;
+		final CachedLists result = new CachedLists(lists, expiresAt);
+		if (this.cacheTtlSeconds > 0) {
+			synchronized (this) {
+				/*
+				 * not cached if the lists were invalidated while they were being read
+				 */
+				if (stamp != this.nbrChanges) {
+					return result;
+				}
+				if (this.allListsCache == null) {
+					final int maxLists = this.cacheMaxLists;
+					this.allListsCache = new LinkedHashMap<>(16, 0.75f, true) {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						protected boolean removeEldestEntry(final Map.Entry<Object, CachedLists> eldest) {
+							return this.size() > maxLists;
+						}
+					};
+				}
+				this.allListsCache.put(tenantId, result);
+				/*
+				 * lists for individual keys are also available now
+				 */
+				for (final Object key : keys) {
+					final List<Object> cacheKey = new ArrayList<>(2);
+					cacheKey.add(key);
+					if (this.isTenantSpecific) {
+						cacheKey.add(tenantId);
+					}
+					this.putCached(cacheKey, new CachedList(lists.get(key.toString()), expiresAt));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * rendered form is available only if the lists are cached
+	 */
+	@Override
+	public RenderedList getRenderedList(final Object keyValue, final ServiceContext ctx) {
+		if (this.cacheTtlSeconds <= 0) {
+			return null;
+		}
+		final CachedList list = this.fetchList(keyValue, ctx);
+		if (list == null) {
+			return null;
+		}
+		return list.getRendered();
+	}
+
+	/**
+	 * rendered form is available only if the lists are cached
+	 */
+	@Override
+	public RenderedList getRenderedLists(final ServiceContext ctx) {
+		if (this.cacheTtlSeconds <= 0 || this.allListsSql == null) {
+			return null;
+		}
+		final CachedLists lists = this.getAllListsInOneGo(ctx);
+		if (lists == null) {
+			return null;
+		}
+		return lists.getRendered();
+	}
+
 	@Override
 	public boolean authenticationRequired() {
 		return this.authenticationRequired;
 	}
+
+	/**
+	 * remove all cached lists, across all keys and tenants. To be called by a
+	 * service after modifying the underlying table, so that the next request gets
+	 * the latest data.
+	 */
+	public synchronized void invalidateCache() {
+		this.nbrChanges++;
+		if (this.cache != null) {
+			this.cache.clear();
+		}
+		if (this.allListsCache != null) {
+			this.allListsCache.clear();
+		}
+	}
+
+	/**
+	 * remove the cached list for this key for the tenant of this context. To be
+	 * called by a service after modifying the rows for this key in the underlying
+	 * table
+	 *
+	 * @param key null if this list is not key-based
+	 * @param ctx
+	 */
+	@SuppressWarnings("boxing")
+	public synchronized void invalidateCache(final Object key, final ServiceContext ctx) {
+		this.nbrChanges++;
+		if (this.allListsCache != null) {
+			this.allListsCache.remove(this.isTenantSpecific ? ctx.getTenantId() : null);
+		}
+		if (this.cache == null) {
+			return;
+		}
+		final List<Object> cacheKey = new ArrayList<>(2);
+		if (this.hasKey) {
+			if (key == null) {
+				return;
+			}
+			if (this.keyIsNumeric) {
+				try {
+					cacheKey.add(Long.parseLong(key.toString()));
+				} catch (Exception e) {
+					return;
+				}
+			} else {
+				cacheKey.add(key.toString());
+			}
+		}
+		if (this.isTenantSpecific) {
+			cacheKey.add(ctx.getTenantId());
+		}
+		this.cache.remove(cacheKey);
+	}
+
+	private synchronized CachedList getCached(final List<Object> cacheKey) {
+		if (this.cache == null) {
+			return null;
+		}
+		final CachedList cached = this.cache.get(cacheKey);
+		if (cached == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() > cached.expiresAt) {
+			this.cache.remove(cacheKey);
+			return null;
+		}
+		return cached;
+	}
+
+	private synchronized void putCached(final List<Object> cacheKey, final CachedList list) {
+		if (this.cache == null) {
+			final int maxLists = this.cacheMaxLists;
+			this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<List<Object>, CachedList> eldest) {
+					return this.size() > maxLists;
+				}
+			};
+		}
+		this.cache.put(cacheKey, list);
+	}
+
+	private static class CachedLists {
+		final Map<String, Object[][]> lists;
+		final long expiresAt;
+
+		private RenderedList rendered;
+
+		CachedLists(final Map<String, Object[][]> lists, final long expiresAt) {
+			this.lists = lists;
+			this.expiresAt = expiresAt;
+		}
+
+		synchronized RenderedList getRendered() {
+			if (this.rendered == null) {
+				this.rendered = RenderedList.render(this.lists);
+			}
+			return this.rendered;
+		}
+	}
+
+	private static class CachedList {
+		final Object[][] rows;
+		final long expiresAt;
+		/*
+		 * built on first use for validation
+		 */
+		private Set<String> values;
+		private RenderedList rendered;
+
+		CachedList(final Object[][] rows, final long expiresAt) {
+			this.rows = rows;
+			this.expiresAt = expiresAt;
+		}
+
+		synchronized RenderedList getRendered() {
+			if (this.rendered == null) {
+				this.rendered = RenderedList.render(this.rows);
+			}
+			return this.rendered;
+		}
+
+		synchronized Set<String> getValues() {
+			if (this.values == null) {
+				final Set<String> set = new HashSet<>();
+				for (final Object[] row : this.rows) {
+					set.add(row[0].toString());
+				}
+				this.values = set;
+			}
+			return this.values;
+		}
+	}
 }
@@ -29,6 +29,10 @@ public class SimpleValueList implements ValueList {
 	 * second one always is text
 	 */
 	protected Object[][] valueList;
+	/*
+	 * rendered on first request
+	 */
+	private volatile RenderedList renderedList;
 
 	/**
 	 *
@@ -82,6 +86,16 @@ public class SimpleValueList implements ValueList {
 		return null;
 	}
 
+	@Override
+	public RenderedList getRenderedList(final Object keyValue, final ServiceContext ctx) {
+		RenderedList rendered = this.renderedList;
+		if (rendered == null) {
+			rendered = RenderedList.render(this.valueList);
+			this.renderedList = rendered;
+		}
+		return rendered;
+	}
+
 	@Override
 	public boolean authenticationRequired() {
 		return this.authenticationRequired;
@@ -74,6 +74,31 @@ public interface ValueList {
 	 */
 	Map<String, Object[][]> getAllLists(ServiceContext ctx);
 
+	/**
+	 * lists whose contents do not change across requests may keep them already
+	 * rendered as json
+	 *
+	 * @param keyValue null if this list is not key-based
+	 * @param ctx
+	 * @return list rendered as json, or null if this list does not keep a
+	 *         rendered form. getList() is to be used in that case
+	 */
+	default RenderedList getRenderedList(final Object keyValue, final ServiceContext ctx) {
+		return null;
+	}
+
+	/**
+	 * relevant for keyed list. all the lists for all possible keys, rendered as
+	 * json
+	 *
+	 * @param ctx
+	 * @return lists rendered as json, or null if this list does not keep a
+	 *         rendered form. getAllLists() is to be used in that case
+	 */
+	default RenderedList getRenderedLists(final ServiceContext ctx) {
+		return null;
+	}
+
 	/**
 	 * most lists are non-sensitive data, and can be accessed by the public.
 	 * However, certain business data may be accessible only to authenticated users
@@ -12,6 +12,10 @@ import java.time.LocalDate;
 public class DateSchema extends ValueSchema {
 	private final int maxPastDays;
 	private final int maxFutureDays;
+	/**
+	 * valid dates for today. replaced when the day changes
+	 */
+	private volatile Window window;
 
 	/**
 	 * @param name
@@ -61,12 +65,26 @@ public class DateSchema extends ValueSchema {
 
 	private LocalDate validate(final LocalDate date) {
 		final LocalDate today = LocalDate.now();
-		if (today.plusDays(-this.maxPastDays).isAfter(date)) {
-			return null;
+		Window w = this.window;
+		if (w == null || !w.today.equals(today)) {
+			w = new Window(today, today.plusDays(-this.maxPastDays), today.plusDays(this.maxFutureDays));
+			this.window = w;
 		}
-		if (today.plusDays(this.maxFutureDays).isBefore(date)) {
+		if (w.minDate.isAfter(date) || w.maxDate.isBefore(date)) {
 			return null;
 		}
 		return date;
 	}
+
+	private static class Window {
+		final LocalDate today;
+		final LocalDate minDate;
+		final LocalDate maxDate;
+
+		Window(final LocalDate today, final LocalDate minDate, final LocalDate maxDate) {
+			this.today = today;
+			this.minDate = minDate;
+			this.maxDate = maxDate;
+		}
+	}
 }
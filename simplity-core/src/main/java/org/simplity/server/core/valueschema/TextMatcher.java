@@ -0,0 +1,214 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.core.valueschema;
+
+import java.util.regex.Pattern;
+
+/**
+ * compiled form of the regex of a text schema, to be created once when the
+ * schema is created.
+ *
+ * Most regexes in practice are just a set of ASCII characters that may repeat,
+ * like [a-zA-Z0-9_]* or ^[0-9]{6}$. Such a regex is checked with a table of the
+ * allowed characters, without using the regex engine at all. Any other regex is
+ * compiled into a Pattern.
+ *
+ * @author simplity.org
+ *
+ */
+final class TextMatcher {
+	private static final int ASCII = 128;
+	/**
+	 * non-null if the regex is just a set of characters with a repetition
+	 */
+	private final boolean[] allowed;
+	private final int minChars;
+	private final int maxChars;
+	/**
+	 * non-null if the regex is not a simple one
+	 */
+	private final Pattern pattern;
+
+	private TextMatcher(final boolean[] allowed, final int minChars, final int maxChars, final Pattern pattern) {
+		this.allowed = allowed;
+		this.minChars = minChars;
+		this.maxChars = maxChars;
+		this.pattern = pattern;
+	}
+
+	/**
+	 *
+	 * @param regex non-null, non-empty valid regex
+	 * @return matcher that is equivalent to Pattern.matches(regex, value)
+	 */
+	static TextMatcher compile(final String regex) {
+		final TextMatcher matcher = compileSimple(regex);
+		if (matcher != null) {
+			return matcher;
+		}
+		return new TextMatcher(null, 0, 0, Pattern.compile(regex));
+	}
+
+	/**
+	 *
+	 * @param value non-null
+	 * @return true if the value matches the regex in its entirety
+	 */
+	boolean matches(final String value) {
+		if (this.pattern != null) {
+			return this.pattern.matcher(value).matches();
+		}
+
+		final int n = value.length();
+		if (n < this.minChars || n > this.maxChars) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			final char c = value.charAt(i);
+			if (c >= ASCII || !this.allowed[c]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * [set]quantifier with optional ^ and $ anchors. null if the regex is
+	 * anything else
+	 */
+	private static TextMatcher compileSimple(final String regex) {
+		int start = 0;
+		int end = regex.length();
+		if (end > 0 && regex.charAt(0) == '^') {
+			start = 1;
+		}
+		if (end > start && regex.charAt(end - 1) == '$' && (end < 2 || regex.charAt(end - 2) != '\\')) {
+			end--;
+		}
+		if (end - start < 3 || regex.charAt(start) != '[') {
+			return null;
+		}
+
+		final boolean[] allowed = new boolean[ASCII];
+		final int setEnd = parseSet(regex, start + 1, end, allowed);
+		if (setEnd == -1) {
+			return null;
+		}
+
+		/*
+		 * quantifier
+		 */
+		final int q = setEnd + 1;
+		if (q == end) {
+			return new TextMatcher(allowed, 1, 1, null);
+		}
+		final char c = regex.charAt(q);
+		if (q + 1 == end) {
+			if (c == '*') {
+				return new TextMatcher(allowed, 0, Integer.MAX_VALUE, null);
+			}
+			if (c == '+') {
+				return new TextMatcher(allowed, 1, Integer.MAX_VALUE, null);
+			}
+			if (c == '?') {
+				return new TextMatcher(allowed, 0, 1, null);
+			}
+			return null;
+		}
+		if (c != '{' || regex.charAt(end - 1) != '}') {
+			return null;
+		}
+		final String range = regex.substring(q + 1, end - 1);
+		try {
+			final int comma = range.indexOf(',');
+			if (comma == -1) {
+				final int n = Integer.parseInt(range);
+				return new TextMatcher(allowed, n, n, null);
+			}
+			final int min = Integer.parseInt(range.substring(0, comma));
+			final String maxText = range.substring(comma + 1);
+			final int max = maxText.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(maxText);
+			if (min > max) {
+				return null;
+			}
+			return new TextMatcher(allowed, min, max, null);
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * parse the characters of a set, starting after the '['. returns the index of
+	 * the closing ']', or -1 if the set is not a simple set of ASCII characters
+	 */
+	private static int parseSet(final String regex, final int start, final int end, final boolean[] allowed) {
+		int i = start;
+		if (i < end && regex.charAt(i) == '^') {
+			// negation
+			return -1;
+		}
+		boolean empty = true;
+		while (i < end) {
+			char c = regex.charAt(i);
+			if (c == ']') {
+				return empty ? -1 : i;
+			}
+			if (c == '[' || c == '&' || c >= ASCII || c < ' ') {
+				return -1;
+			}
+
+			if (c == '\\') {
+				i++;
+				if (i >= end) {
+					return -1;
+				}
+				c = regex.charAt(i);
+				if (c == 'd') {
+					setRange(allowed, '0', '9');
+				} else if (c == 'w') {
+					setRange(allowed, 'a', 'z');
+					setRange(allowed, 'A', 'Z');
+					setRange(allowed, '0', '9');
+					allowed['_'] = true;
+				} else if (c == 's') {
+					allowed[' '] = true;
+					allowed['\t'] = true;
+					allowed['\n'] = true;
+					allowed[0x0B] = true;
+					allowed['\f'] = true;
+					allowed['\r'] = true;
+				} else if (c < ASCII && c > ' ' && !Character.isLetterOrDigit(c)) {
+					// escaped punctuation stands for itself
+					allowed[c] = true;
+				} else {
+					return -1;
+				}
+				i++;
+				empty = false;
+				continue;
+			}
+
+			/*
+			 * a-z style range?
+			 */
+			if (i + 2 < end && regex.charAt(i + 1) == '-' && regex.charAt(i + 2) != ']') {
+				final char to = regex.charAt(i + 2);
+				if (to == '\\' || to == '[' || to >= ASCII || to < c) {
+					return -1;
+				}
+				setRange(allowed, c, to);
+				i += 3;
+			} else {
+				allowed[c] = true;
+				i++;
+			}
+			empty = false;
+		}
+		return -1;
+	}
+
+	private static void setRange(final boolean[] allowed, final char from, final char to) {
+		for (char c = from; c <= to; c++) {
+			allowed[c] = true;
+		}
+	}
+}
@@ -1,8 +1,6 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.core.valueschema;
 
-import java.util.regex.Pattern;
-
 /**
  * validation parameters for a text value
  *
@@ -10,7 +8,11 @@ import java.util.regex.Pattern;
  *
  */
 public class TextSchema extends ValueSchema {
-	private final String regex;
+	/**
+	 * regex compiled once, rather than for every value that is validated. null if
+	 * there is no regex
+	 */
+	private final TextMatcher matcher;
 
 	/**
 	 *
@@ -28,9 +30,9 @@ public class TextSchema extends ValueSchema {
 		this.maxLength = maxLength;
 		this.messageId = messageId;
 		if (regex == null || regex.isEmpty()) {
-			this.regex = null;
+			this.matcher = null;
 		} else {
-			this.regex = regex;
+			this.matcher = TextMatcher.compile(regex);
 		}
 	}
 
@@ -46,7 +48,7 @@ public class TextSchema extends ValueSchema {
 				|| (this.maxLength > 0 && len > this.maxLength)) {
 			return null;
 		}
-		if (this.regex == null || Pattern.matches(this.regex, value)) {
+		if (this.matcher == null || this.matcher.matches(value)) {
 			return value;
 		}
 		return null;
@@ -0,0 +1,48 @@
+package org.simplity.server.core.app;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+
+import org.simplity.server.core.db.DbDriver;
+
+/**
+ * installs a mocked App as the current app, for tests of components that get
+ * their infrastructure through AppManager.getApp()
+ */
+public final class TestApp {
+	private TestApp() {
+		// static methods only
+	}
+
+	/**
+	 *
+	 * @param driver db driver to be returned by the app
+	 * @return the mocked app, that is now the current app. Tests may stub more of
+	 *         its methods
+	 */
+	public static App install(final DbDriver driver) {
+		final DefaultApp app = mock(DefaultApp.class);
+		when(app.getDbDriver()).thenReturn(driver);
+		setCurrentApp(app);
+		return app;
+	}
+
+	/**
+	 * remove the app installed by install()
+	 */
+	public static void uninstall() {
+		setCurrentApp(null);
+	}
+
+	private static void setCurrentApp(final DefaultApp app) {
+		try {
+			final Field field = AppManager.class.getDeclaredField("currentApp");
+			field.setAccessible(true);
+			field.set(null, app);
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package org.simplity.server.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.valueschema.ValueSchema;
+import org.simplity.server.core.valueschema.ValueType;
+
+class ColumnarDataTableTest {
+	private static final ValueType[] TYPES = { ValueType.Integer, ValueType.Decimal, ValueType.Boolean,
+			ValueType.Text, ValueType.Date, ValueType.Timestamp };
+	/*
+	 * spans more than two chunks of the columns
+	 */
+	private static final int NBR_ROWS = 10_000;
+
+	@Test
+	void iteratorMatchesFetchRecord() {
+		final List<Object[]> rows = rows(NBR_ROWS);
+		final ColumnarDataTable<Record> table = newTable(rows);
+		assertEquals(NBR_ROWS, table.length());
+
+		int idx = 0;
+		for (final Record rec : table) {
+			assertArrayEquals(rows.get(idx), rec.fieldValues, "row " + idx);
+			assertArrayEquals(table.fetchRecord(idx).fieldValues, rec.fieldValues, "row " + idx);
+			idx++;
+		}
+		assertEquals(NBR_ROWS, idx);
+	}
+
+	@Test
+	void iteratorReusesTheRecord() {
+		final List<Object[]> rows = rows(3);
+		final ColumnarDataTable<Record> table = newTable(rows);
+		final Iterator<Record> iter = table.iterator();
+		final Record first = iter.next();
+		final Record copy = first.makeACopy();
+		final Record second = iter.next();
+		assertSame(first, second);
+		assertArrayEquals(rows.get(0), copy.fieldValues);
+		assertArrayEquals(rows.get(1), second.fieldValues);
+
+		iter.next();
+		assertFalse(iter.hasNext());
+		assertThrows(NoSuchElementException.class, iter::next);
+	}
+
+	@Test
+	void columnAccessors() {
+		final List<Object[]> rows = rows(NBR_ROWS);
+		final ColumnarDataTable<Record> table = newTable(rows);
+		for (int i = 0; i < NBR_ROWS; i++) {
+			final Object[] row = rows.get(i);
+			for (int col = 0; col < TYPES.length; col++) {
+				assertEquals(row[col] == null, table.isNull(i, col));
+				assertEquals(row[col], table.fetchValue(i, col));
+			}
+			if (row[0] != null) {
+				assertEquals(((Long) row[0]).longValue(), table.getLong(i, 0));
+				assertEquals(((Long) row[0]).doubleValue(), table.getDouble(i, 0));
+			}
+			if (row[1] != null) {
+				assertEquals(((Double) row[1]).doubleValue(), table.getDouble(i, 1));
+			}
+			assertEquals(Boolean.TRUE.equals(row[2]), table.getBoolean(i, 2));
+			assertEquals(row[3], table.getText(i, 3));
+			if (row[3] == null) {
+				assertEquals(-1, table.getTextCode(i, 3));
+			} else {
+				assertEquals(row[3], table.getTextDictionary(3)[table.getTextCode(i, 3)]);
+			}
+			if (row[4] != null) {
+				assertEquals(((LocalDate) row[4]).toEpochDay(), table.getLong(i, 4));
+			}
+		}
+	}
+
+	@Test
+	void clearAndReuse() {
+		final ColumnarDataTable<Record> table = newTable(rows(NBR_ROWS));
+		table.clear();
+		assertEquals(0, table.length());
+		assertNull(table.fetchRecord(0));
+		assertFalse(table.iterator().hasNext());
+
+		final List<Object[]> rows = rows(5);
+		for (final Object[] row : rows) {
+			table.addRow(row);
+		}
+		final List<Object[]> fetched = new ArrayList<>();
+		for (final Record rec : table) {
+			fetched.add(rec.fieldValues.clone());
+		}
+		assertEquals(rows.size(), fetched.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertArrayEquals(rows.get(i), fetched.get(i));
+		}
+	}
+
+	private static ColumnarDataTable<Record> newTable(final List<Object[]> rows) {
+		final ColumnarDataTable<Record> table = new ColumnarDataTable<>(new TestRecord());
+		for (final Object[] row : rows) {
+			table.addRow(row);
+		}
+		return table;
+	}
+
+	/*
+	 * every column has its nulls at a different frequency
+	 */
+	@SuppressWarnings("boxing")
+	private static List<Object[]> rows(final int nbr) {
+		final List<Object[]> rows = new ArrayList<>(nbr);
+		final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+		for (int i = 0; i < nbr; i++) {
+			rows.add(new Object[] { i % 7 == 0 ? null : (long) i * 1_000_003, //
+					i % 11 == 0 ? null : i / 3.0, //
+					i % 13 == 0 ? null : i % 3 == 0, //
+					i % 5 == 0 ? null : "text" + i % 50, //
+					i % 17 == 0 ? null : LocalDate.of(2000, 1, 1).plusDays(i), //
+					i % 19 == 0 ? null : now.plusSeconds(i) });
+		}
+		return rows;
+	}
+
+	/**
+	 * record with a column of every type, as a generated record would be
+	 */
+	public static class TestRecord extends Record {
+		private static final Field[] FIELDS = new Field[TYPES.length];
+		static {
+			for (int i = 0; i < FIELDS.length; i++) {
+				FIELDS[i] = new Field("f" + i, i, TYPES[i], ValueSchema.getDefaultSchema(TYPES[i]), false, null);
+			}
+		}
+
+		public TestRecord() {
+			super(FIELDS, null);
+		}
+
+		TestRecord(final Object[] values) {
+			super(FIELDS, values);
+		}
+
+		@Override
+		protected TestRecord newInstance(final Object[] values) {
+			return new TestRecord(values);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package org.simplity.server.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.db.ReadonlyHandle;
+import org.simplity.server.core.db.RowProcessor;
+import org.simplity.server.core.filter.FilterDetails;
+import org.simplity.server.core.valueschema.ValueType;
+
+class DbaCsvTest {
+	private static final ValueType[] TYPES = { ValueType.Text, ValueType.Integer, ValueType.Decimal,
+			ValueType.Boolean, ValueType.Date, ValueType.Timestamp };
+
+	@Test
+	void textIsQuotedAndEscaped() throws Exception {
+		final String[] texts = { "plain", "", " spaces kept ", "a,b", "say \"hi\"", "\"", "line\nbreak", "cr\rlf\r\n",
+				"quote\",comma", "it's" };
+		final String[] expected = { "plain", "", " spaces kept ", "\"a,b\"", "\"say \"\"hi\"\"\"", "\"\"\"\"",
+				"\"line\nbreak\"", "\"cr\rlf\r\n\"", "\"quote\"\",comma\"", "it's" };
+		final Object[][] rows = new Object[texts.length][];
+		final StringBuilder sbf = new StringBuilder("\"a,\"\"b\"\"\",n,d,b,dt,ts\r\n");
+		for (int i = 0; i < texts.length; i++) {
+			rows[i] = new Object[] { texts[i], null, null, null, null, null };
+			sbf.append(expected[i]).append(",,,,,\r\n");
+		}
+		assertEquals(sbf.toString(), csv(new String[] { "a,\"b\"", "n", "d", "b", "dt", "ts" }, rows));
+	}
+
+	@SuppressWarnings("boxing")
+	@Test
+	void valuesAreFormattedByTheirType() throws Exception {
+		final Object[][] rows = { //
+				{ "x", 12L, 2.0, true, LocalDate.of(2024, 2, 29), Instant.parse("2024-01-01T10:20:30Z") }, //
+				{ "y", -3L, -0.5, false, LocalDate.of(1999, 12, 31), Instant.parse("1999-12-31T23:59:59.5Z") }, //
+				{ null, null, Double.NaN, null, null, null }, //
+				{ "z", 7, Double.POSITIVE_INFINITY, true, null, null } };
+		final String expected = "t,n,d,b,dt,ts\r\n" //
+				+ "x,12,2.0,true,2024-02-29,2024-01-01T10:20:30Z\r\n" //
+				+ "y,-3,-0.5,false,1999-12-31,1999-12-31T23:59:59.500Z\r\n" //
+				+ ",,,,,\r\n" //
+				+ "z,7,,true,,\r\n";
+		assertEquals(expected, csv(new String[] { "t", "n", "d", "b", "dt", "ts" }, rows));
+	}
+
+	private static String csv(final String[] names, final Object[][] rows) throws Exception {
+		final List<Object[]> list = Arrays.asList(rows);
+		final ReadonlyHandle handle = mock(ReadonlyHandle.class);
+		when(handle.readWithRowProcessor(anyString(), any(), any(), any(), anyInt(), any())).thenAnswer(inv -> {
+			final RowProcessor processor = inv.getArgument(5);
+			for (final Object[] row : list) {
+				processor.process(row);
+			}
+			return list.size();
+		});
+		final StringWriter writer = new StringWriter();
+		final long nbr = Dba.writeRowsAsCsv(handle,
+				new FilterDetails("SELECT x FROM t", new Object[0], new ValueType[0], names, TYPES), writer);
+		assertEquals(rows.length, nbr);
+		return writer.toString();
+	}
+}
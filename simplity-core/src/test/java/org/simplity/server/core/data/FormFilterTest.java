@@ -0,0 +1,140 @@
+package org.simplity.server.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.app.TestApp;
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.db.DbReader;
+import org.simplity.server.core.db.ReadonlyHandle;
+import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.DefaultServiceContext;
+import org.simplity.server.core.service.InputArray;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.ServiceContext;
+import org.simplity.server.core.service.ServiceWorker;
+import org.simplity.server.core.valueschema.ValueSchema;
+import org.simplity.server.core.valueschema.ValueType;
+
+class FormFilterTest {
+	private final ReadonlyHandle handle = mock(ReadonlyHandle.class);
+	private final ChildForm<?> child = mock(ChildForm.class);
+	/*
+	 * rows returned by the db for the next read
+	 */
+	private List<Object[]> dbRows;
+	private String sql;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		final DbDriver driver = mock(DbDriver.class);
+		when(driver.doReadonlyOperations(any(DbReader.class)))
+				.thenAnswer(inv -> ((DbReader) inv.getArgument(0)).read(this.handle));
+		when(this.handle.readMany(anyString(), any(), any(), any(), any())).thenAnswer(inv -> {
+			this.sql = inv.getArgument(0);
+			final List<Object[]> rows = inv.getArgument(4);
+			rows.addAll(this.dbRows);
+			return this.dbRows.size();
+		});
+		TestApp.install(driver);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TestApp.uninstall();
+	}
+
+	@SuppressWarnings("boxing")
+	@Test
+	void aggregatedRowsAreWrittenWithTheirOwnNames() throws Exception {
+		this.dbRows = Arrays.asList(new Object[] { "north", 10.5, 3L }, new Object[] { "south", 2.0, 1L });
+		final InputData out = this.filter("{\"groupBy\":[\"region\"],\"aggregates\":["
+				+ "{\"field\":\"amount\",\"function\":\"sum\",\"name\":\"total\"},"
+				+ "{\"function\":\"count\",\"name\":\"nbr\"}]}");
+
+		assertTrue(this.sql.toUpperCase().contains("GROUP BY"), this.sql);
+		final InputArray list = out.getArray("list");
+		assertEquals(2, list.length());
+		final InputData first = list.toDataArray()[0];
+		assertEquals("north", first.getString("region"));
+		assertEquals(10.5, first.getDecimal("total"));
+		assertEquals(3, first.getInteger("nbr"));
+		assertEquals(3, first.size());
+		verify(this.child, never()).read(any(), any(), any());
+	}
+
+	@SuppressWarnings("boxing")
+	@Test
+	void plainRowsAreWrittenAsRecords() throws Exception {
+		this.dbRows = Arrays.asList(new Object[] { 1L, "north", 10.5 }, new Object[] { 2L, "south", 2.0 });
+		final InputData out = this.filter("{}");
+
+		final InputData[] rows = out.getArray("list").toDataArray();
+		assertEquals(2, rows.length);
+		assertEquals(2, rows[1].getInteger("id"));
+		assertEquals("south", rows[1].getString("region"));
+		verify(this.child, times(2)).read(any(), any(), any());
+	}
+
+	private InputData filter(final String payload) throws Exception {
+		final SaleForm form = new SaleForm(this.child);
+		final ServiceWorker worker = form.getServiceWorker(IoType.FILTER);
+		final StringWriter writer = new StringWriter();
+		final ServiceContext ctx = new DefaultServiceContext(null, JsonUtil.newOutputData(writer));
+		worker.serve(ctx, JsonUtil.newInputData(new StringReader(payload)));
+		assertTrue(ctx.allOk(), Arrays.toString(ctx.getMessages()));
+		return JsonUtil.newInputData(new StringReader(writer.toString()));
+	}
+
+	/*
+	 * created after the app is installed, as the dba uses it
+	 */
+	private static Sale newSale() {
+		final Field[] fields = {
+				new DbField("id", 0, ValueType.Integer, ValueSchema.getDefaultSchema(ValueType.Integer), false, null,
+						null, null, "id", FieldType.PrimaryKey),
+				new DbField("region", 1, ValueType.Text, ValueSchema.getDefaultSchema(ValueType.Text), false, null,
+						null, null, "region", FieldType.RequiredData),
+				new DbField("amount", 2, ValueType.Decimal, ValueSchema.getDefaultSchema(ValueType.Decimal), false,
+						null, null, null, "amount", FieldType.RequiredData) };
+		final Dba dba = new Dba(fields, "sale", new boolean[] { true, false, false, false, true },
+				"SELECT id, region, amount FROM sale", new int[] { 0, 1, 2 }, null, null, null, null, null,
+				" WHERE id=?", new int[] { 0 });
+		return new Sale(dba, new RecordMetaData("sale", fields, null), null);
+	}
+
+	private static class Sale extends DbRecord {
+		private final RecordMetaData meta;
+
+		Sale(final Dba dba, final RecordMetaData meta, final Object[] values) {
+			super(dba, meta, values);
+			this.meta = meta;
+		}
+
+		@Override
+		public DbRecord newInstance(final Object[] values) {
+			return new Sale(this.dba, this.meta, values);
+		}
+	}
+
+	private static class SaleForm extends Form<Sale> {
+		SaleForm(final ChildForm<?> child) {
+			super("sale", newSale(), new boolean[] { true, false, false, false, true }, new ChildForm<?>[] { child });
+		}
+	}
+}
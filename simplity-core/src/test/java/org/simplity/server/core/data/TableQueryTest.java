@@ -0,0 +1,203 @@
+package org.simplity.server.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.data.ColumnarDataTableTest.TestRecord;
+import org.simplity.server.core.fn.Average;
+import org.simplity.server.core.fn.Concat;
+import org.simplity.server.core.fn.Max;
+import org.simplity.server.core.fn.Min;
+import org.simplity.server.core.fn.Sum;
+
+class TableQueryTest {
+	private static final int NBR_COLS = 6;
+	/*
+	 * below and above the size at which tables are processed in parallel
+	 */
+	private static final int SMALL = 500;
+	private static final int LARGE = 20_000;
+
+	@Test
+	void sortOnEachColumn() {
+		for (final int nbr : new int[] { SMALL, LARGE }) {
+			final List<Object[]> rows = rows(nbr);
+			for (final DataTable<?> table : tables(rows)) {
+				final TableQuery query = new TableQuery(table);
+				for (int col = 0; col < NBR_COLS; col++) {
+					for (final boolean desc : new boolean[] { false, true }) {
+						final int[] cols = { col };
+						final boolean[] descending = { desc };
+						assertArrayEquals(expectedOrder(rows, cols, descending), query.sort(cols, descending),
+								"column " + col + (desc ? " desc" : "") + " of " + table.getClass().getSimpleName()
+										+ " with " + nbr + " rows");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void sortOnMultipleColumns() {
+		for (final int nbr : new int[] { SMALL, LARGE }) {
+			final List<Object[]> rows = rows(nbr);
+			final int[] cols = { 3, 2, 1 };
+			final boolean[] descending = { false, true, false };
+			final int[] expected = expectedOrder(rows, cols, descending);
+			for (final DataTable<?> table : tables(rows)) {
+				assertArrayEquals(expected, new TableQuery(table).sort(cols, descending));
+				assertArrayEquals(expectedOrder(rows, cols, null), new TableQuery(table).sort(cols, null));
+			}
+		}
+	}
+
+	@Test
+	void nullsSortFirst() {
+		final List<Object[]> rows = rows(SMALL);
+		final TableQuery query = new TableQuery(tables(rows).get(1));
+		final int[] order = query.sort(new int[] { 3 }, null);
+		assertNull(query.fetchRows(order)[0][3]);
+		final int[] desc = query.sort(new int[] { 3 }, new boolean[] { true });
+		assertNull(query.fetchRows(desc)[desc.length - 1][3]);
+	}
+
+	@Test
+	void groupAndAggregate() {
+		final Aggregation[] aggs = { new Aggregation("total", new Sum(), 1), new Aggregation("smallest", new Min(), 0),
+				new Aggregation("largest", new Max(), 1), new Aggregation("avg", new Average(), 0),
+				new Aggregation("names", new Concat(), 3) };
+		final int[][] keySets = { { 3 }, { 2 }, { 1 }, { 3, 2 }, { 4, 3 }, {} };
+		for (final int nbr : new int[] { SMALL, LARGE }) {
+			final List<Object[]> rows = rows(nbr);
+			for (final int[] keys : keySets) {
+				final Object[][] expected = expectedGroups(rows, keys, aggs);
+				for (final DataTable<?> table : tables(rows)) {
+					final Object[][] actual = new TableQuery(table).group(keys, aggs);
+					final String msg = "keys " + Arrays.toString(keys) + " of " + table.getClass().getSimpleName()
+							+ " with " + nbr + " rows";
+					assertEquals(expected.length, actual.length, msg);
+					for (int i = 0; i < expected.length; i++) {
+						assertArrayEquals(expected[i], actual[i], msg + " group " + i);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void groupColumnNames() {
+		final TableQuery query = new TableQuery(tables(rows(10)).get(0));
+		final Aggregation[] aggs = { new Aggregation("total", new Sum(), 1) };
+		assertArrayEquals(new String[] { "f3", "f2", "total" }, query.getGroupColumnNames(new int[] { 3, 2 }, aggs));
+	}
+
+	/*
+	 * the same rows in a row-wise and in a columnar table
+	 */
+	private static List<DataTable<?>> tables(final List<Object[]> rows) {
+		final DataTable<TestRecord> table = new DataTable<>(new TestRecord());
+		final ColumnarDataTable<TestRecord> columnar = new ColumnarDataTable<>(new TestRecord());
+		for (final Object[] row : rows) {
+			table.addRow(row.clone());
+			columnar.addRow(row);
+		}
+		return List.of(table, columnar);
+	}
+
+	/*
+	 * few distinct values, so that there are ties to be resolved by the stable
+	 * sort, and groups with many rows. Nulls in every column
+	 */
+	@SuppressWarnings("boxing")
+	private static List<Object[]> rows(final int nbr) {
+		final List<Object[]> rows = new ArrayList<>(nbr);
+		final Instant now = Instant.parse("2024-01-01T00:00:00Z");
+		for (int i = 0; i < nbr; i++) {
+			final int h = (i * 7919) % 1009;
+			rows.add(new Object[] { h % 9 == 0 ? null : (long) (h % 40) - 20, //
+					h % 10 == 0 ? null : (h % 25) / 4.0 - 3, //
+					h % 11 == 0 ? null : h % 2 == 0, //
+					h % 6 == 0 ? null : "name" + h % 13, //
+					h % 8 == 0 ? null : LocalDate.of(2020, 1, 1).plusDays(h % 30), //
+					h % 7 == 0 ? null : now.plusSeconds(h % 50) });
+		}
+		return rows;
+	}
+
+	/*
+	 * reference implementations on the boxed values
+	 */
+
+	@SuppressWarnings({ "unchecked", "rawtypes", "boxing" })
+	private static int[] expectedOrder(final List<Object[]> rows, final int[] cols, final boolean[] descending) {
+		Comparator<Integer> comparator = (a, b) -> 0;
+		for (int i = 0; i < cols.length; i++) {
+			final int col = cols[i];
+			final Comparator<Integer> c = Comparator.comparing(row -> (Comparable) rows.get(row)[col],
+					Comparator.nullsFirst(Comparator.naturalOrder()));
+			comparator = comparator.thenComparing(descending != null && descending[i] ? c.reversed() : c);
+		}
+		final List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < rows.size(); i++) {
+			order.add(i);
+		}
+		order.sort(comparator);
+		return order.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	@SuppressWarnings("boxing")
+	private static Object[][] expectedGroups(final List<Object[]> rows, final int[] keys, final Aggregation[] aggs) {
+		final Map<List<Object>, List<Object>[]> groups = new LinkedHashMap<>();
+		final Map<List<Object>, Object[]> firstRows = new LinkedHashMap<>();
+		for (final Object[] row : rows) {
+			final List<Object> key = new ArrayList<>();
+			for (final int k : keys) {
+				final Object val = row[k];
+				key.add(val instanceof Double ? (Double) val + 0.0 : val);
+			}
+			List<Object>[] values = groups.get(key);
+			if (values == null) {
+				@SuppressWarnings("unchecked")
+				final List<Object>[] arr = new List[aggs.length];
+				values = arr;
+				for (int i = 0; i < aggs.length; i++) {
+					values[i] = new ArrayList<>();
+				}
+				groups.put(key, values);
+				firstRows.put(key, row);
+			}
+			for (int i = 0; i < aggs.length; i++) {
+				final Object val = row[aggs[i].getColumnIndex()];
+				if (val != null) {
+					values[i].add(val);
+				}
+			}
+		}
+
+		final Object[][] result = new Object[groups.size()][];
+		int idx = 0;
+		for (final Map.Entry<List<Object>, List<Object>[]> entry : groups.entrySet()) {
+			final Object[] first = firstRows.get(entry.getKey());
+			final Object[] row = new Object[keys.length + aggs.length];
+			for (int i = 0; i < keys.length; i++) {
+				row[i] = first[keys[i]];
+			}
+			for (int i = 0; i < aggs.length; i++) {
+				row[keys.length + i] = aggs[i].getFunction().eval(entry.getValue()[i].toArray());
+			}
+			result[idx++] = row;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,143 @@
+package org.simplity.server.core.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.simplity.server.core.Conventions;
+import org.simplity.server.core.DefaultUserContext;
+import org.simplity.server.core.app.App;
+import org.simplity.server.core.infra.TempFileManager;
+import org.simplity.server.core.infra.defalt.DefaultTempFileManager;
+import org.simplity.server.core.service.ExportService;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class HttpAgentTest {
+	private static final String CONTENT = "a,b\r\n1,2\r\n";
+	private static final long OWNER = 7;
+
+	@TempDir
+	Path folder;
+
+	private TempFileManager fm;
+	private HttpAgent agent;
+	private String fileName;
+
+	@BeforeEach
+	void setUp() {
+		this.fm = new DefaultTempFileManager(this.folder, 1024, 0, 60);
+		final App app = mock(App.class);
+		when(app.getTempFileManager()).thenReturn(this.fm);
+		when(app.getUserContext("owner")).thenReturn(new DefaultUserContext(OWNER));
+		when(app.getUserContext("other")).thenReturn(new DefaultUserContext(OWNER + 1));
+		this.agent = new HttpAgent(app);
+		this.fileName = ExportService.newFileName(OWNER);
+		assertTrue(this.fm.newFile(this.fileName, writer -> {
+			try {
+				writer.write(CONTENT);
+				return true;
+			} catch (final IOException e) {
+				return false;
+			}
+		}));
+	}
+
+	@Test
+	void ownerDownloadsAndTheFileIsRemoved() throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final HttpServletResponse resp = this.download("owner", new Out(bytes, false));
+
+		verify(resp).setStatus(Conventions.Http.STATUS_ALL_OK);
+		assertEquals(CONTENT, bytes.toString(StandardCharsets.UTF_8));
+		assertFalse(this.fm.fileExists(this.fileName));
+	}
+
+	@Test
+	void onlyTheOwnerCanDownload() throws Exception {
+		for (final String session : new String[] { "other", "unknown", null }) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final HttpServletResponse resp = this.download(session, new Out(bytes, false));
+
+			verify(resp).setStatus(Conventions.Http.STATUS_AUTH_REQUIRED);
+			assertEquals(0, bytes.size());
+			assertTrue(this.fm.fileExists(this.fileName));
+		}
+	}
+
+	@Test
+	void fileIsKeptWhenTheTransferFails() throws Exception {
+		assertThrows(IOException.class, () -> this.download("owner", new Out(new ByteArrayOutputStream(), true)));
+		assertTrue(this.fm.fileExists(this.fileName));
+	}
+
+	@Test
+	void fileOwner() {
+		assertEquals(0, ExportService.getFileOwner(ExportService.newFileName(0)));
+		assertEquals(OWNER, ExportService.getFileOwner(this.fileName));
+		assertEquals(-1, ExportService.getFileOwner(null));
+		assertEquals(-1, ExportService.getFileOwner("job-1"));
+		assertEquals(-1, ExportService.getFileOwner(Conventions.App.EXPORT_FILE_PREFIX + "abc"));
+	}
+
+	private HttpServletResponse download(final String sessionId, final Out out) throws IOException {
+		final HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getParameter(Conventions.Http.PARAM_EXPORT_FILE)).thenReturn(this.fileName);
+		when(req.getHeader(Conventions.Http.HEADER_AUTH)).thenReturn(sessionId);
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		when(resp.getOutputStream()).thenReturn(out);
+		this.agent.download(req, resp);
+		return resp;
+	}
+
+	/*
+	 * response stream that may fail like a client that has gone away
+	 */
+	private static class Out extends ServletOutputStream {
+		private final ByteArrayOutputStream bytes;
+		private final boolean fail;
+
+		Out(final ByteArrayOutputStream bytes, final boolean fail) {
+			this.bytes = bytes;
+			this.fail = fail;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if (this.fail) {
+				throw new IOException("connection reset");
+			}
+			this.bytes.write(b, off, len);
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(final WriteListener writeListener) {
+			// blocking stream
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package org.simplity.server.core.infra.defalt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.db.DbWriter;
+import org.simplity.server.core.db.ReadWriteHandle;
+
+class DbLeaseCoordinatorTest {
+	private static final String LEASE = "schedule:x";
+	/*
+	 * long enough for the heartbeat not to interfere, unless a test wants it to
+	 */
+	private static final int TTL = 60;
+
+	private final LeaseTable table = new LeaseTable();
+	private final DbDriver driver = this.table.newDriver();
+
+	@Test
+	void firstAcquireInsertsTheLease() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		assertEquals(1, a.acquire(LEASE));
+		assertEquals("a", this.table.get(LEASE).owner);
+		/*
+		 * acquiring a held lease renews it, with the same token
+		 */
+		assertEquals(1, a.acquire(LEASE));
+		assertEquals(1, this.table.get(LEASE).token);
+	}
+
+	@Test
+	void leaseHeldByAnotherNodeIsNotAcquired() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		final DbLeaseCoordinator b = this.newNode("b", TTL);
+		assertEquals(1, a.acquire(LEASE));
+		assertEquals(0, b.acquire(LEASE));
+		assertEquals("a", this.table.get(LEASE).owner);
+	}
+
+	@Test
+	void tokenIncreasesWithEveryNewHolder() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		final DbLeaseCoordinator b = this.newNode("b", TTL);
+		assertEquals(1, a.acquire(LEASE));
+		a.release(LEASE);
+		assertEquals(2, b.acquire(LEASE));
+		b.release(LEASE);
+		assertEquals(3, a.acquire(LEASE));
+		assertEquals(3, a.acquire(LEASE));
+	}
+
+	@Test
+	void heartbeatRenewsTheLeases() throws Exception {
+		final DbLeaseCoordinator a = this.newNode("a", 1);
+		final DbLeaseCoordinator b = this.newNode("b", 1);
+		assertEquals(1, a.acquire(LEASE));
+		final Instant firstExpiry = this.table.get(LEASE).expiresAt;
+
+		Thread.sleep(1500);
+		assertTrue(this.table.get(LEASE).expiresAt.isAfter(firstExpiry));
+		assertEquals(0, b.acquire(LEASE));
+		assertTrue(b.isNodeAlive("a"));
+	}
+
+	@Test
+	void expiredLeaseIsTakenOver() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		final DbLeaseCoordinator b = this.newNode("b", TTL);
+		assertEquals(1, a.acquire(LEASE));
+		assertTrue(b.isNodeAlive("a"));
+
+		/*
+		 * node a stops sending its heartbeat
+		 */
+		this.table.expire(LEASE);
+		this.table.expire("node:a");
+		assertFalse(b.isNodeAlive("a"));
+		assertEquals(2, b.acquire(LEASE));
+		assertEquals("b", this.table.get(LEASE).owner);
+	}
+
+	@Test
+	void staleTokenIsRejected() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		final DbLeaseCoordinator b = this.newNode("b", TTL);
+		assertEquals(1, a.acquire(LEASE));
+		this.table.expire(LEASE);
+		assertEquals(2, b.acquire(LEASE));
+
+		/*
+		 * a comes back with its old token. It can neither renew nor take the lease
+		 */
+		assertEquals(0, a.acquire(LEASE));
+		a.release(LEASE);
+		final Row row = this.table.get(LEASE);
+		assertEquals("b", row.owner);
+		assertEquals(2, row.token);
+		assertTrue(row.expiresAt.isAfter(Instant.now()));
+	}
+
+	@Test
+	void nodeHoldsItsOwnLease() {
+		final DbLeaseCoordinator a = this.newNode("a", TTL);
+		final long token = a.getNodeToken();
+		assertTrue(token > 0);
+		assertEquals("a", this.table.get("node:a").owner);
+		assertTrue(a.isNodeAlive("a"));
+		assertFalse(a.isNodeAlive("unknown"));
+	}
+
+	private DbLeaseCoordinator newNode(final String nodeId, final int ttlSeconds) {
+		return new DbLeaseCoordinator(this.driver, "_leases", nodeId, ttlSeconds);
+	}
+
+	private static class Row {
+		String owner;
+		long token;
+		Instant expiresAt;
+	}
+
+	/*
+	 * in-memory lease table that understands the sqls of the coordinator.
+	 * Transactions are serialized
+	 */
+	private static class LeaseTable {
+		private final Map<String, Row> rows = new HashMap<>();
+
+		synchronized Row get(final String name) {
+			final Row row = this.rows.get(name);
+			final Row copy = new Row();
+			copy.owner = row.owner;
+			copy.token = row.token;
+			copy.expiresAt = row.expiresAt;
+			return copy;
+		}
+
+		synchronized void expire(final String name) {
+			this.rows.get(name).expiresAt = Instant.now().minusSeconds(1);
+		}
+
+		DbDriver newDriver() {
+			final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+			try {
+				when(handle.write(anyString(), any(), any())).thenAnswer(inv -> this.write(inv.getArgument(0),
+						inv.getArgument(1)));
+				when(handle.read(anyString(), any(), any(), any(), any(Object[].class))).thenAnswer(inv -> this
+						.read(inv.getArgument(0), inv.getArgument(1), inv.getArgument(4)));
+				final DbDriver driver = mock(DbDriver.class);
+				when(driver.doReadWriteOperations(any(DbWriter.class))).thenAnswer(inv -> {
+					synchronized (this) {
+						return ((DbWriter) inv.getArgument(0)).readWrite(handle);
+					}
+				});
+				return driver;
+			} catch (final SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private synchronized int write(final String sql, final Object[] values) throws SQLException {
+			if (sql.startsWith("insert")) {
+				if (this.rows.containsKey(values[0])) {
+					throw new SQLException("duplicate key " + values[0]);
+				}
+				final Row row = new Row();
+				row.owner = (String) values[1];
+				row.token = 1;
+				row.expiresAt = (Instant) values[2];
+				this.rows.put((String) values[0], row);
+				return 1;
+			}
+
+			if (sql.contains("fencing_token=fencing_token+1")) {
+				final Row row = this.rows.get(values[2]);
+				if (row == null || !(row.owner.equals(values[3]) || row.expiresAt.isBefore((Instant) values[4]))) {
+					return 0;
+				}
+				row.owner = (String) values[0];
+				row.token++;
+				row.expiresAt = (Instant) values[1];
+				return 1;
+			}
+
+			/*
+			 * renew, with the token, or release without it
+			 */
+			final Row row = this.rows.get(values[1]);
+			if (row == null || !row.owner.equals(values[2])
+					|| (values.length > 3 && row.token != ((Number) values[3]).longValue())) {
+				return 0;
+			}
+			row.expiresAt = (Instant) values[0];
+			return 1;
+		}
+
+		@SuppressWarnings("boxing")
+		private synchronized boolean read(final String sql, final Object[] params, final Object[] out) {
+			final Row row = this.rows.get(params[0]);
+			if (row == null) {
+				return false;
+			}
+			if (sql.startsWith("select fencing_token")) {
+				if (!row.owner.equals(params[1])) {
+					return false;
+				}
+				out[0] = row.token;
+				return true;
+			}
+			out[0] = row.expiresAt;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package org.simplity.server.core.infra.defalt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.DefaultUserContext;
+import org.simplity.server.core.infra.CompProvider;
+import org.simplity.server.core.job.JobHandle;
+import org.simplity.server.core.job.JobStatus;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.Service;
+import org.simplity.server.core.service.ServiceContext;
+
+class DefaultJobManagerTest {
+	private static final String BLOCKER = "blocker";
+
+	/*
+	 * names of the jobs in the order in which they were run
+	 */
+	private final List<String> runs = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@TempDir
+	Path folder;
+
+	@AfterEach
+	void tearDown() {
+		this.release.countDown();
+	}
+
+	@Test
+	void queueIsBounded() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 2, 0, 60);
+		final JobHandle blocker = this.runBlocker(jm, null);
+		jm.newJob(input("a"), "svc", null, 0);
+		jm.newJob(input("b"), "svc", null, 0);
+		assertThrows(ApplicationError.class, () -> jm.newJob(input("c"), "svc", null, 0));
+		assertEquals(2, jm.getNbrWaitingJobs());
+
+		this.release.countDown();
+		waitTillDone(blocker);
+		final JobHandle d = jm.newJob(input("d"), "svc", null, 0);
+		waitTillDone(d);
+		assertEquals(Arrays.asList(BLOCKER, "a", "b", "d"), this.runs);
+	}
+
+	@Test
+	void jobsPerUserAreLimited() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 10, 2, 60);
+		final DefaultUserContext user = new DefaultUserContext(5);
+		this.runBlocker(jm, user);
+		final JobHandle a = jm.newJob(input("a"), "svc", user, 0);
+		assertThrows(ApplicationError.class, () -> jm.newJob(input("b"), "svc", user, 0));
+
+		/*
+		 * other users, and jobs without a user, are not affected
+		 */
+		jm.newJob(input("c"), "svc", new DefaultUserContext(6), 0);
+		jm.newJob(input("d"), "svc", null, 0);
+		jm.newJob(input("e"), "svc", null, 0);
+		jm.newJob(input("f"), "svc", null, 0);
+
+		/*
+		 * a slot is available again once a job is done
+		 */
+		assertTrue(a.cancelJob(false));
+		final JobHandle b = jm.newJob(input("b"), "svc", user, 0);
+		assertEquals(5, jm.getNbrWaitingJobs());
+
+		this.release.countDown();
+		waitTillDone(b);
+		assertFalse(this.runs.contains("a"));
+	}
+
+	@Test
+	void higherPriorityRunsFirst() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 10, 0, 60);
+		this.runBlocker(jm, null);
+		final int[] priorities = { 0, 5, -1, 5, 0, 10 };
+		final List<JobHandle> handles = new ArrayList<>();
+		for (int i = 0; i < priorities.length; i++) {
+			handles.add(jm.newJob(input("p" + priorities[i] + "-" + i), "svc", null, priorities[i]));
+		}
+
+		this.release.countDown();
+		for (final JobHandle job : handles) {
+			waitTillDone(job);
+		}
+		assertEquals(Arrays.asList(BLOCKER, "p10-5", "p5-1", "p5-3", "p0-0", "p0-4", "p-1-2"), this.runs);
+	}
+
+	@Test
+	void cancel() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 10, 0, 60);
+		final JobHandle blocker = this.runBlocker(jm, null);
+		final JobHandle waiting = jm.newJob(input("a"), "svc", null, 0);
+
+		assertTrue(waiting.cancelJob(false));
+		assertEquals(JobStatus.Cancelled, waiting.getStatus());
+		assertEquals(0, jm.getNbrWaitingJobs());
+		assertFalse(waiting.cancelJob(true));
+
+		/*
+		 * a running job is cancelled only if asked to abort it
+		 */
+		assertFalse(blocker.cancelJob(false));
+		assertEquals(JobStatus.Running, blocker.getStatus());
+		assertTrue(blocker.cancelJob(true));
+		waitTillDone(blocker);
+		assertEquals(JobStatus.Cancelled, blocker.getStatus());
+		assertEquals(Arrays.asList(BLOCKER), this.runs);
+	}
+
+	@Test
+	void statusAndOutputAreRetained() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 10, 0, 60);
+		final JobHandle job = jm.newJob(input("a"), "svc", null, 0);
+		waitTillDone(job);
+
+		jm.cleanup();
+		assertSame(job, jm.getJob(job.getId()));
+		assertEquals(JobStatus.Completed, job.getStatus());
+		final StringWriter sw = new StringWriter();
+		assertTrue(job.copyOutput(sw));
+		assertTrue(sw.toString().contains("\"allOk\":true"), sw.toString());
+		/*
+		 * delivered once, and then it is gone
+		 */
+		assertTrue(job.writeOutput(new StringWriter()));
+		assertFalse(job.copyOutput(new StringWriter()));
+		assertNotNull(jm.getJob(job.getId()));
+	}
+
+	@Test
+	void doneJobsAreRemovedAfterRetention() throws Exception {
+		final DefaultJobManager jm = this.newManager(1, 10, 0, 0);
+		final JobHandle job = jm.newJob(input("a"), "svc", null, 0);
+		waitTillDone(job);
+		Thread.sleep(5);
+
+		jm.cleanup();
+		assertNull(jm.getJob(job.getId()));
+		assertFalse(job.copyOutput(new StringWriter()));
+	}
+
+	private DefaultJobManager newManager(final int maxRunning, final int maxQueued, final int maxPerUser,
+			final int retentionMinutes) {
+		final CompProvider provider = mock(CompProvider.class);
+		when(provider.getService(anyString(), any())).thenReturn(new TestService());
+		return new DefaultJobManager(new DefaultContextFactory(), provider, null, new DefunctClusterCoordinator(),
+				new DefaultTempFileManager(this.folder, 1024, 0, 60), maxRunning, maxQueued, maxPerUser,
+				retentionMinutes, null);
+	}
+
+	/*
+	 * occupies the only runner till released
+	 */
+	private JobHandle runBlocker(final DefaultJobManager jm, final DefaultUserContext utx) throws Exception {
+		final JobHandle job = jm.newJob(input(BLOCKER), "svc", utx, 0);
+		assertTrue(this.started.await(5, TimeUnit.SECONDS), "blocker did not start");
+		return job;
+	}
+
+	private static StringReader input(final String name) {
+		return new StringReader("{\"name\":\"" + name + "\"}");
+	}
+
+	private static void waitTillDone(final JobHandle job) throws InterruptedException {
+		final long giveUpAt = System.currentTimeMillis() + 5000;
+		while (!isDone(job.getStatus())) {
+			assertTrue(System.currentTimeMillis() < giveUpAt, "job " + job.getId() + " is still " + job.getStatus());
+			Thread.sleep(5);
+		}
+	}
+
+	private static boolean isDone(final JobStatus status) {
+		return status != JobStatus.Waiting && status != JobStatus.Running;
+	}
+
+	private class TestService implements Service {
+
+		@Override
+		public void serve(final ServiceContext ctx, final InputData inputData) throws Exception {
+			final String name = inputData.getString("name");
+			DefaultJobManagerTest.this.runs.add(name);
+			if (BLOCKER.equals(name)) {
+				DefaultJobManagerTest.this.started.countDown();
+				DefaultJobManagerTest.this.release.await();
+			}
+		}
+
+		@Override
+		public String getId() {
+			return "svc";
+		}
+
+		@Override
+		public boolean serveGuests() {
+			return true;
+		}
+
+		@Override
+		public boolean isAbortable() {
+			return true;
+		}
+
+		@Override
+		public boolean isAsynch() {
+			return true;
+		}
+	}
+}
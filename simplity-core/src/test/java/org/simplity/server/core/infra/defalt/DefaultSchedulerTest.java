@@ -0,0 +1,89 @@
+package org.simplity.server.core.infra.defalt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.simplity.server.core.infra.CompProvider;
+import org.simplity.server.core.service.InputData;
+import org.simplity.server.core.service.Service;
+import org.simplity.server.core.service.ServiceContext;
+
+class DefaultSchedulerTest {
+	private static final int MAX_JOBS_PER_USER = 2;
+	private static final int NBR_SCHEDULES = MAX_JOBS_PER_USER + 2;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final CountDownLatch started = new CountDownLatch(1);
+
+	@TempDir
+	Path folder;
+
+	@AfterEach
+	void tearDown() {
+		this.release.countDown();
+	}
+
+	@Test
+	void schedulesAreNotLimitedAsAUser() throws Exception {
+		final CompProvider provider = mock(CompProvider.class);
+		when(provider.getService(anyString(), any())).thenReturn(new BlockingService());
+		final DefaultJobManager jobManager = new DefaultJobManager(new DefaultContextFactory(), provider, null,
+				new DefunctClusterCoordinator(), new DefaultTempFileManager(this.folder, 1024, 0, 60), 1, 10,
+				MAX_JOBS_PER_USER, 60, null);
+		final DefaultScheduler scheduler = new DefaultScheduler(jobManager, new DefunctClusterCoordinator(), 10, 0);
+		for (int i = 0; i < NBR_SCHEDULES; i++) {
+			scheduler.scheduleAtFixedRate("blocker", "{\"run\":" + i + "}", 0, 3600);
+		}
+
+		assertTrue(this.started.await(5, TimeUnit.SECONDS), "no scheduled run started");
+		/*
+		 * one run blocks the only worker, and the others wait for it
+		 */
+		final long giveUpAt = System.currentTimeMillis() + 5000;
+		while (jobManager.getNbrWaitingJobs() < NBR_SCHEDULES - 1 && System.currentTimeMillis() < giveUpAt) {
+			Thread.sleep(10);
+		}
+		assertEquals(NBR_SCHEDULES - 1, jobManager.getNbrWaitingJobs());
+		assertEquals(1, jobManager.getNbrRunningJobs());
+	}
+
+	private class BlockingService implements Service {
+
+		@Override
+		public void serve(final ServiceContext ctx, final InputData inputData) throws Exception {
+			DefaultSchedulerTest.this.started.countDown();
+			DefaultSchedulerTest.this.release.await();
+		}
+
+		@Override
+		public String getId() {
+			return "blocker";
+		}
+
+		@Override
+		public boolean serveGuests() {
+			return true;
+		}
+
+		@Override
+		public boolean isAbortable() {
+			return false;
+		}
+
+		@Override
+		public boolean isAsynch() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.simplity.server.core.infra.defalt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DefaultTempFileManagerTest {
+	private static final int THRESHOLD = 100;
+	private static final int TTL = 60;
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void spillsBeyondTheThreshold() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, THRESHOLD, 0, TTL);
+		final String small = "s".repeat(THRESHOLD);
+		assertTrue(newFile(fm, "small", small));
+		assertEquals(0, this.filesOnDisk().size());
+
+		final String large = "l".repeat(THRESHOLD + 1);
+		assertTrue(newFile(fm, "large", large));
+		final List<Path> files = this.filesOnDisk();
+		assertEquals(1, files.size());
+		assertEquals(THRESHOLD + 1, Files.size(files.get(0)));
+
+		assertEquals(small, read(fm, "small", false));
+		assertEquals(large, read(fm, "large", false));
+	}
+
+	@Test
+	void quotaIsEnforcedAndReleased() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, 10, 150, TTL);
+		assertTrue(newFile(fm, "a", "a".repeat(100)));
+		assertFalse(newFile(fm, "b", "b".repeat(100)));
+		assertFalse(fm.fileExists("b"));
+		assertEquals(1, this.filesOnDisk().size());
+
+		/*
+		 * the rejected file has not held on to its reservation
+		 */
+		assertTrue(newFile(fm, "c", "c".repeat(50)));
+		fm.removeFile("a");
+		fm.removeFile("c");
+		assertEquals(0, this.filesOnDisk().size());
+		assertTrue(newFile(fm, "d", "d".repeat(150)));
+	}
+
+	@Test
+	void failedSpillReleasesTheReservation() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, 10, 100, TTL);
+		Files.delete(this.folder);
+		assertFalse(newFile(fm, "a", "a".repeat(60)));
+
+		Files.createDirectories(this.folder);
+		assertTrue(newFile(fm, "b", "b".repeat(100)));
+	}
+
+	@Test
+	void removedFileIsDeletedAfterItsReaderIsDone() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, 10, 0, TTL);
+		final String content = "x".repeat(1000);
+		assertTrue(newFile(fm, "a", content));
+		final StringWriter sw = new StringWriter();
+		assertTrue(fm.readFile("a", reader -> {
+			try {
+				sw.write(reader.read());
+				fm.removeFile("a");
+				assertFalse(fm.fileExists("a"));
+				assertEquals(1, this.filesOnDisk().size());
+				reader.transferTo(sw);
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, false));
+
+		assertEquals(content, sw.toString());
+		assertEquals(0, this.filesOnDisk().size());
+		assertFalse(fm.readFile("a", reader -> {
+			//
+		}, false));
+	}
+
+	@Test
+	void removeAfterRead() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, 10, 0, TTL);
+		final String content = "y".repeat(500);
+		assertTrue(newFile(fm, "a", content));
+		assertTrue(fm.readFile("a", reader -> {
+			/*
+			 * gone for others, but not for us
+			 */
+			assertFalse(fm.fileExists("a"));
+			try {
+				assertEquals(content, readAll(reader));
+				assertEquals(1, this.filesOnDisk().size());
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, true));
+
+		assertEquals(0, this.filesOnDisk().size());
+		assertEquals(null, read(fm, "a", false));
+	}
+
+	@Test
+	void orphanSweepSkipsOpenFiles() throws Exception {
+		final DefaultTempFileManager fm = new DefaultTempFileManager(this.folder, 10, 0, TTL);
+		final Path orphan = this.folder.resolve("simplity-orphan.tmp");
+		Files.writeString(orphan, "left behind by an earlier run");
+		final Path other = this.folder.resolve("not-ours.tmp");
+		Files.writeString(other, "not ours");
+		assertTrue(newFile(fm, "a", "z".repeat(100)));
+		final Path open = this.filesOnDisk().stream().filter(p -> !p.equals(orphan)).findFirst().get();
+		final FileTime old = FileTime.from(Instant.now().minusSeconds(2 * 60 * TTL));
+		for (final Path p : new Path[] { orphan, other, open }) {
+			Files.setLastModifiedTime(p, old);
+		}
+
+		assertTrue(fm.readFile("a", reader -> {
+			/*
+			 * removed, but not yet deleted, as we are reading it
+			 */
+			fm.removeFile("a");
+			fm.cleanup();
+			assertTrue(Files.exists(open));
+			assertFalse(Files.exists(orphan));
+		}, false));
+
+		assertFalse(Files.exists(open));
+		assertTrue(Files.exists(other));
+	}
+
+	private List<Path> filesOnDisk() throws IOException {
+		try (Stream<Path> stream = Files.list(this.folder)) {
+			return stream.filter(p -> p.getFileName().toString().startsWith("simplity-")).collect(Collectors.toList());
+		}
+	}
+
+	private static boolean newFile(final DefaultTempFileManager fm, final String name, final String content) {
+		return fm.newFile(name, writer -> {
+			try {
+				writer.write(content);
+				return true;
+			} catch (final IOException e) {
+				return false;
+			}
+		});
+	}
+
+	private static String readAll(final Reader reader) throws IOException {
+		final StringWriter sw = new StringWriter();
+		reader.transferTo(sw);
+		return sw.toString();
+	}
+
+	private static String read(final DefaultTempFileManager fm, final String name, final boolean remove) {
+		final StringWriter sw = new StringWriter();
+		final boolean ok = fm.readFile(name, reader -> {
+			try {
+				reader.transferTo(sw);
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}, remove);
+		return ok ? sw.toString() : null;
+	}
+}
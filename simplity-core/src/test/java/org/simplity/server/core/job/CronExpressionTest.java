@@ -0,0 +1,95 @@
+package org.simplity.server.core.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.ApplicationError;
+
+class CronExpressionTest {
+	private static final ZoneId UTC = ZoneId.of("UTC");
+	/*
+	 * clocks are set forward at 02:00 on 2024-03-10, and back at 02:00 on
+	 * 2024-11-03
+	 */
+	private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+	@Test
+	void acrossMonths() {
+		assertNext("0 0 1 * *", "2024-01-31T10:00Z", "2024-02-01T00:00Z");
+		assertNext("0 0 1 1 *", "2024-12-31T23:59Z", "2025-01-01T00:00Z");
+		// April has only 30 days
+		assertNext("30 2 31 * *", "2024-04-01T00:00Z", "2024-05-31T02:30Z");
+		// only in a leap year
+		assertNext("0 12 29 2 *", "2023-03-01T00:00Z", "2024-02-29T12:00Z");
+		// last minute of the month to the first one of the next
+		assertNext("* * * * *", "2024-02-29T23:59Z", "2024-03-01T00:00Z");
+		assertNext("15 10 * 6 *", "2024-06-30T10:15Z", "2025-06-01T10:15Z");
+	}
+
+	@Test
+	void weekDays() {
+		// 2024-06-01 is a Saturday
+		assertNext("0 9 * * 1", "2024-06-01T00:00Z", "2024-06-03T09:00Z");
+		assertNext("0 9 * * 7", "2024-06-01T00:00Z", "2024-06-02T09:00Z");
+		assertNext("0 9 * * 0", "2024-06-01T00:00Z", "2024-06-02T09:00Z");
+		// either of day-of-month and day-of-week
+		assertNext("0 9 15 * 1", "2024-06-04T00:00Z", "2024-06-10T09:00Z");
+		assertNext("0 9 5 * 1", "2024-06-04T00:00Z", "2024-06-05T09:00Z");
+	}
+
+	@Test
+	void steps() {
+		assertNext("*/15 * * * *", "2024-06-01T10:07Z", "2024-06-01T10:15Z");
+		assertNext("*/15 * * * *", "2024-06-01T10:45Z", "2024-06-01T11:00Z");
+		assertNext("10-40/15 * * * *", "2024-06-01T10:26Z", "2024-06-01T10:40Z");
+		assertNext("10-40/15 * * * *", "2024-06-01T10:40Z", "2024-06-01T11:10Z");
+	}
+
+	@Test
+	void clocksSetForward() {
+		// 02:30 does not exist on that day, and is moved forward by an hour
+		assertNext("30 2 * * *", "2024-03-09T03:00-05:00[America/New_York]",
+				"2024-03-10T03:30-04:00[America/New_York]");
+		assertNext("30 2 * * *", "2024-03-10T03:30-04:00[America/New_York]",
+				"2024-03-11T02:30-04:00[America/New_York]");
+		assertNext("0 3 * * *", "2024-03-10T01:59-05:00[America/New_York]",
+				"2024-03-10T03:00-04:00[America/New_York]");
+		assertNext("*/30 * * * *", "2024-03-10T01:30-05:00[America/New_York]",
+				"2024-03-10T03:00-04:00[America/New_York]");
+	}
+
+	@Test
+	void clocksSetBack() {
+		// 01:30 occurs twice on that day, but matches only once
+		assertNext("30 1 * * *", "2024-11-03T00:00-04:00[America/New_York]",
+				"2024-11-03T01:30-04:00[America/New_York]");
+		assertNext("30 1 * * *", "2024-11-03T01:30-04:00[America/New_York]",
+				"2024-11-04T01:30-05:00[America/New_York]");
+		// a time in the repeated hour stays with its offset
+		assertNext("45 1 * * *", "2024-11-03T01:10-05:00[America/New_York]",
+				"2024-11-03T01:45-05:00[America/New_York]");
+		assertNext("0 2 * * *", "2024-11-03T01:59-04:00[America/New_York]",
+				"2024-11-03T02:00-05:00[America/New_York]");
+	}
+
+	@Test
+	void invalidExpressions() {
+		assertThrows(ApplicationError.class, () -> new CronExpression("* * * *"));
+		assertThrows(ApplicationError.class, () -> new CronExpression("60 * * * *"));
+		assertThrows(ApplicationError.class, () -> new CronExpression("* * 10-5 * *"));
+		assertThrows(ApplicationError.class, () -> new CronExpression("0 0 30 2 *").nextAfter(ZonedDateTime.now(UTC)));
+	}
+
+	private static void assertNext(final String expression, final String after, final String expected) {
+		final ZonedDateTime t = new CronExpression(expression).nextAfter(ZonedDateTime.parse(after));
+		final ZonedDateTime exp = ZonedDateTime.parse(expected);
+		assertEquals(exp.toInstant(), t.toInstant(), expression + " after " + after);
+		if (exp.getZone().equals(NEW_YORK)) {
+			assertEquals(exp.getOffset(), t.getOffset(), expression + " after " + after);
+		}
+	}
+}
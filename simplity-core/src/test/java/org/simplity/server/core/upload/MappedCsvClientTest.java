@@ -0,0 +1,150 @@
+package org.simplity.server.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedCsvClientTest {
+	private static final long LARGE_WINDOW = 1024 * 1024;
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void plainRows() throws IOException {
+		final List<Map<String, String>> rows = this.read("id,name\n1,one\n2,two\n", ',', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "one"), row("id", "2", "name", "two")), rows);
+	}
+
+	@Test
+	void quotedFields() throws IOException {
+		final String text = "id,name,note\n1,\"one, two\",\"line1\nline2\"\n2,\"\",plain\n";
+		final List<Map<String, String>> rows = this.read(text, ',', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "one, two", "note", "line1\nline2"),
+				row("id", "2", "name", "", "note", "plain")), rows);
+	}
+
+	@Test
+	void escapedQuotes() throws IOException {
+		final String text = "id,name\n1,\"say \"\"hi\"\"\"\n2,\"\"\"\"\n";
+		final List<Map<String, String>> rows = this.read(text, ',', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "say \"hi\""), row("id", "2", "name", "\"")), rows);
+	}
+
+	@Test
+	void crlf() throws IOException {
+		final String text = "id,name\r\n1,one\r\n\r\n2,\"two\"\r\n3,\r\n";
+		final List<Map<String, String>> rows = this.read(text, ',', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "one"), row("id", "2", "name", "two"),
+				row("id", "3", "name", "")), rows);
+	}
+
+	@Test
+	void lastRowWithoutNewLine() throws IOException {
+		final List<Map<String, String>> rows = this.read("id,name\n1,one\n2,two", ',', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "one"), row("id", "2", "name", "two")), rows);
+	}
+
+	@Test
+	void tsv() throws IOException {
+		final String text = "id\tname\tnote\n1\tone, two\t\"a\tb\"\n2\ttwo\t\n";
+		final List<Map<String, String>> rows = this.read(text, '\t', true, null, LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "name", "one, two", "note", "a\tb"),
+				row("id", "2", "name", "two", "note", "")), rows);
+	}
+
+	@Test
+	void rowsAcrossWindows() throws IOException {
+		final StringBuilder sbf = new StringBuilder("id,name,note\n");
+		final List<Map<String, String>> expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			final String name = "né" + i;
+			final String note = i % 3 == 0 ? "x,\"y\"" + i : "z" + i;
+			sbf.append(i).append(',').append(name).append(",\"").append(note.replace("\"", "\"\"")).append("\"\r\n");
+			expected.add(row("id", Integer.toString(i), "name", name, "note", note));
+		}
+		final String text = sbf.toString();
+
+		/*
+		 * every row crosses the boundary of a window at some point
+		 */
+		for (long window = 32; window <= 64; window++) {
+			assertEquals(expected, this.read(text, ',', true, null, window), "window size " + window);
+		}
+	}
+
+	@Test
+	void onlyRequiredColumns() throws IOException {
+		final List<Map<String, String>> rows = this.read("id,name,note\n1,one,x\n2,two,y\n", ',', true,
+				Set.of("id", "note"), LARGE_WINDOW);
+		assertEquals(List.of(row("id", "1", "note", "x"), row("id", "2", "note", "y")), rows);
+	}
+
+	@Test
+	void noHeader() throws IOException {
+		final List<Map<String, String>> rows = this.read("1,one\n2,two,extra\n3\n", ',', false, null, LARGE_WINDOW);
+		assertEquals(List.of(row("a", "1", "b", "one"), row("a", "2", "b", "two", "c", "extra"), row("a", "3")),
+				rows);
+	}
+
+	@Test
+	void columnNames() {
+		assertEquals("a", MappedCsvClient.toColumnName(0));
+		assertEquals("z", MappedCsvClient.toColumnName(25));
+		assertEquals("aa", MappedCsvClient.toColumnName(26));
+		assertEquals("az", MappedCsvClient.toColumnName(51));
+		assertEquals("ba", MappedCsvClient.toColumnName(52));
+	}
+
+	/*
+	 * close() may be called by another thread while a row is being read. The
+	 * current window must remain readable
+	 */
+	@Test
+	void closeKeepsTheCurrentWindow() throws IOException {
+		final Path file = this.folder.resolve("close.csv");
+		Files.writeString(file, "id\n1\n2\n", StandardCharsets.UTF_8);
+		final MappedCsvClient client = new MappedCsvClient(file, ',', true, null);
+		assertEquals(row("id", "1"), client.nextRow(null));
+		client.close();
+		assertEquals(row("id", "2"), client.nextRow(null));
+	}
+
+	private List<Map<String, String>> read(final String text, final char separator, final boolean hasHeader,
+			final Set<String> names, final long windowSize) throws IOException {
+		final Path file = this.folder.resolve("upload.csv");
+		Files.writeString(file, text, StandardCharsets.UTF_8);
+		final List<Map<String, String>> rows = new ArrayList<>();
+		try (MappedCsvClient client = new MappedCsvClient(file, separator, hasHeader, names, windowSize)) {
+			Map<String, String> row;
+			while ((row = client.nextRow(null)) != null) {
+				/*
+				 * client re-uses the map
+				 */
+				rows.add(new HashMap<>(row));
+			}
+			assertNull(client.nextRow(null));
+		}
+		return rows;
+	}
+
+	private static Map<String, String> row(final String... nameValues) {
+		final Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < nameValues.length; i += 2) {
+			map.put(nameValues[i], nameValues[i + 1]);
+		}
+		return map;
+	}
+}
@@ -0,0 +1,144 @@
+package org.simplity.server.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.fn.Average;
+import org.simplity.server.core.fn.Concat;
+import org.simplity.server.core.fn.FunctionDefinition;
+import org.simplity.server.core.fn.Max;
+import org.simplity.server.core.fn.Min;
+import org.simplity.server.core.fn.Sum;
+
+class NumericExpressionTest {
+	private static final FunctionDefinition[] FUNCTIONS = { new Sum(), new Min(), new Max(), new Average() };
+	/*
+	 * values for the variables, including ones that are not numbers. null means
+	 * the variable is not in the row
+	 */
+	private static final String[] VALUES = { null, "", "abc", "0", "-0", "1", "-1", "2.5", "-7.25", "1e3", " 12 ",
+			"1e308", "-1e308", "NaN", "Infinity", "0x1p3", "12abc" };
+
+	@Test
+	void sameAsValueProvider() {
+		final List<Map<String, String>> rows = rows();
+		for (final FunctionDefinition fn : FUNCTIONS) {
+			for (final InputValueProvider[] params : paramSets()) {
+				final FunctionValueProvider vp = new FunctionValueProvider(fn, params);
+				final NumericExpression exp = NumericExpression.compile(vp);
+				assertNotNull(exp, fn.getClass().getSimpleName());
+				for (final Map<String, String> row : rows) {
+					final double d = exp.evaluate(row);
+					final String msg = fn.getClass().getSimpleName() + " for " + row;
+					if (Double.isNaN(d)) {
+						assertFallbackNeeded(vp, row, msg);
+					} else {
+						assertEquals(vp.getValue(row, null), Double.toString(d), msg);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void batchSameAsSingleRow() {
+		final List<Map<String, String>> rows = rows();
+		for (final FunctionDefinition fn : FUNCTIONS) {
+			for (final InputValueProvider[] params : paramSets()) {
+				final NumericExpression exp = NumericExpression.compile(new FunctionValueProvider(fn, params));
+				/*
+				 * twice, so that the scratch buffers are re-used
+				 */
+				for (int n = 0; n < 2; n++) {
+					final double[] result = new double[rows.size()];
+					exp.evaluate(rows, result);
+					for (int i = 0; i < rows.size(); i++) {
+						assertEquals(exp.evaluate(rows.get(i)), result[i],
+								fn.getClass().getSimpleName() + " for " + rows.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void constantsAreCalculatedOnce() {
+		final FunctionValueProvider vp = new FunctionValueProvider(new Sum(),
+				new InputValueProvider[] { constant("1.5"), constant("2") });
+		final NumericExpression exp = NumericExpression.compile(vp);
+		final Map<String, String> row = new HashMap<>();
+		assertEquals(vp.getValue(row, null), Double.toString(exp.evaluate(row)));
+	}
+
+	@Test
+	void notCompiled() {
+		assertNull(NumericExpression.compile(variable("a", null)));
+		assertNull(NumericExpression.compile(
+				new FunctionValueProvider(new Concat(), new InputValueProvider[] { variable("a", null) })));
+		assertNull(NumericExpression
+				.compile(new FunctionValueProvider(new Sum(), new InputValueProvider[] { constant("abc") })));
+		assertNull(NumericExpression.compile(new FunctionValueProvider(new Sum(), new InputValueProvider[] {
+				new FunctionValueProvider(new Sum(), new InputValueProvider[] { variable("a", null) }) })));
+		assertNull(NumericExpression.compile(new FunctionValueProvider(new Sum(), null)));
+	}
+
+	/*
+	 * a row that compiles to NaN is left to the value provider by the form loader.
+	 * That should happen only when an argument is missing or is not a number
+	 */
+	private static void assertFallbackNeeded(final FunctionValueProvider vp, final Map<String, String> row,
+			final String msg) {
+		for (final InputValueProvider p : vp.params) {
+			if (Double.isNaN(NumericExpression.toDouble(p.getValue(row, null)))) {
+				return;
+			}
+		}
+		fail(msg + " compiled to NaN though all its arguments are numbers");
+	}
+
+	private static List<InputValueProvider[]> paramSets() {
+		final List<InputValueProvider[]> sets = new ArrayList<>();
+		sets.add(new InputValueProvider[] { variable("a", null) });
+		sets.add(new InputValueProvider[] { variable("a", null), variable("b", null) });
+		sets.add(new InputValueProvider[] { variable("a", "10"), constant("-3.5"), variable("b", null) });
+		sets.add(new InputValueProvider[] { variable("a", "abc"), variable("b", "0") });
+		sets.add(new InputValueProvider[] { constant("4"), variable("b", "-1"), variable("a", "2"), constant("0.25") });
+		return sets;
+	}
+
+	/*
+	 * every combination of values for a and b
+	 */
+	private static List<Map<String, String>> rows() {
+		final List<Map<String, String>> rows = new ArrayList<>();
+		for (final String a : VALUES) {
+			for (final String b : VALUES) {
+				final Map<String, String> row = new HashMap<>();
+				if (a != null) {
+					row.put("a", a);
+				}
+				if (b != null) {
+					row.put("b", b);
+				}
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	private static VariableValueProvider variable(final String name, final String constant) {
+		return new VariableValueProvider(name, constant);
+	}
+
+	private static VariableValueProvider constant(final String value) {
+		return new VariableValueProvider(null, value);
+	}
+}
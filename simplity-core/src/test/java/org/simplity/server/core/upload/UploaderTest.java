@@ -0,0 +1,181 @@
+package org.simplity.server.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.Message;
+import org.simplity.server.core.MessageType;
+import org.simplity.server.core.app.TestApp;
+import org.simplity.server.core.data.DbField;
+import org.simplity.server.core.data.DbRecord;
+import org.simplity.server.core.data.Dba;
+import org.simplity.server.core.data.Field;
+import org.simplity.server.core.data.FieldType;
+import org.simplity.server.core.data.RecordMetaData;
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.db.DbTransacter;
+import org.simplity.server.core.db.TransactionHandle;
+import org.simplity.server.core.json.JsonUtil;
+import org.simplity.server.core.service.DefaultServiceContext;
+import org.simplity.server.core.service.ServiceContext;
+import org.simplity.server.core.valueschema.ValueSchema;
+import org.simplity.server.core.valueschema.ValueType;
+
+class UploaderTest {
+	private final TransactionHandle handle = mock(TransactionHandle.class);
+	/*
+	 * whether the batched insert of lines fails
+	 */
+	private boolean batchFails;
+	private long lastKey;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		final DbDriver driver = mock(DbDriver.class);
+		when(driver.doMultipleTransactions(any(DbTransacter.class)))
+				.thenAnswer(inv -> ((DbTransacter) inv.getArgument(0)).transact(this.handle));
+		when(this.handle.insertWithKeyGenerations(anyString(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+			final long[] keys = inv.getArgument(5);
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = ++this.lastKey;
+			}
+			return keys.length;
+		});
+		when(this.handle.insertWithKeyGeneration(anyString(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+			((long[]) inv.getArgument(5))[0] = ++this.lastKey;
+			return 1;
+		});
+		when(this.handle.writeMany(anyString(), any(), any(), any())).thenAnswer(inv -> {
+			if (this.batchFails) {
+				throw new SQLException("constraint violated");
+			}
+			return ((Object[][]) inv.getArgument(1)).length;
+		});
+		when(this.handle.write(anyString(), any(), any(), any())).thenReturn(1);
+		TestApp.install(driver);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TestApp.uninstall();
+	}
+
+	@Test
+	void messagesOfABatchAreAddedOnce() throws Exception {
+		this.batchFails = false;
+		assertArrayEquals(new String[] { "check x", "check y" }, this.upload());
+	}
+
+	@Test
+	void messagesAreNotRepeatedWhenTheBatchFallsBack() throws Exception {
+		this.batchFails = true;
+		assertArrayEquals(new String[] { "check x", "check y" }, this.upload());
+	}
+
+	private String[] upload() throws Exception {
+		/*
+		 * lines use the key generated for the order, and hence are prepared only
+		 * when they are inserted
+		 */
+		final FormLoader orders = new FormLoader(new Order(), "orderId",
+				new InputValueProvider[] { null, new VariableValueProvider("name", null) });
+		final FormLoader lines = new FormLoader(new Line(), null, new InputValueProvider[] {
+				new VariableValueProvider("orderId", null), (input, ctx) -> {
+					final String note = input.get("note");
+					ctx.addMessage(Message.newMessage(MessageType.Warning, "check " + note));
+					return note;
+				} });
+		final Uploader uploader = new Uploader(new FormLoader[] { orders, lines }, 500, 0, 0);
+
+		final List<Map<String, String>> rows = new ArrayList<>();
+		rows.add(Map.of("name", "a", "note", "x"));
+		rows.add(Map.of("name", "b", "note", "y"));
+		final Iterator<Map<String, String>> iter = rows.iterator();
+		final ServiceContext ctx = new DefaultServiceContext(null, JsonUtil.newOutputData(new StringWriter()));
+		final UploadResult result = uploader.upload(c -> iter.hasNext() ? iter.next() : null, ctx);
+
+		assertEquals(2, result.nbrRowsProcessed);
+		assertEquals(0, result.nbrRowsInError);
+		final Message[] msgs = ctx.getMessages();
+		final String[] ids = new String[msgs.length];
+		for (int i = 0; i < msgs.length; i++) {
+			ids[i] = msgs[i].messageId;
+		}
+		return ids;
+	}
+
+	/*
+	 * records need a public constructor for their tables
+	 */
+	public static class Order extends DbRecord {
+		private final RecordMetaData meta;
+
+		public Order() {
+			this(new Field[] {
+					new DbField("id", 0, ValueType.Integer, ValueSchema.getDefaultSchema(ValueType.Integer), false,
+							null, null, null, "id", FieldType.GeneratedPrimaryKey),
+					new DbField("name", 1, ValueType.Text, ValueSchema.getDefaultSchema(ValueType.Text), false, null,
+							null, null, "name", FieldType.RequiredData) });
+		}
+
+		private Order(final Field[] fields) {
+			this(new Dba(fields, "orders", new boolean[] { true, true, false, false, false },
+					"SELECT id, name FROM orders", new int[] { 0, 1 }, "INSERT INTO orders (name) VALUES (?)",
+					new int[] { 1 }, null, null, null, " WHERE id=?", new int[] { 0 }),
+					new RecordMetaData("orders", fields, null), null);
+		}
+
+		private Order(final Dba dba, final RecordMetaData meta, final Object[] values) {
+			super(dba, meta, values);
+			this.meta = meta;
+		}
+
+		@Override
+		public DbRecord newInstance(final Object[] values) {
+			return new Order(this.dba, this.meta, values);
+		}
+	}
+
+	public static class Line extends DbRecord {
+		private final RecordMetaData meta;
+
+		public Line() {
+			this(new Field[] {
+					new DbField("orderId", 0, ValueType.Integer, ValueSchema.getDefaultSchema(ValueType.Integer),
+							false, null, null, null, "order_id", FieldType.RequiredData),
+					new DbField("note", 1, ValueType.Text, ValueSchema.getDefaultSchema(ValueType.Text), false, null,
+							null, null, "note", FieldType.RequiredData) });
+		}
+
+		private Line(final Field[] fields) {
+			this(new Dba(fields, "line", new boolean[] { true, true, false, false, false },
+					"SELECT order_id, note FROM line", new int[] { 0, 1 },
+					"INSERT INTO line (order_id, note) VALUES (?,?)", new int[] { 0, 1 }, null, null, null, null,
+					null), new RecordMetaData("line", fields, null), null);
+		}
+
+		private Line(final Dba dba, final RecordMetaData meta, final Object[] values) {
+			super(dba, meta, values);
+			this.meta = meta;
+		}
+
+		@Override
+		public DbRecord newInstance(final Object[] values) {
+			return new Line(this.dba, this.meta, values);
+		}
+	}
+}
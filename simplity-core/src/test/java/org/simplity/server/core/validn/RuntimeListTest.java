@@ -0,0 +1,81 @@
+package org.simplity.server.core.validn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.server.core.app.TestApp;
+import org.simplity.server.core.db.DbDriver;
+import org.simplity.server.core.db.DbReader;
+import org.simplity.server.core.db.ReadonlyHandle;
+import org.simplity.server.core.service.ServiceContext;
+
+class RuntimeListTest {
+	private final ReadonlyHandle handle = mock(ReadonlyHandle.class);
+	private final ServiceContext ctx = mock(ServiceContext.class);
+	private final CityList list = new CityList();
+	private int nbrReads;
+	/*
+	 * to simulate an update that is committed while a list is being read
+	 */
+	private boolean invalidateWhileReading;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		final DbDriver driver = mock(DbDriver.class);
+		when(driver.doReadonlyOperations(any(DbReader.class)))
+				.thenAnswer(inv -> ((DbReader) inv.getArgument(0)).read(this.handle));
+		when(this.handle.readMany(anyString(), any(), any(), any(), any())).thenAnswer(inv -> {
+			this.nbrReads++;
+			if (this.invalidateWhileReading) {
+				this.invalidateWhileReading = false;
+				this.list.invalidateCache();
+			}
+			final List<Object[]> rows = inv.getArgument(4);
+			rows.add(new Object[] { "blr", "Bengaluru" });
+			return 1;
+		});
+		TestApp.install(driver);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TestApp.uninstall();
+	}
+
+	@Test
+	void listIsCached() {
+		this.list.getList(null, this.ctx);
+		this.list.getList(null, this.ctx);
+		assertEquals(1, this.nbrReads);
+
+		this.list.invalidateCache();
+		this.list.getList(null, this.ctx);
+		assertEquals(2, this.nbrReads);
+	}
+
+	@Test
+	void listReadBeforeAnInvalidationIsNotCached() {
+		this.invalidateWhileReading = true;
+		assertEquals(1, this.list.getList(null, this.ctx).length);
+		this.list.getList(null, this.ctx);
+		assertEquals(2, this.nbrReads);
+		this.list.getList(null, this.ctx);
+		assertEquals(2, this.nbrReads);
+	}
+
+	private static class CityList extends RuntimeList {
+		CityList() {
+			this.name = "city";
+			this.listSql = "SELECT code, name FROM city";
+			this.cacheTtlSeconds = 60;
+		}
+	}
+}
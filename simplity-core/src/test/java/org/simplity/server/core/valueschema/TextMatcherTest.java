@@ -0,0 +1,44 @@
+package org.simplity.server.core.valueschema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TextMatcherTest {
+	private static final String[] VALUES = { "", "a", "z", "A", "Z", "_", "0", "9", "abc", "ABC", "a1_", "123456",
+			"12345", "1234567", "12a456", "a b", "a\tb", "a\nb", "\n", " ", "-", "a-b", ".", "a.b", "$", "^", "\\",
+			"]", "[", "é", "aé", "ab\u0000", "x".repeat(100), "0".repeat(100), "+1-2", "hello world", "a\r\n" };
+
+	@Test
+	void simpleSets() {
+		assertSameAsRegex("[a-z]", "[a-z]*", "[a-z]+", "[a-z]?", "[a-zA-Z0-9_]*", "^[0-9]{6}$", "[0-9]{6}",
+				"[0-9]{2,5}", "[0-9]{0,}", "^[a-z]+$", "[abc]{1,2}");
+	}
+
+	@Test
+	void escapesInSets() {
+		assertSameAsRegex("[\\d]*", "[\\w]+", "[\\s]*", "[\\w\\s]*", "[\\.\\-]*", "[\\\\]*", "[\\]]*", "[\\[]+",
+				"[\\$\\^]*", "[\\d\\-+]{1,10}");
+	}
+
+	@Test
+	void literalsInSets() {
+		assertSameAsRegex("[-a]*", "[a-]*", "[.]*", "[$]*", "[a-c.x-z ]*", "[+-]?", "[ -~]*");
+	}
+
+	@Test
+	void fallsBackToPattern() {
+		assertSameAsRegex("[^a-z]*", "[a-z&&[^e]]*", "[a-z]*[0-9]", "a[b-z]*", "(ab)+", "[\\p{L}]*", "[a-z]{1}x",
+				"[a-z]*?", "\\d{6}", ".*", "[\\D]*", "[\\S]+", "[a-z]$", "[a-z]\\$", "^$|[0-9]+");
+	}
+
+	private static void assertSameAsRegex(final String... regexes) {
+		for (final String regex : regexes) {
+			final TextMatcher matcher = TextMatcher.compile(regex);
+			for (final String value : VALUES) {
+				assertEquals(value.matches(regex), matcher.matches(value),
+						"regex " + regex + " for value '" + value + "'");
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+// SPDX-License-Identifier: MIT
+package org.simplity.server.gen;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.simplity.server.core.ApplicationError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * remembers the fingerprint of the inputs of every component that was
+ * generated, along with the files that were generated for it. A component
+ * whose fingerprint has not changed since the last run, and whose files still
+ * exist, need not be generated again.
+ *
+ * The fingerprint is a SHA-256 hash of the input files of the component,
+ * including the ones it depends on, like the value schemas and the main record.
+ * The cache is saved as a properties file with the fingerprint and the
+ * generated files, relative to the output root, for each component. Deleting
+ * this file forces all the components to be generated again, as is required
+ * after an upgrade of the generator.
+ *
+ * Methods to check and add entries may be called concurrently.
+ *
+ * @author simplity.org
+ *
+ */
+class GenerationCache {
+	private static final Logger logger = LoggerFactory.getLogger(GenerationCache.class);
+	private static final char SEP = ',';
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String fileName;
+	private final String outputRoot;
+	/*
+	 * entries from the last run
+	 */
+	private final Map<String, String> previous = new ConcurrentHashMap<>();
+	/*
+	 * entries for this run. Components that are not generated in this run are
+	 * dropped
+	 */
+	private final Map<String, String> current = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param fileName   file in which the cache is saved. need not exist
+	 * @param outputRoot root folder of the generated files. Must end with '/'
+	 */
+	GenerationCache(final String fileName, final String outputRoot) {
+		this.fileName = fileName;
+		this.outputRoot = outputRoot;
+		final File file = new File(fileName);
+		if (!file.exists()) {
+			logger.info("No generation cache found at {}. All components will be generated", fileName);
+			return;
+		}
+
+		final Properties props = new Properties();
+		try (Reader reader = new FileReader(file)) {
+			props.load(reader);
+		} catch (final Exception e) {
+			logger.error("Generation cache {} could not be read. All components will be generated. {}", fileName,
+					e.getMessage());
+			return;
+		}
+		for (final String key : props.stringPropertyNames()) {
+			this.previous.put(key, props.getProperty(key));
+		}
+	}
+
+	/**
+	 * check if the files generated for this component in the last run are up to
+	 * date. If they are, the component is carried forward to this run
+	 *
+	 * @param key         unique name of the component, like record.customer
+	 * @param fingerprint of the inputs of the component
+	 * @return true if the component need not be generated again
+	 */
+	boolean isUpToDate(final String key, final String fingerprint) {
+		final String entry = this.previous.get(key);
+		if (entry == null) {
+			return false;
+		}
+
+		final String[] parts = entry.split(String.valueOf(SEP));
+		if (!parts[0].equals(fingerprint)) {
+			return false;
+		}
+		for (int i = 1; i < parts.length; i++) {
+			if (!new File(this.outputRoot + parts[i]).exists()) {
+				return false;
+			}
+		}
+		this.current.put(key, entry);
+		return true;
+	}
+
+	/**
+	 * add a component that is generated in this run
+	 *
+	 * @param key         unique name of the component
+	 * @param fingerprint of the inputs of the component
+	 * @param files       that were generated for this component
+	 */
+	void add(final String key, final String fingerprint, final List<String> files) {
+		final StringBuilder sbf = new StringBuilder(fingerprint);
+		for (final String f : files) {
+			String name = f;
+			if (name.startsWith(this.outputRoot)) {
+				name = name.substring(this.outputRoot.length());
+			}
+			sbf.append(SEP).append(name);
+		}
+		this.current.put(key, sbf.toString());
+	}
+
+	/**
+	 *
+	 * @return absolute paths of all the files of the components in this run
+	 */
+	Set<String> getFiles() {
+		final Set<String> files = new HashSet<>();
+		for (final String entry : this.current.values()) {
+			final String[] parts = entry.split(String.valueOf(SEP));
+			for (int i = 1; i < parts.length; i++) {
+				files.add(new File(this.outputRoot + parts[i]).getAbsolutePath());
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * save the entries of this run, for use by the next run
+	 */
+	void save() {
+		final StringBuilder sbf = new StringBuilder(
+				"# fingerprints of generated components. Delete this file to generate all of them again\n");
+		for (final Map.Entry<String, String> entry : new TreeMap<>(this.current).entrySet()) {
+			sbf.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+		Util.writeOut(this.fileName, sbf.toString());
+	}
+
+	/**
+	 * fingerprint of a set of files, along with any other text that the output
+	 * depends on
+	 *
+	 * @param texts     additional inputs, like the fingerprint of the main record.
+	 *                  null elements are ignored
+	 * @param fileNames input files. A missing file is treated as an empty one
+	 * @return hex form of the SHA-256 hash
+	 */
+	static String fingerprint(final String[] texts, final String... fileNames) {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new ApplicationError("SHA-256 is not available", e);
+		}
+
+		if (texts != null) {
+			for (final String text : texts) {
+				if (text != null) {
+					md.update(text.getBytes(StandardCharsets.UTF_8));
+				}
+				md.update((byte) 0);
+			}
+		}
+		for (final String fileName : fileNames) {
+			final File file = new File(fileName);
+			if (file.exists()) {
+				try {
+					md.update(Files.readAllBytes(file.toPath()));
+				} catch (final Exception e) {
+					logger.error("Error while reading {}. {}", fileName, e.getMessage());
+					md.update(Long.toString(System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			md.update((byte) 0);
+		}
+
+		final byte[] bytes = md.digest();
+		final char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
@@ -2,8 +2,13 @@
 package org.simplity.server.gen;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import org.simplity.server.core.Conventions;
 import org.simplity.server.core.app.App;
@@ -15,12 +20,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * generates java sources and sqls from the json files of the app.
+ *
+ * Generation is incremental. Fingerprints of the inputs of every record, form
+ * and sql are saved in a cache file in the output root folder, and a component
+ * is generated only if its fingerprint has changed, or its output files are
+ * missing. A generated file whose contents are unchanged is not over-written.
+ * Components are generated in parallel, on the common fork/join pool. Files
+ * that are no longer generated are removed from the output folders at the end.
+ *
  * @author simplity.org
  */
 public class Generator {
 	protected static final Logger logger = LoggerFactory.getLogger(Generator.class);
 
 	private static final String FOLDER = "/";
+	private static final String CACHE_FILE = ".generated.properties";
 
 	/**
 	 * folders to be created/ensured for java sources
@@ -66,7 +81,7 @@ public class Generator {
 
 			String fileRoot = tsRoot + "records/";
 			File folder = new File(fileRoot);
-			ensureFolder(folder);
+			ensureFolder(folder, true);
 
 			final Map<String, TableMetaRecord> tables = new HashMap<>();
 			final Map<String, DataTable<ColumnMetaRecord>> columnsOfTable = new HashMap<>();
@@ -149,10 +164,16 @@ public class Generator {
 
 	}
 
-	private static boolean ensureFolder(final File f) {
+	/*
+	 * existing files in the folder are deleted if clean is true
+	 */
+	private static boolean ensureFolder(final File f, final boolean clean) {
 		final String folder = f.getAbsolutePath();
 		if (f.exists()) {
 			if (f.isDirectory()) {
+				if (!clean) {
+					return true;
+				}
 				logger.debug("All files in folder {} are deleted", folder);
 				for (final File ff : f.listFiles()) {
 					if (!ff.delete()) {
@@ -207,6 +228,17 @@ public class Generator {
 	private final String javaOutputRoot;
 	private final String packageName;
 	private final String sqlOutputRoot;
+	private final GenerationCache cache;
+	/*
+	 * files generated for the app as a whole, like the value lists, rather than
+	 * for a component
+	 */
+	private final List<String> appFiles = new ArrayList<>();
+	/*
+	 * fingerprint of the app-level inputs that every component depends on
+	 */
+	private String appFingerprint;
+	private final Map<String, String> recordFingerprints = new HashMap<>();
 
 	private boolean allOk = true;
 
@@ -221,9 +253,20 @@ public class Generator {
 		this.sqlOutputRoot = outputRoot + "resources/dbSqls/";
 		this.javaOutputRoot = outputRoot + "java/" + packageName.replace('.', '/') + FOLDER;
 		this.packageName = packageName;
+		this.cache = new GenerationCache(outputRoot + CACHE_FILE, outputRoot);
 	}
 
 	private boolean go() {
+		final List<String> previous = Util.setWriteCollector(this.appFiles);
+		try {
+			return this.generateAll();
+		} finally {
+			Util.setWriteCollector(previous);
+		}
+	}
+
+	private boolean generateAll() {
+		long startedAt = System.currentTimeMillis();
 		String fileName = this.inputRoot + Conventions.App.APP_FILE;
 
 		this.app = Util.loadJson(fileName, Application.class);
@@ -234,7 +277,8 @@ public class Generator {
 		this.app.initialize();
 
 		/*
-		 * ensure all output folders are clean and ready
+		 * ensure all output folders exist. Files from the earlier run are left as
+		 * they are, and the ones that are not generated now are removed at the end
 		 */
 		this.createOutputFolders();
 		if (!this.allOk) {
@@ -272,31 +316,109 @@ public class Generator {
 		this.accumulate(this.messages.generateJava(this.javaOutputRoot, this.packageName));
 		this.accumulate(this.valueLists.generateJava(this.javaOutputRoot, this.packageName));
 		this.accumulate(this.valueSchemas.generateJava(this.javaOutputRoot, this.packageName));
+		this.appFingerprint = GenerationCache.fingerprint(new String[] { this.packageName },
+				this.inputRoot + Conventions.App.APP_FILE, this.inputRoot + Conventions.App.VALUE_SCHEMAS_FILE,
+				this.inputRoot + Conventions.App.LISTS_FILE);
+		startedAt = logTime("app-level components", startedAt);
 
 		this.generateRecords();
+		startedAt = logTime("records", startedAt);
 		this.generateForms();
+		startedAt = logTime("forms", startedAt);
 
 		// this is generated at the end to ensure that the required Records are loaded..
 		this.accumulate(this.generateSqls());
+		startedAt = logTime("sqls", startedAt);
+
+		this.removeStaleFiles();
+		this.cache.save();
+		logTime("clean-up", startedAt);
 		return this.allOk;
 	}
 
+	private static long logTime(final String phase, final long startedAt) {
+		final long now = System.currentTimeMillis();
+		logger.info("Generation of {} took {} ms", phase, now - startedAt);
+		return now;
+	}
+
 	private void accumulate(boolean ok) {
 		this.allOk = this.allOk && ok;
 	}
 
 	private void createOutputFolders() {
 		for (final String folder : JAVA_FOLDERS) {
-			if (!ensureFolder(new File(this.javaOutputRoot + folder))) {
+			if (!ensureFolder(new File(this.javaOutputRoot + folder), false)) {
 				this.allOk = false;
 			}
 		}
-		if (!ensureFolder(new File(this.sqlOutputRoot))) {
+		if (!ensureFolder(new File(this.sqlOutputRoot), false)) {
 			this.allOk = false;
 		}
 
 	}
 
+	/*
+	 * remove the files in the output folders that are not generated in this run.
+	 * They are left over from components that are removed, or are in error now
+	 */
+	private void removeStaleFiles() {
+		final Set<String> files = this.cache.getFiles();
+		for (final String f : this.appFiles) {
+			files.add(new File(f).getAbsolutePath());
+		}
+
+		final List<String> folders = new ArrayList<>();
+		for (final String folder : JAVA_FOLDERS) {
+			folders.add(this.javaOutputRoot + folder);
+		}
+		folders.add(this.sqlOutputRoot);
+
+		for (final String folder : folders) {
+			final File[] existing = new File(folder).listFiles();
+			if (existing == null) {
+				continue;
+			}
+			for (final File f : existing) {
+				if (f.isFile() && !files.contains(f.getAbsolutePath())) {
+					if (f.delete()) {
+						logger.info("File {} is no longer generated, and is deleted", f.getPath());
+					} else {
+						logger.error("Unable to delete file {}", f.getPath());
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * generate the components in parallel. A component is skipped if its output
+	 * is up to date
+	 */
+	private void runJobs(final String type, final List<Job> jobs) {
+		final AtomicInteger nbrGenerated = new AtomicInteger();
+		final AtomicInteger nbrSkipped = new AtomicInteger();
+		jobs.parallelStream().forEach(job -> {
+			if (this.cache.isUpToDate(job.key, job.fingerprint)) {
+				nbrSkipped.incrementAndGet();
+				return;
+			}
+
+			final List<String> files = new ArrayList<>();
+			final List<String> previous = Util.setWriteCollector(files);
+			try {
+				if (job.generator.getAsBoolean()) {
+					this.cache.add(job.key, job.fingerprint, files);
+					nbrGenerated.incrementAndGet();
+				}
+			} finally {
+				Util.setWriteCollector(previous);
+			}
+		});
+		logger.info("{} {} generated, {} are up to date and {} are in error", nbrGenerated, type, nbrSkipped,
+				jobs.size() - nbrGenerated.get() - nbrSkipped.get());
+	}
+
 	private void generateForms() {
 		String folderName = this.inputRoot + Conventions.App.FOLDER_NAME_FORM;
 		File folder = new File(folderName);
@@ -308,6 +430,7 @@ public class Generator {
 		logger.info("Going to process forms from folder {}", folderName);
 
 		String javaFolder = this.javaOutputRoot + Conventions.App.FOLDER_NAME_FORM + '/';
+		final List<Job> jobs = new ArrayList<>();
 
 		for (final File file : folder.listFiles()) {
 			String fn = file.getName();
@@ -342,8 +465,11 @@ public class Generator {
 			}
 
 			form.initialize(record);
-			form.generateJava(javaFolder, this.packageName);
+			final String fingerprint = GenerationCache.fingerprint(
+					new String[] { this.appFingerprint, this.recordFingerprints.get(record.name) }, file.getPath());
+			jobs.add(new Job("form." + form.name, fingerprint, () -> form.generateJava(javaFolder, this.packageName)));
 		}
+		this.runJobs("forms", jobs);
 	}
 
 	private void generateRecords() {
@@ -397,6 +523,8 @@ public class Generator {
 			record.init(schemas, this.valueLists.getValueLists());
 
 			this.records.put(record.name, record);
+			this.recordFingerprints.put(record.name,
+					GenerationCache.fingerprint(new String[] { this.appFingerprint }, file.getPath()));
 		}
 
 		/**
@@ -413,11 +541,22 @@ public class Generator {
 				}
 				subRecord.initExtendedRecord(schemas, this.valueLists.getValueLists(), record);
 				this.records.put(subRecord.name, subRecord);
+				this.recordFingerprints.put(subRecord.name,
+						GenerationCache.fingerprint(
+								new String[] { this.appFingerprint, this.recordFingerprints.get(record.name) },
+								folderName + FOLDER + subRecord.name + Conventions.App.EXTENSION_RECORD));
 			}
 		}
 
+		final String recordFolder = javaFolder;
+		final List<Job> jobs = new ArrayList<>();
+		for (Record record : this.records.values()) {
+			jobs.add(new Job("record." + record.name, this.recordFingerprints.get(record.name),
+					() -> record.generateJava(recordFolder, this.packageName)));
+		}
+		this.runJobs("records", jobs);
+
 		for (Record record : this.records.values()) {
-			record.generateJava(javaFolder, this.packageName);
 			record.emitSql(createSqls, dataSqls);
 		}
 
@@ -439,6 +578,8 @@ public class Generator {
 		logger.info("Going to process SQLs under folder {}", folderName);
 
 		String javaFolder = this.javaOutputRoot + Conventions.App.FOLDER_NAME_SQL + '/';
+		final List<Job> jobs = new ArrayList<>();
+		boolean ok = true;
 
 		for (final File file : folder.listFiles()) {
 			String fn = file.getName();
@@ -453,19 +594,40 @@ public class Generator {
 			final Sql sql = Util.loadJson(file.getPath(), Sql.class);
 			if (sql == null) {
 				logger.error("Sql {} not generated", fn);
-				return false;
+				ok = false;
+				break;
 			}
 
 			if (!fn.equals(sql.name)) {
 				logger.error("Sql name {} does not match with its file name: {}", sql.name, fn);
-				return false;
+				ok = false;
+				break;
 			}
 
 			sql.init(this.valueSchemas.getSchemas(), this.records);
-			sql.generateJava(javaFolder, this.packageName);
+			final String fingerprint = GenerationCache.fingerprint(new String[] { this.appFingerprint,
+					this.recordFingerprints.get(sql.inputRecord), this.recordFingerprints.get(sql.outputRecord) },
+					file.getPath());
+			jobs.add(new Job("sql." + sql.name, fingerprint, () -> sql.generateJava(javaFolder, this.packageName)));
+		}
+		this.runJobs("sqls", jobs);
+		return ok;
+	}
 
+	/**
+	 * generation of a component that does not depend on the generation of any
+	 * other component
+	 */
+	private static class Job {
+		final String key;
+		final String fingerprint;
+		final BooleanSupplier generator;
+
+		Job(final String key, final String fingerprint, final BooleanSupplier generator) {
+			this.key = key;
+			this.fingerprint = fingerprint;
+			this.generator = generator;
 		}
-		return true;
 	}
 
 }
@@ -1,6 +1,8 @@
 // SPDX-License-Identifier: MIT
 package org.simplity.server.gen;
 
+import org.simplity.server.core.valueschema.ValueType;
+
 /**
  * represents a pair of from-to fields in the form
  * 
@@ -20,6 +22,7 @@ class InterFieldValidation {
 	int index1;
 	int index2;
 	String fieldName;
+	ValueType valueType;
 
 	/**
 	 * called from record.init();
@@ -28,17 +31,23 @@ class InterFieldValidation {
 	 */
 	void init(Record record) {
 		this.fieldName = this.field1;
-		this.index1 = checkField(this.field1, record);
-		this.index2 = checkField(this.field2, record);
+		Field f = checkField(this.field1, record);
+		if (f == null) {
+			this.index1 = -1;
+		} else {
+			this.index1 = f.index;
+			this.valueType = f.valueTypeEnum;
+		}
+		f = checkField(this.field2, record);
+		this.index2 = f == null ? -1 : f.index;
 	}
 
-	private int checkField(String name, Record record) {
-		Field f = record.fieldsMap.get(this.field1);
+	private static Field checkField(String name, Record record) {
+		Field f = record.fieldsMap.get(name);
 		if (f == null) {
 			record.addError("Inter-field validation refers to field {} but that field is not defined", name);
-			return -1;
 		}
-		return f.index;
+		return f;
 	}
 
 	void emitJavaCode(StringBuilder sbf) {
@@ -48,6 +57,9 @@ class InterFieldValidation {
 		sbf.append(C).append(Util.quotedString(this.messageId));
 		sbf.append(C).append(Util.quotedString(this.onlyIfFieldValueEquals));
 		sbf.append(C).append("InterFieldValidationType." + Util.toClassName(this.validationType));
+		if (this.valueType != null) {
+			sbf.append(C).append("ValueType.").append(this.valueType.name());
+		}
 		sbf.append(")");
 	}
 }
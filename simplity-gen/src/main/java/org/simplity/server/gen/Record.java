@@ -15,9 +15,14 @@ import org.simplity.server.core.data.DbField;
 import org.simplity.server.core.data.DbRecord;
 import org.simplity.server.core.data.DbTable;
 import org.simplity.server.core.data.Dba;
+import org.simplity.server.core.data.FieldIndexer;
 import org.simplity.server.core.data.FieldType;
 import org.simplity.server.core.data.IoType;
+import org.simplity.server.core.data.RecordCache;
 import org.simplity.server.core.data.RecordMetaData;
+import org.simplity.server.core.data.RecordWriter;
+import org.simplity.server.core.db.ParamBinder;
+import org.simplity.server.core.db.RowMapper;
 import org.simplity.server.core.filter.FilterBuilder;
 import org.simplity.server.core.service.InputData;
 import org.simplity.server.core.service.ServiceContext;
@@ -56,6 +61,11 @@ class Record {
 	String nameInDb;
 	String validationFn;
 	boolean useTimestampCheck;
+	/*
+	 * opt-in for caching rows read by primary key
+	 */
+	int cacheBudgetKb;
+	int cacheTtlSeconds;
 	boolean isVisibleToClient;
 	// String customValidation;
 	String[] operations;
@@ -320,6 +330,12 @@ class Record {
 				f.init(this);
 			}
 		}
+
+		if (this.cacheBudgetKb > 0 && (this.keyFields == null || this.allowedIos == null
+				|| this.allowedIos.contains(IoType.GET) == false)) {
+			this.addError("cacheBudgetKb is specified, but the record is not designed for get operation by its key");
+			this.cacheBudgetKb = 0;
+		}
 	}
 
 	void addError(String error, Object... params) {
@@ -392,11 +408,18 @@ class Record {
 		Util.emitImport(sbf, InputData.class);
 		Util.emitImport(sbf, org.simplity.server.core.data.Field.class);
 		Util.emitImport(sbf, RecordMetaData.class);
+		Util.emitImport(sbf, RowMapper.class);
+		Util.emitImport(sbf, FieldIndexer.class);
+		Util.emitImport(sbf, RecordWriter.class);
 		if (isDb) {
 			Util.emitImport(sbf, Dba.class);
+			Util.emitImport(sbf, ParamBinder.class);
 			Util.emitImport(sbf, DbField.class);
 			Util.emitImport(sbf, DbRecord.class);
 			Util.emitImport(sbf, FieldType.class);
+			if (this.cacheBudgetKb > 0) {
+				Util.emitImport(sbf, RecordCache.class);
+			}
 		} else {
 			Util.emitImport(sbf, org.simplity.server.core.data.Record.class);
 		}
@@ -439,8 +462,27 @@ class Record {
 		}
 		this.emitJavaValidations(sbf);
 
+		final boolean hasMapper = this.fields != null && this.fields.length > 0;
+		if (hasMapper) {
+			final ValueType[] types = new ValueType[this.fields.length];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = this.fields[i].valueTypeEnum;
+			}
+			sbf.append('\n');
+			Util.emitRowMapper(sbf, "ROW_MAPPER", types);
+		}
+
+		if (hasMapper) {
+			this.emitFieldIndexer(sbf);
+			this.emitRecordWriter(sbf);
+		}
+
 		sbf.append("\n\n\tprivate static final RecordMetaData META = new RecordMetaData(\"");
-		sbf.append(this.name).append("\", FIELDS, VALIDS);");
+		sbf.append(this.name).append("\", FIELDS, VALIDS");
+		if (hasMapper) {
+			sbf.append(", ROW_MAPPER, FIELD_INDEXER, RECORD_WRITER");
+		}
+		sbf.append(");");
 
 		if (isDb) {
 			this.emitDbSpecific(sbf);
@@ -482,6 +524,49 @@ class Record {
 		return true;
 	}
 
+	/*
+	 * index of a field from its name in the input data
+	 */
+	private void emitFieldIndexer(final StringBuilder sbf) {
+		sbf.append(P).append("FieldIndexer FIELD_INDEXER = name -> {");
+		sbf.append("\n\t\tswitch (name) {");
+		for (final Field field : this.fields) {
+			sbf.append("\n\t\tcase ").append(Util.quotedString(field.name)).append(':');
+			sbf.append("\n\t\t\treturn ").append(field.index).append(';');
+		}
+		sbf.append("\n\t\tdefault:\n\t\t\treturn -1;\n\t\t}\n\t};");
+	}
+
+	/*
+	 * write field values with the typed methods of output data. null is written
+	 * as an empty string, exactly as in OutputData.addValues()
+	 */
+	private void emitRecordWriter(final StringBuilder sbf) {
+		sbf.append(P).append("RecordWriter RECORD_WRITER = (out, values) -> {");
+		sbf.append("\n\t\tObject value;");
+		for (final Field field : this.fields) {
+			sbf.append("\n\t\tvalue = values[").append(field.index).append("];");
+			sbf.append("\n\t\tout.addName(").append(Util.quotedString(field.name)).append(");");
+			sbf.append("\n\t\tif (value == null) {\n\t\t\tout.addValue(\"\");\n\t\t} else {\n\t\t\tout.addValue(");
+			switch (field.valueTypeEnum) {
+			case Integer:
+				sbf.append("((Number) value).longValue()");
+				break;
+			case Decimal:
+				sbf.append("((Number) value).doubleValue()");
+				break;
+			case Boolean:
+				sbf.append("((Boolean) value).booleanValue()");
+				break;
+			default:
+				sbf.append("value.toString()");
+				break;
+			}
+			sbf.append(");\n\t\t}");
+		}
+		sbf.append("\n\t};");
+	}
+
 	private void emitNonDbSpecific(final StringBuilder sbf) {
 		/*
 		 * constructor
@@ -498,19 +583,22 @@ class Record {
 
 		StringBuilder whereClause = new StringBuilder();
 		StringBuilder indexes = new StringBuilder();
+		final List<ValueType> whereTypes = new ArrayList<>();
 
 		if (this.keyFields == null) {
 			sbf.append(P).append("String WHERE = null;");
 			sbf.append(P).append("int[] WHERE_IDX = null;");
+			sbf.append(P).append("ParamBinder WHERE_BINDER = null;");
 		} else {
-			this.makeWhere(whereClause, indexes);
+			this.makeWhere(whereClause, indexes, whereTypes);
 			sbf.append(P).append("String WHERE = \"").append(whereClause.toString()).append("\";");
 			sbf.append(P).append("int[] WHERE_IDX = {").append(indexes.toString()).append("};");
+			Util.emitParamBinder(sbf, "WHERE_BINDER", whereTypes.toArray(new ValueType[0]));
 		}
 
 		this.emitSelect(sbf);
 		this.emitInsert(sbf);
-		this.emitUpdate(sbf, whereClause.toString(), indexes.toString());
+		this.emitUpdate(sbf, whereClause.toString(), indexes.toString(), whereTypes);
 
 		sbf.append(P).append("String DELETE = ");
 		if (this.allowedIos.contains(IoType.DELETE)) {
@@ -520,7 +608,14 @@ class Record {
 		}
 
 		sbf.append("\n\n\tprivate static final Dba DBA = new Dba(FIELDS, ").append(Util.quotedString(this.nameInDb))
-				.append(", OPERS, SELECT, SELECT_IDX, INSERT, INSERT_IDX, UPDATE, UPDATE_IDX, DELETE, WHERE, WHERE_IDX);");
+				.append(", OPERS, SELECT, SELECT_IDX, INSERT, INSERT_IDX, UPDATE, UPDATE_IDX, DELETE, WHERE, WHERE_IDX");
+		if (this.cacheBudgetKb > 0) {
+			sbf.append(",\n\t\t\tnew RecordCache(").append(Util.quotedString(this.name)).append(C)
+					.append(this.cacheBudgetKb).append(C).append(this.cacheTtlSeconds).append(')');
+		} else {
+			sbf.append(", null");
+		}
+		sbf.append(", SELECT_MAPPER, INSERT_BINDER, UPDATE_BINDER, WHERE_BINDER);");
 
 		/*
 		 * constructor
@@ -613,7 +708,7 @@ class Record {
 		sbf.append("\n\t};");
 	}
 
-	private void makeWhere(final StringBuilder clause, final StringBuilder indexes) {
+	private void makeWhere(final StringBuilder clause, final StringBuilder indexes, final List<ValueType> types) {
 		clause.append(" WHERE ");
 		boolean firstOne = true;
 		for (final Field field : this.keyFields) {
@@ -625,6 +720,7 @@ class Record {
 			}
 			clause.append(field.nameInDb).append("=?");
 			indexes.append(field.index);
+			types.add(field.valueTypeEnum);
 		}
 		/*
 		 * as a matter of safety, tenant key is always part of queries
@@ -632,6 +728,7 @@ class Record {
 		if (this.tenantField != null) {
 			clause.append(" AND ").append(this.tenantField.nameInDb).append("=?");
 			indexes.append(C).append(this.tenantField.index);
+			types.add(this.tenantField.valueTypeEnum);
 		}
 	}
 
@@ -640,9 +737,11 @@ class Record {
 		if (this.allowedIos.contains(IoType.GET) == false) {
 			sbf.append("null;");
 			sbf.append(P).append("int[] SELECT_IDX = null;");
+			sbf.append(P).append("RowMapper SELECT_MAPPER = null;");
 			return;
 		}
 		final StringBuilder idxSbf = new StringBuilder();
+		final List<ValueType> types = new ArrayList<>();
 		sbf.append(" \"SELECT ");
 
 		boolean firstOne = true;
@@ -662,11 +761,13 @@ class Record {
 			}
 			sbf.append(field.nameInDb);
 			idxSbf.append(field.index);
+			types.add(field.valueTypeEnum);
 		}
 
 		sbf.append(" FROM ").append(this.nameInDb);
 		sbf.append("\";");
 		sbf.append(P).append("int[] SELECT_IDX = {").append(idxSbf).append("};");
+		Util.emitRowMapper(sbf, "SELECT_MAPPER", types.toArray(new ValueType[0]));
 
 	}
 
@@ -675,8 +776,10 @@ class Record {
 		if (this.allowedIos.contains(IoType.CREATE) == false) {
 			sbf.append("null;");
 			sbf.append(P).append("int[] INSERT_IDX = null;");
+			sbf.append(P).append("ParamBinder INSERT_BINDER = null;");
 			return;
 		}
+		final List<ValueType> types = new ArrayList<>();
 
 		sbf.append("\"INSERT INTO ").append(this.nameInDb).append('(');
 		final StringBuilder idxSbf = new StringBuilder();
@@ -709,14 +812,17 @@ class Record {
 					idxSbf.append(C);
 				}
 				idxSbf.append(field.index);
+				types.add(field.valueTypeEnum);
 			}
 		}
 
 		sbf.append(") values (").append(vbf).append(")\";");
 		sbf.append(idxSbf).append("};");
+		Util.emitParamBinder(sbf, "INSERT_BINDER", types.toArray(new ValueType[0]));
 	}
 
-	private void emitUpdate(final StringBuilder sbf, final String whereClause, final String whereIndexes) {
+	private void emitUpdate(final StringBuilder sbf, final String whereClause, final String whereIndexes,
+			final List<ValueType> whereTypes) {
 		sbf.append(P).append(" String UPDATE = ");
 
 		final StringBuilder updateBuf = new StringBuilder();
@@ -725,6 +831,7 @@ class Record {
 		final StringBuilder idxBuf = new StringBuilder();
 		idxBuf.append(P).append(" int[] UPDATE_IDX = {");
 
+		final List<ValueType> types = new ArrayList<>();
 		boolean firstOne = true;
 		boolean firstField = true;
 		for (final Field field : this.fields) {
@@ -753,12 +860,14 @@ class Record {
 					idxBuf.append(C);
 				}
 				idxBuf.append(field.index);
+				types.add(field.valueTypeEnum);
 			}
 		}
 
 		if (this.allowedIos.contains(IoType.UPDATE) == false || firstOne) {
 			sbf.append("null; // operation not allowed or no updatable fields");
 			sbf.append(P).append("int[] UPDATE_IDX = null;");
+			sbf.append(P).append("ParamBinder UPDATE_BINDER = null;");
 			return;
 		}
 
@@ -768,13 +877,16 @@ class Record {
 		}
 		idxBuf.append(whereIndexes);
 		updateBuf.append(whereClause);
+		types.addAll(whereTypes);
 
 		if (this.useTimestampCheck) {
 			updateBuf.append(" AND ").append(this.timestampField.nameInDb).append("=?");
 			idxBuf.append(C).append(this.timestampField.index);
+			types.add(this.timestampField.valueTypeEnum);
 		}
 		updateBuf.append("\";");
 		sbf.append(updateBuf.toString()).append(idxBuf.toString()).append("};");
+		Util.emitParamBinder(sbf, "UPDATE_BINDER", types.toArray(new ValueType[0]));
 	}
 
 	boolean emitJavaTableClass(final StringBuilder sbf, final String generatedPackage) {
@@ -539,6 +539,20 @@ public class Sql {
 		return sbf.toString();
 	}
 
+	/*
+	 * output fields of a read-sql are extracted with a generated mapper
+	 */
+	private boolean hasOutputMapper() {
+		return !this.isSp && this.isToRead && this.outputFields != null;
+	}
+
+	/*
+	 * input fields of a sql are set as parameters with a generated binder
+	 */
+	private boolean hasInputBinder() {
+		return !this.isSp && this.inputFields != null;
+	}
+
 	private void emitImports(final StringBuilder sbf, final String rootPackage) {
 		sbf.append("package ").append(rootPackage).append(".sql;\n");
 
@@ -557,6 +571,12 @@ public class Sql {
 					.append(Conventions.App.GENERATED_VALUE_SCHEMAS_CLASS_NAME).append(';');
 		}
 
+		if (this.hasOutputMapper()) {
+			Util.emitImport(sbf, org.simplity.server.core.db.RowMapper.class);
+		}
+		if (this.hasInputBinder()) {
+			Util.emitImport(sbf, org.simplity.server.core.db.ParamBinder.class);
+		}
 		if (this.isToRead) {
 			Util.emitImport(sbf, ReadonlyHandle.class);
 		} else {
@@ -629,6 +649,18 @@ public class Sql {
 		}
 		sbf.append(";");
 
+		if (this.hasOutputMapper()) {
+			Util.emitRowMapper(sbf, "OUT_MAPPER", this.outputTypes);
+		}
+
+		if (this.hasInputBinder()) {
+			final ValueType[] inputTypes = new ValueType[this.inputFields.length];
+			for (int i = 0; i < inputTypes.length; i++) {
+				inputTypes[i] = this.inputFields[i].getValueType();
+			}
+			Util.emitParamBinder(sbf, "IN_BINDER", inputTypes);
+		}
+
 	}
 
 	private static void emitFieldArray(Field[] fields, StringBuilder sbf) {
@@ -712,7 +744,13 @@ public class Sql {
 		if (this.isSp) {
 			sbf.append("\n\t\tsuper(PROC_NAME, RET_TYPE, SP_OUT_CLASSES, IN_FIELDS, OUT_TYPES);");
 		} else {
-			sbf.append("\n\t\tsuper(SQL, IN_FIELDS, OUT_TYPES);");
+			sbf.append("\n\t\tsuper(SQL, IN_FIELDS, OUT_TYPES");
+			if (this.hasInputBinder()) {
+				sbf.append(this.hasOutputMapper() ? ", OUT_MAPPER" : ", null").append(", IN_BINDER");
+			} else if (this.hasOutputMapper()) {
+				sbf.append(", OUT_MAPPER");
+			}
+			sbf.append(");");
 		}
 		sbf.append("\n\t}");
 	}
@@ -6,8 +6,13 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
+import org.simplity.server.core.ApplicationError;
+import org.simplity.server.core.Conventions;
 import org.simplity.server.core.valueschema.BooleanSchema;
 import org.simplity.server.core.valueschema.DateSchema;
 import org.simplity.server.core.valueschema.DecimalSchema;
@@ -35,6 +40,10 @@ public class Util {
 	 * small trick, we can avoid repeated creation of Gson instances
 	 */
 	private static final Gson GSON = new Gson();
+	/**
+	 * if set, names of the files written out by this thread are added to it
+	 */
+	private static final ThreadLocal<List<String>> WRITE_COLLECTOR = new ThreadLocal<>();
 	/**
 	 * java Types for each ValueType enum
 	 */
@@ -331,13 +340,32 @@ public class Util {
 	}
 
 	/**
-	 * write the contents to the named file
+	 * write the contents to the named file. The file is left untouched if it
+	 * already has the same contents, so that its time-stamp survives and the
+	 * builds that depend on it need not re-compile it.
 	 *
 	 * @param fileName non-null
 	 * @param text     non-null
 	 */
 	public static void writeOut(final String fileName, final String text) {
-		try (Writer writer = new FileWriter(new File(fileName))) {
+		final List<String> collector = WRITE_COLLECTOR.get();
+		if (collector != null) {
+			collector.add(fileName);
+		}
+
+		final File file = new File(fileName);
+		if (file.isFile()) {
+			try {
+				if (Arrays.equals(Files.readAllBytes(file.toPath()), text.getBytes())) {
+					logger.debug("File {} is unchanged.", fileName);
+					return;
+				}
+			} catch (final IOException e) {
+				// we will just over-write it
+			}
+		}
+
+		try (Writer writer = new FileWriter(file)) {
 			writer.write(text);
 			logger.info("File {} generated.", fileName);
 		} catch (final Exception e) {
@@ -345,6 +373,24 @@ public class Util {
 		}
 	}
 
+	/**
+	 * set the list to which the names of the files written out by this thread are
+	 * to be added
+	 *
+	 * @param collector null to stop collecting the names
+	 * @return the collector that was set before this call, to be restored by the
+	 *         caller after it is done
+	 */
+	static List<String> setWriteCollector(final List<String> collector) {
+		final List<String> previous = WRITE_COLLECTOR.get();
+		if (collector == null) {
+			WRITE_COLLECTOR.remove();
+		} else {
+			WRITE_COLLECTOR.set(collector);
+		}
+		return previous;
+	}
+
 	/**
 	 * quote the string-value for String, else just the string value of the object
 	 *
@@ -448,6 +494,170 @@ public class Util {
 		sbf.append('}');
 	}
 
+	/**
+	 * emit a static RowMapper that extracts columns of these types, in that
+	 * order, from a result set, with the typed getter for each column. Null
+	 * handling is as per Conventions.Db, exactly as in DbUtil.getValueFromRs()
+	 *
+	 * @param sbf
+	 * @param name  name of the static field
+	 * @param types value types of the columns
+	 */
+	public static void emitRowMapper(final StringBuilder sbf, final String name, final ValueType[] types) {
+		boolean hasText = false;
+		boolean hasDate = false;
+		boolean hasStamp = false;
+		for (final ValueType vt : types) {
+			if (vt == ValueType.Text) {
+				hasText = true;
+			} else if (vt == ValueType.Date) {
+				hasDate = true;
+			} else if (vt == ValueType.Timestamp) {
+				hasStamp = true;
+			}
+		}
+
+		sbf.append("\n\tprivate static final RowMapper ").append(name).append(" = (rs, row) -> {");
+		if (hasText) {
+			sbf.append("\n\t\tString text;");
+		}
+		if (hasDate) {
+			sbf.append("\n\t\tjava.sql.Date date;");
+		}
+		if (hasStamp) {
+			sbf.append("\n\t\tjava.sql.Timestamp stamp;");
+		}
+
+		final boolean nullAsZero = Conventions.Db.TREAT_NULL_AS_ZERO;
+		final String nullText = Conventions.Db.TEXT_VALUE_OF_NULL;
+		for (int i = 0; i < types.length; i++) {
+			final String target = "\n\t\trow[" + i + "] = ";
+			final int pos = i + 1;
+			switch (types[i]) {
+			case Boolean:
+				sbf.append(target).append("rs.getBoolean(").append(pos).append(");");
+				sbf.append("\n\t\tif (rs.wasNull()) {\n\t\t\trow[").append(i).append("] = null;\n\t\t}");
+				break;
+
+			case Integer:
+			case Decimal:
+				final String getter = types[i] == ValueType.Integer ? "getLong" : "getDouble";
+				sbf.append(target).append("rs.").append(getter).append('(').append(pos).append(");");
+				if (!nullAsZero) {
+					sbf.append("\n\t\tif (rs.wasNull()) {\n\t\t\trow[").append(i).append("] = null;\n\t\t}");
+				}
+				break;
+
+			case Text:
+				if (nullText == null) {
+					sbf.append(target).append("rs.getString(").append(pos).append(");");
+				} else {
+					sbf.append("\n\t\ttext = rs.getString(").append(pos).append(");");
+					sbf.append(target).append("text == null ? ").append(Q).append(escapeForJavaStringLiteral(nullText))
+							.append(Q).append(" : text;");
+				}
+				break;
+
+			case Date:
+				sbf.append("\n\t\tdate = rs.getDate(").append(pos).append(");");
+				sbf.append(target).append("date == null ? null : date.toLocalDate();");
+				break;
+
+			case Timestamp:
+				sbf.append("\n\t\tstamp = rs.getTimestamp(").append(pos).append(");");
+				sbf.append(target).append("stamp == null ? null : stamp.toInstant();");
+				break;
+
+			default:
+				throw new ApplicationError("ValueType " + types[i] + " is not handled in DB related operations");
+			}
+		}
+		sbf.append("\n\t};");
+	}
+
+	/**
+	 * emit a static ParamBinder that sets parameters of these types, in that
+	 * order, into a prepared statement, with the typed setter for each parameter.
+	 * Null handling is as per Conventions.Db, exactly as in
+	 * DbUtil.setPsParamValue(). Whether an int is used for a boolean is known only
+	 * at run time, and hence it is checked once for each row.
+	 *
+	 * @param sbf
+	 * @param name  name of the static field
+	 * @param types value types of the parameters
+	 */
+	public static void emitParamBinder(final StringBuilder sbf, final String name, final ValueType[] types) {
+		sbf.append("\n\tprivate static final ParamBinder ").append(name).append(" = (ps, values) -> {");
+		if (types.length == 0) {
+			sbf.append("\n\t\t// no parameters\n\t};");
+			return;
+		}
+		boolean hasBoolean = false;
+		for (final ValueType vt : types) {
+			if (vt == ValueType.Boolean) {
+				hasBoolean = true;
+			}
+		}
+		if (hasBoolean) {
+			sbf.append("\n\t\tfinal boolean intForBoolean = org.simplity.server.core.db.DbUtil.useIntForBoolean();");
+		}
+		sbf.append("\n\t\tObject value;");
+
+		final boolean nullAsZero = Conventions.Db.TREAT_NULL_AS_ZERO;
+		final String nullText = Conventions.Db.TEXT_VALUE_OF_NULL;
+		for (int i = 0; i < types.length; i++) {
+			final int pos = i + 1;
+			sbf.append("\n\t\tvalue = values[").append(i).append("];");
+			switch (types[i]) {
+			case Boolean:
+				sbf.append("\n\t\tif (value == null) {\n\t\t\tps.setNull(").append(pos)
+						.append(", java.sql.Types.BOOLEAN);\n\t\t} else if (intForBoolean) {\n\t\t\tps.setInt(")
+						.append(pos).append(", (Boolean) value ? 1 : 0);\n\t\t} else {\n\t\t\tps.setBoolean(")
+						.append(pos).append(", (Boolean) value);\n\t\t}");
+				break;
+
+			case Integer:
+			case Decimal:
+				final boolean isInt = types[i] == ValueType.Integer;
+				final String setter = isInt ? "setLong" : "setDouble";
+				sbf.append("\n\t\tif (value == null) {\n\t\t\tps.");
+				if (nullAsZero) {
+					sbf.append(setter).append('(').append(pos).append(isInt ? ", 0L);" : ", 0.0);");
+				} else {
+					sbf.append("setNull(").append(pos)
+							.append(isInt ? ", java.sql.Types.INTEGER);" : ", java.sql.Types.DECIMAL);");
+				}
+				sbf.append("\n\t\t} else {\n\t\t\tps.").append(setter).append('(').append(pos)
+						.append(isInt ? ", (Long) value);" : ", (Double) value);").append("\n\t\t}");
+				break;
+
+			case Text:
+				sbf.append("\n\t\tps.setString(").append(pos).append(", value == null ? ");
+				if (nullText == null) {
+					sbf.append("null");
+				} else {
+					sbf.append(Q).append(escapeForJavaStringLiteral(nullText)).append(Q);
+				}
+				sbf.append(" : value.toString());");
+				break;
+
+			case Date:
+				sbf.append("\n\t\tps.setDate(").append(pos)
+						.append(", value == null ? null : java.sql.Date.valueOf((java.time.LocalDate) value));");
+				break;
+
+			case Timestamp:
+				sbf.append("\n\t\tps.setTimestamp(").append(pos)
+						.append(", value == null ? null : java.sql.Timestamp.from((java.time.Instant) value));");
+				break;
+
+			default:
+				throw new ApplicationError("ValueType " + types[i] + " is not handled in DB related operations");
+			}
+		}
+		sbf.append("\n\t};");
+	}
+
 	/**
 	 * emit getter functions with proper type from the underlying values Object[]
 	 *
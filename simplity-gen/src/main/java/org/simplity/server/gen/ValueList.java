@@ -35,6 +35,11 @@ public class ValueList implements Initializer {
 	private boolean column1IsNumeric;
 	private String tenantColumnName;
 	private String activeColumnName;
+	/*
+	 * optional caching of a runtime list
+	 */
+	private int cacheTtlSeconds;
+	private int cacheMaxLists;
 	/*
 	 * in case this list is also required in batches
 	 */
@@ -132,6 +137,23 @@ public class ValueList implements Initializer {
 		}
 		sbf.append("\";");
 
+		if (this.keyColumn != null) {
+			/*
+			 * lists for all the keys in one query
+			 */
+			sbf.append("\n\t private static final String ALL_LISTS_SQL = \"SELECT ").append(this.keyColumn).append(C)
+					.append(this.dbColumn1).append(C).append(this.dbColumn2).append(" FROM ").append(this.dbTableName);
+			whereAdded = false;
+			if (this.activeColumnName != null) {
+				sbf.append(WHERE).append(this.activeColumnName).append("=true");
+				whereAdded = true;
+			}
+			if (this.tenantColumnName != null) {
+				sbf.append(whereAdded ? AND : WHERE).append(this.tenantColumnName).append("=?");
+			}
+			sbf.append(" ORDER BY ").append(this.keyColumn).append("\";");
+		}
+
 		if (this.parentTable != null) {
 			sbf.append("\n\t private static final String ALL_SQL = \"SELECT a.").append(this.dbColumn1);
 			sbf.append(", a.").append(this.dbColumn2).append(", b.").append(this.parentNameColumnName).append(" FROM ");
@@ -153,8 +175,13 @@ public class ValueList implements Initializer {
 			sbf.append("\n\t\tthis.column1IsNumeric = true;");
 		}
 
+		if (this.parentTable != null) {
+			sbf.append("\n\t\tthis.allSql = ALL_SQL;");
+		}
+
 		if (this.keyColumn != null) {
 			sbf.append("\n\t\tthis.hasKey = true;");
+			sbf.append("\n\t\tthis.allListsSql = ALL_LISTS_SQL;");
 			if (this.keyIsNumeric) {
 				sbf.append("\n\t\tthis.keyIsNumeric = true;");
 			}
@@ -164,6 +191,13 @@ public class ValueList implements Initializer {
 			sbf.append("\n\t\tthis.isTenantSpecific = true;");
 		}
 
+		if (this.cacheTtlSeconds > 0) {
+			sbf.append("\n\t\tthis.cacheTtlSeconds = ").append(this.cacheTtlSeconds).append(';');
+			if (this.cacheMaxLists > 0) {
+				sbf.append("\n\t\tthis.cacheMaxLists = ").append(this.cacheMaxLists).append(';');
+			}
+		}
+
 		sbf.append("\n\t}\n}\n");
 	}
 